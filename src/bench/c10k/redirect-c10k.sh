@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+# Compare servlet and reactive redirect nodes at 10k+ concurrent connections.
+#
+# Start one node of each mode against the same MongoDB/Redis, for example:
+#   SERVER_PORT=8080 java -jar target/urlify-1.0.0.jar
+#   SERVER_PORT=8081 URLIFY_MODE=reactive java -jar target/urlify-1.0.0.jar
+# then create some short URLs and list their codes (one per line) in CODES_FILE.
+#
+# Requires wrk (https://github.com/wg/wrk) and a raised open-file limit on both
+# the load generator and the nodes (ulimit -n 65535).
+set -euo pipefail
+
+SERVLET_URL=${SERVLET_URL:-http://localhost:8080}
+REACTIVE_URL=${REACTIVE_URL:-http://localhost:8081}
+CODES_FILE=${CODES_FILE:-codes.txt}
+CONNECTIONS=${CONNECTIONS:-10000}
+THREADS=${THREADS:-$(nproc)}
+DURATION=${DURATION:-60s}
+WARMUP=${WARMUP:-15s}
+OUT_DIR=${OUT_DIR:-bench-results}
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+mkdir -p "$OUT_DIR"
+
+if [ "$(ulimit -n)" -lt $((CONNECTIONS + 1024)) ]; then
+    ulimit -n $((CONNECTIONS + 1024)) || {
+        echo "Open-file limit $(ulimit -n) is too low for $CONNECTIONS connections" >&2
+        exit 1
+    }
+fi
+
+run() {
+    local mode=$1 url=$2
+    echo "== $mode ($url): warmup $WARMUP"
+    MODE="$mode-warmup" OUT_DIR="$OUT_DIR" CODES_FILE="$CODES_FILE" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$WARMUP" \
+        -s "$SCRIPT_DIR/redirects.lua" "$url" > /dev/null
+    echo "== $mode: $CONNECTIONS connections for $DURATION"
+    MODE="$mode" OUT_DIR="$OUT_DIR" CODES_FILE="$CODES_FILE" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency --timeout 10s \
+        -s "$SCRIPT_DIR/redirects.lua" "$url" | tee "$OUT_DIR/$mode.txt"
+}
+
+run servlet "$SERVLET_URL"
+run reactive "$REACTIVE_URL"
+
+echo
+echo "Results written to $OUT_DIR/ (servlet.txt/json, reactive.txt/json)"
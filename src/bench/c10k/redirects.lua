@@ -0,0 +1,39 @@
+-- wrk script: GET /{shortCode} over a list of codes, without following redirects.
+-- Writes a JSON summary to $OUT_DIR/$MODE.json so runs can be compared across commits.
+
+local codes = {}
+local counter = 0
+
+function init(args)
+    local file = os.getenv("CODES_FILE") or "codes.txt"
+    for line in io.lines(file) do
+        if #line > 0 then
+            codes[#codes + 1] = line
+        end
+    end
+    if #codes == 0 then
+        error("no short codes in " .. file)
+    end
+    counter = math.random(#codes)
+end
+
+function request()
+    counter = counter % #codes + 1
+    return wrk.format("GET", "/" .. codes[counter])
+end
+
+function done(summary, latency, requests)
+    local out = os.getenv("OUT_DIR") or "bench-results"
+    local mode = os.getenv("MODE") or "run"
+    local file = io.open(out .. "/" .. mode .. ".json", "w")
+    if file then
+        file:write(string.format(
+            '{"requests":%d,"duration_us":%d,"rps":%.1f,"p50_ms":%.2f,"p99_ms":%.2f,"p999_ms":%.2f,' ..
+            '"max_ms":%.2f,"connect_errors":%d,"read_errors":%d,"timeouts":%d,"status_errors":%d}\n',
+            summary.requests, summary.duration, summary.requests / (summary.duration / 1e6),
+            latency:percentile(50) / 1000, latency:percentile(99) / 1000, latency:percentile(99.9) / 1000,
+            latency.max / 1000, summary.errors.connect, summary.errors.read, summary.errors.timeout,
+            summary.errors.status))
+        file:close()
+    end
+end
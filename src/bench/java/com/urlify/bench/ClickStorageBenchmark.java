@@ -0,0 +1,257 @@
+package com.urlify.bench;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.urlify.bench.load.ZipfSampler;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import com.urlify.repository.AnalyticsRepository;
+import com.urlify.repository.ClickBucketRepository;
+import com.urlify.repository.ClickEventStore;
+import com.urlify.util.Base62Encoder;
+import com.urlify.util.ClickDictionary;
+import com.urlify.util.ClickTimeSeries;
+import org.HdrHistogram.Histogram;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compares the click event storage formats (analytics.storage.format) on a
+ * real MongoDB: disk footprint per event, load rate, and the latency of the
+ * reads behind the analytics endpoints (a link's 100 newest events and the
+ * client and location rollups).
+ *
+ * Each format gets the same synthetic events, written through ClickEventStore
+ * in batches as the click writer does: Zipf-distributed links, timestamps
+ * spread evenly over the last `days` days in arrival order, and a few dozen
+ * distinct user agents and referers. Footprint is storageSize plus
+ * totalIndexSize of the format's collections (for timeseries, its
+ * system.buckets collection). Lookups pick links with the same Zipf
+ * weights, so hot links are queried most, like the dashboard.
+ *
+ * Needs an empty database on a MongoDB server (5.0 or later for timeseries)
+ * that nothing else is using, e.g. docker run --rm -p 27017:27017 mongo:7.
+ * The database is dropped after each format. Run with:
+ * mvn -Pbench test-compile exec:java -Dexec.mainClass=com.urlify.bench.ClickStorageBenchmark
+ * At production scale add -Devents=100000000 (several hours per format).
+ *
+ * Tunables (system properties): mongoUri, db, formats, events, links, days,
+ * batch, writers, lookups, bucketMaxEvents, granularity
+ */
+public class ClickStorageBenchmark {
+
+    private static final String MONGO_URI = System.getProperty("mongoUri", "mongodb://localhost:27017");
+    private static final String DB = System.getProperty("db", "urlify_click_bench");
+    private static final String FORMATS = System.getProperty("formats", "document,bucketed,timeseries");
+    private static final long EVENTS = Long.getLong("events", 1_000_000);
+    private static final int LINKS = Integer.getInteger("links", 100_000);
+    private static final int DAYS = Integer.getInteger("days", 30);
+    private static final int BATCH = Integer.getInteger("batch", 1_000);
+    private static final int WRITERS = Integer.getInteger("writers", 4);
+    private static final int LOOKUPS = Integer.getInteger("lookups", 1_000);
+    private static final int BUCKET_MAX_EVENTS = Integer.getInteger("bucketMaxEvents", 200);
+    private static final String GRANULARITY = System.getProperty("granularity", "seconds");
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    private static final String[] USER_AGENTS = userAgents();
+    private static final String[] REFERERS = {
+            null, "https://www.google.com/", "https://t.co/", "https://www.facebook.com/",
+            "https://www.linkedin.com/", "https://news.ycombinator.com/", "https://www.reddit.com/"
+    };
+    private static final String[][] LOCATIONS = {
+            {"US", "US-CA"}, {"US", "US-NY"}, {"US", "US-TX"}, {"GB", "GB-ENG"}, {"DE", "DE-BY"},
+            {"FR", "FR-IDF"}, {"IN", "IN-MH"}, {"BR", "BR-SP"}, {"JP", null}, {null, null}
+    };
+
+    public static void main(String[] args) throws Exception {
+        try (MongoClient client = MongoClients.create(MONGO_URI)) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, DB);
+            if (!mongoTemplate.getCollectionNames().isEmpty()) {
+                throw new IllegalStateException("Database " + DB + " is not empty; pick another with -Ddb=");
+            }
+
+            String[] codes = new String[LINKS];
+            Base62Encoder encoder = new Base62Encoder();
+            for (int i = 0; i < LINKS; i++) {
+                codes[i] = encoder.encode(1_000_000_000L + i * 7919L);
+            }
+            ZipfSampler links = new ZipfSampler(LINKS, ZIPF_EXPONENT);
+
+            System.out.printf("events=%d links=%d days=%d batch=%d writers=%d mongodb=%s%n", EVENTS, LINKS, DAYS,
+                    BATCH, WRITERS, mongoTemplate.executeCommand(new Document("buildInfo", 1)).getString("version"));
+            System.out.printf("%-11s %11s %10s %10s %10s %21s %21s %21s%n", "format", "bytes/event", "data MB",
+                    "index MB", "events/s", "recent p50/p99 ms", "clients p50/p99 ms", "locations p50/p99 ms");
+
+            for (String format : FORMATS.split(",")) {
+                run(format.trim(), mongoTemplate, codes, links);
+            }
+        }
+    }
+
+    private static void run(String format, MongoTemplate mongoTemplate, String[] codes, ZipfSampler links)
+            throws Exception {
+        ClickEventStore store = store(format, mongoTemplate);
+        if (store.format() != ClickEventStore.Format.TIMESERIES) {
+            // The store creates the time-series collection and its index itself
+            ensureIndexes(mongoTemplate, store.format() == ClickEventStore.Format.DOCUMENT
+                    ? Analytics.class : ClickBucket.class);
+        }
+
+        long loadStart = System.nanoTime();
+        load(store, codes, links);
+        double eventsPerSecond = EVENTS / ((System.nanoTime() - loadStart) / 1e9);
+
+        long dataBytes = 0;
+        long indexBytes = 0;
+        for (String collection : collections(store.format())) {
+            Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+            dataBytes += stats.get("storageSize", Number.class).longValue();
+            indexBytes += stats.get("totalIndexSize", Number.class).longValue();
+        }
+
+        Histogram recent = measure(codes, links, code -> store.recent(code, 100));
+        LocalDateTime since = LocalDateTime.now().minusDays(DAYS + 1);
+        Histogram clients = measure(codes, links, code -> store.countClicksByClient(code, since));
+        Histogram locations = measure(codes, links, code -> store.countClicksByLocation(code, since));
+
+        System.out.printf("%-11s %11.1f %10.1f %10.1f %10.0f %21s %21s %21s%n", format,
+                (double) (dataBytes + indexBytes) / EVENTS,
+                dataBytes / 1e6,
+                indexBytes / 1e6,
+                eventsPerSecond,
+                percentiles(recent), percentiles(clients), percentiles(locations));
+        mongoTemplate.getDb().drop();
+    }
+
+    private static ClickEventStore store(String format, MongoTemplate mongoTemplate) {
+        MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+        ClickEventStore store = new ClickEventStore();
+        ReflectionTestUtils.setField(store, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(store, "analyticsRepository", repositories.getRepository(AnalyticsRepository.class));
+        ReflectionTestUtils.setField(store, "clickBucketRepository",
+                repositories.getRepository(ClickBucketRepository.class));
+        ReflectionTestUtils.setField(store, "format", format);
+        ReflectionTestUtils.setField(store, "bucketMaxEvents", BUCKET_MAX_EVENTS);
+        ReflectionTestUtils.setField(store, "dictionaryCacheSize", 10_000);
+        ReflectionTestUtils.setField(store, "granularity", GRANULARITY);
+        store.init();
+        return store;
+    }
+
+    private static void ensureIndexes(MongoTemplate mongoTemplate, Class<?> type) {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        IndexOperations indexOps = mongoTemplate.indexOps(type);
+        new MongoPersistentEntityIndexResolver(mappingContext)
+                .resolveIndexFor(mappingContext.getRequiredPersistentEntity(type).getTypeInformation())
+                .forEach(indexOps::ensureIndex);
+    }
+
+    private static List<String> collections(ClickEventStore.Format format) {
+        return switch (format) {
+            case DOCUMENT -> List.of("analytics");
+            case BUCKETED -> List.of("click_buckets", ClickDictionary.USER_AGENTS, ClickDictionary.REFERERS);
+            case TIMESERIES -> List.of("system.buckets." + ClickTimeSeries.COLLECTION);
+        };
+    }
+
+    /**
+     * Write EVENTS events in batches, WRITERS batches at a time, with
+     * timestamps increasing across batches as live traffic would
+     */
+    private static void load(ClickEventStore store, String[] codes, ZipfSampler links) throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusDays(DAYS).truncatedTo(ChronoUnit.SECONDS);
+        double millisPerEvent = TimeUnit.DAYS.toMillis(DAYS) / (double) EVENTS;
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (long from = 0; from < EVENTS; from += BATCH) {
+                int size = (int) Math.min(BATCH, EVENTS - from);
+                List<Analytics> batch = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    batch.add(event(codes[links.next()],
+                            start.plus((long) ((from + i) * millisPerEvent), ChronoUnit.MILLIS)));
+                }
+                pending.add(writers.submit(() -> store.saveAll(batch)));
+                if (pending.size() == WRITERS * 2) {
+                    await(pending);
+                }
+            }
+            await(pending);
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    private static Analytics event(String shortCode, LocalDateTime timestamp) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Analytics event = new Analytics();
+        event.setShortCode(shortCode);
+        event.setTimestamp(timestamp);
+        event.setIpAddress(random.nextInt(1, 224) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                + random.nextInt(1, 255));
+        int client = random.nextInt(USER_AGENTS.length);
+        event.setUserAgent(USER_AGENTS[client]);
+        event.setDevice(client % 3 + 1);
+        event.setBrowser(client % 5 + 1);
+        event.setOs(client % 4 + 1);
+        event.setReferer(REFERERS[random.nextInt(REFERERS.length)]);
+        String[] location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+        event.setCountry(location[0]);
+        event.setRegion(location[1]);
+        event.setSampleRate(1.0);
+        return event;
+    }
+
+    private static Histogram measure(String[] codes, ZipfSampler links, Consumer<String> query) {
+        Histogram latencies = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        for (int i = 0; i < LOOKUPS; i++) {
+            String code = codes[links.next()];
+            long start = System.nanoTime();
+            query.accept(code);
+            if (i >= LOOKUPS / 10) {
+                latencies.recordValue(System.nanoTime() - start);
+            }
+        }
+        return latencies;
+    }
+
+    private static String percentiles(Histogram latencies) {
+        return String.format(Locale.ROOT, "%.2f / %.2f", latencies.getValueAtPercentile(50) / 1e6,
+                latencies.getValueAtPercentile(99) / 1e6);
+    }
+
+    private static String[] userAgents() {
+        List<String> userAgents = new ArrayList<>();
+        for (int version = 100; version < 124; version++) {
+            userAgents.add("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/"
+                    + version + ".0.0.0 Safari/537.36");
+            userAgents.add("Mozilla/5.0 (iPhone; CPU iPhone OS 17_" + (version % 6) + " like Mac OS X) "
+                    + "AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.0 Mobile/15E148 Safari/604.1 v" + version);
+        }
+        return userAgents.toArray(new String[0]);
+    }
+
+    private static void await(List<Future<?>> pending) throws Exception {
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,214 @@
+package com.urlify.bench;
+
+import com.urlify.util.Base62Encoder;
+import com.urlify.util.CacheKeys;
+import com.urlify.util.UrlValueCodec;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import org.HdrHistogram.Histogram;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Compares the string and hash cache layouts (cache.redis.layout), each with
+ * and without dictionary compression (cache.compression.enabled), on a real
+ * Redis: memory per cached link, links per GB and single-lookup latency.
+ *
+ * Values are written exactly as UrlCache writes them (SET EX, or the bucket
+ * put script, with UrlValueCodec-encoded values), and memory is the
+ * used_memory delta divided by the number of links. Lookups are sequential
+ * GET / HGET round-trips including the decode.
+ *
+ * urls=padded uses example.com URLs padded to urlLength; urls=utm uses
+ * campaign URLs from SampleUrls (about 160 bytes), which is what the
+ * compression is for. The zstd dictionary is trained on a separate sample.
+ *
+ * Needs an empty database on a Redis server that nothing else is using,
+ * e.g. docker run --rm -p 6379:6379 redis:7. The database is flushed after
+ * each layout. Run with:
+ * mvn -Pbench test-compile exec:java -Dexec.mainClass=com.urlify.bench.RedisLayoutBenchmark
+ *
+ * Tunables (system properties): redisHost, redisPort, db, links, urls,
+ * urlLength, hashBuckets, lookups
+ */
+public class RedisLayoutBenchmark {
+
+    private static final String REDIS_HOST = System.getProperty("redisHost", "localhost");
+    private static final int REDIS_PORT = Integer.getInteger("redisPort", 6379);
+    private static final int DB = Integer.getInteger("db", 15);
+    private static final int LINKS = Integer.getInteger("links", 1_000_000);
+    private static final String URLS = System.getProperty("urls", "padded");
+    private static final int URL_LENGTH = Integer.getInteger("urlLength", 60);
+    private static final int HASH_BUCKETS = Integer.getInteger("hashBuckets", 65_536);
+    private static final int LOOKUPS = Integer.getInteger("lookups", 100_000);
+    private static final int PIPELINE = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        RedisClient client = RedisClient.create(RedisURI.builder()
+                .withHost(REDIS_HOST).withPort(REDIS_PORT).withDatabase(DB).build());
+        try (StatefulRedisConnection<String, byte[]> connection =
+                     client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE))) {
+            RedisCommands<String, byte[]> redis = connection.sync();
+            if (redis.dbsize() > 0) {
+                throw new IllegalStateException("Database " + DB + " is not empty; pick another with -Ddb=");
+            }
+
+            String[] codes = new String[LINKS];
+            String[] urls = new String[LINKS];
+            Base62Encoder encoder = new Base62Encoder();
+            SampleUrls samples = new SampleUrls(1);
+            for (int i = 0; i < LINKS; i++) {
+                codes[i] = encoder.encode(1_000_000_000L + i * 7919L);
+                urls[i] = "utm".equals(URLS) ? samples.next() : paddedUrl(codes[i]);
+            }
+
+            UrlValueCodec plain = new UrlValueCodec(false, 0, 3, version -> { });
+            UrlValueCodec zstd = new UrlValueCodec(true, 40, 3, version -> { });
+            List<String> training = "utm".equals(URLS) ? new SampleUrls(2).next(20_000)
+                    : Stream.of(codes).limit(20_000).map(RedisLayoutBenchmark::paddedUrl).toList();
+            zstd.addDictionary(1, UrlValueCodec.train(training, 16 * 1024));
+
+            System.out.printf("links=%d urls=%s (avg %.0f bytes) hashBuckets=%d (%.1f links/bucket) redis=%s%n",
+                    LINKS, URLS, Stream.of(urls).mapToInt(String::length).average().orElse(0),
+                    HASH_BUCKETS, (double) LINKS / HASH_BUCKETS,
+                    redis.info("server").lines().filter(l -> l.startsWith("redis_version")).findFirst().orElse("?"));
+            System.out.printf("%-12s %11s %10s %10s %10s %10s  %s%n",
+                    "layout", "bytes/link", "links/GB", "p50 us", "p99 us", "p99.9 us", "encoding");
+
+            String script = new ClassPathResource(CacheKeys.BUCKET_PUT_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+            for (UrlValueCodec codec : List.of(plain, zstd)) {
+                String suffix = codec == zstd ? "+zstd" : "";
+                byte[][] values = Stream.of(urls).map(codec::encode).toArray(byte[][]::new);
+
+                run("string" + suffix, connection, codes, () -> writeStrings(connection.async(), codes, values),
+                        code -> codec.decode(redis.get(CacheKeys.url(code))),
+                        () -> redis.objectEncoding(CacheKeys.url(codes[0])));
+
+                run("hash" + suffix, connection, codes, () -> writeBuckets(connection.async(), codes, values, script),
+                        code -> codec.decode(redis.hget(CacheKeys.bucket(code, HASH_BUCKETS), code)),
+                        () -> redis.objectEncoding(CacheKeys.bucket(codes[0], HASH_BUCKETS)));
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void run(String layout, StatefulRedisConnection<String, byte[]> connection, String[] codes,
+            Writer writer, Function<String, String> lookup,
+            Supplier<String> encoding) throws Exception {
+        RedisCommands<String, byte[]> redis = connection.sync();
+        long before = usedMemory(redis);
+        writer.write();
+        long after = usedMemory(redis);
+
+        Histogram latencies = new Histogram(TimeUnit.SECONDS.toNanos(1), 3);
+        for (int i = 0; i < LOOKUPS; i++) {
+            String code = codes[ThreadLocalRandom.current().nextInt(codes.length)];
+            long start = System.nanoTime();
+            if (lookup.apply(code) == null) {
+                throw new IllegalStateException(layout + ": " + code + " missing");
+            }
+            if (i >= LOOKUPS / 10) {
+                latencies.recordValue(System.nanoTime() - start);
+            }
+        }
+
+        double bytesPerLink = (double) (after - before) / codes.length;
+        System.out.printf("%-12s %11.1f %10s %10.1f %10.1f %10.1f  %s%n", layout,
+                bytesPerLink,
+                String.format("%.1fM", (1L << 30) / bytesPerLink / 1_000_000),
+                latencies.getValueAtPercentile(50) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0,
+                encoding.get());
+        redis.flushdb();
+    }
+
+    private static void writeStrings(RedisAsyncCommands<String, byte[]> redis, String[] codes, byte[][] values)
+            throws Exception {
+        SetArgs ttl = SetArgs.Builder.ex(CacheKeys.URL_TTL);
+        List<RedisFuture<?>> pending = new ArrayList<>(PIPELINE);
+        for (int i = 0; i < codes.length; i++) {
+            pending.add(redis.set(CacheKeys.url(codes[i]), values[i], ttl));
+            if (pending.size() == PIPELINE) {
+                await(pending);
+            }
+        }
+        await(pending);
+    }
+
+    private static void writeBuckets(RedisAsyncCommands<String, byte[]> redis, String[] codes, byte[][] values,
+            String script) throws Exception {
+        String sha = redis.scriptLoad(script).get();
+        Map<String, List<byte[]>> buckets = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            List<byte[]> args = buckets.computeIfAbsent(CacheKeys.bucket(codes[i], HASH_BUCKETS), bucket -> {
+                List<byte[]> list = new ArrayList<>();
+                list.add(bytes(String.valueOf(CacheKeys.bucketTtlSeconds())));
+                return list;
+            });
+            args.add(bytes(codes[i]));
+            args.add(values[i]);
+        }
+        List<RedisFuture<?>> pending = new ArrayList<>(PIPELINE);
+        for (Map.Entry<String, List<byte[]>> bucket : buckets.entrySet()) {
+            pending.add(redis.evalsha(sha, ScriptOutputType.INTEGER, new String[] {bucket.getKey()},
+                    bucket.getValue().toArray(new byte[0][])));
+            if (pending.size() == PIPELINE) {
+                await(pending);
+            }
+        }
+        await(pending);
+    }
+
+    private static String paddedUrl(String code) {
+        StringBuilder url = new StringBuilder("https://example.com/articles/").append(code).append('?');
+        while (url.length() < URL_LENGTH) {
+            url.append('x');
+        }
+        return url.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void await(List<RedisFuture<?>> pending) throws Exception {
+        for (RedisFuture<?> future : pending) {
+            future.get();
+        }
+        pending.clear();
+    }
+
+    private static long usedMemory(RedisCommands<String, byte[]> redis) {
+        return redis.info("memory").lines()
+                .filter(line -> line.startsWith("used_memory:"))
+                .mapToLong(line -> Long.parseLong(line.substring("used_memory:".length()).trim()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write() throws Exception;
+    }
+}
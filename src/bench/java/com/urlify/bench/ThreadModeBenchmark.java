@@ -0,0 +1,167 @@
+package com.urlify.bench;
+
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import com.urlify.util.ConcurrencyLimiter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares platform-thread and virtual-thread execution of the redirect path
+ * under injected I/O latency.
+ *
+ * Each simulated redirect does a Redis lookup, a Mongo lookup on cache miss,
+ * and hands a click write off to the async analytics executor, mirroring
+ * RedirectService and AnalyticsService.trackClick. Backing store calls are
+ * bounded by the same ConcurrencyLimiter used in the application.
+ *
+ * Requests are issued open-loop at a fixed arrival rate and latency is
+ * measured from the intended start time, so queueing delay is included.
+ *
+ * Run with:
+ * mvn -Pbench test-compile exec:java -Dexec.mainClass=com.urlify.bench.ThreadModeBenchmark
+ *
+ * Tunables (system properties): requests, rate, redisLatencyMs, mongoLatencyMs,
+ * analyticsLatencyMs, cacheHitRatio, workers, asyncPoolSize, mongoLimit,
+ * analyticsLimit, redisLimit
+ */
+public class ThreadModeBenchmark {
+
+    private static final int REQUESTS = Integer.getInteger("requests", 20_000);
+    private static final int RATE = Integer.getInteger("rate", 4_000);
+    private static final int REDIS_LATENCY_MS = Integer.getInteger("redisLatencyMs", 1);
+    private static final int MONGO_LATENCY_MS = Integer.getInteger("mongoLatencyMs", 5);
+    private static final int ANALYTICS_LATENCY_MS = Integer.getInteger("analyticsLatencyMs", 20);
+    private static final double CACHE_HIT_RATIO = Double.parseDouble(System.getProperty("cacheHitRatio", "0.9"));
+    // Tomcat's default max worker threads and Spring's default async core pool size
+    private static final int WORKERS = Integer.getInteger("workers", 200);
+    private static final int ASYNC_POOL_SIZE = Integer.getInteger("asyncPoolSize", 8);
+    private static final int MONGO_LIMIT = Integer.getInteger("mongoLimit", 64);
+    private static final int ANALYTICS_LIMIT = Integer.getInteger("analyticsLimit", 32);
+    private static final int REDIS_LIMIT = Integer.getInteger("redisLimit", 128);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("requests=%d rate=%d/s redis=%dms mongo=%dms analytics=%dms hitRatio=%.2f%n",
+                REQUESTS, RATE, REDIS_LATENCY_MS, MONGO_LATENCY_MS, ANALYTICS_LATENCY_MS, CACHE_HIT_RATIO);
+        System.out.printf("%-9s %12s %9s %9s %9s %9s %8s %14s%n",
+                "mode", "throughput/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "analytics lag");
+
+        // Warm up both modes once so JIT compilation does not skew the first run
+        run("warmup", platformWorkers(), platformAsync(), true);
+        run("warmup", Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true);
+
+        run("platform", platformWorkers(), platformAsync(), false);
+        run("virtual", Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), false);
+    }
+
+    private static ExecutorService platformWorkers() {
+        return new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static ExecutorService platformAsync() {
+        return new ThreadPoolExecutor(ASYNC_POOL_SIZE, ASYNC_POOL_SIZE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+    }
+
+    private static void run(String mode, ExecutorService workers, ExecutorService async, boolean warmup)
+            throws InterruptedException {
+        ConcurrencyLimiter mongoLimiter = new ConcurrencyLimiter("MongoDB", MONGO_LIMIT, 10_000);
+        ConcurrencyLimiter analyticsLimiter = new ConcurrencyLimiter("MongoDB analytics", ANALYTICS_LIMIT, 10_000);
+        ConcurrencyLimiter redisLimiter = new ConcurrencyLimiter("Redis", REDIS_LIMIT, 10_000);
+
+        int requests = warmup ? REQUESTS / 4 : REQUESTS;
+        long[] latencies = new long[requests];
+        AtomicLong errors = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong();
+        CountDownLatch responses = new CountDownLatch(requests);
+        CountDownLatch clicks = new CountDownLatch(requests);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < requests; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int index = i;
+            workers.execute(() -> {
+                try {
+                    redisLimiter.run(() -> io(REDIS_LATENCY_MS));
+                    if (ThreadLocalRandom.current().nextDouble() >= CACHE_HIT_RATIO) {
+                        mongoLimiter.run(() -> io(MONGO_LATENCY_MS));
+                    }
+                    async.execute(() -> {
+                        try {
+                            analyticsLimiter.run(() -> io(ANALYTICS_LATENCY_MS));
+                        } catch (ConcurrencyLimitExceededException e) {
+                            errors.incrementAndGet();
+                        } finally {
+                            clicks.countDown();
+                        }
+                    });
+                } catch (ConcurrencyLimitExceededException e) {
+                    errors.incrementAndGet();
+                    clicks.countDown();
+                } finally {
+                    long now = System.nanoTime();
+                    latencies[index] = now - intendedStart;
+                    lastCompletion.accumulateAndGet(now, Math::max);
+                    responses.countDown();
+                }
+            });
+        }
+
+        responses.await();
+        long responsesDone = lastCompletion.get();
+        clicks.await();
+        long clicksDone = System.nanoTime();
+
+        workers.shutdown();
+        async.shutdown();
+
+        if (warmup) {
+            return;
+        }
+
+        Arrays.sort(latencies);
+        double seconds = (responsesDone - start) / 1e9;
+        System.out.printf("%-9s %12.0f %9.2f %9.2f %9.2f %9.2f %8d %12.0fms%n",
+                mode,
+                requests / seconds,
+                percentile(latencies, 0.50),
+                percentile(latencies, 0.99),
+                percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6,
+                errors.get(),
+                (clicksDone - responsesDone) / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Simulated blocking I/O call with +/-20% jitter
+     */
+    private static void io(int latencyMs) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        long jitter = (long) (nanos * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        try {
+            Thread.sleep(Duration.ofNanos(nanos + jitter));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.util.Base62Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base62 encode/decode for the value range short codes are generated from
+ * (epoch millis plus a small random offset, see UrlService).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base62EncoderBenchmark {
+
+    @Param({ "1700000000000", "9223372036854775807" })
+    private long value;
+
+    private Base62Encoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        encoder = new Base62Encoder();
+        encoded = encoder.encode(value);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(value);
+    }
+
+    @Benchmark
+    public long decode() {
+        return encoder.decode(encoded);
+    }
+}
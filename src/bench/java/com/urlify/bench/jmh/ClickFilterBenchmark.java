@@ -0,0 +1,61 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.analytics.ClickFilter;
+import com.urlify.analytics.TimeWindowedBloomFilter;
+import com.urlify.analytics.UserAgentInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate-click check at ingest. distinct cycles through a million clicks
+ * (the filter's sizing), so bit probes mostly miss the CPU cache; repeated
+ * cycles through 1024 clicks that are duplicates after the first pass and
+ * are counted per link.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClickFilterBenchmark {
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final UserAgentInfo CLIENT = new UserAgentInfo(UserAgentInfo.Device.DESKTOP,
+            UserAgentInfo.Browser.CHROME, UserAgentInfo.Os.WINDOWS);
+
+    @Param({ "distinct", "repeated" })
+    private String clicks;
+
+    private ClickFilter filter;
+    private String[] addresses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // A window far longer than the run, so the filter never rotates mid-measurement
+        filter = new ClickFilter(true, new TimeWindowedBloomFilter(TimeUnit.DAYS.toMillis(1), 1_000_000, 0.001));
+        addresses = new String["distinct".equals(clicks) ? 1 << 20 : 1024];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = "10." + (i >>> 16 & 255) + "." + (i >>> 8 & 255) + "." + (i & 255);
+        }
+    }
+
+    @Benchmark
+    public ClickFilter.Verdict check() {
+        next = (next + 1) & (addresses.length - 1);
+        return filter.check("abc1234", addresses[next], USER_AGENT, CLIENT, 0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.analytics.GeoIpDatabase;
+import com.urlify.analytics.GeoLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeoIP lookup of a client IP string against a generated database of the
+ * given number of ranges (full IPv4 country/region tables have a few
+ * million). Run with -prof gc to confirm lookups do not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoIpLookupBenchmark {
+
+    private static final String[] COUNTRIES = { "US", "GB", "DE", "FR", "JP", "BR", "IN", "AU" };
+
+    @Param({ "10000", "3000000" })
+    private int ranges;
+
+    private Path file;
+    private GeoIpDatabase database;
+    private String[] addresses;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        List<GeoIpDatabase.Range> rows = new ArrayList<>(ranges);
+        long span = 0x1_0000_0000L / ranges;
+        for (int i = 0; i < ranges; i++) {
+            String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            rows.add(new GeoIpDatabase.Range(i * span, i * span + span - 1,
+                    new GeoLocation(country, country + "-" + random.nextInt(1, 60))));
+        }
+        file = Files.createTempFile("geoip", ".db");
+        GeoIpDatabase.write(rows, file);
+        database = GeoIpDatabase.open(file);
+
+        addresses = new String[1024];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                    + random.nextInt(256);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public GeoLocation lookup() {
+        next = (next + 1) & (addresses.length - 1);
+        return database.lookup(addresses[next]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.urlify.bench.jmh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, e.g. from two commits.
+ *
+ * A change is only flagged when the scores differ by more than the sum of
+ * both scores' 99.9% confidence errors.
+ *
+ * Run with:
+ * mvn -Pbench test-compile exec:java -Dexec.mainClass=com.urlify.bench.jmh.JmhResultComparator \
+ * -Dexec.args="baseline.json target/jmh-result.json"
+ */
+public class JmhResultComparator {
+
+    private record Score(double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: JmhResultComparator <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> candidate = read(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s  %s%n", "benchmark", "baseline", "candidate", "change", "");
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score before = entry.getValue();
+            Score after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-70s %14.3f %14s%n", entry.getKey(), before.score(), "-");
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            boolean significant = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%  %s%n",
+                    entry.getKey(), before.score(), after.score(), change,
+                    significant ? verdict(change, after.unit()) : "");
+        }
+    }
+
+    /**
+     * Lower is better for time per operation, higher for throughput
+     */
+    private static String verdict(double change, String unit) {
+        boolean timeUnit = unit.endsWith("/op");
+        return (change < 0) == timeUnit ? "faster" : "slower";
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            String name = result.get("benchmark").asText().replace("com.urlify.bench.jmh.", "");
+            JsonNode params = result.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                params.fields().forEachRemaining(p -> sorted.put(p.getKey(), p.getValue().asText()));
+                name += sorted;
+            }
+            JsonNode metric = result.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            scores.put(name, new Score(metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,62 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.security.JwtTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT generation and verification as done on login and on every
+ * authenticated request (JwtAuthenticationFilter).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    // Same shape as jwt.secret in application.properties
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtTokenProvider provider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(provider, "meterRegistry", new SimpleMeterRegistry());
+        provider.initMetrics();
+
+        token = provider.generateToken("user@example.com");
+    }
+
+    @Benchmark
+    public String generate() {
+        return provider.generateToken("user@example.com");
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return provider.validateToken(token);
+    }
+
+    @Benchmark
+    public String extractEmail() {
+        return provider.getEmailFromToken(token);
+    }
+}
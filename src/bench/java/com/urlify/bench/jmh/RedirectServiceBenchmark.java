@@ -0,0 +1,195 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.analytics.UniqueVisitorCounter;
+import com.urlify.cache.UrlCache;
+import com.urlify.cache.UrlDictionaryManager;
+import com.urlify.entity.Redirect;
+import com.urlify.entity.Url;
+import com.urlify.exception.ResourceNotFoundException;
+import com.urlify.repository.RedirectRepository;
+import com.urlify.repository.UrlRepository;
+import com.urlify.service.AnalyticsService;
+import com.urlify.service.RedirectService;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedirectService.getOriginalUrl with in-memory stand-ins for Redis and
+ * MongoDB, so only the application-side cost of resolution is measured:
+ * cache access through the circuit breaker and bulkhead, the Mongo fallback,
+ * expiry checks, cache warming and metrics. Click tracking is a no-op.
+ *
+ * tier selects the path: cache (Redis hit), mongo (Redis miss, Mongo hit)
+ * or not_found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectServiceBenchmark {
+
+    private static final int CODES = 10_000;
+
+    @Param({ "cache", "mongo", "not_found" })
+    private String tier;
+
+    private RedirectService redirectService;
+    private MockHttpServletRequest request;
+    private String[] codes;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        Map<String, Url> urls = new ConcurrentHashMap<>();
+        Map<String, Object> redis = new ConcurrentHashMap<>();
+        codes = new String[CODES];
+        for (int i = 0; i < CODES; i++) {
+            Url url = new Url();
+            url.setShortCode("c" + i);
+            url.setOriginalUrl("https://www.example.com/articles/" + i + "?utm_source=bench");
+            codes[i] = url.getShortCode();
+            if ("not_found".equals(tier)) {
+                continue;
+            }
+            urls.put(url.getShortCode(), url);
+            if ("cache".equals(tier)) {
+                redis.put("url:" + url.getShortCode(), url.getOriginalUrl().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Writes are dropped in the mongo scenario so every lookup stays a cache miss
+        RedisTemplate<String, byte[]> urlCacheTemplate = inMemoryRedis(redis, !"mongo".equals(tier));
+
+        UrlDictionaryManager dictionaryManager = new UrlDictionaryManager();
+        ReflectionTestUtils.setField(dictionaryManager, "meterRegistry", meterRegistry);
+        dictionaryManager.init();
+
+        UrlCache urlCache = new UrlCache();
+        ReflectionTestUtils.setField(urlCache, "urlCacheTemplate", urlCacheTemplate);
+        ReflectionTestUtils.setField(urlCache, "dictionaryManager", dictionaryManager);
+        ReflectionTestUtils.setField(urlCache, "redisLimiter", new ConcurrencyLimiter("Redis", 128, 1000));
+        ReflectionTestUtils.setField(urlCache, "circuitBreaker", CircuitBreaker.ofDefaults("redis"));
+        ReflectionTestUtils.setField(urlCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(urlCache, "localMaxEntries", 10_000);
+        ReflectionTestUtils.setField(urlCache, "localTtlSeconds", 60L);
+        urlCache.init();
+
+        // Only the in-memory buffer is exercised; nothing flushes it to Redis here
+        UniqueVisitorCounter uniqueVisitorCounter = new UniqueVisitorCounter();
+        ReflectionTestUtils.setField(uniqueVisitorCounter, "enabled", true);
+        ReflectionTestUtils.setField(uniqueVisitorCounter, "maxPending", 100_000);
+        ReflectionTestUtils.setField(uniqueVisitorCounter, "meterRegistry", meterRegistry);
+        uniqueVisitorCounter.init();
+
+        redirectService = new RedirectService();
+        ReflectionTestUtils.setField(redirectService, "redirectRepository", inMemoryRedirectRepository(urls));
+        ReflectionTestUtils.setField(redirectService, "urlRepository", inMemoryUrlRepository(urls));
+        ReflectionTestUtils.setField(redirectService, "urlCache", urlCache);
+        ReflectionTestUtils.setField(redirectService, "analyticsService", new NoOpAnalyticsService());
+        ReflectionTestUtils.setField(redirectService, "uniqueVisitorCounter", uniqueVisitorCounter);
+        ReflectionTestUtils.setField(redirectService, "mongoLimiter", new ConcurrencyLimiter("MongoDB", 64, 1000));
+        ReflectionTestUtils.setField(redirectService, "meterRegistry", meterRegistry);
+        redirectService.initMetrics();
+
+        request = new MockHttpServletRequest("GET", "/c0");
+        request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 Chrome/120.0");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+    }
+
+    @Benchmark
+    public String resolve(Cursor cursor) {
+        String code = codes[cursor.next];
+        cursor.next = (cursor.next + 1) % CODES;
+        try {
+            return redirectService.getOriginalUrl(code, request);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisTemplate<String, byte[]> inMemoryRedis(Map<String, Object> store, boolean acceptWrites) {
+        ValueOperations<String, byte[]> ops = (ValueOperations<String, byte[]>) Proxy.newProxyInstance(
+                ValueOperations.class.getClassLoader(),
+                new Class<?>[] { ValueOperations.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> store.get((String) args[0]);
+                    case "set" -> {
+                        if (acceptWrites) {
+                            store.put((String) args[0], args[1]);
+                        }
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        return new RedisTemplate<>() {
+            @Override
+            public ValueOperations<String, byte[]> opsForValue() {
+                return ops;
+            }
+
+            @Override
+            public Boolean delete(String key) {
+                return store.remove(key) != null;
+            }
+        };
+    }
+
+    private static RedirectRepository inMemoryRedirectRepository(Map<String, Url> urls) {
+        return (RedirectRepository) Proxy.newProxyInstance(
+                RedirectRepository.class.getClassLoader(),
+                new Class<?>[] { RedirectRepository.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(urls.get((String) args[0])).map(Redirect::from);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static UrlRepository inMemoryUrlRepository(Map<String, Url> urls) {
+        return (UrlRepository) Proxy.newProxyInstance(
+                UrlRepository.class.getClassLoader(),
+                new Class<?>[] { UrlRepository.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByShortCode" -> Optional.ofNullable(urls.get((String) args[0]));
+                    case "existsByShortCode" -> urls.containsKey((String) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class NoOpAnalyticsService extends AnalyticsService {
+        @Override
+        public void trackClick(String shortCode, String ipAddress, String userAgent, String referer) {
+        }
+    }
+}
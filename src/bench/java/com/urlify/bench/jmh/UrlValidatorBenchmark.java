@@ -0,0 +1,73 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.util.UrlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL validation over a mix resembling shorten requests: mostly valid public
+ * URLs, some with long tracking query strings, and a tail of rejected input
+ * (loopback, private ranges, bad schemes, malformed and oversized URLs).
+ * Each invocation validates the next URL in the mix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlValidatorBenchmark {
+
+    private static final String[] URLS = {
+            "https://www.example.com/",
+            "https://github.com/spring-projects/spring-boot/issues/38901",
+            "https://news.ycombinator.com/item?id=39012345",
+            "http://blog.example.org/2024/01/15/some-long-article-slug-about-performance",
+            "https://shop.example.com/products/123?utm_source=newsletter&utm_medium=email"
+                    + "&utm_campaign=winter_sale&utm_content=hero_banner&ref=abc123",
+            "https://docs.example.io:8443/api/v2/reference#section-4",
+            "https://en.wikipedia.org/wiki/Base62",
+            "https://cdn.example.net/assets/img/banner-1920x1080.webp",
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ&t=42s",
+            "https://maps.example.com/place/Some+Place/@52.5200,13.4050,15z",
+            "http://localhost:8080/admin",
+            "http://192.168.1.1/router",
+            "http://10.0.0.5/internal",
+            "javascript:alert(1)",
+            "ftp://files.example.com/file.zip",
+            "not a url",
+            "https://example.com/" + "a".repeat(2100),
+    };
+
+    private UrlValidator validator;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        validator = new UrlValidator();
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        String url = URLS[next];
+        next = (next + 1) % URLS.length;
+        return validator.isValid(url);
+    }
+
+    @Benchmark
+    public String getValidationError() {
+        String url = URLS[next];
+        next = (next + 1) % URLS.length;
+        return validator.getValidationError(url);
+    }
+}
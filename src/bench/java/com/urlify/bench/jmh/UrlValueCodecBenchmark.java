@@ -0,0 +1,65 @@
+package com.urlify.bench.jmh;
+
+import com.urlify.bench.SampleUrls;
+import com.urlify.util.UrlValueCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached URL encode/decode with a 16 KB dictionary trained on SampleUrls.
+ * decode is what every cache hit on the redirect path pays; plain is the
+ * baseline of a UTF-8 value without compression.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlValueCodecBenchmark {
+
+    private static final int URLS = 4096;
+
+    @Param({ "zstd", "plain" })
+    private String encoding;
+
+    private UrlValueCodec codec;
+    private String[] urls;
+    private byte[][] values;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SampleUrls samples = new SampleUrls(1);
+        codec = new UrlValueCodec("zstd".equals(encoding), 40, 3, version -> { });
+        codec.addDictionary(1, UrlValueCodec.train(samples.next(20_000), 16 * 1024));
+
+        List<String> corpus = samples.next(URLS);
+        urls = corpus.toArray(new String[0]);
+        values = corpus.stream().map(codec::encode).toArray(byte[][]::new);
+    }
+
+    @Benchmark
+    public String decode() {
+        next = (next + 1) & (URLS - 1);
+        return codec.decode(values[next]);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        next = (next + 1) & (URLS - 1);
+        return codec.encode(urls[next]);
+    }
+}
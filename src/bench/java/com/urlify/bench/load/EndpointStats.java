@@ -0,0 +1,76 @@
+package com.urlify.bench.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and outcome counts for one endpoint.
+ *
+ * Latencies are recorded from each request's intended start time, so time a
+ * request spent waiting behind slow ones is counted rather than omitted.
+ */
+public class EndpointStats {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long latencyNanos, boolean success) {
+        latencies.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public void reset() {
+        latencies.reset();
+        errors.set(0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return latencies.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public double maxMillis() {
+        return latencies.getMaxValue() / 1e6;
+    }
+
+    /**
+     * Summary for the JSON report
+     */
+    public Map<String, Object> summary(double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", getCount());
+        summary.put("errors", getErrors());
+        summary.put("throughputPerSecond", getCount() / seconds);
+        summary.put("p50Ms", percentileMillis(50));
+        summary.put("p90Ms", percentileMillis(90));
+        summary.put("p99Ms", percentileMillis(99));
+        summary.put("p999Ms", percentileMillis(99.9));
+        summary.put("maxMs", maxMillis());
+        return summary;
+    }
+}
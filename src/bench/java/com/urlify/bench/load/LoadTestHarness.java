@@ -0,0 +1,339 @@
+package com.urlify.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.fppt.jedismock.RedisServer;
+import com.urlify.UrlifyApplication;
+import com.urlify.entity.Redirect;
+import com.urlify.entity.Url;
+import com.urlify.entity.User;
+import com.urlify.security.JwtTokenProvider;
+import com.urlify.util.Base62Encoder;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test: boots the full application against in-process
+ * MongoDB and Redis stand-ins, seeds users and links, then drives a mix of
+ * redirects, shortens, dashboard reads and logins at a fixed arrival rate.
+ *
+ * Requests are issued open-loop on their schedule regardless of how many are
+ * still outstanding, and latency is measured from the intended start time,
+ * so the percentiles are corrected for coordinated omission. Redirect keys
+ * follow a Zipf popularity distribution over the seeded links.
+ *
+ * The stand-ins (mongo-java-server and jedis-mock) run in memory and do not
+ * model real database costs; pass mongoUri / redisHost to measure against
+ * real instances instead.
+ *
+ * Run with:
+ * MAVEN_OPTS=-Xmx6g mvn -Pbench test-compile exec:java -Dexec.mainClass=com.urlify.bench.load.LoadTestHarness
+ *
+ * Tunables (system properties): links, users, rate, durationSeconds,
+ * warmupSeconds, zipf, mix (e.g. redirect=90,shorten=4,dashboard=5,login=1),
+ * timeoutMs, mongoUri, redisHost, redisPort, result
+ */
+public class LoadTestHarness {
+
+    private static final int LINKS = Integer.getInteger("links", 1_000_000);
+    private static final int USERS = Integer.getInteger("users", 10_000);
+    private static final int RATE = Integer.getInteger("rate", 2_000);
+    private static final int DURATION_SECONDS = Integer.getInteger("durationSeconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("warmupSeconds", 15);
+    private static final double ZIPF_EXPONENT = Double.parseDouble(System.getProperty("zipf", "1.0"));
+    private static final String MIX = System.getProperty("mix", "redirect=90,shorten=4,dashboard=5,login=1");
+    private static final int TIMEOUT_MS = Integer.getInteger("timeoutMs", 10_000);
+    private static final String RESULT = System.getProperty("result", "target/load-test-result.json");
+
+    private static final String PASSWORD = "load-test-password";
+    private static final int SEED_BATCH = 10_000;
+
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private String baseUrl;
+    private String[] codes;
+    private String[] emails;
+    private String[] tokens;
+    private ZipfSampler zipf;
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestHarness().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        String mongoUri = System.getProperty("mongoUri");
+        if (mongoUri == null) {
+            MongoServer mongo = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongo.bind();
+            mongoUri = "mongodb://127.0.0.1:" + address.getPort() + "/urlify_load";
+        }
+        String redisHost = System.getProperty("redisHost");
+        int redisPort = Integer.getInteger("redisPort", 6379);
+        if (redisHost == null) {
+            RedisServer redis = RedisServer.newRedisServer();
+            redis.start();
+            redisHost = "127.0.0.1";
+            redisPort = redis.getBindPort();
+        }
+
+        ConfigurableApplicationContext context = SpringApplication.run(UrlifyApplication.class,
+                // Skips the dev profile's driver-level query logging
+                "--spring.profiles.active=loadtest",
+                "--server.port=0",
+                "--management.server.port=-1",
+                "--spring.data.mongodb.uri=" + mongoUri,
+                "--spring.data.redis.host=" + redisHost,
+                "--spring.data.redis.port=" + redisPort,
+                "--spring.data.redis.client-type=lettuce",
+                "--rate.limit.public.capacity=1000000000",
+                "--rate.limit.public.refill-tokens=1000000000",
+                "--rate.limit.authenticated.capacity=1000000000",
+                "--rate.limit.authenticated.refill-tokens=1000000000",
+                "--analytics.spool.directory=target/load-test/click-spool",
+                "--logging.level.com.urlify=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.org.springframework.data.mongodb=WARN",
+                "--logging.level.de.bwaldvogel.mongo=WARN",
+                "--logging.level.com.github.fppt.jedismock=WARN");
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+
+        seed(context);
+
+        Map<String, Integer> weights = parseMix(MIX);
+        weights.keySet().forEach(name -> stats.put(name, new EndpointStats(name)));
+        System.out.printf("rate=%d/s duration=%ds warmup=%ds zipf=%.2f mix=%s%n",
+                RATE, DURATION_SECONDS, WARMUP_SECONDS, ZIPF_EXPONENT, weights);
+
+        drive(weights, WARMUP_SECONDS);
+        stats.values().forEach(EndpointStats::reset);
+        long start = System.nanoTime();
+        drive(weights, DURATION_SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report(seconds);
+        context.close();
+    }
+
+    /**
+     * Insert users and links directly through MongoTemplate. Users share one
+     * password hash so seeding does not pay BCrypt per user.
+     */
+    private void seed(ConfigurableApplicationContext context) {
+        long started = System.nanoTime();
+        MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+        JwtTokenProvider tokenProvider = context.getBean(JwtTokenProvider.class);
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        Base62Encoder encoder = new Base62Encoder();
+
+        emails = new String[USERS];
+        tokens = new String[USERS];
+        String[] userIds = new String[USERS];
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("load" + i);
+            user.setEmail("load" + i + "@example.com");
+            user.setPassword(passwordHash);
+            user.setCreatedAt(LocalDateTime.now());
+            users.add(user);
+        }
+        mongoTemplate.insertAll(users);
+        for (int i = 0; i < USERS; i++) {
+            emails[i] = users.get(i).getEmail();
+            userIds[i] = users.get(i).getId();
+            tokens[i] = tokenProvider.generateToken(emails[i]);
+        }
+
+        // Link ranks are shuffled across owners so popular links are not all one user's
+        codes = new String[LINKS];
+        List<Url> batch = new ArrayList<>(SEED_BATCH);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < LINKS; i++) {
+            Url url = new Url();
+            url.setShortCode("L" + encoder.encode(i));
+            url.setOriginalUrl("https://www.example.com/articles/" + i + "?utm_source=load");
+            url.setUserId(userIds[ThreadLocalRandom.current().nextInt(USERS)]);
+            url.setCreatedAt(now);
+            codes[i] = url.getShortCode();
+            batch.add(url);
+            if (batch.size() == SEED_BATCH || i == LINKS - 1) {
+                mongoTemplate.insertAll(batch);
+                mongoTemplate.insertAll(batch.stream().map(Redirect::from).toList());
+                batch.clear();
+            }
+        }
+
+        zipf = new ZipfSampler(LINKS, ZIPF_EXPONENT);
+        System.out.printf("seeded %d users and %d links in %.1fs%n",
+                USERS, LINKS, (System.nanoTime() - started) / 1e9);
+    }
+
+    /**
+     * Issue requests open-loop at the target rate for the given duration and
+     * wait for the stragglers
+     */
+    private void drive(Map<String, Integer> weights, int seconds) {
+        String[] schedule = buildSchedule(weights);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long total = (long) RATE * seconds;
+        Phaser outstanding = new Phaser(1);
+        long start = System.nanoTime();
+
+        try (ExecutorService dispatch = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String endpoint = schedule[(int) (i % schedule.length)];
+                outstanding.register();
+                dispatch.execute(() -> {
+                    try {
+                        send(endpoint, intendedStart);
+                    } finally {
+                        outstanding.arriveAndDeregister();
+                    }
+                });
+            }
+            outstanding.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void send(String endpoint, long intendedStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(USERS);
+        HttpRequest.Builder request;
+        int expected;
+        switch (endpoint) {
+            case "redirect" -> {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + codes[zipf.next()])).GET();
+                expected = 302;
+            }
+            case "shorten" -> {
+                String body = "{\"url\":\"https://www.example.com/new/" + random.nextLong(Long.MAX_VALUE) + "\"}";
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/urls/shorten"))
+                        .header("Authorization", "Bearer " + tokens[user])
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+                expected = 201;
+            }
+            case "dashboard" -> {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/urls/my-urls?page=0&size=10"))
+                        .header("Authorization", "Bearer " + tokens[user])
+                        .GET();
+                expected = 200;
+            }
+            case "login" -> {
+                String body = "{\"email\":\"" + emails[user] + "\",\"password\":\"" + PASSWORD + "\"}";
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+                expected = 200;
+            }
+            default -> throw new IllegalArgumentException("Unknown endpoint in mix: " + endpoint);
+        }
+
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(
+                    request.timeout(Duration.ofMillis(TIMEOUT_MS)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() == expected;
+        } catch (Exception e) {
+            success = false;
+        }
+        stats.get(endpoint).record(System.nanoTime() - intendedStart, success);
+    }
+
+    /**
+     * Spread endpoints evenly over a 100-slot cycle according to their weights
+     */
+    private static String[] buildSchedule(Map<String, Integer> weights) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        String[] schedule = new String[total];
+        double[] credit = new double[weights.size()];
+        String[] names = weights.keySet().toArray(new String[0]);
+        for (int slot = 0; slot < total; slot++) {
+            int best = 0;
+            for (int j = 0; j < names.length; j++) {
+                credit[j] += weights.get(names[j]);
+                if (credit[j] > credit[best]) {
+                    best = j;
+                }
+            }
+            credit[best] -= total;
+            schedule[slot] = names[best];
+        }
+        return schedule;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight > 0) {
+                weights.put(entry[0].trim(), weight);
+            }
+        }
+        return weights;
+    }
+
+    private void report(double seconds) throws Exception {
+        System.out.printf("%-10s %10s %8s %12s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "throughput/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms",
+                "max ms");
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (EndpointStats endpoint : stats.values()) {
+            System.out.printf("%-10s %10d %8d %12.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.getName(), endpoint.getCount(), endpoint.getErrors(), endpoint.getCount() / seconds,
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(90), endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9), endpoint.maxMillis());
+            endpoints.put(endpoint.getName(), endpoint.summary(seconds));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("links", LINKS);
+        result.put("users", USERS);
+        result.put("rate", RATE);
+        result.put("durationSeconds", seconds);
+        result.put("zipf", ZIPF_EXPONENT);
+        result.put("mix", MIX);
+        result.put("endpoints", endpoints);
+
+        File file = new File(RESULT);
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, result);
+        System.out.println("Results written to " + file.getPath());
+    }
+}
@@ -0,0 +1,37 @@
+package com.urlify.bench.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks 0..n-1 with Zipf popularity: P(k) proportional to
+ * 1 / (k + 1)^exponent. Rank 0 is the most popular link.
+ *
+ * Uses a precomputed cumulative distribution and binary search, which is
+ * exact and fast enough for a few million keys (8 bytes per key).
+ */
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    /**
+     * Draw the next rank
+     */
+    public int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cdf, u);
+        return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+    }
+}
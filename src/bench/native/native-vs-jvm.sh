@@ -0,0 +1,108 @@
+#!/usr/bin/env bash
+# Smoke and performance comparison of the native image against the JVM build.
+#
+# Build both, start MongoDB and Redis, then run:
+#   mvn clean package -DskipTests && cp target/urlify-1.0.0.jar /tmp/urlify.jar
+#   mvn -Pnative -DskipTests native:compile
+#   src/bench/native/native-vs-jvm.sh
+#
+# Each variant is started in turn on the same port. The script:
+#   1. records the time from launch to the first answer on /actuator/health
+#   2. runs a smoke test: register, login, shorten, redirect, analytics
+#   3. drives redirects with wrk for DURATION and records throughput/latency
+#   4. records resident memory after startup and the peak after the load
+#
+# Requires wrk (https://github.com/wg/wrk), curl and jq.
+set -euo pipefail
+
+JVM_CMD=${JVM_CMD:-java -jar /tmp/urlify.jar}
+NATIVE_CMD=${NATIVE_CMD:-target/urlify}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+HEALTH_URL=${HEALTH_URL:-http://localhost:8081/actuator/health}
+CONNECTIONS=${CONNECTIONS:-100}
+THREADS=${THREADS:-$(nproc)}
+DURATION=${DURATION:-30s}
+WARMUP=${WARMUP:-15s}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+OUT_DIR=${OUT_DIR:-bench-results}
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+mkdir -p "$OUT_DIR"
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+rss_kb() {
+    awk -v key="$2" '$1 == key ":" { print $2 }' "/proc/$1/status"
+}
+
+smoke() {
+    local email="smoke-$(date +%s%N)@example.com" token code location
+    curl -sf -X POST "$BASE_URL/api/auth/register" -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$email\",\"password\":\"password123\"}" > /dev/null
+    token=$(curl -sf -X POST "$BASE_URL/api/auth/login" -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$email\",\"password\":\"password123\"}" | jq -r '.token')
+    code=$(curl -sf -X POST "$BASE_URL/api/urls/shorten" -H "Authorization: Bearer $token" \
+        -H 'Content-Type: application/json' -d '{"url":"https://example.com/native-smoke"}' | jq -r '.shortCode')
+    location=$(curl -s -o /dev/null -w '%{redirect_url}' "$BASE_URL/$code")
+    [ "$location" = "https://example.com/native-smoke" ] || {
+        echo "smoke: /$code redirected to '$location'" >&2
+        return 1
+    }
+    curl -sf -H "Authorization: Bearer $token" "$BASE_URL/api/analytics/$code" > /dev/null
+    echo "$code" > "$OUT_DIR/smoke-codes.txt"
+}
+
+run() {
+    local variant=$1 pid start ready startup_ms rss_start rss_peak
+    shift
+    echo "== $variant: $*"
+    start=$(now_ms)
+    "$@" > "$OUT_DIR/$variant.log" 2>&1 &
+    pid=$!
+    trap 'kill "$pid" 2> /dev/null || true' EXIT
+
+    until curl -sf -o /dev/null --max-time 1 "$HEALTH_URL"; do
+        if [ $(($(now_ms) - start)) -gt $((TIMEOUT_SECONDS * 1000)) ] || ! kill -0 "$pid" 2> /dev/null; then
+            echo "$variant did not become healthy (see $OUT_DIR/$variant.log)" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    ready=$(now_ms)
+    startup_ms=$((ready - start))
+    rss_start=$(rss_kb "$pid" VmRSS)
+
+    smoke
+    echo "   smoke test passed"
+
+    CODES_FILE="$OUT_DIR/smoke-codes.txt" MODE="$variant-warmup" OUT_DIR="$OUT_DIR" \
+        wrk -t"$THREADS" -c"$CONNECTIONS" -d"$WARMUP" -s "$SCRIPT_DIR/../c10k/redirects.lua" "$BASE_URL" > /dev/null
+    CODES_FILE="$OUT_DIR/smoke-codes.txt" MODE="$variant" OUT_DIR="$OUT_DIR" \
+        wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency -s "$SCRIPT_DIR/../c10k/redirects.lua" "$BASE_URL" \
+        > "$OUT_DIR/$variant.txt"
+    rss_peak=$(rss_kb "$pid" VmHWM)
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    trap - EXIT
+
+    jq --argjson startup "$startup_ms" --argjson rssStart "$rss_start" --argjson rssPeak "$rss_peak" \
+        '. + {startup_ms: $startup, rss_start_kb: $rssStart, rss_peak_kb: $rssPeak}' \
+        "$OUT_DIR/$variant.json" > "$OUT_DIR/$variant.tmp" && mv "$OUT_DIR/$variant.tmp" "$OUT_DIR/$variant.json"
+}
+
+read -r -a jvm <<< "$JVM_CMD"
+read -r -a native <<< "$NATIVE_CMD"
+run jvm "${jvm[@]}"
+run native "${native[@]}"
+
+echo
+printf '%-8s %12s %14s %14s %12s %10s\n' variant startup_ms rss_start_MB rss_peak_MB rps p99_ms
+for variant in jvm native; do
+    jq -r --arg v "$variant" \
+        '[$v, .startup_ms, (.rss_start_kb / 1024 | floor), (.rss_peak_kb / 1024 | floor), .rps, .p99_ms] | @tsv' \
+        "$OUT_DIR/$variant.json" | xargs printf '%-8s %12s %14s %14s %12s %10s\n'
+done
+echo "Results written to $OUT_DIR/ (jvm.json, native.json)"
@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Measure cold start as time-to-first-redirect: from launching the node until
+# GET /<SHORT_CODE> first answers 302.
+#
+# Start MongoDB and Redis, create a short URL, then run once per variant, e.g.:
+#   SHORT_CODE=abc1234 src/bench/startup/time-to-first-redirect.sh jar \
+#       java -jar target/urlify-1.0.0.jar
+#   SHORT_CODE=abc1234 src/bench/startup/time-to-first-redirect.sh aot-cds \
+#       docker run --rm --network host -e SPRING_PROFILES_ACTIVE=dev urlify
+#
+# The Redis entry for the code is deleted before every run so each first
+# redirect also pays for the MongoDB lookup, as it does after a scale-up.
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+    echo "Usage: SHORT_CODE=<code> $0 <label> <command...>" >&2
+    exit 1
+fi
+
+LABEL=$1
+shift
+SHORT_CODE=${SHORT_CODE:?set SHORT_CODE to an existing short code}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+RUNS=${RUNS:-5}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+REDIS_CLI=${REDIS_CLI:-redis-cli}
+OUT_DIR=${OUT_DIR:-bench-results}
+
+mkdir -p "$OUT_DIR"
+times=()
+
+for run in $(seq 1 "$RUNS"); do
+    $REDIS_CLI del "url:$SHORT_CODE" > /dev/null 2>&1 || true
+
+    start=$(date +%s%N)
+    setsid "$@" > "$OUT_DIR/startup-$LABEL-$run.log" 2>&1 &
+    pid=$!
+
+    status=000
+    deadline=$((start + TIMEOUT_SECONDS * 1000000000))
+    while [ "$status" != "302" ] && [ "$(date +%s%N)" -lt "$deadline" ]; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' --max-time 1 "$BASE_URL/$SHORT_CODE" || true)
+        [ "$status" = "302" ] || sleep 0.01
+    done
+    end=$(date +%s%N)
+
+    kill -TERM -- "-$pid" 2> /dev/null || true
+    wait "$pid" 2> /dev/null || true
+
+    if [ "$status" != "302" ]; then
+        echo "run $run: no redirect within ${TIMEOUT_SECONDS}s (see $OUT_DIR/startup-$LABEL-$run.log)" >&2
+        exit 1
+    fi
+    ms=$(((end - start) / 1000000))
+    times+=("$ms")
+    echo "run $run: first redirect after ${ms} ms"
+done
+
+sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+median=${sorted[$((RUNS / 2))]}
+echo "$LABEL: min ${sorted[0]} ms, median $median ms, max ${sorted[$((RUNS - 1))]} ms"
+printf '{"label":"%s","runs":[%s],"minMs":%s,"medianMs":%s,"maxMs":%s}\n' \
+    "$LABEL" "$(IFS=,; echo "${times[*]}")" "${sorted[0]}" "$median" "${sorted[$((RUNS - 1))]}" \
+    > "$OUT_DIR/startup-$LABEL.json"
@@ -1,9 +1,14 @@
 package com.urlify;
 
+import com.urlify.config.NativeHints;
+import com.urlify.reactive.ReactiveRedirectApplication;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.NativeDetector;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * URLify Application - Scalable URL Shortening and Analytics Platform
@@ -11,9 +16,23 @@ import org.springframework.scheduling.annotation.EnableAsync;
 @SpringBootApplication
 @EnableMongoAuditing
 @EnableAsync
+@EnableScheduling
+@ImportRuntimeHints(NativeHints.class)
 public class UrlifyApplication {
 
     public static void main(String[] args) {
+        // Reactive redirect nodes run a separate, WebFlux-only application context
+        String mode = System.getProperty("urlify.mode", System.getenv().getOrDefault("URLIFY_MODE", "servlet"));
+        if ("reactive".equalsIgnoreCase(mode)) {
+            if (NativeDetector.inNativeImage()) {
+                throw new IllegalStateException("The native image only supports URLIFY_MODE=servlet");
+            }
+            // AOT artifacts (aot profile) are generated for the servlet application only
+            System.setProperty("spring.aot.enabled", "false");
+            ReactiveRedirectApplication.run(args);
+            return;
+        }
+
         SpringApplication.run(UrlifyApplication.class, args);
         System.out.println("\n" +
                 "╔══════════════════════════════════════════════════════════╗\n" +
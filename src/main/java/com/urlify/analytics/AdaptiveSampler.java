@@ -0,0 +1,127 @@
+package com.urlify.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-link adaptive sampling of raw click events.
+ *
+ * Each link's click rate is measured per second. While it stays at or below
+ * the threshold every click is stored (rate 1). Above it, a click is stored
+ * with probability rate = 1/2^k, the largest power of two at or below
+ * threshold / clicks per second, so a viral link stores about threshold
+ * events per second however hot it gets. The rate is fixed before the coin
+ * flip, so weighting each stored event by 1 / rate gives unbiased totals and
+ * breakdowns; powers of two keep those weights whole numbers.
+ *
+ * Clicks not stored are counted per link until drained, so callers can keep
+ * click counters exact with one bulk write per interval.
+ */
+public class AdaptiveSampler {
+
+    // Rates below 1/2^30 would need more than a billion clicks per second
+    private static final int MAX_SHIFT = 30;
+    private static final long SWEEP_SECONDS = 10;
+
+    private static final class LinkRate {
+        long second;
+        int clicks;
+        int previousClicks;
+    }
+
+    private final int threshold;
+    private final ConcurrentHashMap<String, LinkRate> links = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> skipped = new ConcurrentHashMap<>();
+    private final LongAdder skippedTotal = new LongAdder();
+    private volatile long lastSweep;
+
+    /**
+     * @param threshold clicks per second per link stored without sampling
+     */
+    public AdaptiveSampler(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Sampling threshold must be positive");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Decide whether to store this click's event. Returns the sampling rate
+     * to record on the event, or 0 if it is not stored (and was counted).
+     */
+    public double sample(String shortCode, long nowMillis) {
+        long second = nowMillis / 1000;
+        sweep(second);
+        LinkRate rate = links.computeIfAbsent(shortCode, code -> new LinkRate());
+        int clicksPerSecond;
+        synchronized (rate) {
+            if (rate.second != second) {
+                rate.previousClicks = rate.second == second - 1 ? rate.clicks : 0;
+                rate.second = second;
+                rate.clicks = 0;
+            }
+            rate.clicks++;
+            // Last second's rate, or this second's if it is already higher
+            clicksPerSecond = Math.max(rate.previousClicks, rate.clicks);
+        }
+        if (clicksPerSecond <= threshold) {
+            return 1.0;
+        }
+        int shift = Math.min(MAX_SHIFT, 64 - Long.numberOfLeadingZeros((clicksPerSecond - 1) / threshold));
+        if (ThreadLocalRandom.current().nextLong(1L << shift) == 0) {
+            return Math.scalb(1.0, -shift);
+        }
+        skipped.merge(shortCode, 1L, Long::sum);
+        skippedTotal.increment();
+        return 0;
+    }
+
+    /**
+     * Take the per-link counts of clicks not stored
+     */
+    public Map<String, Long> drain() {
+        Map<String, Long> drained = new HashMap<>();
+        for (String shortCode : skipped.keySet()) {
+            Long count = skipped.remove(shortCode);
+            if (count != null) {
+                drained.put(shortCode, count);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Put back counts that could not be written, to go out with the next drain
+     */
+    public void restore(Map<String, Long> counts) {
+        counts.forEach((shortCode, count) -> skipped.merge(shortCode, count, Long::sum));
+    }
+
+    public long skipped() {
+        return skippedTotal.sum();
+    }
+
+    /**
+     * Links above the threshold in the last second
+     */
+    public long sampledLinks() {
+        long second = System.currentTimeMillis() / 1000;
+        return links.values().stream()
+                .filter(rate -> rate.second >= second - 1 && Math.max(rate.clicks, rate.previousClicks) > threshold)
+                .count();
+    }
+
+    /**
+     * Forget links that have had no clicks for a while, every few seconds
+     */
+    private void sweep(long second) {
+        if (second - lastSweep < SWEEP_SECONDS) {
+            return;
+        }
+        lastSweep = second;
+        links.values().removeIf(rate -> rate.second < second - 1);
+    }
+}
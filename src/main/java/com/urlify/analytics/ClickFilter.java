@@ -0,0 +1,123 @@
+package com.urlify.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides at ingest whether a click is worth storing as an event.
+ *
+ * Clicks from user agents classified as bots (crawlers, link preview
+ * fetchers, HTTP libraries) are rejected outright. Other clicks are checked
+ * against a TimeWindowedBloomFilter keyed by short code, client IP and user
+ * agent, so a refresh storm or a double-tap within the window counts once.
+ * All in memory: no lookup against MongoDB or Redis per click.
+ *
+ * Rejected clicks are counted per link until drained, so callers can add
+ * them to separate counters in one bulk write instead of one event each.
+ */
+public class ClickFilter {
+
+    public enum Verdict {
+        ACCEPT, BOT, DUPLICATE
+    }
+
+    /**
+     * Rejected clicks per short code since the last drain
+     */
+    public record Rejected(Map<String, Long> bots, Map<String, Long> duplicates) {
+
+        public boolean isEmpty() {
+            return bots.isEmpty() && duplicates.isEmpty();
+        }
+    }
+
+    private final boolean filterBots;
+    private final TimeWindowedBloomFilter recent;
+    private final ConcurrentHashMap<String, Long> bots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> duplicates = new ConcurrentHashMap<>();
+    private final LongAdder botTotal = new LongAdder();
+    private final LongAdder duplicateTotal = new LongAdder();
+
+    /**
+     * @param recent null to keep duplicate clicks
+     */
+    public ClickFilter(boolean filterBots, TimeWindowedBloomFilter recent) {
+        this.filterBots = filterBots;
+        this.recent = recent;
+    }
+
+    public Verdict check(String shortCode, String ipAddress, String userAgent, UserAgentInfo client, long nowMillis) {
+        if (filterBots && client.device() == UserAgentInfo.Device.BOT) {
+            bots.merge(shortCode, 1L, Long::sum);
+            botTotal.increment();
+            return Verdict.BOT;
+        }
+        if (recent != null && recent.checkAndPut(hash(shortCode, ipAddress, userAgent), nowMillis)) {
+            duplicates.merge(shortCode, 1L, Long::sum);
+            duplicateTotal.increment();
+            return Verdict.DUPLICATE;
+        }
+        return Verdict.ACCEPT;
+    }
+
+    /**
+     * Take the per-link counts of rejected clicks
+     */
+    public Rejected drain() {
+        return new Rejected(drain(bots), drain(duplicates));
+    }
+
+    /**
+     * Put back counts that could not be written, to go out with the next drain
+     */
+    public void restore(Rejected rejected) {
+        rejected.bots().forEach((shortCode, count) -> bots.merge(shortCode, count, Long::sum));
+        rejected.duplicates().forEach((shortCode, count) -> duplicates.merge(shortCode, count, Long::sum));
+    }
+
+    public long bots() {
+        return botTotal.sum();
+    }
+
+    public long duplicates() {
+        return duplicateTotal.sum();
+    }
+
+    private static Map<String, Long> drain(ConcurrentHashMap<String, Long> counts) {
+        Map<String, Long> drained = new HashMap<>();
+        for (String shortCode : counts.keySet()) {
+            Long count = counts.remove(shortCode);
+            if (count != null) {
+                drained.put(shortCode, count);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 64-bit FNV-1a of the click's identity, finished with a murmur3 mix
+     */
+    static long hash(String shortCode, String ipAddress, String userAgent) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, shortCode);
+        h = mix(h, ipAddress);
+        h = mix(h, userAgent);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long mix(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        // Separator, so ("ab", "c") and ("a", "bc") differ
+        return (h ^ 0xFFFF) * 0x100000001b3L;
+    }
+}
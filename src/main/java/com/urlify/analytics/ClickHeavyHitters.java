@@ -0,0 +1,77 @@
+package com.urlify.analytics;
+
+import com.urlify.util.AnalyticsKeys;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Node-local heavy hitters of the click stream: the hottest links, and the
+ * top referer hosts and user agents of each link. Shared by servlet and
+ * reactive nodes, which drain it every merge interval and add the result to
+ * the cluster-wide sorted sets in Redis (see AnalyticsKeys).
+ *
+ * Memory is fixed by the sketch sizes, whatever the number of distinct
+ * links, referers or user agents.
+ */
+public class ClickHeavyHitters {
+
+    public static final String DIRECT = "(direct)";
+    public static final String UNKNOWN = "(unknown)";
+
+    private static final int MAX_USER_AGENT_LENGTH = 256;
+
+    /**
+     * One merge interval's worth of increments, keyed by Redis key
+     */
+    public record Batch(String hotLinksKey, List<HeavyHitterSketch.Entry> hotLinks,
+            Map<String, List<HeavyHitterSketch.Entry>> perLink) {
+
+        public boolean isEmpty() {
+            return hotLinks.isEmpty() && perLink.isEmpty();
+        }
+    }
+
+    private final HeavyHitterSketch links;
+    private final HeavyHitterSketch referers;
+    private final HeavyHitterSketch userAgents;
+
+    public ClickHeavyHitters(int width, int depth, int hotLinks, int perLink, int maxLinks) {
+        this.links = new HeavyHitterSketch(width, depth, hotLinks, 1);
+        this.referers = new HeavyHitterSketch(width, depth, perLink, maxLinks);
+        this.userAgents = new HeavyHitterSketch(width, depth, perLink, maxLinks);
+    }
+
+    public void record(String shortCode, String referer, String userAgent) {
+        links.add("", shortCode);
+        referers.add(shortCode, refererHost(referer));
+        userAgents.add(shortCode, userAgent == null || userAgent.isBlank() ? UNKNOWN
+                : userAgent.substring(0, Math.min(userAgent.length(), MAX_USER_AGENT_LENGTH)));
+    }
+
+    public Batch drain(long epochMillis) {
+        Map<String, List<HeavyHitterSketch.Entry>> perLink = new LinkedHashMap<>();
+        referers.drain().forEach((shortCode, top) -> perLink.put(AnalyticsKeys.topReferers(shortCode), top));
+        userAgents.drain().forEach((shortCode, top) -> perLink.put(AnalyticsKeys.topUserAgents(shortCode), top));
+        return new Batch(AnalyticsKeys.hotLinks(epochMillis), links.drain().getOrDefault("", List.of()), perLink);
+    }
+
+    /**
+     * Referers are grouped by host, so query strings do not split one source
+     * into thousands of entries
+     */
+    static String refererHost(String referer) {
+        if (referer == null || referer.isBlank()) {
+            return DIRECT;
+        }
+        try {
+            String host = URI.create(referer.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : UNKNOWN;
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.urlify.analytics;
+
+import com.urlify.repository.UrlRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Drops bot and duplicate clicks before they are persisted (see ClickFilter).
+ *
+ * A dropped click writes no analytics event and does not count towards
+ * Url.clicks; it is added to the link's botClicks or duplicateClicks
+ * instead, in one bulk write per flush interval. Counts that fail to flush
+ * are kept for the next one.
+ */
+@Component
+public class ClickIngestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickIngestFilter.class);
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.filter.bots:true}")
+    private boolean filterBots;
+
+    @Value("${analytics.filter.duplicate-window-seconds:30}")
+    private long duplicateWindowSeconds;
+
+    @Value("${analytics.filter.expected-clicks-per-window:1000000}")
+    private int expectedClicksPerWindow;
+
+    @Value("${analytics.filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private ClickFilter filter;
+
+    @PostConstruct
+    public void init() {
+        TimeWindowedBloomFilter recent = duplicateWindowSeconds > 0
+                ? new TimeWindowedBloomFilter(Duration.ofSeconds(duplicateWindowSeconds).toMillis(),
+                        expectedClicksPerWindow, falsePositiveRate)
+                : null;
+        filter = new ClickFilter(filterBots, recent);
+        FunctionCounter.builder("analytics.clicks.filtered", filter, ClickFilter::bots)
+                .tag("reason", "bot")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.clicks.filtered", filter, ClickFilter::duplicates)
+                .tag("reason", "duplicate")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a click should be stored. Rejected clicks are counted here.
+     */
+    public boolean accept(String shortCode, String ipAddress, String userAgent, UserAgentInfo client) {
+        return !enabled || filter.check(shortCode, ipAddress, userAgent, client, System.currentTimeMillis())
+                == ClickFilter.Verdict.ACCEPT;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.filter.flush-interval-ms:5000}",
+            initialDelayString = "${analytics.filter.flush-interval-ms:5000}")
+    public void flush() {
+        ClickFilter.Rejected rejected = filter.drain();
+        if (rejected.isEmpty()) {
+            return;
+        }
+        try {
+            urlRepository.incrementFilteredClicks(rejected.bots(), rejected.duplicates());
+        } catch (DataAccessException e) {
+            filter.restore(rejected);
+            log.warn("Could not write filtered click counts, retrying next flush: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,84 @@
+package com.urlify.analytics;
+
+import com.urlify.repository.UrlRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Samples raw click events of links clicked faster than
+ * analytics.sampling.threshold-per-second on this node (see AdaptiveSampler).
+ *
+ * A click whose event is not stored still counts: it is added to Url.clicks
+ * in one bulk write per flush interval, so click totals stay exact. Counts
+ * that fail to flush are kept for the next one.
+ */
+@Component
+public class ClickSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickSampler.class);
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.sampling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.sampling.threshold-per-second:50}")
+    private int threshold;
+
+    private AdaptiveSampler sampler;
+
+    @PostConstruct
+    public void init() {
+        sampler = new AdaptiveSampler(threshold);
+        FunctionCounter.builder("analytics.sampling.skipped", sampler, AdaptiveSampler::skipped)
+                .description("Clicks counted without storing an event")
+                .register(meterRegistry);
+        Gauge.builder("analytics.sampling.links", sampler, AdaptiveSampler::sampledLinks)
+                .description("Links currently above the sampling threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sampling rate to record on this click's event, or 0 if the event is
+     * not stored (the click is still counted)
+     */
+    public double sample(String shortCode) {
+        return enabled ? sampler.sample(shortCode, System.currentTimeMillis()) : 1.0;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sampling.flush-interval-ms:1000}",
+            initialDelayString = "${analytics.sampling.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Long> skipped = sampler.drain();
+        if (skipped.isEmpty()) {
+            return;
+        }
+        try {
+            urlRepository.incrementClicks(skipped);
+        } catch (DataAccessException e) {
+            sampler.restore(skipped);
+            log.warn("Could not write sampled click counts, retrying next flush: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
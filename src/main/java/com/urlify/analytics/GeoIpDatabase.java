@@ -0,0 +1,235 @@
+package com.urlify.analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only IPv4 to country/region table, memory-mapped from a local file.
+ *
+ * File layout (big-endian), written by {@link #write}:
+ * <pre>
+ * header     "UGEO", version (int), location count (int), range count (int)
+ * locations  8 bytes each: country (2 ASCII), subdivision (3 ASCII, NUL padded), 3 zero bytes
+ * ranges     12 bytes each: first address, last address, location index (ints, addresses unsigned)
+ * </pre>
+ * Ranges are sorted and do not overlap, so a lookup is a binary search over
+ * the mapped range table. The few thousand distinct locations are decoded
+ * once on open, so lookups allocate nothing.
+ *
+ * The mapping reads the file as it is on disk: replace it by renaming a new
+ * file over it, never by rewriting it in place.
+ */
+public final class GeoIpDatabase {
+
+    static final int MAGIC = 0x5547454F; // "UGEO"
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int LOCATION_BYTES = 8;
+    private static final int RANGE_BYTES = 12;
+
+    /**
+     * One row of the table: addresses first..last (inclusive) are in location
+     */
+    public record Range(long first, long last, GeoLocation location) {
+    }
+
+    private final ByteBuffer ranges;
+    private final int rangeCount;
+    private final GeoLocation[] locations;
+
+    private GeoIpDatabase(ByteBuffer ranges, int rangeCount, GeoLocation[] locations) {
+        this.ranges = ranges;
+        this.rangeCount = rangeCount;
+        this.locations = locations;
+    }
+
+    /**
+     * Map and validate a database file
+     *
+     * @throws IOException if the file cannot be read or is not a valid database
+     */
+    public static GeoIpDatabase open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GeoIP database too large: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a GeoIP database: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported GeoIP database version " + buffer.getInt(4));
+        }
+        int locationCount = buffer.getInt(8);
+        int rangeCount = buffer.getInt(12);
+        long rangesOffset = HEADER_BYTES + (long) locationCount * LOCATION_BYTES;
+        if (locationCount < 0 || rangeCount < 0
+                || rangesOffset + (long) rangeCount * RANGE_BYTES != buffer.capacity()) {
+            throw new IOException("Truncated GeoIP database: " + path);
+        }
+
+        GeoLocation[] locations = new GeoLocation[locationCount];
+        byte[] code = new byte[5];
+        for (int i = 0; i < locationCount; i++) {
+            buffer.get(HEADER_BYTES + i * LOCATION_BYTES, code);
+            String country = new String(code, 0, 2, StandardCharsets.US_ASCII);
+            int subdivision = 0;
+            while (subdivision < 3 && code[2 + subdivision] != 0) {
+                subdivision++;
+            }
+            locations[i] = new GeoLocation(country, subdivision == 0 ? null
+                    : country + "-" + new String(code, 2, subdivision, StandardCharsets.US_ASCII));
+        }
+
+        ByteBuffer ranges = buffer.slice((int) rangesOffset, rangeCount * RANGE_BYTES);
+        // Check once here what lookups rely on: sorted, disjoint, valid location indexes
+        long previousLast = -1;
+        for (int i = 0; i < rangeCount; i++) {
+            long first = Integer.toUnsignedLong(ranges.getInt(i * RANGE_BYTES));
+            long last = Integer.toUnsignedLong(ranges.getInt(i * RANGE_BYTES + 4));
+            int location = ranges.getInt(i * RANGE_BYTES + 8);
+            if (first <= previousLast || last < first || location < 0 || location >= locationCount) {
+                throw new IOException("Corrupt GeoIP range table at row " + i + ": " + path);
+            }
+            previousLast = last;
+        }
+        return new GeoIpDatabase(ranges, rangeCount, locations);
+    }
+
+    /**
+     * Location of an IPv4 address (dotted quad, or IPv4-mapped IPv6), or null
+     * if it is not in the table or not an IPv4 address
+     */
+    public GeoLocation lookup(String ipAddress) {
+        long address = parseIpv4(ipAddress);
+        return address < 0 ? null : lookup(address);
+    }
+
+    /**
+     * Location of an IPv4 address given as an unsigned 32-bit value
+     */
+    public GeoLocation lookup(long address) {
+        // Last range starting at or before the address
+        int low = 0;
+        int high = rangeCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.toUnsignedLong(ranges.getInt(mid * RANGE_BYTES)) <= address) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || Integer.toUnsignedLong(ranges.getInt(found * RANGE_BYTES + 4)) < address) {
+            return null;
+        }
+        return locations[ranges.getInt(found * RANGE_BYTES + 8)];
+    }
+
+    public int ranges() {
+        return rangeCount;
+    }
+
+    /**
+     * Parse a dotted-quad IPv4 address, optionally IPv4-mapped ("::ffff:a.b.c.d"),
+     * without allocating. Returns -1 if it is not one.
+     */
+    static long parseIpv4(String ipAddress) {
+        if (ipAddress == null) {
+            return -1;
+        }
+        int start = ipAddress.regionMatches(true, 0, "::ffff:", 0, 7) ? 7 : 0;
+        int length = ipAddress.length();
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = start; i < length; i++) {
+            char c = ipAddress.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = address << 8 | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return dots == 3 && octet >= 0 ? address << 8 | octet : -1;
+    }
+
+    /**
+     * Write a database file. Ranges must be sorted by first address and must
+     * not overlap.
+     */
+    public static void write(List<Range> rows, OutputStream out) throws IOException {
+        List<GeoLocation> locations = rows.stream().map(Range::location).distinct().toList();
+        Map<GeoLocation, Integer> index = new HashMap<>();
+        for (int i = 0; i < locations.size(); i++) {
+            index.put(locations.get(i), i);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + locations.size() * LOCATION_BYTES
+                + rows.size() * RANGE_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(locations.size()).putInt(rows.size());
+        for (GeoLocation location : locations) {
+            if (!location.country().matches("[A-Z]{2}")
+                    || location.region() != null && !location.region().matches(location.country() + "-[A-Z0-9]{1,3}")) {
+                throw new IllegalArgumentException("Not an ISO 3166 country/region code: " + location);
+            }
+            byte[] code = new byte[LOCATION_BYTES];
+            byte[] country = location.country().getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(country, 0, code, 0, 2);
+            if (location.region() != null) {
+                byte[] subdivision = location.region().substring(3).getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(subdivision, 0, code, 2, subdivision.length);
+            }
+            buffer.put(code);
+        }
+        long previousLast = -1;
+        for (Range row : rows) {
+            if (row.first() <= previousLast || row.last() < row.first() || row.last() > 0xFFFFFFFFL) {
+                throw new IllegalArgumentException("Ranges must be sorted and disjoint: " + row);
+            }
+            previousLast = row.last();
+            buffer.putInt((int) row.first()).putInt((int) row.last()).putInt(index.get(row.location()));
+        }
+        out.write(buffer.array());
+    }
+
+    /**
+     * Write a database file next to path, then move it into place, so nodes
+     * reloading it never map a partial file
+     */
+    public static void write(List<Range> rows, Path path) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                write(rows, out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
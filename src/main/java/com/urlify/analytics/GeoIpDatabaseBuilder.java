@@ -0,0 +1,79 @@
+package com.urlify.analytics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds a GeoIpDatabase file from CSV rows of
+ * {@code first_ip,last_ip,country[,subdivision]}, e.g.
+ * {@code 8.8.8.0,8.8.8.255,US,CA}. Addresses are dotted quads or unsigned
+ * integers; rows need not be sorted but must not overlap. Lines starting
+ * with # are skipped.
+ *
+ * <pre>
+ * java @classpath.args com.urlify.analytics.GeoIpDatabaseBuilder ranges.csv /data/geoip.db
+ * </pre>
+ * The output is written to a temporary file and renamed into place, so it
+ * can target the file running nodes are watching.
+ */
+public final class GeoIpDatabaseBuilder {
+
+    private GeoIpDatabaseBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GeoIpDatabaseBuilder <ranges.csv> <database>");
+            System.exit(2);
+        }
+        List<GeoIpDatabase.Range> rows = read(Path.of(args[0]));
+        GeoIpDatabase.write(rows, Path.of(args[1]));
+        System.out.printf("Wrote %d ranges to %s%n", rows.size(), args[1]);
+    }
+
+    static List<GeoIpDatabase.Range> read(Path csv) throws IOException {
+        List<GeoIpDatabase.Range> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 3) {
+                    throw new IllegalArgumentException("Line " + number + ": expected first_ip,last_ip,country");
+                }
+                String country = fields[2].trim().toUpperCase();
+                String subdivision = fields.length > 3 ? fields[3].trim().toUpperCase() : "";
+                rows.add(new GeoIpDatabase.Range(address(fields[0], number), address(fields[1], number),
+                        new GeoLocation(country, subdivision.isEmpty() ? null : country + "-" + subdivision)));
+            }
+        }
+        rows.sort(Comparator.comparingLong(GeoIpDatabase.Range::first));
+        return rows;
+    }
+
+    private static long address(String field, int line) {
+        String value = field.trim();
+        long address = value.indexOf('.') >= 0 ? GeoIpDatabase.parseIpv4(value) : parseUnsigned(value);
+        if (address < 0 || address > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Line " + line + ": not an IPv4 address: " + value);
+        }
+        return address;
+    }
+
+    private static long parseUnsigned(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
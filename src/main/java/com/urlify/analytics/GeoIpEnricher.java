@@ -0,0 +1,67 @@
+package com.urlify.analytics;
+
+import com.urlify.entity.Analytics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Fills the country and region of analytics events at ingest from the local
+ * GeoIP database at analytics.geoip.database. No external service is called
+ * per click; the file is polled for changes and hot-reloaded. Without a
+ * database configured, events are stored without a location.
+ */
+@Component
+public class GeoIpEnricher {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.geoip.database:}")
+    private String databasePath;
+
+    private GeoIpResolver resolver;
+
+    @PostConstruct
+    public void init() {
+        if (databasePath.isBlank()) {
+            return;
+        }
+        resolver = new GeoIpResolver(Path.of(databasePath));
+        resolver.reloadIfChanged();
+        FunctionCounter.builder("analytics.geoip.lookups", resolver, GeoIpResolver::hits)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.geoip.lookups", resolver, GeoIpResolver::misses)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.geoip.reloads", resolver, GeoIpResolver::reloads)
+                .tag("result", "success")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.geoip.reloads", resolver, GeoIpResolver::failedReloads)
+                .tag("result", "failure")
+                .register(meterRegistry);
+        Gauge.builder("analytics.geoip.ranges", resolver, GeoIpResolver::ranges)
+                .description("IP ranges in the loaded GeoIP database")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.geoip.reload-interval-ms:60000}",
+            initialDelayString = "${analytics.geoip.reload-interval-ms:60000}")
+    public void reload() {
+        if (resolver != null) {
+            resolver.reloadIfChanged();
+        }
+    }
+
+    public void locate(Analytics analytics, String ipAddress) {
+        analytics.setLocation(resolver == null ? null : resolver.locate(ipAddress));
+    }
+}
@@ -0,0 +1,109 @@
+package com.urlify.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Looks up client IPs in a GeoIpDatabase file and swaps in a new one when
+ * the file changes.
+ *
+ * reloadIfChanged() compares the file's modification time, size and file
+ * key with the loaded one; a changed file is mapped and validated off to the
+ * side, then published with one volatile write, so a lookup sees either the
+ * old table or the new one. A file that fails to load leaves the current
+ * table in place and is not retried until it changes again.
+ */
+public class GeoIpResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoIpResolver.class);
+
+    private record Stamp(Object fileKey, long modified, long size) {
+    }
+
+    private final Path path;
+    private volatile GeoIpDatabase database;
+    private Stamp loaded;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failedReloads = new LongAdder();
+
+    public GeoIpResolver(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Load the file if it is new or has changed since the last call.
+     * Returns true if a new table was published.
+     */
+    public synchronized boolean reloadIfChanged() {
+        Stamp stamp;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            stamp = new Stamp(attributes.fileKey(), attributes.lastModifiedTime().toMillis(), attributes.size());
+        } catch (NoSuchFileException e) {
+            if (loaded == null) {
+                log.warn("GeoIP database {} not found; clicks are stored without a location until it appears", path);
+                loaded = new Stamp(null, -1, -1);
+            }
+            return false;
+        } catch (IOException e) {
+            log.warn("Could not read GeoIP database {}: {}", path, e.getMessage());
+            return false;
+        }
+        if (stamp.equals(loaded)) {
+            return false;
+        }
+        loaded = stamp;
+        try {
+            GeoIpDatabase next = GeoIpDatabase.open(path);
+            database = next;
+            reloads.increment();
+            log.info("Loaded GeoIP database {} ({} ranges)", path, next.ranges());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloads.increment();
+            log.warn("Could not load GeoIP database {}, keeping the previous one: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Location of a client IP, or null if there is no table yet or the
+     * address is not in it
+     */
+    public GeoLocation locate(String ipAddress) {
+        GeoIpDatabase current = database;
+        GeoLocation location = current == null ? null : current.lookup(ipAddress);
+        (location != null ? hits : misses).increment();
+        return location;
+    }
+
+    public int ranges() {
+        GeoIpDatabase current = database;
+        return current == null ? 0 : current.ranges();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long reloads() {
+        return reloads.sum();
+    }
+
+    public long failedReloads() {
+        return failedReloads.sum();
+    }
+}
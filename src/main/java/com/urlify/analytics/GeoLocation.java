@@ -0,0 +1,8 @@
+package com.urlify.analytics;
+
+/**
+ * Where a client IP is registered: ISO 3166-1 alpha-2 country code and,
+ * when the database has one, ISO 3166-2 region code ("US-CA", "GB-ENG").
+ */
+public record GeoLocation(String country, String region) {
+}
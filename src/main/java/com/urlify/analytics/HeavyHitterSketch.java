@@ -0,0 +1,132 @@
+package com.urlify.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming top-k per group: a Count-Min Sketch for frequencies plus a
+ * Space-Saving style candidate set of at most capacity items per group.
+ *
+ * Every (group, item) pair shares one sketch of depth x width counters, so
+ * memory does not grow with the number of distinct items. The sketch uses
+ * conservative update and only ever overestimates: by at most e / width of
+ * all increments this epoch, with probability 1 - e^-depth.
+ * An item enters a full candidate set when its estimate exceeds the smallest
+ * candidate's, which it then replaces. Groups are kept in LRU order and
+ * capped at maxGroups, evicting the least recently updated.
+ *
+ * Counts accumulate until drain(), which returns the candidates and starts a
+ * new epoch. Thread-safe; updates take a single lock.
+ */
+public class HeavyHitterSketch {
+
+    public record Entry(String item, long count) {
+    }
+
+    private final int[][] counters;
+    private final int mask;
+    private final int capacity;
+    private final Map<String, Map<String, Long>> candidates;
+
+    /**
+     * @param width     counters per row, rounded up to a power of two
+     * @param depth     rows (independent hash functions)
+     * @param capacity  candidates kept per group
+     * @param maxGroups groups tracked at once
+     */
+    public HeavyHitterSketch(int width, int depth, int capacity, int maxGroups) {
+        int size = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.counters = new int[depth][size];
+        this.mask = size - 1;
+        this.capacity = capacity;
+        this.candidates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Long>> eldest) {
+                return size() > maxGroups;
+            }
+        };
+    }
+
+    public synchronized void add(String group, String item) {
+        long estimate = increment(hash(group, item));
+        Map<String, Long> top = candidates.computeIfAbsent(group, g -> new HashMap<>(capacity * 2));
+        if (top.containsKey(item) || top.size() < capacity) {
+            top.put(item, estimate);
+            return;
+        }
+        // Linear scan: candidate sets are small enough that a heap would not pay off
+        Map.Entry<String, Long> min = null;
+        for (Map.Entry<String, Long> candidate : top.entrySet()) {
+            if (min == null || candidate.getValue() < min.getValue()) {
+                min = candidate;
+            }
+        }
+        if (estimate > min.getValue()) {
+            top.remove(min.getKey());
+            top.put(item, estimate);
+        }
+    }
+
+    /**
+     * Candidates of every group, highest count first, and reset for the next
+     * epoch
+     */
+    public synchronized Map<String, List<Entry>> drain() {
+        Map<String, List<Entry>> drained = new LinkedHashMap<>();
+        candidates.forEach((group, top) -> {
+            List<Entry> entries = new ArrayList<>(top.size());
+            top.forEach((item, count) -> entries.add(new Entry(item, count)));
+            entries.sort(Comparator.comparingLong(Entry::count).reversed());
+            drained.put(group, entries);
+        });
+        candidates.clear();
+        for (int[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+        return drained;
+    }
+
+    /**
+     * Conservative update: raise only the counters at the current minimum
+     */
+    private long increment(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            min = Math.min(min, counters[row][(h1 + row * h2) & mask]);
+        }
+        int next = min == Integer.MAX_VALUE ? min : min + 1;
+        for (int row = 0; row < counters.length; row++) {
+            int index = (h1 + row * h2) & mask;
+            if (counters[row][index] < next) {
+                counters[row][index] = next;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 64-bit FNV-1a of group and item, finished with a murmur3 mix
+     */
+    private static long hash(String group, String item) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < group.length(); i++) {
+            h = (h ^ group.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xFFFF) * 0x100000001b3L;
+        for (int i = 0; i < item.length(); i++) {
+            h = (h ^ item.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
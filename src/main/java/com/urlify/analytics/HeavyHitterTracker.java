@@ -0,0 +1,197 @@
+package com.urlify.analytics;
+
+import com.urlify.dto.TopEntry;
+import com.urlify.util.AnalyticsKeys;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cluster-wide top links, referers and user agents from per-node sketches.
+ *
+ * Clicks update a node-local ClickHeavyHitters on the ingest path. Every
+ * merge interval each node adds its candidates to sorted sets in Redis with
+ * ZINCRBY: hot links into one set per UTC minute, referers and user agents
+ * into one set per link, trimmed to the per-link size. "Top links right now"
+ * is the ZUNION of the last few minutes; per-link tops are one ZREVRANGE.
+ *
+ * Counts are approximate: sketch estimates only overestimate, and an item
+ * outside a node's top-k in an interval adds nothing for that interval.
+ */
+@Component
+public class HeavyHitterTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(HeavyHitterTracker.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    @Qualifier("redisLimiter")
+    private ConcurrencyLimiter redisLimiter;
+
+    @Autowired
+    @Qualifier("redisCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.heavy-hitters.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.heavy-hitters.sketch-width:4096}")
+    private int width;
+
+    @Value("${analytics.heavy-hitters.sketch-depth:4}")
+    private int depth;
+
+    @Value("${analytics.heavy-hitters.hot-links:100}")
+    private int hotLinks;
+
+    @Value("${analytics.heavy-hitters.per-link:20}")
+    private int perLink;
+
+    @Value("${analytics.heavy-hitters.max-tracked-links:10000}")
+    private int maxTrackedLinks;
+
+    @Value("${analytics.heavy-hitters.hot-window-minutes:5}")
+    private int hotWindowMinutes;
+
+    @Value("${analytics.heavy-hitters.per-link-size:100}")
+    private int perLinkSize;
+
+    @Value("${analytics.heavy-hitters.per-link-idle-days:30}")
+    private int perLinkIdleDays;
+
+    private ClickHeavyHitters sketches;
+
+    @PostConstruct
+    public void init() {
+        sketches = new ClickHeavyHitters(width, depth, hotLinks, perLink, maxTrackedLinks);
+    }
+
+    /**
+     * Count a click in the node-local sketches
+     */
+    public void record(String shortCode, String referer, String userAgent) {
+        if (enabled) {
+            sketches.record(shortCode, referer, userAgent);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.heavy-hitters.merge-interval-ms:10000}",
+            initialDelayString = "${analytics.heavy-hitters.merge-interval-ms:10000}")
+    public void merge() {
+        ClickHeavyHitters.Batch batch = sketches.drain(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> redisTemplate.executePipelined(
+                    mergeCallback(batch))));
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "heavy_hitters_merge", e);
+        }
+    }
+
+    @PreDestroy
+    public void mergeOnShutdown() {
+        merge();
+    }
+
+    private RedisCallback<Object> mergeCallback(ClickHeavyHitters.Batch batch) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        long hotTtl = Duration.ofMinutes(hotWindowMinutes + 1L).toSeconds();
+        long perLinkTtl = Duration.ofDays(perLinkIdleDays).toSeconds();
+        return connection -> {
+            if (!batch.hotLinks().isEmpty()) {
+                byte[] key = serializer.serialize(batch.hotLinksKey());
+                batch.hotLinks().forEach(entry -> connection.zSetCommands()
+                        .zIncrBy(key, entry.count(), serializer.serialize(entry.item())));
+                connection.keyCommands().expire(key, hotTtl);
+            }
+            batch.perLink().forEach((name, top) -> {
+                byte[] key = serializer.serialize(name);
+                top.forEach(entry -> connection.zSetCommands()
+                        .zIncrBy(key, entry.count(), serializer.serialize(entry.item())));
+                // Keep the per-link set bounded: drop everything below the top perLinkSize
+                connection.zSetCommands().zRemRange(key, 0, -(perLinkSize + 1L));
+                connection.keyCommands().expire(key, perLinkTtl);
+            });
+            return null;
+        };
+    }
+
+    /**
+     * Most clicked links across the cluster over the hot window, or null if
+     * Redis is unavailable
+     */
+    public List<TopEntry> hotLinks(int limit) {
+        long now = System.currentTimeMillis();
+        List<String> minutes = new ArrayList<>(hotWindowMinutes);
+        for (int i = 1; i < hotWindowMinutes; i++) {
+            minutes.add(AnalyticsKeys.hotLinks(now - Duration.ofMinutes(i).toMillis()));
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> union = circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.opsForZSet().unionWithScores(AnalyticsKeys.hotLinks(now), minutes)));
+            return union.stream()
+                    .sorted(Comparator.comparingDouble(ZSetOperations.TypedTuple<Object>::getScore).reversed())
+                    .limit(limit)
+                    .map(HeavyHitterTracker::toEntry)
+                    .toList();
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "heavy_hitters_read", e);
+            return null;
+        }
+    }
+
+    /**
+     * Top referer hosts of a link, or null if Redis is unavailable
+     */
+    public List<TopEntry> topReferers(String shortCode, int limit) {
+        return top(AnalyticsKeys.topReferers(shortCode), limit);
+    }
+
+    /**
+     * Top user agents of a link, or null if Redis is unavailable
+     */
+    public List<TopEntry> topUserAgents(String shortCode, int limit) {
+        return top(AnalyticsKeys.topUserAgents(shortCode), limit);
+    }
+
+    private List<TopEntry> top(String key, int limit) {
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> top = circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, limit - 1L)));
+            return top.stream().map(HeavyHitterTracker::toEntry).toList();
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "heavy_hitters_read", e);
+            return null;
+        }
+    }
+
+    private static TopEntry toEntry(ZSetOperations.TypedTuple<Object> tuple) {
+        return new TopEntry(String.valueOf(tuple.getValue()), tuple.getScore().longValue());
+    }
+}
@@ -0,0 +1,38 @@
+package com.urlify.analytics;
+
+import com.urlify.dto.TopEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GET /actuator/hotlinks (top 20) or /actuator/hotlinks/{limit} on the
+ * management port: the most clicked links across the cluster over the last
+ * few minutes, for operators
+ */
+@Component
+@Endpoint(id = "hotlinks")
+public class HotLinksEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    private HeavyHitterTracker heavyHitters;
+
+    @ReadOperation
+    public List<TopEntry> hotLinks() {
+        return topHotLinks(null);
+    }
+
+    // Actuator treats operation parameters as required, so the limit is a path selector
+    @ReadOperation
+    public List<TopEntry> topHotLinks(@Selector Integer limit) {
+        int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return heavyHitters.hotLinks(n);
+    }
+}
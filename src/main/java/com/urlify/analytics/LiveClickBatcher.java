@@ -0,0 +1,87 @@
+package com.urlify.analytics;
+
+import com.urlify.dto.AnalyticsResponse;
+import com.urlify.dto.LiveClicks;
+import com.urlify.entity.Analytics;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Clicks of watched links since the last flush, grouped by short code.
+ * Shared by servlet and reactive nodes, which drain it every live flush
+ * interval and publish one message per link (see AnalyticsKeys).
+ *
+ * A link is watched while some node has a live stream for it and keeps
+ * announcing it; an announcement lasts watchTtlMillis. Clicks of other
+ * links cost one map lookup. Per link and interval only the first
+ * maxEvents clicks are kept as events; the rest are just counted, so a
+ * viral link publishes a bounded message however hot it gets.
+ */
+public class LiveClickBatcher {
+
+    private final ConcurrentHashMap<String, Long> watchedUntil = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LiveClicks> pending = new ConcurrentHashMap<>();
+    private final long watchTtlMillis;
+    private final int maxEvents;
+
+    public LiveClickBatcher(long watchTtlMillis, int maxEvents) {
+        this.watchTtlMillis = watchTtlMillis;
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * Mark links as watched for the next watchTtlMillis
+     */
+    public void watch(Collection<String> shortCodes, long epochMillis) {
+        Long until = epochMillis + watchTtlMillis;
+        for (String shortCode : shortCodes) {
+            watchedUntil.merge(shortCode, until, Math::max);
+        }
+    }
+
+    public boolean isWatched(String shortCode, long epochMillis) {
+        Long until = watchedUntil.get(shortCode);
+        return until != null && until > epochMillis;
+    }
+
+    /**
+     * Add a click of a watched link, clicked at epochMillis
+     */
+    public void record(Analytics event, long epochMillis) {
+        pending.compute(event.getShortCode(), (shortCode, clicks) -> {
+            LiveClicks batch = clicks != null ? clicks : new LiveClicks(shortCode, 0, new ArrayList<>());
+            batch.setClicks(batch.getClicks() + 1);
+            if (batch.getEvents().size() < maxEvents) {
+                AnalyticsResponse.ClickDetail detail = AnalyticsResponse.ClickDetail.of(event);
+                detail.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+                detail.setSampleRate(null);
+                batch.getEvents().add(detail);
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * Take the clicks recorded so far and forget expired announcements. Each
+     * link's batch is removed atomically, so a concurrent click lands either
+     * in the drained batch or in a fresh one.
+     */
+    public Map<String, LiveClicks> drain(long epochMillis) {
+        watchedUntil.values().removeIf(until -> until <= epochMillis);
+        Map<String, LiveClicks> drained = new LinkedHashMap<>();
+        for (String shortCode : pending.keySet()) {
+            LiveClicks clicks = pending.remove(shortCode);
+            if (clicks != null) {
+                drained.put(shortCode, clicks);
+            }
+        }
+        return drained;
+    }
+}
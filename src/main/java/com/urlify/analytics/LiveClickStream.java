@@ -0,0 +1,353 @@
+package com.urlify.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlify.dto.LiveClicks;
+import com.urlify.entity.Analytics;
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import com.urlify.exception.ResourceNotFoundException;
+import com.urlify.util.AnalyticsKeys;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live click streams over Server-Sent Events, fed from the click ingest
+ * path and fanned out across nodes through Redis pub/sub.
+ *
+ * Ingest: clicks of watched links are collected in a LiveClickBatcher and
+ * published every flush interval, one LiveClicks message per link on
+ * live:<code>. Links nobody watches are never published.
+ *
+ * Streams: each node subscribes to a link's channel once, while it has at
+ * least one stream for the link, and hands every message as is to that
+ * link's streams, so a message is encoded once per node that clicked and
+ * decoded by nobody. Every announce interval each node publishes the links
+ * it has streams for on live-watch, which tells the other nodes to start
+ * or keep publishing them.
+ *
+ * While Redis is unavailable, messages are delivered to this node's streams
+ * only. Streams are bounded per node (max-streams) and per stream (queue
+ * capacity, see LiveClickSubscriber).
+ */
+@Component
+public class LiveClickStream {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveClickStream.class);
+
+    private static final int MAX_CODES_PER_ANNOUNCEMENT = 1000;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    @Qualifier("liveClickListenerContainer")
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    @Qualifier("redisLimiter")
+    private ConcurrencyLimiter redisLimiter;
+
+    @Autowired
+    @Qualifier("redisCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.live.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.live.max-events-per-flush:20}")
+    private int maxEventsPerFlush;
+
+    @Value("${analytics.live.announce-interval-ms:10000}")
+    private long announceIntervalMs;
+
+    @Value("${analytics.live.max-streams:10000}")
+    private int maxStreams;
+
+    @Value("${analytics.live.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${analytics.live.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private LiveClickBatcher batcher;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger streams = new AtomicInteger();
+    private Counter droppedMessages;
+
+    @PostConstruct
+    public void init() {
+        // A link stays watched for a few missed announcements
+        batcher = new LiveClickBatcher(3 * announceIntervalMs, maxEventsPerFlush);
+        Gauge.builder("analytics.live.streams", streams, AtomicInteger::get).register(meterRegistry);
+        droppedMessages = Counter.builder("analytics.live.dropped").register(meterRegistry);
+        if (enabled) {
+            // Registered only; the container is not running yet
+            listenerContainer.addMessageListener(this::onAnnouncement,
+                    new ChannelTopic(AnalyticsKeys.LIVE_WATCH_CHANNEL));
+        }
+    }
+
+    /**
+     * Subscribe to the channels of all registered listeners unless already
+     * subscribed, e.g. at startup, or after Redis was unavailable for longer
+     * than the container's own reconnect attempts
+     */
+    @Scheduled(fixedDelayString = "${analytics.live.announce-interval-ms:10000}")
+    public void listen() {
+        if (!enabled || listenerContainer.isListening()) {
+            return;
+        }
+        try {
+            circuitBreaker.executeRunnable(() -> {
+                listenerContainer.stop();
+                listenerContainer.start();
+            });
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "live_clicks_subscribe", e);
+        }
+    }
+
+    @PreDestroy
+    public void closeStreams() {
+        topics.values().stream()
+                .flatMap(topic -> topic.subscribers.stream())
+                .distinct()
+                .forEach(LiveClickSubscriber::complete);
+    }
+
+    /**
+     * Whether clicks of a link should be recorded; one map lookup
+     */
+    public boolean isWatched(String shortCode) {
+        return enabled && batcher.isWatched(shortCode, System.currentTimeMillis());
+    }
+
+    /**
+     * Record a click of a watched link, clicked at epochMillis
+     */
+    public void record(Analytics event, long epochMillis) {
+        batcher.record(event, epochMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.live.flush-interval-ms:250}")
+    public void flush() {
+        Map<String, LiveClicks> batch = batcher.drain(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, String> messages = new LinkedHashMap<>();
+        batch.forEach((shortCode, clicks) -> {
+            try {
+                messages.put(shortCode, objectMapper.writeValueAsString(clicks));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not encode live clicks of {}: {}", shortCode, e.getMessage());
+            }
+        });
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> redisTemplate.executePipelined(
+                    publishCallback(messages))));
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "live_clicks_publish", e);
+            messages.forEach(this::deliver);
+        }
+    }
+
+    private static RedisCallback<Object> publishCallback(Map<String, String> messages) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        return connection -> {
+            messages.forEach((shortCode, message) -> connection.publish(
+                    serializer.serialize(AnalyticsKeys.liveClicks(shortCode)), serializer.serialize(message)));
+            return null;
+        };
+    }
+
+    /**
+     * Open a stream of the clicks of the given links
+     */
+    public SseEmitter subscribe(List<String> shortCodes) {
+        if (!enabled) {
+            throw new ResourceNotFoundException("Live click streams are disabled");
+        }
+        if (streams.incrementAndGet() > maxStreams) {
+            streams.decrementAndGet();
+            throw new ConcurrencyLimitExceededException("Too many live click streams on this node");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        LiveClickSubscriber subscriber = new LiveClickSubscriber(emitter, shortCodes, queueCapacity,
+                droppedMessages::increment);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        // Ends the response normally; clients reconnect
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (String shortCode : shortCodes) {
+            Topic joined = topics.compute(shortCode, (code, topic) -> {
+                Topic existing = topic != null ? topic : new Topic(code);
+                existing.subscribers.add(subscriber);
+                return existing;
+            });
+            // Redis I/O outside the map's lock; a no-op once the topic is listening
+            joined.start();
+        }
+        batcher.watch(shortCodes, System.currentTimeMillis());
+        announce(shortCodes);
+        // Sends the response headers now, so the client sees the stream open
+        subscriber.heartbeat();
+        return emitter;
+    }
+
+    private void unsubscribe(LiveClickSubscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        streams.decrementAndGet();
+        for (String shortCode : subscriber.shortCodes()) {
+            AtomicReference<Topic> emptied = new AtomicReference<>();
+            topics.computeIfPresent(shortCode, (code, topic) -> {
+                topic.subscribers.remove(subscriber);
+                if (topic.subscribers.isEmpty()) {
+                    emptied.set(topic);
+                    return null;
+                }
+                return topic;
+            });
+            if (emptied.get() != null) {
+                emptied.get().stop();
+            }
+        }
+    }
+
+    /**
+     * Announce every link with a stream on this node, and send heartbeats
+     */
+    @Scheduled(fixedDelayString = "${analytics.live.announce-interval-ms:10000}",
+            initialDelayString = "${analytics.live.announce-interval-ms:10000}")
+    public void announceWatched() {
+        List<String> watched = new ArrayList<>(topics.keySet());
+        if (watched.isEmpty()) {
+            return;
+        }
+        batcher.watch(watched, System.currentTimeMillis());
+        announce(watched);
+        topics.values().stream()
+                .flatMap(topic -> topic.subscribers.stream())
+                .distinct()
+                .forEach(LiveClickSubscriber::heartbeat);
+    }
+
+    private void announce(List<String> shortCodes) {
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> {
+                for (int i = 0; i < shortCodes.size(); i += MAX_CODES_PER_ANNOUNCEMENT) {
+                    redisTemplate.convertAndSend(AnalyticsKeys.LIVE_WATCH_CHANNEL, String.join("\n",
+                            shortCodes.subList(i, Math.min(i + MAX_CODES_PER_ANNOUNCEMENT, shortCodes.size()))));
+                }
+            }));
+        } catch (Exception e) {
+            RedisFallbacks.record(meterRegistry, log, "live_clicks_announce", e);
+        }
+    }
+
+    private void onAnnouncement(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        batcher.watch(Arrays.asList(body.split("\n")), System.currentTimeMillis());
+    }
+
+    private void deliver(String shortCode, String message) {
+        Topic topic = topics.get(shortCode);
+        if (topic != null) {
+            topic.subscribers.forEach(subscriber -> subscriber.offer(message));
+        }
+    }
+
+    /**
+     * The streams of one link on this node, and their Redis subscription.
+     *
+     * The topics map is only changed inside compute, and the subscription is
+     * started and stopped after compute returns. A topic is stopped once it
+     * has left the map, possibly before a concurrent subscribe() got to
+     * start it, so a stopped topic never starts; a later stream of the link
+     * gets a new topic.
+     */
+    private final class Topic implements MessageListener {
+
+        private final String shortCode;
+        private final ChannelTopic channel;
+        private final Set<LiveClickSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private boolean registered;
+        private boolean stopped;
+
+        Topic(String shortCode) {
+            this.shortCode = shortCode;
+            this.channel = new ChannelTopic(AnalyticsKeys.liveClicks(shortCode));
+        }
+
+        synchronized void start() {
+            if (registered || stopped) {
+                return;
+            }
+            registered = true;
+            try {
+                listenerContainer.addMessageListener(this, channel);
+            } catch (RuntimeException e) {
+                // Still registered, and subscribed by the next listen()
+                RedisFallbacks.record(meterRegistry, log, "live_clicks_subscribe", e);
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            if (!registered) {
+                return;
+            }
+            registered = false;
+            try {
+                listenerContainer.removeMessageListener(this, channel);
+            } catch (RuntimeException e) {
+                RedisFallbacks.record(meterRegistry, log, "live_clicks_unsubscribe", e);
+            }
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            deliver(shortCode, new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+}
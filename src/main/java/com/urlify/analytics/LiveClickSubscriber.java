@@ -0,0 +1,126 @@
+package com.urlify.analytics;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open live click stream.
+ *
+ * Messages wait in a queue of at most capacity; when a slow client lets it
+ * fill up, the oldest message is dropped and the client gets a "dropped"
+ * event with the count before the next "clicks" event. A virtual thread
+ * is started to write whenever something is queued and ends once the queue
+ * is empty, so an idle stream holds no thread, and a client that stops
+ * reading blocks only its own writer.
+ */
+final class LiveClickSubscriber {
+
+    private final SseEmitter emitter;
+    private final List<String> shortCodes;
+    private final int capacity;
+    private final Runnable onDropped;
+    private final ArrayDeque<String> queue;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private int dropped;
+    private boolean heartbeatDue;
+
+    LiveClickSubscriber(SseEmitter emitter, List<String> shortCodes, int capacity, Runnable onDropped) {
+        this.emitter = emitter;
+        this.shortCodes = shortCodes;
+        this.capacity = capacity;
+        this.onDropped = onDropped;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    List<String> shortCodes() {
+        return shortCodes;
+    }
+
+    /**
+     * Queue a "clicks" event holding a LiveClicks message, without blocking
+     */
+    void offer(String message) {
+        synchronized (this) {
+            if (queue.size() == capacity) {
+                queue.poll();
+                dropped++;
+                onDropped.run();
+            }
+            queue.add(message);
+        }
+        startWriting();
+    }
+
+    /**
+     * Send a comment if nothing else is waiting, so a closed connection is
+     * noticed and proxies keep an idle stream open
+     */
+    void heartbeat() {
+        synchronized (this) {
+            heartbeatDue = true;
+        }
+        startWriting();
+    }
+
+    /**
+     * Stop writing; returns false if the stream was already closed
+     */
+    boolean close() {
+        return closed.compareAndSet(false, true);
+    }
+
+    /**
+     * End the response; the client reconnects, to another node if this one
+     * is going away
+     */
+    void complete() {
+        emitter.complete();
+    }
+
+    private void startWriting() {
+        if (!closed.get() && writing.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("live-clicks-writer").start(this::write);
+        }
+    }
+
+    private void write() {
+        try {
+            while (!closed.get()) {
+                String message;
+                int droppedBefore;
+                boolean heartbeat;
+                synchronized (this) {
+                    message = queue.poll();
+                    droppedBefore = dropped;
+                    heartbeat = heartbeatDue;
+                    dropped = 0;
+                    heartbeatDue = false;
+                    if (message == null && !heartbeat) {
+                        // Cleared under the lock, so a concurrent offer either was polled or starts a writer
+                        writing.set(false);
+                        return;
+                    }
+                }
+                if (droppedBefore > 0) {
+                    emitter.send(SseEmitter.event().name("dropped")
+                            .data("{\"messages\":" + droppedBefore + "}", MediaType.APPLICATION_JSON));
+                }
+                if (message != null) {
+                    emitter.send(SseEmitter.event().name("clicks").data(message, MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client gone or stream already completed. No writer is started
+            // again; the container completes the emitter, whose callbacks
+            // unsubscribe it.
+        }
+    }
+}
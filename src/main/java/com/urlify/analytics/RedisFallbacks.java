@@ -0,0 +1,29 @@
+package com.urlify.analytics;
+
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+
+/**
+ * Counts a skipped or failed analytics Redis call on cache.redis.fallback,
+ * tagged the same way as UrlCache's
+ */
+final class RedisFallbacks {
+
+    private RedisFallbacks() {
+    }
+
+    static void record(MeterRegistry meterRegistry, Logger log, String operation, Exception e) {
+        String reason;
+        if (e instanceof CallNotPermittedException) {
+            reason = "circuit_open";
+        } else if (e instanceof ConcurrencyLimitExceededException) {
+            reason = "saturated";
+        } else {
+            reason = "error";
+            log.warn("Redis {} failed: {}", operation, e.getMessage());
+        }
+        meterRegistry.counter("cache.redis.fallback", "operation", operation, "reason", reason).increment();
+    }
+}
@@ -0,0 +1,101 @@
+package com.urlify.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over a sliding time window, for "seen recently?" checks.
+ *
+ * Time is cut into windows; items go into the current window's filter and
+ * are looked up in the current and previous ones. On entering a new window
+ * the previous filter is dropped and a fresh one started, so an item seen
+ * within the last window is always reported and one last seen more than two
+ * windows ago never is. Lookups report an unseen item as seen with the
+ * configured false-positive rate, never the other way round.
+ *
+ * Lock-free except for rotation, which happens once per window.
+ */
+public class TimeWindowedBloomFilter {
+
+    private record Generation(long window, AtomicLongArray words) {
+    }
+
+    private final long windowMillis;
+    private final int bits;
+    private final int hashes;
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * @param expectedItems     distinct items expected per window
+     * @param falsePositiveRate target rate at that load, e.g. 0.001
+     */
+    public TimeWindowedBloomFilter(long windowMillis, int expectedItems, double falsePositiveRate) {
+        if (windowMillis <= 0 || expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Window, expected items and false-positive rate must be positive");
+        }
+        double optimalBits = -expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        // Round up to a power of two (at least one word) so indexes are a mask
+        int target = (int) Math.min(Math.ceil(optimalBits), 1 << 30);
+        this.bits = Math.max(64, Integer.highestOneBit(target - 1) << 1);
+        this.hashes = Math.max(1, (int) Math.round(optimalBits / expectedItems * Math.log(2)));
+        this.windowMillis = windowMillis;
+        this.current = new Generation(Long.MIN_VALUE, new AtomicLongArray(bits / 64));
+        this.previous = current;
+    }
+
+    /**
+     * Record an item and return whether it was (probably) already seen in
+     * the window
+     *
+     * @param hash a well-mixed 64-bit hash of the item
+     */
+    public boolean checkAndPut(long hash, long nowMillis) {
+        Generation generation = generation(nowMillis / windowMillis);
+        Generation before = previous;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int mask = bits - 1;
+        boolean inCurrent = true;
+        boolean inPrevious = before != generation;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & mask;
+            long word = 1L << bit;
+            long bitsBefore = generation.words().get(bit >>> 6);
+            if ((bitsBefore & word) == 0) {
+                bitsBefore = generation.words().getAndAccumulate(bit >>> 6, word, (a, b) -> a | b);
+            }
+            inCurrent &= (bitsBefore & word) != 0;
+            inPrevious = inPrevious && (before.words().get(bit >>> 6) & word) != 0;
+        }
+        return inCurrent || inPrevious;
+    }
+
+    /**
+     * Bits per window filter; memory is twice this
+     */
+    public int bits() {
+        return bits;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    private Generation generation(long window) {
+        Generation generation = current;
+        if (generation.window() == window) {
+            return generation;
+        }
+        synchronized (this) {
+            generation = current;
+            if (generation.window() < window) {
+                Generation next = new Generation(window, new AtomicLongArray(bits / 64));
+                // After a quiet gap of more than one window the old filter is not "previous" any more
+                previous = generation.window() == window - 1 ? generation : next;
+                current = next;
+                generation = next;
+            }
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.urlify.analytics;
+
+import com.urlify.util.AnalyticsKeys;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Visitors seen since the last flush, grouped by short code and UTC day.
+ *
+ * Filled on the redirect path, ahead of the click executor that may drop or
+ * sample clicks under load, and drained by a periodic flush into the Redis
+ * HyperLogLogs. Repeat visits within a flush interval collapse to one entry.
+ * Bounded: once maxPending distinct visitors are waiting, new ones are
+ * rejected and the caller counts them as dropped.
+ */
+public class UniqueVisitorBuffer {
+
+    public record DayKey(String shortCode, LocalDate day) {
+    }
+
+    private final ConcurrentHashMap<DayKey, Set<String>> visitors = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int maxPending;
+
+    public UniqueVisitorBuffer(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Returns false if the buffer is full and the visitor was not recorded
+     */
+    public boolean add(String shortCode, String visitor, long epochMillis) {
+        if (pending.get() >= maxPending) {
+            return false;
+        }
+        DayKey key = new DayKey(shortCode, AnalyticsKeys.day(epochMillis));
+        visitors.compute(key, (k, set) -> {
+            Set<String> day = set != null ? set : new HashSet<>();
+            if (day.add(visitor)) {
+                pending.incrementAndGet();
+            }
+            return day;
+        });
+        return true;
+    }
+
+    /**
+     * Take everything buffered so far. Each set is removed atomically, so a
+     * concurrent add lands either in the drained set or in a fresh one.
+     */
+    public Map<DayKey, Set<String>> drain() {
+        Map<DayKey, Set<String>> drained = new LinkedHashMap<>();
+        for (DayKey key : visitors.keySet()) {
+            Set<String> day = visitors.remove(key);
+            if (day != null) {
+                drained.put(key, day);
+                pending.addAndGet(-day.size());
+            }
+        }
+        return drained;
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+}
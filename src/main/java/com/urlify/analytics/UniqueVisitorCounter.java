@@ -0,0 +1,359 @@
+package com.urlify.analytics;
+
+import com.urlify.util.AnalyticsKeys;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Approximate unique visitors per link, kept in Redis HyperLogLogs.
+ *
+ * Each link has one sketch per UTC day and one over its lifetime (see
+ * AnalyticsKeys). A sketch is at most 12 KB however many visitors it holds,
+ * and counts have a standard error of 0.81%. Sketches merge without loss, so
+ * visitors over a date range are one PFCOUNT over a link's daily keys, never
+ * a scan of click events. Links hash to different cluster slots, so visitors
+ * across several links are merged in three round-trips (see mergeCount).
+ *
+ * Visitors (client IPs) are buffered on the redirect path and flushed in one
+ * pipelined round-trip per interval, so they are counted even when the click
+ * executor sheds the click itself. The add script is sent by SHA; if a node
+ * has not cached it the batch is sent again with the script body, which is
+ * safe because adding a visitor twice leaves a sketch unchanged. Redis calls
+ * go through the Redis bulkhead and circuit breaker; a failed flush drops
+ * that interval's visitors, and a failed read returns null rather than
+ * failing the analytics request.
+ */
+@Component
+public class UniqueVisitorCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitorCounter.class);
+
+    /**
+     * Relative standard error of a Redis HyperLogLog (16384 registers)
+     */
+    public static final double STANDARD_ERROR = 0.0081;
+
+    private static final Duration MERGE_KEY_TTL = Duration.ofMinutes(1);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisScript<Long> uniqueVisitorAddScript;
+
+    @Autowired
+    @Qualifier("redisLimiter")
+    private ConcurrencyLimiter redisLimiter;
+
+    @Autowired
+    @Qualifier("redisCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.unique-visitors.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.unique-visitors.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${analytics.unique-visitors.daily-retention-days:90}")
+    private int dailyRetentionDays;
+
+    @Value("${analytics.unique-visitors.total-idle-days:400}")
+    private int totalIdleDays;
+
+    @Value("${analytics.unique-visitors.max-merge-keys:10000}")
+    private int maxMergeKeys;
+
+    private UniqueVisitorBuffer buffer;
+    private Counter flushedVisitors;
+    private Counter droppedFull;
+    private Counter droppedFlush;
+
+    @PostConstruct
+    public void init() {
+        buffer = new UniqueVisitorBuffer(maxPending);
+        flushedVisitors = Counter.builder("analytics.unique_visitors.flushed")
+                .description("Distinct (link, day, visitor) entries written to the HyperLogLogs")
+                .register(meterRegistry);
+        droppedFull = droppedCounter("buffer_full");
+        droppedFlush = droppedCounter("flush_failed");
+        meterRegistry.gauge("analytics.unique_visitors.pending", buffer, UniqueVisitorBuffer::pending);
+    }
+
+    private Counter droppedCounter(String reason) {
+        return Counter.builder("analytics.unique_visitors.dropped")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a visit on the redirect path. Only touches the in-memory buffer.
+     */
+    public void record(String shortCode, String visitor) {
+        if (enabled && visitor != null && !buffer.add(shortCode, visitor, System.currentTimeMillis())) {
+            droppedFull.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.unique-visitors.flush-interval-ms:1000}",
+            initialDelayString = "${analytics.unique-visitors.flush-interval-ms:1000}")
+    public void flush() {
+        Map<UniqueVisitorBuffer.DayKey, Set<String>> visitors = buffer.drain();
+        if (visitors.isEmpty()) {
+            return;
+        }
+        int entries = visitors.values().stream().mapToInt(Set::size).sum();
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> addAll(visitors)));
+            flushedVisitors.increment(entries);
+        } catch (Exception e) {
+            droppedFlush.increment(entries);
+            recordFallback("unique_visitors_add", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void addAll(Map<UniqueVisitorBuffer.DayKey, Set<String>> visitors) {
+        try {
+            redisTemplate.executePipelined(addAll(visitors, true));
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            // EVAL caches the script on the nodes that were missing it (restart, failover, SCRIPT FLUSH)
+            redisTemplate.executePipelined(addAll(visitors, false));
+        }
+    }
+
+    private RedisCallback<Object> addAll(Map<UniqueVisitorBuffer.DayKey, Set<String>> visitors, boolean bySha) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        byte[] script = serializer.serialize(uniqueVisitorAddScript.getScriptAsString());
+        byte[] sha = serializer.serialize(uniqueVisitorAddScript.getSha1());
+        byte[] dayTtl = serializer.serialize(String.valueOf(Duration.ofDays(dailyRetentionDays).toSeconds()));
+        byte[] totalTtl = serializer.serialize(String.valueOf(Duration.ofDays(totalIdleDays).toSeconds()));
+        return connection -> {
+            visitors.forEach((key, day) -> {
+                List<byte[]> keysAndArgs = new ArrayList<>(4 + day.size());
+                keysAndArgs.add(serializer.serialize(AnalyticsKeys.dailyUniqueVisitors(key.shortCode(), key.day())));
+                keysAndArgs.add(serializer.serialize(AnalyticsKeys.uniqueVisitors(key.shortCode())));
+                keysAndArgs.add(dayTtl);
+                keysAndArgs.add(totalTtl);
+                day.forEach(visitor -> keysAndArgs.add(serializer.serialize(visitor)));
+                byte[][] params = keysAndArgs.toArray(new byte[0][]);
+                if (bySha) {
+                    connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 2, params);
+                } else {
+                    connection.scriptingCommands().eval(script, ReturnType.INTEGER, 2, params);
+                }
+            });
+            return null;
+        };
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+            if (cause instanceof RedisPipelineException pipeline
+                    && pipeline.getPipelineResult().stream()
+                    .anyMatch(result -> result instanceof Throwable failure && isNoScript(failure))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unique visitors of a link over its lifetime, or null if Redis is unavailable
+     */
+    public Long count(String shortCode) {
+        return pfcount("unique_visitors_count", List.of(AnalyticsKeys.uniqueVisitors(shortCode)));
+    }
+
+    /**
+     * Lifetime unique visitors of each link, in one pipelined round-trip.
+     * Null values if Redis is unavailable.
+     */
+    public Map<String, Long> counts(List<String> shortCodes) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        shortCodes.forEach(shortCode -> counts.put(shortCode, null));
+        if (shortCodes.isEmpty()) {
+            return counts;
+        }
+        try {
+            List<Object> results = circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.executePipelined(pfcountEach(
+                            shortCodes.stream().map(AnalyticsKeys::uniqueVisitors).toList()))));
+            for (int i = 0; i < shortCodes.size(); i++) {
+                counts.put(shortCodes.get(i), (Long) results.get(i));
+            }
+        } catch (Exception e) {
+            recordFallback("unique_visitors_count", e);
+        }
+        return counts;
+    }
+
+    /**
+     * Unique visitors of each day in [from, to], oldest first, or null if
+     * Redis is unavailable. Days past the retention period count as 0.
+     */
+    public Map<LocalDate, Long> dailyCounts(String shortCode, LocalDate from, LocalDate to) {
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        try {
+            List<Object> results = circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.executePipelined(pfcountEach(
+                            days.stream().map(day -> AnalyticsKeys.dailyUniqueVisitors(shortCode, day)).toList()))));
+            Map<LocalDate, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < days.size(); i++) {
+                counts.put(days.get(i), (Long) results.get(i));
+            }
+            return counts;
+        } catch (Exception e) {
+            recordFallback("unique_visitors_count", e);
+            return null;
+        }
+    }
+
+    /**
+     * Distinct visitors across the given links and days [from, to]: a visitor
+     * seen on several days or links counts once. Null if Redis is unavailable.
+     */
+    public Long countBetween(List<String> shortCodes, LocalDate from, LocalDate to) {
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        if ((long) days.size() * shortCodes.size() > maxMergeKeys) {
+            throw new IllegalArgumentException("Too many links and days to merge; narrow the date range");
+        }
+        if (shortCodes.isEmpty() || days.isEmpty()) {
+            return 0L;
+        }
+        if (shortCodes.size() == 1) {
+            String shortCode = shortCodes.get(0);
+            return pfcount("unique_visitors_merge",
+                    days.stream().map(day -> AnalyticsKeys.dailyUniqueVisitors(shortCode, day)).toList());
+        }
+        try {
+            return circuitBreaker.executeSupplier(() -> redisLimiter.call(() -> mergeCount(shortCodes, days)));
+        } catch (Exception e) {
+            recordFallback("unique_visitors_merge", e);
+            return null;
+        }
+    }
+
+    /**
+     * PFCOUNT only merges keys in one cluster slot. Each link's days are
+     * merged into a temporary key in the link's slot and read back, then the
+     * links' sketches are written under temporary keys sharing one slot and
+     * counted together. Temporary keys are deleted, and expire if a step fails.
+     */
+    private Long mergeCount(List<String> shortCodes, List<LocalDate> days) {
+        String mergeId = UUID.randomUUID().toString();
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        List<byte[]> linkKeys = shortCodes.stream()
+                .map(shortCode -> serializer.serialize(AnalyticsKeys.linkMergeUniqueVisitors(mergeId, shortCode)))
+                .toList();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < shortCodes.size(); i++) {
+                String shortCode = shortCodes.get(i);
+                connection.hyperLogLogCommands().pfMerge(linkKeys.get(i), days.stream()
+                        .map(day -> serializer.serialize(AnalyticsKeys.dailyUniqueVisitors(shortCode, day)))
+                        .toArray(byte[][]::new));
+                connection.keyCommands().expire(linkKeys.get(i), MERGE_KEY_TTL.toSeconds());
+            }
+            return null;
+        });
+        // GETs first, so the sketches are the first results
+        List<Object> sketches = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            linkKeys.forEach(key -> connection.stringCommands().get(key));
+            linkKeys.forEach(key -> connection.keyCommands().del(key));
+            return null;
+        }, RedisSerializer.byteArray());
+
+        List<byte[]> found = sketches.subList(0, linkKeys.size()).stream()
+                .filter(byte[].class::isInstance)
+                .map(byte[].class::cast)
+                .toList();
+        if (found.isEmpty()) {
+            return 0L;
+        }
+        byte[][] mergeKeys = new byte[found.size()][];
+        for (int i = 0; i < mergeKeys.length; i++) {
+            mergeKeys[i] = serializer.serialize(AnalyticsKeys.mergeUniqueVisitors(mergeId, i));
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < mergeKeys.length; i++) {
+                connection.stringCommands().set(mergeKeys[i], found.get(i), Expiration.from(MERGE_KEY_TTL),
+                        SetOption.upsert());
+            }
+            connection.hyperLogLogCommands().pfCount(mergeKeys);
+            connection.keyCommands().del(mergeKeys);
+            return null;
+        });
+        // SET replies may or may not be listed; PFCOUNT and DEL are always the last two
+        return (Long) results.get(results.size() - 2);
+    }
+
+    /**
+     * Oldest day that still has a sketch
+     */
+    public LocalDate retainedSince(LocalDate today) {
+        return today.minusDays(dailyRetentionDays - 1);
+    }
+
+    private Long pfcount(String operation, List<String> keys) {
+        try {
+            return circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]))));
+        } catch (Exception e) {
+            recordFallback(operation, e);
+            return null;
+        }
+    }
+
+    private static RedisCallback<Object> pfcountEach(List<String> keys) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        return connection -> {
+            keys.forEach(key -> connection.hyperLogLogCommands().pfCount(serializer.serialize(key)));
+            return null;
+        };
+    }
+
+    private void recordFallback(String operation, Exception e) {
+        RedisFallbacks.record(meterRegistry, log, operation, e);
+    }
+}
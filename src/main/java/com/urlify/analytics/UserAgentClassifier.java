@@ -0,0 +1,55 @@
+package com.urlify.analytics;
+
+import com.urlify.entity.Analytics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the device, browser and OS ids of analytics events at ingest, and
+ * keeps the raw User-Agent only if analytics.user-agent.store-raw is set.
+ */
+@Component
+public class UserAgentClassifier {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.user-agent.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${analytics.user-agent.store-raw:true}")
+    private boolean storeRaw;
+
+    private UserAgentParser parser;
+
+    @PostConstruct
+    public void init() {
+        parser = new UserAgentParser(cacheSize);
+        FunctionCounter.builder("analytics.user_agent.cache", parser, UserAgentParser::hits)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("analytics.user_agent.cache", parser, UserAgentParser::misses)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public UserAgentInfo parse(String userAgent) {
+        return parser.parse(userAgent);
+    }
+
+    public void classify(Analytics analytics, String userAgent) {
+        classify(analytics, userAgent, parser.parse(userAgent));
+    }
+
+    /**
+     * Fill an event from a user agent already parsed with {@link #parse}
+     */
+    public void classify(Analytics analytics, String userAgent, UserAgentInfo client) {
+        analytics.setClient(client);
+        analytics.setUserAgent(storeRaw ? userAgent : null);
+    }
+}
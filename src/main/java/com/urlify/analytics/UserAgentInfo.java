@@ -0,0 +1,83 @@
+package com.urlify.analytics;
+
+/**
+ * Device class, browser and OS of a parsed User-Agent header.
+ *
+ * Each dimension is stored on analytics events as its small integer id, so
+ * clicks can be grouped on an index without touching the raw header. Ids
+ * are part of the stored data: never renumber or reuse one, only append.
+ */
+public record UserAgentInfo(Device device, Browser browser, Os os) {
+
+    public static final UserAgentInfo UNKNOWN = new UserAgentInfo(Device.UNKNOWN, Browser.UNKNOWN, Os.UNKNOWN);
+
+    public enum Device {
+        UNKNOWN(0), DESKTOP(1), MOBILE(2), TABLET(3), BOT(4);
+
+        private final int id;
+
+        Device(int id) {
+            this.id = id;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public static Device fromId(Integer id) {
+            for (Device device : values()) {
+                if (id != null && device.id == id) {
+                    return device;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    public enum Browser {
+        UNKNOWN(0), OTHER(1), CHROME(2), SAFARI(3), FIREFOX(4), EDGE(5), OPERA(6), SAMSUNG_INTERNET(7),
+        INTERNET_EXPLORER(8), IN_APP(9);
+
+        private final int id;
+
+        Browser(int id) {
+            this.id = id;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public static Browser fromId(Integer id) {
+            for (Browser browser : values()) {
+                if (id != null && browser.id == id) {
+                    return browser;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    public enum Os {
+        UNKNOWN(0), OTHER(1), WINDOWS(2), MACOS(3), IOS(4), ANDROID(5), LINUX(6), CHROME_OS(7);
+
+        private final int id;
+
+        Os(int id) {
+            this.id = id;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public static Os fromId(Integer id) {
+            for (Os os : values()) {
+                if (id != null && os.id == id) {
+                    return os;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+}
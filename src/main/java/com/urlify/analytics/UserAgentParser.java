@@ -0,0 +1,155 @@
+package com.urlify.analytics;
+
+import com.urlify.analytics.UserAgentInfo.Browser;
+import com.urlify.analytics.UserAgentInfo.Device;
+import com.urlify.analytics.UserAgentInfo.Os;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classifies User-Agent headers into device class, browser and OS.
+ *
+ * Rules are literal token tables tried in order, most specific first (Edge
+ * and Opera also claim to be Chrome, Chrome also claims to be Safari);
+ * substring checks are several times cheaper than equivalent regexes. Real
+ * traffic has few distinct user agents, so results are kept in a bounded LRU
+ * keyed by the header and the rules only run on a miss. Thread-safe.
+ *
+ * iPadOS 13+ sends a desktop Safari user agent by default and is counted as
+ * macOS desktop.
+ */
+public class UserAgentParser {
+
+    // Longer headers are truncated before parsing and caching
+    static final int MAX_LENGTH = 512;
+
+    /**
+     * Matches when the user agent contains any of the tokens
+     */
+    private record Rule<T>(List<String> tokens, T value) {
+
+        Rule(T value, String... tokens) {
+            this(List.of(tokens), value);
+        }
+
+        boolean matches(String userAgent) {
+            for (String token : tokens) {
+                if (userAgent.contains(token)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Matched against the lower-cased user agent; includes chat apps' link preview fetchers
+    private static final Rule<Device> BOT = new Rule<>(Device.BOT, "bot/", "bot;", "bot-", "bot)", "crawl",
+            "spider", "slurp", "facebookexternalhit", "preview", "whatsapp/", "telegrambot", "slack-imgproxy",
+            "embedly", "curl/", "wget/", "python-", "go-http-client", "okhttp", "java/", "headless");
+
+    private static final List<Rule<Browser>> BROWSERS = List.of(
+            new Rule<>(Browser.EDGE, "Edg/", "Edge/", "EdgA/", "EdgiOS/"),
+            new Rule<>(Browser.OPERA, "OPR/", "Opera"),
+            new Rule<>(Browser.SAMSUNG_INTERNET, "SamsungBrowser/"),
+            new Rule<>(Browser.IN_APP, "FBAN", "FBAV", "Instagram", "LinkedInApp", "Twitter", "Line/", "MicroMessenger"),
+            new Rule<>(Browser.FIREFOX, "Firefox/", "FxiOS/"),
+            new Rule<>(Browser.CHROME, "CriOS/", "Chrome/", "Chromium/"),
+            new Rule<>(Browser.INTERNET_EXPLORER, "MSIE ", "Trident/"));
+
+    private static final List<Rule<Os>> SYSTEMS = List.of(
+            new Rule<>(Os.WINDOWS, "Windows"),
+            new Rule<>(Os.IOS, "iPhone", "iPad", "iPod", "iOS"),
+            new Rule<>(Os.ANDROID, "Android"),
+            new Rule<>(Os.CHROME_OS, "CrOS"),
+            new Rule<>(Os.MACOS, "Mac OS X", "Macintosh"),
+            new Rule<>(Os.LINUX, "Linux", "X11"));
+
+    private static final Rule<Device> TABLET = new Rule<>(Device.TABLET, "iPad", "Tablet", "Kindle", "Silk/");
+    private static final Rule<Device> MOBILE = new Rule<>(Device.MOBILE, "Mobi", "iPhone", "iPod", "Windows Phone",
+            "Opera Mini");
+
+    private final Map<String, UserAgentInfo> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserAgentParser(int cacheSize) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserAgentInfo> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public UserAgentInfo parse(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UserAgentInfo.UNKNOWN;
+        }
+        String key = userAgent.length() > MAX_LENGTH ? userAgent.substring(0, MAX_LENGTH) : userAgent;
+        synchronized (cache) {
+            UserAgentInfo cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        // Parse outside the lock; two threads racing on a new header both get the same answer
+        misses.increment();
+        UserAgentInfo info = classify(key);
+        synchronized (cache) {
+            cache.put(key, info);
+        }
+        return info;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    static UserAgentInfo classify(String userAgent) {
+        Os os = match(SYSTEMS, userAgent, Os.OTHER);
+        if (BOT.matches(userAgent.toLowerCase(Locale.ROOT))) {
+            return new UserAgentInfo(Device.BOT, Browser.OTHER, os);
+        }
+        Browser browser = match(BROWSERS, userAgent, null);
+        if (browser == null) {
+            // Every browser above also claims Safari; a real one has Version/, an iOS web view may not
+            boolean safari = userAgent.contains("Safari/") && userAgent.contains("Version/")
+                    || os == Os.IOS && userAgent.contains("AppleWebKit");
+            browser = safari ? Browser.SAFARI : Browser.OTHER;
+        }
+        return new UserAgentInfo(device(userAgent, os), browser, os);
+    }
+
+    private static Device device(String userAgent, Os os) {
+        if (TABLET.matches(userAgent)) {
+            return Device.TABLET;
+        }
+        if (MOBILE.matches(userAgent)) {
+            return Device.MOBILE;
+        }
+        // Android phones say "Mobile"; Android without it is a tablet
+        return switch (os) {
+            case ANDROID -> Device.TABLET;
+            case WINDOWS, MACOS, LINUX, CHROME_OS -> Device.DESKTOP;
+            default -> Device.UNKNOWN;
+        };
+    }
+
+    private static <T> T match(List<Rule<T>> rules, String userAgent, T otherwise) {
+        for (Rule<T> rule : rules) {
+            if (rule.matches(userAgent)) {
+                return rule.value();
+            }
+        }
+        return otherwise;
+    }
+}
@@ -0,0 +1,89 @@
+package com.urlify.archive;
+
+import com.urlify.entity.Analytics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Daily archive files of raw click events on local disk, one
+ * ClickArchiveFile per day named clicks-yyyy-MM-dd.arc. ClickRetention
+ * writes a day's file before its raw events expire, and click exports read
+ * it for days no longer in MongoDB.
+ *
+ * A file is written under a temporary name and then renamed, so a file that
+ * exists is complete. Each node archives into its own directory: point
+ * analytics.archive.directory at shared storage, or enable archiving on one
+ * node only, to keep a single copy. Exports of archived days are served
+ * from the node that receives the request; a node without the file refuses
+ * an export of a day whose raw events may have expired.
+ */
+@Component
+public class ClickArchive {
+
+    @Value("${analytics.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.archive.directory:data/click-archive}")
+    private String directory;
+
+    private Path archiveDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        archiveDir = Paths.get(directory);
+        if (enabled) {
+            Files.createDirectories(archiveDir);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean has(LocalDate day) {
+        return Files.exists(path(day));
+    }
+
+    /**
+     * Write a day's events, in short code and time order. Returns how many
+     * were written.
+     */
+    public long write(LocalDate day, Stream<Analytics> events) throws IOException {
+        Path file = path(day);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ClickArchiveFile.Writer writer = ClickArchiveFile.writer(temp);
+        try (writer) {
+            for (Iterator<Analytics> it = events.iterator(); it.hasNext(); ) {
+                writer.append(it.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return writer.count();
+    }
+
+    /**
+     * Pass a day's archived events of one short code to consumer, in time
+     * order. Returns how many there were.
+     */
+    public long read(LocalDate day, String shortCode, Consumer<Analytics> consumer) throws IOException {
+        return ClickArchiveFile.read(path(day), shortCode, consumer);
+    }
+
+    private Path path(LocalDate day) {
+        return archiveDir.resolve("clicks-" + day + ".arc");
+    }
+}
@@ -0,0 +1,341 @@
+package com.urlify.archive;
+
+import com.github.luben.zstd.Zstd;
+import com.urlify.entity.Analytics;
+import com.urlify.util.ClickBucketCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Compressed columnar file of click events in short code and time order.
+ *
+ * After a header, events are stored in blocks of up to BLOCK_ROWS. A block
+ * starts with its row count and its first and last short code, so a reader
+ * after one link skips the other blocks without decompressing them. Then
+ * each column follows as its own zstd frame:
+ * - shortCode: (value, run length) pairs
+ * - timestamp: zigzag varint deltas of epoch millis
+ * - ipAddress: strings
+ * - userAgent, referer, country, region: a block dictionary, then a varint
+ *   index per row
+ * - device, browser, os, and the weight 1 / sampleRate: varints
+ * Null is written as 0, and values and indexes are shifted up by one.
+ * Event ids are not kept.
+ */
+public final class ClickArchiveFile {
+
+    static final int BLOCK_ROWS = 65_536;
+    private static final int MAGIC = 0x55524C41; // "URLA"
+    private static final int VERSION = 1;
+    private static final int COLUMNS = 11;
+    private static final int LEVEL = 9;
+
+    private ClickArchiveFile() {
+    }
+
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Appends events to a new file; closing it writes the last block
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final List<Analytics> rows = new ArrayList<>();
+        private String lastShortCode;
+        private long count;
+
+        private Writer(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        /**
+         * Add an event; events must come in short code order
+         */
+        public void append(Analytics event) throws IOException {
+            if (lastShortCode != null && event.getShortCode().compareTo(lastShortCode) < 0) {
+                throw new IllegalArgumentException("Events out of short code order: " + event.getShortCode()
+                        + " after " + lastShortCode);
+            }
+            lastShortCode = event.getShortCode();
+            rows.add(event);
+            if (rows.size() == BLOCK_ROWS) {
+                writeBlock();
+            }
+        }
+
+        public long count() {
+            return count + rows.size();
+        }
+
+        private void writeBlock() throws IOException {
+            out.writeInt(rows.size());
+            out.writeUTF(rows.get(0).getShortCode());
+            out.writeUTF(rows.get(rows.size() - 1).getShortCode());
+
+            Column shortCodes = new Column();
+            Column timestamps = new Column();
+            Column ipAddresses = new Column();
+            Column devices = new Column();
+            Column browsers = new Column();
+            Column oses = new Column();
+            Column weights = new Column();
+            long previousMillis = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                Analytics event = rows.get(i);
+                if (i == 0 || !event.getShortCode().equals(rows.get(i - 1).getShortCode())) {
+                    int run = 1;
+                    while (i + run < rows.size() && rows.get(i + run).getShortCode().equals(event.getShortCode())) {
+                        run++;
+                    }
+                    shortCodes.string(event.getShortCode());
+                    shortCodes.varint(run);
+                }
+                long millis = ClickBucketCodec.epochMillis(event.getTimestamp());
+                long delta = millis - previousMillis;
+                timestamps.varint((delta << 1) ^ (delta >> 63));
+                previousMillis = millis;
+                ipAddresses.string(event.getIpAddress());
+                devices.varint(event.getDevice() != null ? event.getDevice() + 1 : 0);
+                browsers.varint(event.getBrowser() != null ? event.getBrowser() + 1 : 0);
+                oses.varint(event.getOs() != null ? event.getOs() + 1 : 0);
+                weights.varint(event.getSampleRate() != null ? Math.round(1 / event.getSampleRate()) : 0);
+            }
+
+            for (byte[] column : List.of(shortCodes.toByteArray(), timestamps.toByteArray(),
+                    ipAddresses.toByteArray(), dictionary(Analytics::getUserAgent), dictionary(Analytics::getReferer),
+                    devices.toByteArray(), browsers.toByteArray(), oses.toByteArray(),
+                    dictionary(Analytics::getCountry), dictionary(Analytics::getRegion), weights.toByteArray())) {
+                byte[] compressed = Zstd.compress(column, LEVEL);
+                out.writeInt(column.length);
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            }
+            count += rows.size();
+            rows.clear();
+        }
+
+        private byte[] dictionary(Function<Analytics, String> field) {
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            Column indexes = new Column();
+            for (Analytics event : rows) {
+                String value = field.apply(event);
+                indexes.varint(value != null ? ids.computeIfAbsent(value, v -> ids.size() + 1) : 0);
+            }
+            Column column = new Column();
+            column.varint(ids.size());
+            ids.keySet().forEach(column::string);
+            column.writeBytes(indexes.toByteArray());
+            return column.toByteArray();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                if (!rows.isEmpty()) {
+                    writeBlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass the events of shortCode, or all events if it is null, to
+     * consumer in file order. Returns how many were passed.
+     */
+    public static long read(Path file, String shortCode, Consumer<Analytics> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a click archive: " + file);
+            }
+            long read = 0;
+            while (true) {
+                int rows;
+                try {
+                    rows = in.readInt();
+                } catch (EOFException e) {
+                    return read;
+                }
+                String first = in.readUTF();
+                String last = in.readUTF();
+                if (shortCode != null && shortCode.compareTo(first) < 0) {
+                    // Later blocks start later still
+                    return read;
+                }
+                boolean wanted = shortCode == null || shortCode.compareTo(last) <= 0;
+                byte[][] columns = new byte[COLUMNS][];
+                for (int c = 0; c < COLUMNS; c++) {
+                    int length = in.readInt();
+                    int compressedLength = in.readInt();
+                    if (wanted) {
+                        columns[c] = Zstd.decompress(in.readNBytes(compressedLength), length);
+                    } else {
+                        in.skipNBytes(compressedLength);
+                    }
+                }
+                if (wanted) {
+                    read += readBlock(columns, rows, shortCode, consumer);
+                }
+            }
+        }
+    }
+
+    private static long readBlock(byte[][] columns, int rows, String shortCode, Consumer<Analytics> consumer) {
+        Input shortCodes = new Input(columns[0]);
+        Input timestamps = new Input(columns[1]);
+        Input ipAddresses = new Input(columns[2]);
+        Dictionary userAgents = new Dictionary(columns[3]);
+        Dictionary referers = new Dictionary(columns[4]);
+        Input devices = new Input(columns[5]);
+        Input browsers = new Input(columns[6]);
+        Input oses = new Input(columns[7]);
+        Dictionary countries = new Dictionary(columns[8]);
+        Dictionary regions = new Dictionary(columns[9]);
+        Input weights = new Input(columns[10]);
+
+        long read = 0;
+        String code = null;
+        long run = 0;
+        long millis = 0;
+        for (int i = 0; i < rows; i++) {
+            if (run == 0) {
+                code = shortCodes.string();
+                run = shortCodes.varint();
+            }
+            run--;
+            long delta = timestamps.varint();
+            millis += (delta >>> 1) ^ -(delta & 1);
+            String ipAddress = ipAddresses.string();
+            String userAgent = userAgents.next();
+            String referer = referers.next();
+            Integer device = shifted(devices.varint());
+            Integer browser = shifted(browsers.varint());
+            Integer os = shifted(oses.varint());
+            String country = countries.next();
+            String region = regions.next();
+            long weight = weights.varint();
+            // Every column is read in row order, so skipped rows are still decoded
+            if (shortCode != null && !shortCode.equals(code)) {
+                continue;
+            }
+
+            Analytics event = new Analytics();
+            event.setShortCode(code);
+            event.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+            event.setIpAddress(ipAddress);
+            event.setUserAgent(userAgent);
+            event.setReferer(referer);
+            event.setDevice(device);
+            event.setBrowser(browser);
+            event.setOs(os);
+            event.setCountry(country);
+            event.setRegion(region);
+            event.setSampleRate(weight != 0 ? 1.0 / weight : null);
+            consumer.accept(event);
+            read++;
+        }
+        return read;
+    }
+
+    private static Integer shifted(long value) {
+        return value != 0 ? (int) value - 1 : null;
+    }
+
+    /**
+     * Column being written, with varint and length-prefixed string values
+     */
+    private static final class Column extends ByteArrayOutputStream {
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            writeBytes(bytes);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        String string() {
+            int length = (int) varint();
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+    }
+
+    private static final class Dictionary {
+
+        private final Input input;
+        private final String[] values;
+
+        Dictionary(byte[] column) {
+            input = new Input(column);
+            values = new String[(int) input.varint()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = input.string();
+            }
+        }
+
+        String next() {
+            int index = (int) input.varint();
+            return index != 0 ? values[index - 1] : null;
+        }
+    }
+}
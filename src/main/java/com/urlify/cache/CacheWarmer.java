@@ -0,0 +1,243 @@
+package com.urlify.cache;
+
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import com.urlify.entity.Url;
+import com.urlify.repository.ClickEventStore;
+import com.urlify.util.ClickBucketCodec;
+import com.urlify.util.ClickTimeSeries;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Pre-warms the URL cache with the hottest short codes so a cold Redis does
+ * not send the full redirect load to MongoDB.
+ *
+ * The top-N codes by click volume over the recent window are aggregated from
+ * the stored click events (analytics documents, click buckets or the
+ * time-series collection, per analytics.storage.format) and streamed in
+ * bounded batches. Each batch is resolved against the urls collection and
+ * written to Redis with pipelined SETs, and to the local fallback cache.
+ *
+ * Warming runs at startup when Redis has no warm marker, and whenever the
+ * marker disappears later (flush, failover to an empty primary). One node
+ * warms at a time. With cache.warm.block-readiness the readiness probe
+ * reports OUT_OF_SERVICE until the startup pass has finished.
+ */
+@Component
+public class CacheWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UrlCache urlCache;
+
+    @Autowired
+    private ClickEventStore clickEventStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.warm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warm.top-n:10000}")
+    private int topN;
+
+    @Value("${cache.warm.window-hours:24}")
+    private long windowHours;
+
+    @Value("${cache.warm.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cache.warm.lock-lease-ms:120000}")
+    private long lockLeaseMs;
+
+    private final AtomicBoolean warming = new AtomicBoolean();
+    private volatile boolean startupComplete = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        if (!enabled) {
+            startupComplete = true;
+            return;
+        }
+        Thread.ofVirtual().name("cache-warmer").start(() -> {
+            try {
+                // Another node (or an earlier run) already warmed this Redis
+                if (!Boolean.TRUE.equals(urlCache.isMarkedWarm())) {
+                    warm("startup");
+                }
+            } finally {
+                startupComplete = true;
+            }
+        });
+    }
+
+    /**
+     * Detect a Redis flush or failover through the missing warm marker
+     */
+    @Scheduled(fixedDelayString = "${cache.warm.flush-check-interval-ms:10000}",
+            initialDelayString = "${cache.warm.flush-check-interval-ms:10000}")
+    public void checkForFlush() {
+        if (!enabled || !startupComplete) {
+            return;
+        }
+        // null means Redis is unreachable; nothing to warm until it is back
+        if (Boolean.FALSE.equals(urlCache.isMarkedWarm())) {
+            log.info("Redis warm marker missing, cache was flushed or failed over");
+            // Off the shared scheduler thread, so the spool replay is not held up
+            Thread.ofVirtual().name("cache-warmer").start(() -> warm("flush"));
+        }
+    }
+
+    /**
+     * Whether the startup warming pass has finished (or was skipped)
+     */
+    public boolean isStartupComplete() {
+        return startupComplete;
+    }
+
+    /**
+     * Load the hottest short codes into the cache. Returns the number of
+     * entries written, or -1 if another warming pass holds the lock.
+     */
+    public int warm(String trigger) {
+        if (!warming.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            if (!urlCache.tryLockWarming(Duration.ofMillis(lockLeaseMs))) {
+                log.debug("Cache warming ({}) skipped, another node holds the lock", trigger);
+                return -1;
+            }
+            try {
+                return warmLocked(trigger);
+            } finally {
+                urlCache.unlockWarming();
+            }
+        } finally {
+            warming.set(false);
+        }
+    }
+
+    private int warmLocked(String trigger) {
+        long start = System.nanoTime();
+        int warmed = 0;
+        boolean redisWritten = true;
+        try (Stream<Document> hot = switch (clickEventStore.format()) {
+            case DOCUMENT -> mongoTemplate.aggregateStream(hotCodes(), Analytics.class, Document.class);
+            case BUCKETED -> mongoTemplate.aggregateStream(hotCodesFromBuckets(),
+                    mongoTemplate.getCollectionName(ClickBucket.class), Document.class);
+            case TIMESERIES -> mongoTemplate.aggregateStream(hotCodes(), ClickTimeSeries.COLLECTION, Document.class);
+        }) {
+            List<String> batch = new ArrayList<>(batchSize);
+            for (var it = hot.iterator(); it.hasNext(); ) {
+                batch.add(it.next().getString("_id"));
+                if (batch.size() == batchSize || !it.hasNext()) {
+                    Map<String, String> urls = resolve(batch);
+                    redisWritten &= urlCache.putAll(urls);
+                    warmed += urls.size();
+                    batch.clear();
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cache warming ({}) stopped after {} entries: {}", trigger, warmed, e.getMessage());
+            return warmed;
+        }
+
+        if (redisWritten) {
+            urlCache.markWarm();
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("cache.warm.duration").tag("trigger", trigger).register(meterRegistry)
+                .record(Duration.ofNanos(elapsed));
+        meterRegistry.counter("cache.warm.entries", "trigger", trigger).increment(warmed);
+        log.info("Cache warming ({}) loaded {} short codes in {} ms", trigger, warmed, elapsed / 1_000_000);
+        return warmed;
+    }
+
+    /**
+     * Top-N short codes by clicks in the recent window, hottest first
+     */
+    private Aggregation hotCodes() {
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("timestamp").gte(LocalDateTime.now().minusHours(windowHours))),
+                Aggregation.group("shortCode").count().as("clicks"),
+                Aggregation.sort(Sort.Direction.DESC, "clicks"),
+                Aggregation.limit(topN))
+                .withOptions(AggregationOptions.builder()
+                        .allowDiskUse(true)
+                        .cursorBatchSize(batchSize)
+                        .build());
+    }
+
+    /**
+     * The same ranking from compact click buckets (stored field names), by
+     * their event counts
+     */
+    private Aggregation hotCodesFromBuckets() {
+        long since = ClickBucketCodec.bucketStart(
+                ClickBucketCodec.epochMillis(LocalDateTime.now().minusHours(windowHours)));
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("b").gte(since)),
+                Aggregation.group("c").sum("n").as("clicks"),
+                Aggregation.sort(Sort.Direction.DESC, "clicks"),
+                Aggregation.limit(topN))
+                .withOptions(AggregationOptions.builder()
+                        .allowDiskUse(true)
+                        .cursorBatchSize(batchSize)
+                        .build());
+    }
+
+    /**
+     * Original URLs of the live (not expired) codes in a batch, in rank order
+     */
+    private Map<String, String> resolve(List<String> shortCodes) {
+        Query query = Query.query(Criteria.where("shortCode").in(shortCodes)
+                .orOperator(Criteria.where("expiresAt").is(null),
+                        Criteria.where("expiresAt").gt(LocalDateTime.now())));
+        query.fields().include("shortCode", "originalUrl");
+
+        Map<String, String> byCode = new LinkedHashMap<>();
+        for (Url url : mongoTemplate.find(query, Url.class)) {
+            byCode.put(url.getShortCode(), url.getOriginalUrl());
+        }
+        Map<String, String> ranked = new LinkedHashMap<>();
+        for (String shortCode : shortCodes) {
+            String originalUrl = byCode.get(shortCode);
+            if (originalUrl != null) {
+                ranked.put(shortCode, originalUrl);
+            }
+        }
+        return ranked;
+    }
+}
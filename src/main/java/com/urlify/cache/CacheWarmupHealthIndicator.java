@@ -0,0 +1,29 @@
+package com.urlify.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE until the startup cache warming pass has finished,
+ * when cache.warm.block-readiness is set. Part of the readiness group, so a
+ * load balancer only routes to the node once its cache is warm.
+ */
+@Component
+public class CacheWarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
+    @Value("${cache.warm.block-readiness:false}")
+    private boolean blockReadiness;
+
+    @Override
+    public Health health() {
+        boolean complete = cacheWarmer.isStartupComplete();
+        Health.Builder builder = complete || !blockReadiness ? Health.up() : Health.outOfService();
+        return builder.withDetail("startupWarmingComplete", complete).build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.urlify.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small bounded LRU cache with a per-entry TTL. Serves as the fallback tier
+ * when Redis is unavailable, so hot short codes do not all land on MongoDB
+ * while the circuit breaker is open. Values are the encoded bytes from
+ * UrlValueCodec, so compressed URLs stay compressed on the heap too.
+ */
+public class LocalUrlCache {
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private record Entry(byte[] value, long expiresAt) {
+    }
+
+    public LocalUrlCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a cached value, or null if absent or expired
+     */
+    public synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(String key, byte[] value) {
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void evict(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
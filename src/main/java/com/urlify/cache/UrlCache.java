@@ -0,0 +1,296 @@
+package com.urlify.cache;
+
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import com.urlify.util.CacheKeys;
+import com.urlify.util.ConcurrencyLimiter;
+import com.urlify.util.UrlValueCodec;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single entry point for short-code cache access.
+ *
+ * Every Redis call goes through the Redis bulkhead and the redisCircuitBreaker.
+ * When the breaker is open, reads and writes skip Redis without waiting and
+ * are served from a small local cache; callers fall through to MongoDB on a
+ * miss. Redis errors are never propagated to callers.
+ *
+ * Codes are stored as url:<code> strings, or in hash buckets with
+ * cache.redis.layout=hash (see CacheKeys). Values in both tiers are encoded
+ * by UrlValueCodec and may be dictionary-compressed
+ * (cache.compression.enabled); a value that cannot be decoded yet counts as
+ * a miss.
+ */
+@Component
+public class UrlCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlCache.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    @Qualifier("urlCacheTemplate")
+    private RedisTemplate<String, byte[]> urlCacheTemplate;
+
+    @Autowired
+    private UrlDictionaryManager dictionaryManager;
+
+    @Autowired
+    @Qualifier("redisLimiter")
+    private ConcurrencyLimiter redisLimiter;
+
+    @Autowired
+    @Qualifier("redisCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    @Qualifier("urlBucketPutScript")
+    private RedisScript<Long> bucketPutScript;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.redis.layout:string}")
+    private String layout;
+
+    @Value("${cache.redis.hash-buckets:65536}")
+    private int hashBuckets;
+
+    @Value("${cache.local.max-entries:10000}")
+    private int localMaxEntries;
+
+    @Value("${cache.local.ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    private LocalUrlCache localCache;
+    private boolean hashLayout;
+    private UrlValueCodec codec;
+    private DistributionSummary plainValueBytes;
+    private DistributionSummary compressedValueBytes;
+
+    @PostConstruct
+    public void init() {
+        hashLayout = "hash".equalsIgnoreCase(layout);
+        codec = dictionaryManager.getCodec();
+        localCache = new LocalUrlCache(localMaxEntries, localTtlSeconds * 1000);
+        meterRegistry.gauge("cache.local.size", localCache, LocalUrlCache::size);
+        plainValueBytes = valueBytes("plain");
+        compressedValueBytes = valueBytes("zstd");
+    }
+
+    private DistributionSummary valueBytes(String encoding) {
+        return DistributionSummary.builder("cache.value.bytes")
+                .description("Size of cached URL values as written")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the original URL for a short code, or null on a miss.
+     * Falls back to the local cache when Redis is unavailable.
+     */
+    public String get(String shortCode) {
+        try {
+            // A Redis miss is authoritative; the local copy may be stale if the
+            // URL was deleted through another node
+            byte[] value = circuitBreaker.executeSupplier(() -> redisLimiter.call(() -> hashLayout
+                    ? urlCacheTemplate.<String, byte[]>opsForHash().get(CacheKeys.bucket(shortCode, hashBuckets), shortCode)
+                    : urlCacheTemplate.opsForValue().get(CacheKeys.url(shortCode))));
+            return codec.decode(value);
+        } catch (Exception e) {
+            recordFallback("get", e);
+        }
+        return codec.decode(localCache.get(shortCode));
+    }
+
+    /**
+     * Cache the original URL for a short code in both tiers
+     */
+    public void put(String shortCode, String originalUrl) {
+        byte[] value = encode(originalUrl);
+        localCache.put(shortCode, value);
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> {
+                if (hashLayout) {
+                    // Script args go through the byte[] value serializer
+                    RedisSerializer<String> serializer = RedisSerializer.string();
+                    urlCacheTemplate.execute(bucketPutScript, List.of(CacheKeys.bucket(shortCode, hashBuckets)),
+                            serializer.serialize(String.valueOf(CacheKeys.bucketTtlSeconds())),
+                            serializer.serialize(shortCode), value);
+                } else {
+                    urlCacheTemplate.opsForValue().set(CacheKeys.url(shortCode), value, CacheKeys.URL_TTL);
+                }
+            }));
+        } catch (Exception e) {
+            recordFallback("put", e);
+        }
+    }
+
+    /**
+     * Cache a batch of short codes in both tiers, writing to Redis in a
+     * single pipelined round-trip. Returns false if Redis was skipped.
+     */
+    public boolean putAll(Map<String, String> urls) {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        urls.forEach((shortCode, originalUrl) -> values.put(shortCode, encode(originalUrl)));
+        values.forEach(localCache::put);
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> urlCacheTemplate.executePipelined(
+                    hashLayout ? putBuckets(values) : putStrings(values))));
+            return true;
+        } catch (Exception e) {
+            recordFallback("put_all", e);
+            return false;
+        }
+    }
+
+    private byte[] encode(String originalUrl) {
+        byte[] value = codec.encode(originalUrl);
+        (UrlValueCodec.isCompressed(value) ? compressedValueBytes : plainValueBytes).record(value.length);
+        return value;
+    }
+
+    private RedisCallback<Object> putStrings(Map<String, byte[]> values) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        Expiration ttl = Expiration.from(CacheKeys.URL_TTL);
+        return connection -> {
+            values.forEach((shortCode, value) -> connection.stringCommands().set(
+                    serializer.serialize(CacheKeys.url(shortCode)), value, ttl, SetOption.upsert()));
+            return null;
+        };
+    }
+
+    /**
+     * One script call per bucket, carrying all of the batch's codes in it
+     */
+    private RedisCallback<Object> putBuckets(Map<String, byte[]> values) {
+        Map<String, Map<String, byte[]>> buckets = new HashMap<>();
+        values.forEach((shortCode, value) -> buckets
+                .computeIfAbsent(CacheKeys.bucket(shortCode, hashBuckets), bucket -> new LinkedHashMap<>())
+                .put(shortCode, value));
+        byte[] script = RedisSerializer.string().serialize(bucketPutScript.getScriptAsString());
+        return connection -> {
+            buckets.forEach((bucket, entries) -> connection.scriptingCommands()
+                    .eval(script, ReturnType.INTEGER, 1, bucketPutArgs(bucket, entries)));
+            return null;
+        };
+    }
+
+    /**
+     * KEYS and ARGV of the bucket put script: bucket, ttl, code, value, ...
+     */
+    private static byte[][] bucketPutArgs(String bucket, Map<String, byte[]> entries) {
+        RedisSerializer<String> serializer = RedisSerializer.string();
+        List<byte[]> keysAndArgs = new ArrayList<>(2 + 2 * entries.size());
+        keysAndArgs.add(serializer.serialize(bucket));
+        keysAndArgs.add(serializer.serialize(String.valueOf(CacheKeys.bucketTtlSeconds())));
+        entries.forEach((shortCode, value) -> {
+            keysAndArgs.add(serializer.serialize(shortCode));
+            keysAndArgs.add(value);
+        });
+        return keysAndArgs.toArray(new byte[0][]);
+    }
+
+    /**
+     * Whether Redis holds the pre-warm marker, or null if Redis is unavailable
+     */
+    public Boolean isMarkedWarm() {
+        try {
+            return circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.hasKey(CacheKeys.WARM_MARKER)));
+        } catch (Exception e) {
+            recordFallback("warm_marker", e);
+            return null;
+        }
+    }
+
+    /**
+     * Record in Redis that the cache has been pre-warmed
+     */
+    public void markWarm() {
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(
+                    () -> redisTemplate.opsForValue().set(CacheKeys.WARM_MARKER, String.valueOf(System.currentTimeMillis()))));
+        } catch (Exception e) {
+            recordFallback("warm_marker", e);
+        }
+    }
+
+    /**
+     * Try to become the node that pre-warms the cache. Returns true when Redis
+     * is unavailable, since only the local tier will be warmed then.
+     */
+    public boolean tryLockWarming(Duration lease) {
+        try {
+            return Boolean.TRUE.equals(circuitBreaker.executeSupplier(() -> redisLimiter.call(
+                    () -> redisTemplate.opsForValue().setIfAbsent(CacheKeys.WARM_LOCK, "1", lease))));
+        } catch (Exception e) {
+            recordFallback("warm_lock", e);
+            return true;
+        }
+    }
+
+    public void unlockWarming() {
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> redisTemplate.delete(CacheKeys.WARM_LOCK)));
+        } catch (Exception e) {
+            recordFallback("warm_lock", e);
+        }
+    }
+
+    /**
+     * Remove a short code from both tiers
+     */
+    public void evict(String shortCode) {
+        localCache.evict(shortCode);
+        try {
+            circuitBreaker.executeRunnable(() -> redisLimiter.run(() -> {
+                if (hashLayout) {
+                    urlCacheTemplate.opsForHash().delete(CacheKeys.bucket(shortCode, hashBuckets), shortCode);
+                } else {
+                    urlCacheTemplate.delete(CacheKeys.url(shortCode));
+                }
+            }));
+        } catch (Exception e) {
+            recordFallback("evict", e);
+        }
+    }
+
+    private void recordFallback(String operation, Exception e) {
+        String reason;
+        if (e instanceof CallNotPermittedException) {
+            reason = "circuit_open";
+        } else if (e instanceof ConcurrencyLimitExceededException) {
+            reason = "saturated";
+        } else {
+            reason = "error";
+            log.warn("Redis {} failed (using local cache): {}", operation, e.getMessage());
+        }
+        meterRegistry.counter("cache.redis.fallback", "operation", operation, "reason", reason).increment();
+    }
+}
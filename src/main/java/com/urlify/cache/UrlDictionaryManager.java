@@ -0,0 +1,188 @@
+package com.urlify.cache;
+
+import com.github.luben.zstd.ZstdException;
+import com.urlify.entity.Url;
+import com.urlify.entity.UrlDictionary;
+import com.urlify.repository.UrlDictionaryRepository;
+import com.urlify.util.UrlValueCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the cache value codec supplied with zstd dictionaries.
+ *
+ * Dictionaries live in MongoDB (url_dictionaries) so every node, servlet or
+ * reactive, compresses with the same one. The latest version is loaded at
+ * startup and on every refresh; a cached value naming a version this node
+ * has not seen triggers a background load of that version.
+ *
+ * With cache.compression.enabled, a node trains a new dictionary from a
+ * random sample of stored URLs when there is none yet or the latest one is
+ * older than the retrain interval. Nodes racing to train are harmless: the
+ * version is the document id, so one insert wins and the others pick it up
+ * on their next refresh. Old versions are kept, since cached values written with
+ * them stay in Redis until they expire.
+ */
+@Component
+public class UrlDictionaryManager {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlDictionaryManager.class);
+
+    @Autowired
+    private UrlDictionaryRepository dictionaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cache.compression.min-length:40}")
+    private int minLength;
+
+    @Value("${cache.compression.level:3}")
+    private int level;
+
+    @Value("${cache.compression.dictionary-size:16384}")
+    private int dictionarySize;
+
+    @Value("${cache.compression.training-samples:20000}")
+    private int trainingSamples;
+
+    @Value("${cache.compression.min-training-samples:1000}")
+    private int minTrainingSamples;
+
+    @Value("${cache.compression.retrain-interval-hours:168}")
+    private long retrainIntervalHours;
+
+    private UrlValueCodec codec;
+    private final AtomicBoolean training = new AtomicBoolean();
+    private volatile LocalDateTime latestCreatedAt;
+
+    @PostConstruct
+    public void init() {
+        codec = new UrlValueCodec(enabled, minLength, level, this::loadInBackground);
+        meterRegistry.gauge("cache.compression.dictionary.version", codec, UrlValueCodec::currentVersion);
+    }
+
+    public UrlValueCodec getCodec() {
+        return codec;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread.ofVirtual().name("url-dictionary").start(this::refresh);
+    }
+
+    /**
+     * Pick up dictionaries trained by other nodes, and retrain when due
+     */
+    @Scheduled(fixedDelayString = "${cache.compression.refresh-interval-ms:60000}",
+            initialDelayString = "${cache.compression.refresh-interval-ms:60000}")
+    public void refresh() {
+        int latestVersion;
+        try {
+            Optional<UrlDictionary> latest = dictionaryRepository.findTopByOrderByVersionDesc();
+            latest.ifPresent(this::register);
+            latestVersion = latest.map(UrlDictionary::getVersion).orElse(-1);
+        } catch (DataAccessException e) {
+            log.warn("Could not load the URL dictionary: {}", e.getMessage());
+            return;
+        }
+
+        if (enabled && (latestVersion < 0 || isStale())) {
+            // Training takes a moment of CPU; keep it off the shared scheduler thread
+            int nextVersion = latestVersion + 1;
+            Thread.ofVirtual().name("url-dictionary").start(() -> train(nextVersion));
+        }
+    }
+
+    private boolean isStale() {
+        LocalDateTime createdAt = latestCreatedAt;
+        return createdAt != null && createdAt.isBefore(LocalDateTime.now().minusHours(retrainIntervalHours));
+    }
+
+    /**
+     * Train a dictionary from a random sample of stored URLs and save it as
+     * the given version. Returns false if it was not saved.
+     */
+    public boolean train(int version) {
+        if (!training.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Aggregation sample = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("originalUrl").ne(null)),
+                    Aggregation.sample(trainingSamples),
+                    Aggregation.project("originalUrl"));
+            List<String> urls = mongoTemplate.aggregate(sample, Url.class, Document.class).getMappedResults()
+                    .stream().map(doc -> doc.getString("originalUrl")).toList();
+            if (urls.size() < minTrainingSamples) {
+                log.debug("Not training a URL dictionary yet: {} of {} samples", urls.size(), minTrainingSamples);
+                return false;
+            }
+
+            long start = System.nanoTime();
+            byte[] dictionary = UrlValueCodec.train(urls, dictionarySize);
+            // insert, not save: an existing version must never be replaced
+            UrlDictionary saved = mongoTemplate.insert(
+                    new UrlDictionary(version, dictionary, urls.size(), LocalDateTime.now()));
+            register(saved);
+            log.info("Trained URL dictionary v{} ({} bytes) from {} URLs in {} ms", version, dictionary.length,
+                    urls.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("URL dictionary v{} was trained by another node", version);
+            return false;
+        } catch (DataAccessException | ZstdException e) {
+            log.warn("URL dictionary training failed: {}", e.getMessage());
+            return false;
+        } finally {
+            training.set(false);
+        }
+    }
+
+    private void register(UrlDictionary dictionary) {
+        codec.addDictionary(dictionary.getVersion(), dictionary.getDictionary());
+        if (dictionary.getVersion() == codec.currentVersion()) {
+            latestCreatedAt = dictionary.getCreatedAt();
+        }
+    }
+
+    /**
+     * A cached value names a dictionary this node has not loaded
+     */
+    private void loadInBackground(int version) {
+        Thread.ofVirtual().name("url-dictionary").start(() -> {
+            try {
+                dictionaryRepository.findById(version).ifPresentOrElse(this::register,
+                        () -> log.warn("Cached value uses unknown URL dictionary v{}", version));
+            } catch (DataAccessException e) {
+                log.warn("Could not load URL dictionary v{}: {}", version, e.getMessage());
+                codec.retryVersion(version);
+            }
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.urlify.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+/**
+ * Async executor configuration.
+ *
+ * Clicks are tracked on a dedicated, bounded executor instead of Spring's
+ * default applicationTaskExecutor. When the queue fills up, the overload
+ * policy decides which clicks are shed so that a slow MongoDB degrades
+ * analytics fidelity rather than redirect latency. Its workers are a small
+ * fixed pool of platform threads; Mongo concurrency is bounded by
+ * app.concurrency.analytics.max-in-flight either way.
+ *
+ * Any Executor bean makes Boot skip its applicationTaskExecutor, so it is
+ * declared here as well. It runs MVC async requests (streamed click exports)
+ * and is sized by spring.task.execution.*; with
+ * spring.threads.virtual.enabled=true it starts a virtual thread per task,
+ * up to spring.task.execution.simple.concurrency-limit.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Value("${analytics.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${analytics.executor.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${analytics.executor.overload-policy:DROP_NEWEST}")
+    private ClickTrackingExecutor.OverloadPolicy overloadPolicy;
+
+    @Value("${analytics.executor.sampling-threshold:0.5}")
+    private double samplingThreshold;
+
+    @Value("${analytics.executor.sample-rate:10}")
+    private int sampleRate;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean
+    public ClickTrackingExecutor clickTrackingExecutor(MeterRegistry meterRegistry) {
+        ClickTrackingExecutor executor = new ClickTrackingExecutor(
+                overloadPolicy, queueCapacity, samplingThreshold, sampleRate, meterRegistry);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("click-tracking-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder threadPoolBuilder,
+            SimpleAsyncTaskExecutorBuilder simpleBuilder) {
+        if (virtualThreads) {
+            return simpleBuilder.build();
+        }
+        return threadPoolBuilder.build();
+    }
+}
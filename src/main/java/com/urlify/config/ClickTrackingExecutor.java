@@ -0,0 +1,157 @@
+package com.urlify.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for click tracking with a selectable overload policy.
+ *
+ * Policies (analytics.executor.overload-policy):
+ * - DROP_NEWEST: clicks that find the queue full are discarded
+ * - SAMPLE: once the queue passes the sampling threshold, only one in
+ * sample-rate clicks is admitted; the rest are discarded
+ * - CALLER_RUNS: clicks that find the queue full run on the submitting
+ * thread. This keeps every click but pushes Mongo latency onto the
+ * redirect, so it should only be used where redirect latency is not critical
+ *
+ * Queue depth, dropped clicks, queue wait and task duration are exported as
+ * analytics.click.* metrics.
+ */
+public class ClickTrackingExecutor extends ThreadPoolTaskExecutor {
+
+    public enum OverloadPolicy {
+        DROP_NEWEST,
+        SAMPLE,
+        CALLER_RUNS
+    }
+
+    private final OverloadPolicy policy;
+    private final int queueCapacity;
+    private final int samplingThreshold;
+    private final int sampleRate;
+    private final AtomicLong overflowSequence = new AtomicLong();
+    private volatile ThreadPoolExecutor pool;
+
+    private final Counter droppedQueueFull;
+    private final Counter droppedSampled;
+    private final Counter callerRuns;
+    private final Timer queueWait;
+    private final Timer duration;
+
+    public ClickTrackingExecutor(OverloadPolicy policy, int queueCapacity, double samplingThreshold,
+            int sampleRate, MeterRegistry registry) {
+        this.policy = policy;
+        this.queueCapacity = queueCapacity;
+        this.samplingThreshold = (int) (queueCapacity * samplingThreshold);
+        this.sampleRate = Math.max(sampleRate, 1);
+
+        setQueueCapacity(queueCapacity);
+        setTaskDecorator(this::timed);
+        setRejectedExecutionHandler(this::rejected);
+
+        this.droppedQueueFull = Counter.builder("analytics.click.dropped")
+                .tag("reason", "queue_full")
+                .description("Clicks discarded because the tracking queue was full")
+                .register(registry);
+        this.droppedSampled = Counter.builder("analytics.click.dropped")
+                .tag("reason", "sampled")
+                .description("Clicks discarded by overload sampling")
+                .register(registry);
+        this.callerRuns = Counter.builder("analytics.click.caller.runs")
+                .description("Clicks tracked on the submitting thread because the queue was full")
+                .register(registry);
+        this.queueWait = Timer.builder("analytics.click.queue.wait")
+                .description("Time a click spends queued before tracking starts")
+                .register(registry);
+        this.duration = Timer.builder("analytics.click.duration")
+                .description("Time spent persisting a click")
+                .register(registry);
+        Gauge.builder("analytics.click.queue.depth", this, ClickTrackingExecutor::queueDepth)
+                .description("Clicks waiting in the tracking queue")
+                .register(registry);
+        Gauge.builder("analytics.click.queue.capacity", this, e -> e.queueCapacity)
+                .register(registry);
+        Gauge.builder("analytics.click.active", this, e -> e.pool != null ? e.pool.getActiveCount() : 0)
+                .description("Clicks currently being persisted")
+                .register(registry);
+    }
+
+    @Override
+    protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        ExecutorService executor = super.initializeExecutor(threadFactory, rejectedExecutionHandler);
+        this.pool = (ThreadPoolExecutor) executor;
+        return executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (admit()) {
+            super.execute(task);
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return admit() ? super.submit(task) : CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return admit() ? super.submit(task) : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Sampling admission: above the threshold keep one in sampleRate clicks
+     */
+    private boolean admit() {
+        if (policy != OverloadPolicy.SAMPLE || queueDepth() < samplingThreshold) {
+            return true;
+        }
+        if (overflowSequence.incrementAndGet() % sampleRate == 0) {
+            return true;
+        }
+        droppedSampled.increment();
+        return false;
+    }
+
+    private void rejected(Runnable task, ThreadPoolExecutor executor) {
+        if (policy == OverloadPolicy.CALLER_RUNS && !executor.isShutdown()) {
+            callerRuns.increment();
+            task.run();
+            return;
+        }
+        droppedQueueFull.increment();
+    }
+
+    private Runnable timed(Runnable task) {
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } finally {
+                duration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private int queueDepth() {
+        ThreadPoolExecutor executor = pool;
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.urlify.config;
+
+import com.urlify.util.ConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Concurrency limits for backing store access.
+ *
+ * When spring.threads.virtual.enabled=true, Tomcat request handling and the
+ * async analytics executor run on virtual threads, so the number of threads
+ * no longer bounds how many Mongo and Redis calls are in flight. These
+ * limiters keep that number bounded in both thread modes.
+ *
+ * Click writes get their own Mongo budget so a backlog of analytics cannot
+ * starve cache-miss lookups on the redirect path.
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    @Value("${app.concurrency.mongo.max-in-flight:64}")
+    private int mongoMaxInFlight;
+
+    @Value("${app.concurrency.analytics.max-in-flight:32}")
+    private int analyticsMaxInFlight;
+
+    @Value("${app.concurrency.redis.max-in-flight:128}")
+    private int redisMaxInFlight;
+
+    @Value("${app.concurrency.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMs;
+
+    @Bean
+    public ConcurrencyLimiter mongoLimiter() {
+        return new ConcurrencyLimiter("MongoDB", mongoMaxInFlight, acquireTimeoutMs);
+    }
+
+    @Bean
+    public ConcurrencyLimiter analyticsLimiter() {
+        return new ConcurrencyLimiter("MongoDB analytics", analyticsMaxInFlight, acquireTimeoutMs);
+    }
+
+    @Bean
+    public ConcurrencyLimiter redisLimiter() {
+        return new ConcurrencyLimiter("Redis", redisMaxInFlight, acquireTimeoutMs);
+    }
+}
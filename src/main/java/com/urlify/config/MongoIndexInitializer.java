@@ -0,0 +1,92 @@
+package com.urlify.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the MongoDB indexes declared on entities (@Indexed, @CompoundIndex)
+ * in the background once the application is ready.
+ *
+ * spring.data.mongodb.auto-index-creation builds indexes during context
+ * refresh, which makes every cold start wait for MongoDB. With it disabled,
+ * this initializer applies the same definitions after startup and retries
+ * until MongoDB is reachable. Index creation is idempotent, so every node
+ * runs it.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Value("${app.mongo.create-indexes:true}")
+    private boolean enabled;
+
+    @Value("${app.mongo.create-indexes-retry-ms:30000}")
+    private long retryMs;
+
+    @Value("${app.mongo.create-indexes-max-attempts:10}")
+    private int maxAttempts;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexesInBackground() {
+        if (enabled) {
+            Thread.ofVirtual().name("mongo-index-init").start(this::createIndexesWithRetry);
+        }
+    }
+
+    private void createIndexesWithRetry() {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                createIndexes();
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Index creation attempt {}/{} failed: {}", attempt, maxAttempts, e.getMessage());
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.error("Giving up on MongoDB index creation after {} attempts", maxAttempts);
+    }
+
+    /**
+     * Ensure the indexes of every mapped document type
+     */
+    public void createIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int created = 0;
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (var index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                indexOps.ensureIndex(index);
+                created++;
+            }
+        }
+        log.info("Ensured {} MongoDB indexes", created);
+    }
+}
@@ -0,0 +1,91 @@
+package com.urlify.config;
+
+import com.urlify.dto.LiveClicks;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import com.urlify.entity.ClickRollup;
+import com.urlify.entity.Redirect;
+import com.urlify.entity.Url;
+import com.urlify.entity.UrlDictionary;
+import com.urlify.entity.User;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection hints for the GraalVM native image (native profile).
+ *
+ * Spring AOT covers the bean graph, request/response DTOs and repository
+ * interfaces. What it cannot see is registered here:
+ * - the entities, whose Lombok accessors are used by the MongoDB mapping
+ * layer and by Jackson, and whose index annotations are read at runtime by
+ * MongoIndexInitializer
+ * - LiveClicks, which is serialized to Redis with Jackson outside of any
+ * controller
+ * - the JJWT implementation classes, which jjwt-api loads by name
+ * - the Redis Lua scripts, which are loaded from the classpath
+ * - zstd-jni, whose bundled native library is extracted from the classpath
+ * and whose native code reads the context and dictionary handles through JNI
+ *
+ * The MongoDB and Lettuce drivers ship their own native-image metadata, and
+ * bucket4j does not use reflection, so they need no entries.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final List<String> JJWT_IMPLEMENTATIONS = List.of(
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+            "io.jsonwebtoken.impl.security.JwksBridge",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.StandardCurves",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms");
+
+    private static final List<String> ZSTD_JNI_TYPES = List.of(
+            "com.github.luben.zstd.ZstdCompressCtx",
+            "com.github.luben.zstd.ZstdDecompressCtx",
+            "com.github.luben.zstd.ZstdDictCompress",
+            "com.github.luben.zstd.ZstdDictDecompress",
+            "com.github.luben.zstd.ZstdException");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+        for (Class<?> entity : List.of(Url.class, Redirect.class, Analytics.class, ClickBucket.class,
+                ClickRollup.class, User.class, UrlDictionary.class)) {
+            bindings.registerReflectionHints(hints.reflection(), entity);
+            hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+        bindings.registerReflectionHints(hints.reflection(), LiveClicks.class);
+
+        for (String type : JJWT_IMPLEMENTATIONS) {
+            hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+
+        hints.resources().registerPattern("scripts/*.lua");
+
+        for (String type : ZSTD_JNI_TYPES) {
+            hints.jni().registerType(TypeReference.of(type), MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+        hints.resources().registerPattern("*/*/libzstd-jni-*");
+    }
+}
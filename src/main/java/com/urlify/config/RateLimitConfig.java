@@ -2,20 +2,67 @@ package com.urlify.config;
 
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Rate Limiting Configuration using Bucket4j
+ *
+ * Two modes are supported (rate.limit.mode):
+ * - local: in-memory buckets per node (limits scale with the node count)
+ * - redis: cluster-wide buckets stored in Redis through the Lettuce proxy
+ * manager. Each node consumes optimistically from a small local batch of
+ * tokens and only synchronizes with Redis once the batch is used up or the
+ * batch timeout elapses (rate.limit.redis.batch-tokens / batch-timeout-ms).
+ * Larger batches mean fewer Redis round-trips but a looser cluster-wide limit.
+ * When Redis is unreachable, requests are limited by the local buckets until
+ * the fallback cool-down expires.
+ *
+ * Bucket proxies are kept in a bounded LRU (rate.limit.redis.max-cached-buckets)
+ * and dropped once idle for a refill period; the bucket state itself lives in
+ * Redis, so a dropped proxy only gives up its unsynchronized token batch.
  */
 @Configuration
 public class RateLimitConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(RateLimitConfig.class);
+
+    private static final String PUBLIC_KEY_PREFIX = "rate:public:";
+    private static final String AUTHENTICATED_KEY_PREFIX = "rate:auth:";
+
     @Value("${rate.limit.public.capacity}")
     private long publicCapacity;
 
@@ -34,8 +81,66 @@ public class RateLimitConfig {
     @Value("${rate.limit.authenticated.refill-duration}")
     private long authenticatedRefillDuration;
 
+    @Value("${rate.limit.mode:local}")
+    private String mode;
+
+    @Value("${rate.limit.redis.optimization:delaying}")
+    private String optimization;
+
+    @Value("${rate.limit.redis.batch-tokens:5}")
+    private long batchTokens;
+
+    @Value("${rate.limit.redis.batch-timeout-ms:500}")
+    private long batchTimeoutMs;
+
+    @Value("${rate.limit.redis.fallback-cooldown-ms:5000}")
+    private long fallbackCooldownMs;
+
+    @Value("${rate.limit.redis.max-cached-buckets:100000}")
+    private int maxCachedBuckets;
+
+    @Autowired
+    private ObjectProvider<LettuceConnectionFactory> connectionFactoryProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter publicRejections;
+    private Counter authenticatedRejections;
+
     private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
 
+    /**
+     * A bucket proxy and when it may be dropped
+     */
+    private static final class CachedBucket {
+        final Bucket bucket;
+        long expiresAt;
+
+        CachedBucket(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    // Proxies must be reused per key: the local token batch lives in the proxy
+    private Map<String, CachedBucket> distributedCache;
+
+    private volatile ProxyManager<String> proxyManager;
+    private volatile StatefulConnection<String, byte[]> redisConnection;
+    private final AtomicLong redisRetryAt = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        distributedCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedBucket> eldest) {
+                return size() > maxCachedBuckets;
+            }
+        };
+        publicRejections = meterRegistry.counter("ratelimit.rejected", "tier", "public");
+        authenticatedRejections = meterRegistry.counter("ratelimit.rejected", "tier", "authenticated");
+    }
+
     /**
      * Get or create bucket for public (IP-based) rate limiting
      */
@@ -50,21 +155,171 @@ public class RateLimitConfig {
         return cache.computeIfAbsent(key, k -> createAuthenticatedBucket());
     }
 
+    /**
+     * Consume one token for a public (IP-based) request.
+     * Uses the cluster-wide bucket in redis mode, falling back to the local
+     * bucket when Redis is unreachable.
+     */
+    public boolean tryConsumePublic(String key) {
+        boolean consumed = tryConsume(PUBLIC_KEY_PREFIX + key, this::publicConfiguration,
+                () -> resolvePublicBucket(key));
+        if (!consumed) {
+            publicRejections.increment();
+        }
+        return consumed;
+    }
+
+    /**
+     * Consume one token for an authenticated user request.
+     */
+    public boolean tryConsumeAuthenticated(String key) {
+        boolean consumed = tryConsume(AUTHENTICATED_KEY_PREFIX + key, this::authenticatedConfiguration,
+                () -> resolveAuthenticatedBucket(key));
+        if (!consumed) {
+            authenticatedRejections.increment();
+        }
+        return consumed;
+    }
+
+    private boolean tryConsume(String redisKey,
+            Supplier<BucketConfiguration> configuration,
+            Supplier<Bucket> localBucket) {
+        if (!"redis".equalsIgnoreCase(mode) || System.currentTimeMillis() < redisRetryAt.get()) {
+            return localBucket.get().tryConsume(1);
+        }
+
+        try {
+            return distributedBucket(redisKey, getProxyManager(), configuration).tryConsume(1);
+        } catch (Exception e) {
+            long now = System.currentTimeMillis();
+            long retryAt = redisRetryAt.get();
+            // One warning per cool-down, however many requests fail at once
+            if (retryAt <= now && redisRetryAt.compareAndSet(retryAt, now + fallbackCooldownMs)) {
+                log.warn("Redis rate limiter unavailable, using local buckets for {} ms: {}",
+                        fallbackCooldownMs, e.getMessage());
+            }
+            return localBucket.get().tryConsume(1);
+        }
+    }
+
+    /**
+     * The cached proxy for a key, replaced once it has been idle for a refill
+     * period (by then the bucket in Redis has refilled anyway)
+     */
+    private Bucket distributedBucket(String redisKey, ProxyManager<String> manager,
+            Supplier<BucketConfiguration> configuration) {
+        long now = System.currentTimeMillis();
+        synchronized (distributedCache) {
+            CachedBucket cached = distributedCache.get(redisKey);
+            if (cached == null || cached.expiresAt < now) {
+                // Building a proxy does not call Redis
+                cached = new CachedBucket(remoteBucketBuilder(manager).build(redisKey, configuration));
+                distributedCache.put(redisKey, cached);
+            }
+            cached.expiresAt = now + bucketTtl().toMillis();
+            return cached.bucket;
+        }
+    }
+
+    private RemoteBucketBuilder<String> remoteBucketBuilder(ProxyManager<String> manager) {
+        RemoteBucketBuilder<String> builder = manager.builder();
+        DelayParameters delay = new DelayParameters(batchTokens, Duration.ofMillis(batchTimeoutMs));
+        switch (optimization.toLowerCase()) {
+            case "none":
+                return builder;
+            case "batching":
+                return builder.withOptimization(Optimizations.batching());
+            case "predicting":
+                return builder.withOptimization(Optimizations.predicting(delay));
+            default:
+                return builder.withOptimization(Optimizations.delaying(delay));
+        }
+    }
+
+    /**
+     * Lazily connect to Redis; the Lettuce client is only available once the
+     * connection factory has been started by the application context.
+     */
+    private ProxyManager<String> getProxyManager() {
+        ProxyManager<String> manager = proxyManager;
+        if (manager != null) {
+            return manager;
+        }
+        synchronized (this) {
+            if (proxyManager == null) {
+                AbstractRedisClient client = connectionFactoryProvider.getObject().getRequiredNativeClient();
+                proxyManager = connect(client)
+                        .withExpirationStrategy(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(
+                                bucketTtl()))
+                        .build();
+            }
+            return proxyManager;
+        }
+    }
+
+    /**
+     * Open the proxy manager's connection; cluster and standalone clients
+     * return different connection types
+     */
+    private LettuceBasedProxyManager.LettuceBasedProxyManagerBuilder<String> connect(AbstractRedisClient client) {
+        RedisCodec<String, byte[]> codec = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+        if (client instanceof RedisClusterClient clusterClient) {
+            StatefulRedisClusterConnection<String, byte[]> connection = clusterClient.connect(codec);
+            redisConnection = connection;
+            return LettuceBasedProxyManager.builderFor(connection);
+        }
+        StatefulRedisConnection<String, byte[]> connection = ((RedisClient) client).connect(codec);
+        redisConnection = connection;
+        return LettuceBasedProxyManager.builderFor(connection);
+    }
+
+    /**
+     * Time for an untouched bucket to refill completely
+     */
+    private Duration bucketTtl() {
+        return Duration.ofSeconds(Math.max(publicRefillDuration, authenticatedRefillDuration));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (redisConnection != null) {
+            redisConnection.close();
+        }
+    }
+
     private Bucket createPublicBucket() {
-        Bandwidth limit = Bandwidth.classic(
-                publicCapacity,
-                Refill.intervally(publicRefillTokens, Duration.ofSeconds(publicRefillDuration)));
         return Bucket.builder()
-                .addLimit(limit)
+                .addLimit(publicLimit())
                 .build();
     }
 
     private Bucket createAuthenticatedBucket() {
-        Bandwidth limit = Bandwidth.classic(
-                authenticatedCapacity,
-                Refill.intervally(authenticatedRefillTokens, Duration.ofSeconds(authenticatedRefillDuration)));
         return Bucket.builder()
-                .addLimit(limit)
+                .addLimit(authenticatedLimit())
+                .build();
+    }
+
+    private BucketConfiguration publicConfiguration() {
+        return BucketConfiguration.builder()
+                .addLimit(publicLimit())
+                .build();
+    }
+
+    private BucketConfiguration authenticatedConfiguration() {
+        return BucketConfiguration.builder()
+                .addLimit(authenticatedLimit())
                 .build();
     }
+
+    private Bandwidth publicLimit() {
+        return Bandwidth.classic(
+                publicCapacity,
+                Refill.intervally(publicRefillTokens, Duration.ofSeconds(publicRefillDuration)));
+    }
+
+    private Bandwidth authenticatedLimit() {
+        return Bandwidth.classic(
+                authenticatedCapacity,
+                Refill.intervally(authenticatedRefillTokens, Duration.ofSeconds(authenticatedRefillDuration)));
+    }
 }
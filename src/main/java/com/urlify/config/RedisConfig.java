@@ -1,21 +1,70 @@
 package com.urlify.config;
 
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import com.urlify.util.AnalyticsKeys;
+import com.urlify.util.CacheKeys;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
- * Redis Configuration — customizes serializers only.
+ * Redis Configuration — customizes serializers and guards cache access with
+ * a circuit breaker.
  * Connection factory is auto-configured by Spring Boot from application
  * properties:
  * - Local: spring.data.redis.host / port (application.properties)
  * - Prod: spring.data.redis.url (application-prod.properties)
+ *
+ * spring.data.redis.timeout is the per-command deadline. Once enough calls
+ * fail or exceed the slow-call threshold, the breaker opens and cache reads
+ * skip Redis entirely until a few half-open probes succeed.
+ *
+ * cache.redis.layout selects how short codes are stored (see CacheKeys). The
+ * hash layout only saves memory while buckets stay listpack-encoded: keep
+ * cache.redis.hash-buckets large enough for about 100 cached codes per bucket
+ * at most, and raise hash-max-listpack-value on the Redis server above the
+ * longest cached URL (default 64 bytes).
  */
 @Configuration
 public class RedisConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
+
+    @Value("${cache.redis.breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${cache.redis.breaker.slow-call-threshold-ms:200}")
+    private long slowCallThresholdMs;
+
+    @Value("${cache.redis.breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${cache.redis.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${cache.redis.breaker.open-duration-ms:5000}")
+    private long openDurationMs;
+
+    @Value("${cache.redis.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -32,4 +81,80 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Cached URLs as raw bytes, so UrlValueCodec can store them compressed
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> urlCacheTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    @Bean
+    public RedisScript<Long> urlBucketPutScript() {
+        return RedisScript.of(new ClassPathResource(CacheKeys.BUCKET_PUT_SCRIPT), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> uniqueVisitorAddScript() {
+        return RedisScript.of(new ClassPathResource(AnalyticsKeys.UNIQUE_VISITOR_ADD_SCRIPT), Long.class);
+    }
+
+    /**
+     * Pub/sub subscriptions of the live click streams. Messages are handed to
+     * listeners on virtual threads, one per message.
+     */
+    @Bean
+    public RedisMessageListenerContainer liveClickListenerContainer(RedisConnectionFactory connectionFactory) {
+        // Started by LiveClickStream, which retries while Redis is down; the
+        // container gives up on a first subscription that fails
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("live-clicks-");
+        executor.setVirtualThreads(true);
+        container.setTaskExecutor(executor);
+        return container;
+    }
+
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallThresholdMs))
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMs))
+                .automaticTransitionFromOpenToHalfOpenEnabled(false)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                // A saturated bulkhead says nothing about Redis health
+                .ignoreExceptions(ConcurrencyLimitExceededException.class)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+
+        CircuitBreaker breaker = registry.circuitBreaker("redis");
+        breaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Redis circuit breaker {}", event.getStateTransition());
+            meterRegistry.counter("cache.redis.breaker.transitions",
+                    "from", event.getStateTransition().getFromState().name(),
+                    "to", event.getStateTransition().getToState().name())
+                    .increment();
+        });
+        return breaker;
+    }
 }
@@ -1,6 +1,7 @@
 package com.urlify.config;
 
 import com.urlify.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -66,9 +67,14 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Streamed responses (click exports, live clicks) are dispatched again when they finish,
+                        // without the JWT filter; the request was authorized when it started
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints - order matters!
                         .requestMatchers("/", "/health", "/error").permitAll()
-                        .requestMatchers("/actuator/health").permitAll()
+                        // Actuator is only served on the management port (management.server.port)
+                        .requestMatchers("/actuator/health", "/actuator/prometheus", "/actuator/hotlinks",
+                                "/actuator/hotlinks/*").permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         // Protected endpoints
                         .requestMatchers("/api/urls/**").authenticated()
@@ -1,15 +1,25 @@
 package com.urlify.controller;
 
+import com.urlify.analytics.LiveClickStream;
 import com.urlify.dto.AnalyticsResponse;
+import com.urlify.dto.UniqueVisitorsResponse;
 import com.urlify.service.AnalyticsService;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Analytics Controller for retrieving URL statistics
@@ -21,6 +31,9 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private LiveClickStream liveClickStream;
+
     /**
      * Get analytics for a specific short code
      */
@@ -41,4 +54,70 @@ public class AnalyticsController {
         List<AnalyticsResponse> analytics = analyticsService.getAllAnalytics(userEmail);
         return ResponseEntity.ok(analytics);
     }
+
+    /**
+     * Approximate unique visitors of a short code per day, and over the range
+     */
+    @GetMapping("/{shortCode}/visitors")
+    public ResponseEntity<UniqueVisitorsResponse> getUniqueVisitors(@PathVariable String shortCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Authentication authentication) {
+        String userEmail = authentication.getName();
+        return ResponseEntity.ok(analyticsService.getUniqueVisitors(shortCode, from, to, userEmail));
+    }
+
+    /**
+     * Approximate unique visitors across all of the authenticated user's URLs
+     */
+    @GetMapping("/visitors")
+    public ResponseEntity<UniqueVisitorsResponse> getUniqueVisitorsAcrossLinks(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Authentication authentication) {
+        String userEmail = authentication.getName();
+        return ResponseEntity.ok(analyticsService.getUniqueVisitorsAcrossLinks(from, to, userEmail));
+    }
+
+    /**
+     * Click events of a short code over a range of days as CSV, including
+     * days whose raw events have moved to the archive
+     */
+    @GetMapping("/{shortCode}/export")
+    public ResponseEntity<StreamingResponseBody> exportClicks(@PathVariable String shortCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Authentication authentication) {
+        String userEmail = authentication.getName();
+        AnalyticsService.ClickExport export = analyticsService.exportClicks(shortCode, from, to, userEmail);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"clicks-" + shortCode + ".csv\"")
+                .body(export::writeTo);
+    }
+
+    /**
+     * Clicks of a short code as they arrive, as Server-Sent Events
+     */
+    @GetMapping("/{shortCode}/live")
+    public ResponseEntity<SseEmitter> liveClicks(@PathVariable String shortCode, Authentication authentication) {
+        String userEmail = authentication.getName();
+        return liveStream(analyticsService.liveShortCodes(shortCode, userEmail));
+    }
+
+    /**
+     * Clicks of the authenticated user's most recent URLs as they arrive
+     */
+    @GetMapping("/live")
+    public ResponseEntity<SseEmitter> liveClicksAcrossLinks(Authentication authentication) {
+        String userEmail = authentication.getName();
+        return liveStream(analyticsService.liveShortCodes(null, userEmail));
+    }
+
+    private ResponseEntity<SseEmitter> liveStream(List<String> shortCodes) {
+        return ResponseEntity.ok()
+                // Keep reverse proxies from buffering the stream
+                .header("X-Accel-Buffering", "no")
+                .body(liveClickStream.subscribe(shortCodes));
+    }
 }
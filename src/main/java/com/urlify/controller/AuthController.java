@@ -5,7 +5,6 @@ import com.urlify.dto.AuthResponse;
 import com.urlify.dto.LoginRequest;
 import com.urlify.dto.RegisterRequest;
 import com.urlify.service.AuthService;
-import io.github.bucket4j.Bucket;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,9 +33,8 @@ public class AuthController {
             HttpServletRequest httpRequest) {
         // Rate limiting
         String clientIp = getClientIp(httpRequest);
-        Bucket bucket = rateLimitConfig.resolvePublicBucket(clientIp);
 
-        if (!bucket.tryConsume(1)) {
+        if (!rateLimitConfig.tryConsumePublic(clientIp)) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                     .body("Rate limit exceeded. Please try again later.");
         }
@@ -53,9 +51,8 @@ public class AuthController {
             HttpServletRequest httpRequest) {
         // Rate limiting
         String clientIp = getClientIp(httpRequest);
-        Bucket bucket = rateLimitConfig.resolvePublicBucket(clientIp);
 
-        if (!bucket.tryConsume(1)) {
+        if (!rateLimitConfig.tryConsumePublic(clientIp)) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                     .body("Rate limit exceeded. Please try again later.");
         }
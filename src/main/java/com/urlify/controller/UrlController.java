@@ -4,7 +4,6 @@ import com.urlify.config.RateLimitConfig;
 import com.urlify.dto.ShortenUrlRequest;
 import com.urlify.dto.UrlResponse;
 import com.urlify.service.UrlService;
-import io.github.bucket4j.Bucket;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -39,9 +38,8 @@ public class UrlController {
             Authentication authentication) {
         // Rate limiting for authenticated users
         String userEmail = authentication.getName();
-        Bucket bucket = rateLimitConfig.resolveAuthenticatedBucket(userEmail);
 
-        if (!bucket.tryConsume(1)) {
+        if (!rateLimitConfig.tryConsumeAuthenticated(userEmail)) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                     .body("Rate limit exceeded. Please try again later.");
         }
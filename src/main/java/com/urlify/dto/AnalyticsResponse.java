@@ -1,5 +1,7 @@
 package com.urlify.dto;
 
+import com.urlify.analytics.UserAgentInfo;
+import com.urlify.entity.Analytics;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,6 +9,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -17,8 +20,22 @@ public class AnalyticsResponse {
     private String shortCode;
     private String originalUrl;
     private Long totalClicks;
+    // Clicks filtered at ingest and not included in totalClicks
+    private Long botClicks;
+    private Long duplicateClicks;
+    // Approximate (HyperLogLog, 0.81% standard error); null while Redis is unavailable
+    private Long uniqueVisitors;
+    private Long uniqueVisitorsLast7Days;
+    private Long uniqueVisitorsLast30Days;
     private LocalDateTime createdAt;
     private LocalDateTime expiresAt;
+    // Approximate top lists from the heavy-hitter sketches; null while Redis is unavailable
+    private List<TopEntry> topReferers;
+    private List<TopEntry> topUserAgents;
+    // Sampling rate of the most recent stored click; 1.0 while every click of the link is stored
+    private Double sampleRate;
+    private ClientBreakdown clients;
+    private LocationBreakdown locations;
     private List<ClickDetail> recentClicks;
 
     @Data
@@ -29,6 +46,55 @@ public class AnalyticsResponse {
         private LocalDateTime timestamp;
         private String ipAddress;
         private String userAgent;
+        private String device;
+        private String browser;
+        private String os;
         private String referer;
+        private String country;
+        private String region;
+        // This event stands for 1 / sampleRate clicks
+        private Double sampleRate;
+
+        public static ClickDetail of(Analytics analytics) {
+            // Events stored before user agents were parsed have no ids
+            boolean parsed = analytics.getDevice() != null;
+            return ClickDetail.builder()
+                    .timestamp(analytics.getTimestamp())
+                    .ipAddress(analytics.getIpAddress())
+                    .userAgent(analytics.getUserAgent())
+                    .device(parsed ? UserAgentInfo.Device.fromId(analytics.getDevice()).name() : null)
+                    .browser(parsed ? UserAgentInfo.Browser.fromId(analytics.getBrowser()).name() : null)
+                    .os(parsed ? UserAgentInfo.Os.fromId(analytics.getOs()).name() : null)
+                    .referer(analytics.getReferer())
+                    .country(analytics.getCountry())
+                    .region(analytics.getRegion())
+                    .sampleRate(analytics.getSampleRate() != null ? analytics.getSampleRate() : 1.0)
+                    .build();
+        }
+    }
+
+    /**
+     * Clicks per device class, browser and OS, most clicks first
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClientBreakdown {
+        private Map<String, Long> devices;
+        private Map<String, Long> browsers;
+        private Map<String, Long> operatingSystems;
+    }
+
+    /**
+     * Clicks per country and ISO 3166-2 region, most clicks first
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LocationBreakdown {
+        private Map<String, Long> countries;
+        private Map<String, Long> regions;
     }
 }
@@ -0,0 +1,23 @@
+package com.urlify.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Clicks of one link on one node during one live flush interval, sent as a
+ * "clicks" event on live click streams
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveClicks {
+
+    private String shortCode;
+    // Every click that passed the ingest filter, including those not in events
+    private long clicks;
+    // The first clicks of the interval, up to analytics.live.max-events-per-flush; sampleRate is not set
+    private List<AnalyticsResponse.ClickDetail> events;
+}
@@ -0,0 +1,17 @@
+package com.urlify.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of an approximate top list, such as a referer host and its clicks
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopEntry {
+
+    private String value;
+    private long count;
+}
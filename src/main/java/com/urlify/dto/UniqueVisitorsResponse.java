@@ -0,0 +1,37 @@
+package com.urlify.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Approximate unique visitors over a range of UTC days. uniqueVisitors counts
+ * each visitor once across the whole range, so it is usually less than the
+ * sum of the daily counts. Counts are null while Redis is unavailable.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UniqueVisitorsResponse {
+
+    private String shortCode;
+    private LocalDate from;
+    private LocalDate to;
+    private Long uniqueVisitors;
+    private double standardError;
+    private List<DailyCount> daily;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyCount {
+        private LocalDate date;
+        private Long uniqueVisitors;
+    }
+}
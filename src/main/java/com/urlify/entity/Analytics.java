@@ -1,16 +1,23 @@
 package com.urlify.entity;
 
+import com.urlify.analytics.GeoLocation;
+import com.urlify.analytics.UserAgentInfo;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "analytics")
+// Serves grouping a link's clicks by device, browser and OS
+@CompoundIndex(name = "shortCode_client", def = "{'shortCode': 1, 'device': 1, 'browser': 1, 'os': 1}")
+// Serves grouping a link's clicks by country and region
+@CompoundIndex(name = "shortCode_location", def = "{'shortCode': 1, 'country': 1, 'region': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,13 +29,41 @@ public class Analytics {
     @Indexed
     private String shortCode;
 
+    // Indexed, with the raw event expiry, by ClickEventStore.expireRawEvents
     @CreatedDate
-    @Indexed
     private LocalDateTime timestamp;
 
     private String ipAddress;
 
+    // Raw header; null when analytics.user-agent.store-raw is off
     private String userAgent;
 
+    // UserAgentInfo ids, parsed at ingest
+    private Integer device;
+
+    private Integer browser;
+
+    private Integer os;
+
     private String referer;
+
+    // From the local GeoIP database at ingest; null when the IP is not in it
+    private String country;
+
+    private String region;
+
+    // Probability this click's event was stored (AdaptiveSampler); it stands for 1 / sampleRate clicks.
+    // Null on events stored before sampling, which count as 1.
+    private Double sampleRate;
+
+    public void setClient(UserAgentInfo client) {
+        this.device = client.device().id();
+        this.browser = client.browser().id();
+        this.os = client.os().id();
+    }
+
+    public void setLocation(GeoLocation location) {
+        this.country = location == null ? null : location.country();
+        this.region = location == null ? null : location.region();
+    }
 }
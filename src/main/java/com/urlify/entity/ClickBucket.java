@@ -0,0 +1,96 @@
+package com.urlify.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compact click event storage (analytics.storage.format=bucketed): one
+ * document holds up to a few hundred events of one link within one hour.
+ *
+ * Field names are single letters, timestamps are millisecond offsets from
+ * the bucket start, IPs are binary, and user agents and referers are 64-bit
+ * ids into the user_agents and referers dictionaries (see ClickDictionary).
+ * ClickBucketCodec converts to and from Analytics.
+ */
+@Document(collection = "click_buckets")
+// Serves a link's newest buckets first and the per-link rollups
+@CompoundIndex(name = "shortCode_start", def = "{'c': 1, 'b': -1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClickBucket {
+
+    public static final long SPAN_MILLIS = Duration.ofHours(1).toMillis();
+
+    @Id
+    private String id;
+
+    @Field("c")
+    private String shortCode;
+
+    // Epoch millis of the start of the hour; indexed alone for the cache warmer's recent-window scan
+    @Indexed
+    @Field("b")
+    private long start;
+
+    @Field("n")
+    private int count;
+
+    @Field("e")
+    private List<Event> events;
+
+    /**
+     * One click; null fields are not written
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Event {
+
+        // Millis after the bucket start
+        @Field("t")
+        private int offset;
+
+        // 4 or 16 bytes
+        @Field("i")
+        private byte[] ip;
+
+        // Client address as given, when it is not an IP literal that round-trips through ip
+        @Field("a")
+        private String rawIp;
+
+        // Dictionary ids
+        @Field("u")
+        private Long userAgent;
+
+        @Field("r")
+        private Long referer;
+
+        // UserAgentInfo ids
+        @Field("d")
+        private Integer device;
+
+        @Field("w")
+        private Integer browser;
+
+        @Field("o")
+        private Integer os;
+
+        // ISO 3166-2 region, or country when the region is unknown
+        @Field("g")
+        private String location;
+
+        // Clicks this event stands for (1 / sampleRate); absent means 1
+        @Field("s")
+        private Integer weight;
+    }
+}
@@ -0,0 +1,53 @@
+package com.urlify.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One link's clicks on one day, broken down by client and location, written
+ * by ClickRetention once the day is over. Breakdowns read these for days
+ * whose raw events may have expired. Counts are weighted by 1 / sampleRate,
+ * like the breakdowns over raw events.
+ */
+@Document(collection = "click_rollups")
+// Serves a link's rollups before a day
+@CompoundIndex(name = "shortCode_day", def = "{'shortCode': 1, 'day': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClickRollup {
+
+    // shortCode:yyyy-MM-dd, so rolling a day up again replaces it
+    @Id
+    private String id;
+
+    private String shortCode;
+
+    private LocalDate day;
+
+    private long clicks;
+
+    private List<Client> clients;
+
+    private List<Location> locations;
+
+    public static String id(String shortCode, LocalDate day) {
+        return shortCode + ":" + day;
+    }
+
+    /**
+     * UserAgentInfo ids; null for events stored before parsing
+     */
+    public record Client(Integer device, Integer browser, Integer os, long clicks) {
+    }
+
+    public record Location(String country, String region, long clicks) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.urlify.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tombstone of a short code deleted by ExpiredUrlReaper. The code's click
+ * events, rollups, archive rows and Redis sketches are left in place, so
+ * UrlService never hands the code out again: a new link would inherit them.
+ */
+@Document(collection = "reaped_short_codes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReapedShortCode {
+
+    @Id
+    private String shortCode;
+
+    private LocalDateTime reapedAt;
+}
@@ -0,0 +1,39 @@
+package com.urlify.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Redirect read model: just what a redirect needs, keyed by short code so a
+ * cache miss is a primary-key point read. Written by UrlService alongside
+ * the Url document; click counters are never written here.
+ */
+@Document(collection = "redirects")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Redirect {
+
+    @Id
+    private String shortCode;
+
+    private String originalUrl;
+
+    // Expired redirects are answered as expired for a week, then removed
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime expiresAt;
+
+    public static Redirect from(Url url) {
+        return new Redirect(url.getShortCode(), url.getOriginalUrl(), url.getExpiresAt());
+    }
+
+    public boolean isExpired() {
+        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    }
+}
@@ -29,6 +29,11 @@ public class Url {
 
     private Long clicks = 0L;
 
+    // Clicks collapsed at ingest instead of stored, not included in clicks
+    private Long botClicks = 0L;
+
+    private Long duplicateClicks = 0L;
+
     @Indexed
     private LocalDateTime expiresAt;
 
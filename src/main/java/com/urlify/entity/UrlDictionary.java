@@ -0,0 +1,34 @@
+package com.urlify.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A zstd dictionary trained on destination URLs, used to compress cached
+ * URLs (see UrlValueCodec). Versions are never reused: cached values name
+ * the version they were compressed with.
+ */
+@Document(collection = "url_dictionaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UrlDictionary {
+
+    // The version is the _id, so two nodes can never save different
+    // dictionaries under one version
+    @Id
+    private int version;
+
+    private byte[] dictionary;
+
+    private int sampleSize;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.urlify.exception;
+
+public class ArchiveUnavailableException extends RuntimeException {
+
+    public ArchiveUnavailableException(String message) {
+        super(message);
+    }
+}
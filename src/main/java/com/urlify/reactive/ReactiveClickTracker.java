@@ -0,0 +1,549 @@
+package com.urlify.reactive;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.urlify.analytics.AdaptiveSampler;
+import com.urlify.analytics.ClickFilter;
+import com.urlify.analytics.GeoIpResolver;
+import com.urlify.analytics.TimeWindowedBloomFilter;
+import com.urlify.analytics.UserAgentInfo;
+import com.urlify.analytics.UserAgentParser;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import com.urlify.entity.Url;
+import com.urlify.spool.ClickEventSpool;
+import com.urlify.spool.SpooledClick;
+import com.urlify.util.ClickBucketCodec;
+import com.urlify.util.ClickDictionary;
+import com.urlify.util.ClickTimeSeries;
+import com.urlify.util.SpooledClickCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking click ingestion for reactive redirect nodes.
+ *
+ * Clicks are emitted into a bounded buffer and written in batches: one
+ * insert of analytics documents and one bulk $inc of url click counters per
+ * batch. When the buffer is full the click is dropped and counted, so
+ * ingestion backpressure never reaches the redirect response. User agents
+ * are classified before buffering, through a cached UserAgentParser, and
+ * client IPs located in the local GeoIP database when one is configured.
+ * Bot and duplicate clicks are dropped before buffering and only counted
+ * (see ClickFilter), with the counts flushed as one bulk $inc per interval.
+ * Links clicked faster than the sampling threshold store a sample of their
+ * events (see AdaptiveSampler); the other clicks are counted the same way.
+ * With analytics.storage.format=bucketed, batches are appended to compact
+ * click buckets (see ClickBucketCodec) instead of inserted as documents;
+ * with timeseries, they are inserted into the click_events time-series
+ * collection (see ClickTimeSeries). Clicks of links with a live stream
+ * open are also published, sampled or not (see ReactiveLiveClicks).
+ * A batch MongoDB rejects goes to the local click spool, as do new
+ * batches while the spool has a backlog, and ReactiveSpoolReplayer writes
+ * them back once MongoDB recovers.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveClickTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveClickTracker.class);
+
+    // How long concurrent requests retry an emission before the click is dropped
+    private static final Duration EMIT_RETRY = Duration.ofMillis(5);
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReactiveHeavyHitters heavyHitters;
+
+    @Autowired
+    private ReactiveLiveClicks liveClicks;
+
+    @Autowired
+    private ClickEventSpool clickSpool;
+
+    @Value("${analytics.executor.queue-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${analytics.reactive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${analytics.reactive.batch-timeout-ms:100}")
+    private long batchTimeoutMs;
+
+    @Value("${analytics.reactive.max-concurrent-writes:4}")
+    private int maxConcurrentWrites;
+
+    @Value("${analytics.user-agent.cache-size:10000}")
+    private int userAgentCacheSize;
+
+    @Value("${analytics.user-agent.store-raw:true}")
+    private boolean storeRawUserAgent;
+
+    @Value("${analytics.geoip.database:}")
+    private String geoIpDatabase;
+
+    @Value("${analytics.geoip.reload-interval-ms:60000}")
+    private long geoIpReloadIntervalMs;
+
+    @Value("${analytics.filter.enabled:true}")
+    private boolean filterEnabled;
+
+    @Value("${analytics.filter.bots:true}")
+    private boolean filterBots;
+
+    @Value("${analytics.filter.duplicate-window-seconds:30}")
+    private long duplicateWindowSeconds;
+
+    @Value("${analytics.filter.expected-clicks-per-window:1000000}")
+    private int expectedClicksPerWindow;
+
+    @Value("${analytics.filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${analytics.filter.flush-interval-ms:5000}")
+    private long filterFlushIntervalMs;
+
+    @Value("${analytics.sampling.enabled:true}")
+    private boolean samplingEnabled;
+
+    @Value("${analytics.sampling.threshold-per-second:50}")
+    private int samplingThreshold;
+
+    @Value("${analytics.sampling.flush-interval-ms:1000}")
+    private long samplingFlushIntervalMs;
+
+    @Value("${analytics.storage.format:document}")
+    private String storageFormat;
+
+    @Value("${analytics.storage.bucket-max-events:200}")
+    private int bucketMaxEvents;
+
+    @Value("${analytics.storage.dictionary-cache-size:10000}")
+    private int dictionaryCacheSize;
+
+    @Value("${analytics.storage.timeseries.granularity:seconds}")
+    private String timeSeriesGranularity;
+
+    private UserAgentParser userAgentParser;
+    private ClickDictionary userAgents;
+    private ClickDictionary referers;
+    private volatile boolean timeSeriesReady;
+    private AdaptiveSampler sampler;
+    private Disposable samplingFlusher;
+    private ClickFilter clickFilter;
+    private Disposable filterFlusher;
+    private GeoIpResolver geoIpResolver;
+    private Disposable geoIpReloader;
+    private Sinks.Many<Click> clicks;
+    private Disposable subscription;
+    private Counter dropped;
+    private Counter unspooled;
+
+    @PostConstruct
+    public void start() {
+        userAgentParser = new UserAgentParser(userAgentCacheSize);
+        if ("bucketed".equals(storageFormat)) {
+            userAgents = new ClickDictionary(ClickDictionary.USER_AGENTS, dictionaryCacheSize);
+            referers = new ClickDictionary(ClickDictionary.REFERERS, dictionaryCacheSize);
+        }
+        if (!geoIpDatabase.isBlank()) {
+            geoIpResolver = new GeoIpResolver(Path.of(geoIpDatabase));
+            geoIpResolver.reloadIfChanged();
+            // File checks are blocking; keep them off the event loop
+            geoIpReloader = Flux.interval(Duration.ofMillis(geoIpReloadIntervalMs), Schedulers.boundedElastic())
+                    .subscribe(tick -> geoIpResolver.reloadIfChanged());
+        }
+        if (filterEnabled) {
+            clickFilter = new ClickFilter(filterBots, duplicateWindowSeconds > 0
+                    ? new TimeWindowedBloomFilter(Duration.ofSeconds(duplicateWindowSeconds).toMillis(),
+                            expectedClicksPerWindow, falsePositiveRate)
+                    : null);
+            FunctionCounter.builder("analytics.clicks.filtered", clickFilter, ClickFilter::bots)
+                    .tag("reason", "bot")
+                    .register(meterRegistry);
+            FunctionCounter.builder("analytics.clicks.filtered", clickFilter, ClickFilter::duplicates)
+                    .tag("reason", "duplicate")
+                    .register(meterRegistry);
+            filterFlusher = Flux.interval(Duration.ofMillis(filterFlushIntervalMs))
+                    .concatMap(tick -> flushFiltered())
+                    .subscribe();
+        }
+        if (samplingEnabled) {
+            sampler = new AdaptiveSampler(samplingThreshold);
+            FunctionCounter.builder("analytics.sampling.skipped", sampler, AdaptiveSampler::skipped)
+                    .register(meterRegistry);
+            samplingFlusher = Flux.interval(Duration.ofMillis(samplingFlushIntervalMs))
+                    .concatMap(tick -> flushSkipped())
+                    .subscribe();
+        }
+        dropped = Counter.builder("analytics.click.dropped")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        unspooled = Counter.builder("analytics.click.dropped")
+                .tag("reason", "spool_failed")
+                .description("Clicks lost because MongoDB and the local spool both rejected them")
+                .register(meterRegistry);
+        clicks = Sinks.many().unicast().onBackpressureBuffer(Queues.<Click>get(bufferCapacity).get());
+        subscription = clicks.asFlux()
+                .bufferTimeout(batchSize, Duration.ofMillis(batchTimeoutMs))
+                .flatMap(this::write, maxConcurrentWrites)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        clicks.tryEmitComplete();
+        subscription.dispose();
+        if (geoIpReloader != null) {
+            geoIpReloader.dispose();
+        }
+        if (filterFlusher != null) {
+            filterFlusher.dispose();
+            flushFiltered().block(Duration.ofSeconds(5));
+        }
+        if (samplingFlusher != null) {
+            samplingFlusher.dispose();
+            flushSkipped().block(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * Classify a user agent through the tracker's cache, so the caller's
+     * lookup is a cache hit for trackClick
+     */
+    public UserAgentInfo parseUserAgent(String userAgent) {
+        return userAgentParser.parse(userAgent);
+    }
+
+    /**
+     * Queue a click for persistence without blocking the caller
+     */
+    public void trackClick(String shortCode, String ipAddress, String userAgent, String referer) {
+        long clickedAt = System.currentTimeMillis();
+        UserAgentInfo client = userAgentParser.parse(userAgent);
+        if (clickFilter != null && clickFilter.check(shortCode, ipAddress, userAgent, client,
+                clickedAt) != ClickFilter.Verdict.ACCEPT) {
+            return;
+        }
+        heavyHitters.record(shortCode, referer, userAgent);
+        double sampleRate = sampler != null ? sampler.sample(shortCode, clickedAt) : 1.0;
+        boolean watched = liveClicks.isWatched(shortCode);
+        if (sampleRate == 0 && !watched) {
+            return;
+        }
+
+        Analytics analytics = new Analytics();
+        analytics.setShortCode(shortCode);
+        analytics.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(clickedAt), ZoneId.systemDefault()));
+        analytics.setIpAddress(ipAddress);
+        analytics.setClient(client);
+        analytics.setUserAgent(storeRawUserAgent ? userAgent : null);
+        analytics.setLocation(geoIpResolver == null ? null : geoIpResolver.locate(ipAddress));
+        analytics.setReferer(referer);
+        analytics.setSampleRate(sampleRate);
+        if (watched) {
+            liveClicks.record(analytics, clickedAt);
+        }
+        if (sampleRate == 0) {
+            return;
+        }
+
+        // Emission may race between concurrent requests; retry briefly instead of
+        // failing. emitNext would terminate the sink on a full buffer, so only
+        // the retry handler is borrowed and overflow stays a dropped click.
+        Click click = new Click(analytics, userAgent, clickedAt);
+        Sinks.EmitResult result = clicks.tryEmitNext(click);
+        if (result == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Sinks.EmitFailureHandler retry = Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY);
+            while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED && retry.onEmitFailure(SignalType.ON_NEXT, result)) {
+                result = clicks.tryEmitNext(click);
+            }
+        }
+        if (result.isFailure()) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Add the bot and duplicate clicks dropped since the last flush to their
+     * url counters; on failure the counts go out with the next flush
+     */
+    private Mono<Void> flushFiltered() {
+        ClickFilter.Rejected rejected = clickFilter.drain();
+        if (rejected.isEmpty()) {
+            return Mono.empty();
+        }
+        Set<String> shortCodes = new HashSet<>(rejected.bots().keySet());
+        shortCodes.addAll(rejected.duplicates().keySet());
+        List<WriteModel<Document>> increments = shortCodes.stream()
+                .map(shortCode -> (WriteModel<Document>) new UpdateOneModel<Document>(
+                        new Document("shortCode", shortCode),
+                        Updates.combine(
+                                Updates.inc("botClicks", rejected.bots().getOrDefault(shortCode, 0L)),
+                                Updates.inc("duplicateClicks", rejected.duplicates().getOrDefault(shortCode, 0L)))))
+                .toList();
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Url.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(increments)))
+                .then()
+                .onErrorResume(e -> {
+                    clickFilter.restore(rejected);
+                    log.warn("Could not write filtered click counts, retrying next flush: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Add the clicks not stored by sampling since the last flush to their
+     * url click counters; on failure the counts go out with the next flush
+     */
+    private Mono<Void> flushSkipped() {
+        Map<String, Long> skipped = sampler.drain();
+        if (skipped.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Url.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(clickIncrements(skipped))))
+                .then()
+                .onErrorResume(e -> {
+                    sampler.restore(skipped);
+                    log.warn("Could not write sampled click counts, retrying next flush: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> write(List<Click> batch) {
+        // While a spool backlog is being replayed, keep appending to it so clicks
+        // stay in order and a recovering MongoDB is not hit from two sides
+        if (clickSpool.hasPending()) {
+            return spool(batch, false);
+        }
+        List<Analytics> events = batch.stream().map(Click::event).toList();
+        Map<String, Long> counts = events.stream()
+                .collect(Collectors.groupingBy(Analytics::getShortCode, Collectors.counting()));
+        List<WriteModel<Document>> increments = clickIncrements(counts);
+
+        Mono<?> stored = switch (storageFormat) {
+            case "bucketed" -> writeBuckets(events);
+            case "timeseries" -> ensureTimeSeries()
+                    .then(mongoTemplate.insert(events, ClickTimeSeries.COLLECTION).then());
+            default -> mongoTemplate.insertAll(events).then();
+        };
+        AtomicBoolean eventsStored = new AtomicBoolean();
+        return stored
+                .doOnSuccess(done -> eventsStored.set(true))
+                .then(mongoTemplate.getCollection(mongoTemplate.getCollectionName(Url.class))
+                        .flatMap(collection -> Mono.from(collection.bulkWrite(increments))))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not persist {} click events, spooling them: {}", batch.size(), e.getMessage());
+                    return spool(batch, eventsStored.get());
+                });
+    }
+
+    /**
+     * Append a batch to the local click spool, off the event loop since the
+     * spool may force its pages to disk
+     */
+    private Mono<Void> spool(List<Click> batch, boolean eventsStored) {
+        return Mono.fromRunnable(() -> {
+                    int lost = 0;
+                    for (Click click : batch) {
+                        Analytics event = click.event();
+                        if (!clickSpool.append(new SpooledClick(event.getShortCode(), click.clickedAt(),
+                                event.getIpAddress(), click.userAgent(), event.getReferer(), event.getSampleRate(),
+                                eventsStored))) {
+                            lost++;
+                        }
+                    }
+                    if (lost > 0) {
+                        unspooled.increment(lost);
+                        log.error("Could not spool {} click events, they are lost", lost);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Write a batch read back from the spool: its events, under their
+     * deterministic spool ids, then the click counters past each URL's
+     * replayed position (see SpooledClickCounters). Errors are left to the
+     * caller, which keeps the batch spooled.
+     */
+    Mono<Void> writeReplayed(ClickEventSpool.Batch batch) {
+        String spoolId = clickSpool.id();
+        List<Analytics> events = new ArrayList<>();
+        Map<String, List<Long>> positions = new HashMap<>();
+        for (int i = 0; i < batch.clicks().size(); i++) {
+            SpooledClick click = batch.clicks().get(i);
+            positions.computeIfAbsent(click.shortCode(), code -> new ArrayList<>()).add(batch.position(i));
+            if (click.eventStored()) {
+                continue;
+            }
+            Analytics analytics = new Analytics();
+            analytics.setId("spool-" + spoolId + "-" + batch.segment() + "-" + (batch.from() + i));
+            analytics.setShortCode(click.shortCode());
+            analytics.setTimestamp(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(click.timestampMillis()), ZoneId.systemDefault()));
+            analytics.setIpAddress(click.ipAddress());
+            analytics.setClient(userAgentParser.parse(click.userAgent()));
+            analytics.setUserAgent(storeRawUserAgent ? click.userAgent() : null);
+            analytics.setLocation(geoIpResolver == null ? null : geoIpResolver.locate(click.ipAddress()));
+            analytics.setReferer(click.referer());
+            analytics.setSampleRate(click.sampleRate());
+            events.add(analytics);
+        }
+
+        Mono<?> stored = events.isEmpty() ? Mono.empty() : switch (storageFormat) {
+            case "bucketed" -> writeBuckets(events);
+            // No unique ids in a time-series collection: leave out events an earlier attempt stored
+            case "timeseries" -> ensureTimeSeries()
+                    .then(mongoTemplate.find(ClickTimeSeries.storedIds(events), Analytics.class,
+                                    ClickTimeSeries.COLLECTION)
+                            .map(Analytics::getId)
+                            .collect(Collectors.toSet()))
+                    .map(storedIds -> ClickTimeSeries.unstored(events, storedIds))
+                    .filter(unstored -> !unstored.isEmpty())
+                    .flatMap(unstored -> mongoTemplate.insert(unstored, ClickTimeSeries.COLLECTION).then());
+            // save, not insert: a replayed batch overwrites its events
+            default -> Flux.fromIterable(events).flatMap(mongoTemplate::save, maxConcurrentWrites).then();
+        };
+        String urls = mongoTemplate.getCollectionName(Url.class);
+        return stored
+                .then(mongoTemplate.find(SpooledClickCounters.positionsQuery(spoolId, positions.keySet()),
+                                Document.class, urls)
+                        .collectList())
+                .flatMap(found -> {
+                    List<Pair<Query, Update>> increments = SpooledClickCounters.increments(spoolId, positions,
+                            SpooledClickCounters.replayedUpTo(spoolId, found));
+                    if (increments.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Url.class);
+                    increments.forEach(increment -> bulk.updateOne(increment.getFirst(), increment.getSecond()));
+                    return bulk.execute();
+                })
+                .then();
+    }
+
+    /**
+     * Forget a fully replayed spool's positions on the given URLs
+     */
+    Mono<Void> clearSpooledPositions(Collection<String> shortCodes) {
+        String spoolId = clickSpool.id();
+        Update clear = SpooledClickCounters.clearUpdate(spoolId);
+        return Flux.fromIterable(SpooledClickCounters.clearQueries(spoolId, shortCodes))
+                .concatMap(query -> mongoTemplate.updateMulti(query, clear, Url.class))
+                .then();
+    }
+
+    /**
+     * Append a batch to compact click buckets (analytics.storage.format=bucketed),
+     * after the dictionary entries its events refer to
+     */
+    private Mono<Void> writeBuckets(List<Analytics> batch) {
+        ClickBucketCodec.Writes writes = ClickBucketCodec.writes(batch, bucketMaxEvents);
+        return writeEntries(userAgents, writes.userAgents())
+                .then(writeEntries(referers, writes.referers()))
+                .then(Mono.defer(() -> {
+                    ReactiveBulkOperations buckets = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                            ClickBucket.class);
+                    writes.buckets().forEach(bucket -> buckets.upsert(bucket.getFirst(), bucket.getSecond()));
+                    return buckets.execute();
+                }))
+                .then();
+    }
+
+    /**
+     * Create the time-series collection before the first insert, which would
+     * otherwise create a plain one
+     */
+    private Mono<Void> ensureTimeSeries() {
+        if (timeSeriesReady) {
+            return Mono.empty();
+        }
+        Mono<Void> created = mongoTemplate.createCollection(ClickTimeSeries.COLLECTION,
+                        ClickTimeSeries.options(timeSeriesGranularity))
+                .then()
+                // Another node (or batch) created it first
+                .onErrorResume(e -> mongoTemplate.collectionExists(ClickTimeSeries.COLLECTION)
+                        .flatMap(exists -> exists ? Mono.empty() : Mono.error(e)));
+        return mongoTemplate.collectionExists(ClickTimeSeries.COLLECTION)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : created)
+                .then(mongoTemplate.indexOps(ClickTimeSeries.COLLECTION).ensureIndex(ClickTimeSeries.index()))
+                .doOnSuccess(index -> timeSeriesReady = true)
+                .then();
+    }
+
+    private Mono<Void> writeEntries(ClickDictionary dictionary, Map<Long, String> entries) {
+        Map<Long, String> unwritten = dictionary.unwritten(entries);
+        if (unwritten.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                dictionary.collection());
+        ClickDictionary.upserts(unwritten).forEach(entry -> upserts.upsert(entry.getFirst(), entry.getSecond()));
+        return upserts.execute()
+                .doOnError(e -> dictionary.forget(unwritten.keySet()))
+                .then();
+    }
+
+    /**
+     * A buffered click, with what the spool needs beyond its event
+     */
+    private record Click(Analytics event, String userAgent, long clickedAt) {
+    }
+
+    private static List<WriteModel<Document>> clickIncrements(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(e -> (WriteModel<Document>) new UpdateOneModel<Document>(
+                        new Document("shortCode", e.getKey()),
+                        Updates.inc("clicks", e.getValue())))
+                .toList();
+    }
+}
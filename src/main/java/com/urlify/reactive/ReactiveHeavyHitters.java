@@ -0,0 +1,115 @@
+package com.urlify.reactive;
+
+import com.urlify.analytics.ClickHeavyHitters;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Heavy-hitter sketches for reactive redirect nodes, merged into the same
+ * sorted sets as the servlet nodes' (see HeavyHitterTracker). Reads stay on
+ * the servlet nodes.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveHeavyHitters {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveHeavyHitters.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Value("${analytics.heavy-hitters.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.heavy-hitters.sketch-width:4096}")
+    private int width;
+
+    @Value("${analytics.heavy-hitters.sketch-depth:4}")
+    private int depth;
+
+    @Value("${analytics.heavy-hitters.hot-links:100}")
+    private int hotLinks;
+
+    @Value("${analytics.heavy-hitters.per-link:20}")
+    private int perLink;
+
+    @Value("${analytics.heavy-hitters.max-tracked-links:10000}")
+    private int maxTrackedLinks;
+
+    @Value("${analytics.heavy-hitters.merge-interval-ms:10000}")
+    private long mergeIntervalMs;
+
+    @Value("${analytics.heavy-hitters.hot-window-minutes:5}")
+    private int hotWindowMinutes;
+
+    @Value("${analytics.heavy-hitters.per-link-size:100}")
+    private int perLinkSize;
+
+    @Value("${analytics.heavy-hitters.per-link-idle-days:30}")
+    private int perLinkIdleDays;
+
+    private ClickHeavyHitters sketches;
+    private Disposable merger;
+
+    @PostConstruct
+    public void start() {
+        sketches = new ClickHeavyHitters(width, depth, hotLinks, perLink, maxTrackedLinks);
+        merger = Flux.interval(Duration.ofMillis(mergeIntervalMs))
+                .concatMap(tick -> merge())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        merger.dispose();
+        merge().block(Duration.ofSeconds(5));
+    }
+
+    public void record(String shortCode, String referer, String userAgent) {
+        if (enabled) {
+            sketches.record(shortCode, referer, userAgent);
+        }
+    }
+
+    private Mono<Void> merge() {
+        ClickHeavyHitters.Batch batch = sketches.drain(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        Duration hotTtl = Duration.ofMinutes(hotWindowMinutes + 1L);
+        Duration perLinkTtl = Duration.ofDays(perLinkIdleDays);
+
+        Mono<Void> hot = batch.hotLinks().isEmpty() ? Mono.empty()
+                : Flux.fromIterable(batch.hotLinks())
+                        .flatMap(entry -> redisTemplate.opsForZSet()
+                                .incrementScore(batch.hotLinksKey(), entry.item(), entry.count()))
+                        .then(redisTemplate.expire(batch.hotLinksKey(), hotTtl))
+                        .then();
+        Mono<Void> perLinkSets = Flux.fromIterable(batch.perLink().entrySet())
+                .flatMap(set -> Flux.fromIterable(set.getValue())
+                        .flatMap(entry -> redisTemplate.opsForZSet()
+                                .incrementScore(set.getKey(), entry.item(), entry.count()))
+                        .then(redisTemplate.opsForZSet().removeRange(set.getKey(),
+                                Range.closed(0L, -(perLinkSize + 1L))))
+                        .then(redisTemplate.expire(set.getKey(), perLinkTtl)), 64)
+                .then();
+        return hot.then(perLinkSets)
+                .onErrorResume(e -> {
+                    log.warn("Could not merge heavy hitters: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package com.urlify.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlify.analytics.LiveClickBatcher;
+import com.urlify.dto.LiveClicks;
+import com.urlify.entity.Analytics;
+import com.urlify.util.AnalyticsKeys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Live click publishing for reactive redirect nodes, on the same channels
+ * as the servlet nodes (see LiveClickStream). Streams are served by the
+ * servlet nodes; reactive nodes only listen for announcements of watched
+ * links and publish their clicks.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveLiveClicks {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveLiveClicks.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${analytics.live.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.live.max-events-per-flush:20}")
+    private int maxEventsPerFlush;
+
+    @Value("${analytics.live.announce-interval-ms:10000}")
+    private long announceIntervalMs;
+
+    @Value("${analytics.live.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    private LiveClickBatcher batcher;
+    private Disposable announcements;
+    private Disposable flusher;
+
+    @PostConstruct
+    public void start() {
+        batcher = new LiveClickBatcher(3 * announceIntervalMs, maxEventsPerFlush);
+        if (!enabled) {
+            return;
+        }
+        announcements = redisTemplate.listenToChannel(AnalyticsKeys.LIVE_WATCH_CHANNEL)
+                .doOnNext(message -> batcher.watch(Arrays.asList(message.getMessage().split("\n")),
+                        System.currentTimeMillis()))
+                .doOnError(e -> log.warn("Live click announcements unavailable, resubscribing: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+        flusher = Flux.interval(Duration.ofMillis(flushIntervalMs))
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    // Before the connection factory stops, which would release the
+    // subscription's connection under it
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (announcements != null) {
+            announcements.dispose();
+            flusher.dispose();
+        }
+    }
+
+    public boolean isWatched(String shortCode) {
+        return enabled && batcher.isWatched(shortCode, System.currentTimeMillis());
+    }
+
+    /**
+     * Record a click of a watched link, clicked at epochMillis
+     */
+    public void record(Analytics event, long epochMillis) {
+        batcher.record(event, epochMillis);
+    }
+
+    private Mono<Void> flush() {
+        Map<String, LiveClicks> batch = batcher.drain(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(batch.values())
+                .flatMap(clicks -> {
+                    try {
+                        return redisTemplate.convertAndSend(AnalyticsKeys.liveClicks(clicks.getShortCode()),
+                                objectMapper.writeValueAsString(clicks));
+                    } catch (JsonProcessingException e) {
+                        log.warn("Could not encode live clicks of {}: {}", clicks.getShortCode(), e.getMessage());
+                        return Mono.empty();
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not publish live clicks: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,59 @@
+package com.urlify.reactive;
+
+import com.urlify.spool.ClickEventSpool;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Reactive redirect node — serves GET /{shortCode} and click ingestion on
+ * WebFlux (Netty) with the reactive Redis and MongoDB drivers.
+ *
+ * Uses the same Url/Analytics documents and Redis cache keys as the servlet
+ * application, so both modes can serve the same cluster side by side.
+ * URL management, auth and analytics APIs stay on the servlet nodes.
+ *
+ * Started from UrlifyApplication when URLIFY_MODE=reactive (or
+ * -Durlify.mode=reactive). Only beans in this package are scanned, and all of
+ * them are limited to the "reactive" profile so the servlet application
+ * ignores them. The click spool is shared with the servlet nodes and
+ * imported.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        MongoAutoConfiguration.class,
+        MongoDataAutoConfiguration.class,
+        MongoRepositoriesAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+})
+@ComponentScan
+@Import(ClickEventSpool.class)
+@Profile("reactive")
+public class ReactiveRedirectApplication {
+
+    public static void run(String[] args) {
+        new SpringApplicationBuilder(ReactiveRedirectApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("reactive")
+                .run(args);
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet nodes and would otherwise be
+     * picked as the reactive server; redirect nodes run on Netty.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,76 @@
+package com.urlify.reactive;
+
+import com.urlify.analytics.UserAgentInfo;
+import com.urlify.exception.GlobalExceptionHandler.ErrorResponse;
+import com.urlify.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDateTime;
+
+/**
+ * Reactive Redirect Controller for handling short URL redirects
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveRedirectController {
+
+    @Autowired
+    private ReactiveRedirectService redirectService;
+
+    @Autowired
+    private ReactiveClickTracker clickTracker;
+
+    @Autowired
+    private ReactiveUniqueVisitors uniqueVisitors;
+
+    /**
+     * Redirect to original URL and track analytics
+     */
+    @GetMapping("/{shortCode}")
+    public Mono<ResponseEntity<Object>> redirect(@PathVariable String shortCode, ServerHttpRequest request) {
+        String ipAddress = getClientIp(request);
+        String userAgent = request.getHeaders().getFirst("User-Agent");
+        String referer = request.getHeaders().getFirst("Referer");
+
+        return redirectService.getOriginalUrl(shortCode)
+                .map(originalUrl -> {
+                    // Bots are not visitors (see RedirectService)
+                    if (clickTracker.parseUserAgent(userAgent).device() != UserAgentInfo.Device.BOT) {
+                        uniqueVisitors.record(shortCode, ipAddress);
+                    }
+                    clickTracker.trackClick(shortCode, ipAddress, userAgent, referer);
+                    return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(originalUrl)).build();
+                })
+                .onErrorResume(ResourceNotFoundException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(
+                                HttpStatus.NOT_FOUND.value(), e.getMessage(), LocalDateTime.now()))));
+    }
+
+    /**
+     * Extract client IP address from request
+     */
+    private String getClientIp(ServerHttpRequest request) {
+        String ip = request.getHeaders().getFirst("X-Forwarded-For");
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeaders().getFirst("X-Real-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            InetSocketAddress remoteAddress = request.getRemoteAddress();
+            ip = remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : null;
+        }
+        if (ip != null && ip.contains(",")) {
+            ip = ip.split(",")[0].trim();
+        }
+        return ip;
+    }
+}
@@ -0,0 +1,160 @@
+package com.urlify.reactive;
+
+import com.urlify.entity.Redirect;
+import com.urlify.entity.Url;
+import com.urlify.exception.ResourceNotFoundException;
+import com.urlify.util.CacheKeys;
+import com.urlify.util.UrlValueCodec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking redirect resolution with the same cache-first strategy as
+ * RedirectService: Redis, then MongoDB, then warm the cache. Honours the
+ * same cache.redis.layout and value encoding as the servlet nodes, and
+ * reads the same redirects read model on a miss.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveRedirectService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRedirectService.class);
+
+    @Autowired
+    private ReactiveUrlRepository urlRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveRedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private ReactiveUrlDictionaries dictionaries;
+
+    @Value("${redirect.read-model.fallback-to-urls:true}")
+    private boolean fallbackToUrls;
+
+    @Value("${cache.redis.layout:string}")
+    private String layout;
+
+    @Value("${cache.redis.hash-buckets:65536}")
+    private int hashBuckets;
+
+    private final RedisScript<Long> bucketPutScript =
+            RedisScript.of(new ClassPathResource(CacheKeys.BUCKET_PUT_SCRIPT), Long.class);
+
+    private ReactiveRedisTemplate<String, byte[]> redisTemplate;
+    private UrlValueCodec codec;
+
+    @PostConstruct
+    public void init() {
+        // Cached URLs as raw bytes, so UrlValueCodec can store them compressed
+        redisTemplate = new ReactiveRedisTemplate<>(connectionFactory,
+                RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                        .value(RedisSerializer.byteArray())
+                        .hashValue(RedisSerializer.byteArray())
+                        .build());
+        codec = dictionaries.getCodec();
+    }
+
+    /**
+     * Get original URL from short code with cache-first strategy
+     */
+    public Mono<String> getOriginalUrl(String shortCode) {
+        return cacheGet(shortCode)
+                .onErrorResume(e -> {
+                    log.warn("Redis error (falling back to DB): {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.defer(() -> findAndCache(shortCode)));
+    }
+
+    /**
+     * Cached URL, or empty on a miss (including values this node cannot
+     * decode yet)
+     */
+    private Mono<String> cacheGet(String shortCode) {
+        Mono<byte[]> value = "hash".equalsIgnoreCase(layout)
+                ? redisTemplate.<String, byte[]>opsForHash().get(CacheKeys.bucket(shortCode, hashBuckets), shortCode)
+                : redisTemplate.opsForValue().get(CacheKeys.url(shortCode));
+        return value.mapNotNull(codec::decode);
+    }
+
+    private Mono<Boolean> cachePut(String shortCode, String originalUrl) {
+        byte[] value = codec.encode(originalUrl);
+        if ("hash".equalsIgnoreCase(layout)) {
+            RedisSerializer<String> serializer = RedisSerializer.string();
+            return redisTemplate.execute(bucketPutScript, List.of(CacheKeys.bucket(shortCode, hashBuckets)),
+                            List.of(serializer.serialize(String.valueOf(CacheKeys.bucketTtlSeconds())),
+                                    serializer.serialize(shortCode), value))
+                    .then(Mono.just(true));
+        }
+        return redisTemplate.opsForValue().set(CacheKeys.url(shortCode), value, CacheKeys.URL_TTL);
+    }
+
+    /**
+     * Primary-key read of the redirect read model, falling back to urls for
+     * links that are not in it yet and copying them over (see RedirectService)
+     */
+    private Mono<Redirect> findRedirect(String shortCode) {
+        Mono<Redirect> redirect = mongoTemplate.findById(shortCode, Redirect.class);
+        if (!fallbackToUrls) {
+            return redirect;
+        }
+        return redirect.switchIfEmpty(Mono.defer(() -> urlRepository.findRedirectFieldsByShortCode(shortCode)
+                .map(Redirect::from)
+                .flatMap(found -> copyToReadModel(found).thenReturn(found))));
+    }
+
+    /**
+     * Insert a redirect found in urls, unless one exists, and remove it again
+     * if its link was deleted in the meantime (as RedirectBackfill does)
+     */
+    private Mono<Void> copyToReadModel(Redirect redirect) {
+        Query byId = Query.query(Criteria.where("_id").is(redirect.getShortCode()));
+        return mongoTemplate.upsert(byId, new Update().setOnInsert("originalUrl", redirect.getOriginalUrl())
+                        .setOnInsert("expiresAt", redirect.getExpiresAt()), Redirect.class)
+                .then(mongoTemplate.exists(Query.query(Criteria.where("shortCode").is(redirect.getShortCode())),
+                        Url.class))
+                .flatMap(live -> live ? Mono.empty() : mongoTemplate.remove(byId, Redirect.class))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not copy {} into the redirect read model: {}", redirect.getShortCode(),
+                            e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> findAndCache(String shortCode) {
+        return findRedirect(shortCode)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Short URL not found")))
+                .filter(redirect -> !redirect.isExpired())
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Short URL has expired")))
+                .map(Redirect::getOriginalUrl)
+                .flatMap(originalUrl -> cachePut(shortCode, originalUrl)
+                        .onErrorResume(e -> {
+                            log.warn("Redis error (cache not updated): {}", e.getMessage());
+                            return Mono.just(false);
+                        })
+                        .thenReturn(originalUrl));
+    }
+}
@@ -0,0 +1,144 @@
+package com.urlify.reactive;
+
+import com.urlify.spool.ClickEventSpool;
+import com.urlify.spool.SpooledClick;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the click spool of a reactive redirect node into MongoDB, the
+ * reactive counterpart of ClickSpoolReplayer.
+ *
+ * Batches are written through ReactiveClickTracker.writeReplayed and only
+ * acknowledged after it succeeds, so a failed batch is replayed on the next
+ * run. Once the spool is fully replayed, the URLs' replayed positions of it
+ * are removed. Spool calls (reads, acknowledgements and fsyncs) are
+ * blocking and run on the bounded elastic scheduler.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveSpoolReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveSpoolReplayer.class);
+
+    @Autowired
+    private ClickEventSpool clickSpool;
+
+    @Autowired
+    private ReactiveClickTracker clickTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.spool.replay-batch-size:500}")
+    private int batchSize;
+
+    @Value("${analytics.spool.replay-interval-ms:5000}")
+    private long replayIntervalMs;
+
+    @Value("${analytics.spool.fsync-interval-ms:200}")
+    private long fsyncIntervalMs;
+
+    // URLs holding a replayed position of this spool, cleared once it is fully replayed
+    private final Set<String> replayedShortCodes = ConcurrentHashMap.newKeySet();
+
+    private Disposable replayer;
+    private Disposable flusher;
+
+    @PostConstruct
+    public void start() {
+        if (!clickSpool.isEnabled()) {
+            return;
+        }
+        // Reactive nodes do not run @Scheduled methods, so the interval fsync is driven here
+        flusher = Flux.interval(Duration.ofMillis(fsyncIntervalMs), Schedulers.boundedElastic())
+                .subscribe(tick -> clickSpool.flush());
+        replayer = Flux.interval(Duration.ofMillis(replayIntervalMs), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap(tick -> replay(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (replayer != null) {
+            replayer.dispose();
+            flusher.dispose();
+        }
+    }
+
+    private Mono<Void> replay() {
+        if (!clickSpool.hasPending() && replayedShortCodes.isEmpty()) {
+            return Mono.empty();
+        }
+        AtomicLong replayed = new AtomicLong();
+        return Mono.fromCallable(() -> clickSpool.readBatch(batchSize))
+                .flatMap(batch -> clickTracker.writeReplayed(batch)
+                        .publishOn(Schedulers.boundedElastic())
+                        .then(Mono.fromRunnable(() -> {
+                            clickSpool.acknowledge(batch);
+                            batch.clicks().forEach(click -> replayedShortCodes.add(click.shortCode()));
+                            recordLag(batch);
+                            replayed.addAndGet(batch.clicks().size());
+                        })))
+                .subscribeOn(Schedulers.boundedElastic())
+                .repeat(clickSpool::hasPending)
+                .then(Mono.defer(this::clearPositions))
+                .onErrorResume(e -> {
+                    log.warn("MongoDB still unavailable, {} click events remain spooled: {}",
+                            clickSpool.pending(), e.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> {
+                    if (replayed.get() > 0) {
+                        log.info("Replayed {} spooled click events into MongoDB", replayed.get());
+                    }
+                });
+    }
+
+    /**
+     * Remove this spool's replayed positions from the URLs, after forcing
+     * the acknowledgements to disk: without its position a URL would count a
+     * replayed batch again
+     */
+    private Mono<Void> clearPositions() {
+        if (replayedShortCodes.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> shortCodes = List.copyOf(replayedShortCodes);
+        return Mono.fromRunnable(clickSpool::syncAcknowledgements)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(clickTracker.clearSpooledPositions(shortCodes))
+                .then(Mono.fromRunnable(() -> shortCodes.forEach(replayedShortCodes::remove)));
+    }
+
+    /**
+     * Record how long each replayed click waited between the redirect and MongoDB
+     */
+    private void recordLag(ClickEventSpool.Batch batch) {
+        Timer lag = meterRegistry.timer("analytics.spool.replay.lag");
+        long now = System.currentTimeMillis();
+        for (SpooledClick click : batch.clicks()) {
+            lag.record(now - click.timestampMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.urlify.reactive;
+
+import com.urlify.analytics.UniqueVisitorBuffer;
+import com.urlify.util.AnalyticsKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unique-visitor recording for reactive redirect nodes, into the same
+ * HyperLogLogs the servlet nodes write (see UniqueVisitorCounter).
+ *
+ * Visitors are buffered on the redirect path, independent of whether
+ * ReactiveClickTracker keeps or drops the click, and flushed every interval.
+ * The script calls share one multiplexed connection, so a flush costs about
+ * one round-trip. A failed flush drops that interval's visitors.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUniqueVisitors {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUniqueVisitors.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.unique-visitors.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.unique-visitors.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${analytics.unique-visitors.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${analytics.unique-visitors.daily-retention-days:90}")
+    private int dailyRetentionDays;
+
+    @Value("${analytics.unique-visitors.total-idle-days:400}")
+    private int totalIdleDays;
+
+    private final RedisScript<Long> addScript =
+            RedisScript.of(new ClassPathResource(AnalyticsKeys.UNIQUE_VISITOR_ADD_SCRIPT), Long.class);
+
+    private UniqueVisitorBuffer buffer;
+    private Disposable flusher;
+    private Counter flushedVisitors;
+    private Counter droppedFull;
+    private Counter droppedFlush;
+
+    @PostConstruct
+    public void start() {
+        buffer = new UniqueVisitorBuffer(maxPending);
+        flushedVisitors = Counter.builder("analytics.unique_visitors.flushed").register(meterRegistry);
+        droppedFull = Counter.builder("analytics.unique_visitors.dropped")
+                .tag("reason", "buffer_full")
+                .register(meterRegistry);
+        droppedFlush = Counter.builder("analytics.unique_visitors.dropped")
+                .tag("reason", "flush_failed")
+                .register(meterRegistry);
+        meterRegistry.gauge("analytics.unique_visitors.pending", buffer, UniqueVisitorBuffer::pending);
+        flusher = Flux.interval(Duration.ofMillis(flushIntervalMs))
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.dispose();
+        flush().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Record a visit without blocking the caller
+     */
+    public void record(String shortCode, String visitor) {
+        if (enabled && visitor != null && !buffer.add(shortCode, visitor, System.currentTimeMillis())) {
+            droppedFull.increment();
+        }
+    }
+
+    private Mono<Void> flush() {
+        Map<UniqueVisitorBuffer.DayKey, Set<String>> visitors = buffer.drain();
+        if (visitors.isEmpty()) {
+            return Mono.empty();
+        }
+        String dayTtl = String.valueOf(Duration.ofDays(dailyRetentionDays).toSeconds());
+        String totalTtl = String.valueOf(Duration.ofDays(totalIdleDays).toSeconds());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        return Flux.fromIterable(visitors.entrySet())
+                .flatMap(entry -> {
+                    UniqueVisitorBuffer.DayKey key = entry.getKey();
+                    List<String> args = new ArrayList<>(2 + entry.getValue().size());
+                    args.add(dayTtl);
+                    args.add(totalTtl);
+                    args.addAll(entry.getValue());
+                    return redisTemplate.execute(addScript,
+                                    List.of(AnalyticsKeys.dailyUniqueVisitors(key.shortCode(), key.day()),
+                                            AnalyticsKeys.uniqueVisitors(key.shortCode())), args)
+                            .then(Mono.fromRunnable(() -> flushedVisitors.increment(entry.getValue().size())))
+                            .onErrorResume(e -> {
+                                droppedFlush.increment(entry.getValue().size());
+                                failure.set(e);
+                                return Mono.empty();
+                            });
+                }, 64)
+                .then(Mono.fromRunnable(() -> {
+                    if (failure.get() != null) {
+                        log.warn("Could not record unique visitors: {}", failure.get().getMessage());
+                    }
+                }));
+    }
+}
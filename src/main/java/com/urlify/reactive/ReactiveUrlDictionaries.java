@@ -0,0 +1,94 @@
+package com.urlify.reactive;
+
+import com.urlify.entity.UrlDictionary;
+import com.urlify.util.UrlValueCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Cache value codec for reactive redirect nodes, fed with the zstd
+ * dictionaries the servlet nodes train (see UrlDictionaryManager).
+ *
+ * The latest dictionary is polled every refresh interval, and a cached value
+ * naming an unknown version triggers a load of that version. Both run on the
+ * reactive driver, so the redirect path never waits for MongoDB.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUrlDictionaries {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUrlDictionaries.class);
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cache.compression.min-length:40}")
+    private int minLength;
+
+    @Value("${cache.compression.level:3}")
+    private int level;
+
+    @Value("${cache.compression.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private UrlValueCodec codec;
+    private Disposable refresher;
+
+    @PostConstruct
+    public void start() {
+        codec = new UrlValueCodec(enabled, minLength, level, this::load);
+        meterRegistry.gauge("cache.compression.dictionary.version", codec, UrlValueCodec::currentVersion);
+        Query latest = new Query().with(Sort.by(Sort.Direction.DESC, "_id")).limit(1);
+        refresher = Flux.interval(Duration.ZERO, Duration.ofMillis(refreshIntervalMs))
+                .concatMap(tick -> mongoTemplate.findOne(latest, UrlDictionary.class)
+                        .doOnNext(this::register)
+                        .onErrorResume(e -> {
+                            log.warn("Could not load the URL dictionary: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.dispose();
+    }
+
+    public UrlValueCodec getCodec() {
+        return codec;
+    }
+
+    private void register(UrlDictionary dictionary) {
+        codec.addDictionary(dictionary.getVersion(), dictionary.getDictionary());
+    }
+
+    private void load(int version) {
+        mongoTemplate.findById(version, UrlDictionary.class)
+                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("Cached value uses unknown URL dictionary v{}", version)))
+                .subscribe(this::register, e -> {
+                    log.warn("Could not load URL dictionary v{}: {}", version, e.getMessage());
+                    codec.retryVersion(version);
+                });
+    }
+}
@@ -0,0 +1,20 @@
+package com.urlify.reactive;
+
+import com.urlify.entity.Url;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveUrlRepository extends ReactiveMongoRepository<Url, String> {
+
+    Mono<Url> findByShortCode(String shortCode);
+
+    /**
+     * Only the fields a redirect needs, for links missing from the redirects
+     * read model
+     */
+    @Query(value = "{ 'shortCode': ?0 }", fields = "{ 'shortCode': 1, 'originalUrl': 1, 'expiresAt': 1 }")
+    Mono<Url> findRedirectFieldsByShortCode(String shortCode);
+}
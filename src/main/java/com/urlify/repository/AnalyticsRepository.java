@@ -1,9 +1,11 @@
 package com.urlify.repository;
 
 import com.urlify.entity.Analytics;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +14,31 @@ public interface AnalyticsRepository extends MongoRepository<Analytics, String>
     List<Analytics> findByShortCodeOrderByTimestampDesc(String shortCode);
 
     Long countByShortCode(String shortCode);
+
+    // Rollup stages, also run over the time-series collection by ClickEventStore
+    String CLIENT_GROUP = "{ $group: { _id: { device: '$device', browser: '$browser', os: '$os' }, clicks: { $sum: { $divide: [1, { $ifNull: ['$sampleRate', 1] }] } } } }";
+    String CLIENT_PROJECT = "{ $project: { _id: 0, device: '$_id.device', browser: '$_id.browser', os: '$_id.os', clicks: 1 } }";
+    String LOCATION_GROUP = "{ $group: { _id: { country: '$country', region: '$region' }, clicks: { $sum: { $divide: [1, { $ifNull: ['$sampleRate', 1] }] } } } }";
+    String LOCATION_PROJECT = "{ $project: { _id: 0, country: '$_id.country', region: '$_id.region', clicks: 1 } }";
+
+    /**
+     * Clicks of a short code since a time per device, browser and OS id
+     * combination, each event weighted by 1 / sampleRate. Uses the
+     * shortCode_client index.
+     */
+    @Aggregation(pipeline = { "{ $match: { shortCode: ?0, timestamp: { $gte: ?1 } } }", CLIENT_GROUP, CLIENT_PROJECT })
+    List<ClientClicks> countClicksByClient(String shortCode, LocalDateTime since);
+
+    record ClientClicks(Integer device, Integer browser, Integer os, long clicks) {
+    }
+
+    /**
+     * Clicks of a short code since a time per country and region, each event
+     * weighted by 1 / sampleRate. Uses the shortCode_location index.
+     */
+    @Aggregation(pipeline = { "{ $match: { shortCode: ?0, timestamp: { $gte: ?1 } } }", LOCATION_GROUP, LOCATION_PROJECT })
+    List<LocationClicks> countClicksByLocation(String shortCode, LocalDateTime since);
+
+    record LocationClicks(String country, String region, long clicks) {
+    }
 }
@@ -0,0 +1,43 @@
+package com.urlify.repository;
+
+import com.urlify.entity.ClickBucket;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Rollups over compact click buckets; pipelines use the stored single-letter
+ * field names (see ClickBucket). Each event counts its weight.
+ */
+@Repository
+public interface ClickBucketRepository extends MongoRepository<ClickBucket, String> {
+
+    /**
+     * Clicks of a short code per device, browser and OS id combination, in
+     * buckets starting at or after since (epoch millis). Uses the
+     * shortCode_start index.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { c: ?0, b: { $gte: ?1 } } }",
+            "{ $unwind: '$e' }",
+            "{ $group: { _id: { device: '$e.d', browser: '$e.w', os: '$e.o' }, clicks: { $sum: { $ifNull: ['$e.s', 1] } } } }",
+            "{ $project: { _id: 0, device: '$_id.device', browser: '$_id.browser', os: '$_id.os', clicks: 1 } }" })
+    List<AnalyticsRepository.ClientClicks> countClicksByClient(String shortCode, long since);
+
+    /**
+     * Clicks of a short code per stored location (region, or country when
+     * the region is unknown), in buckets starting at or after since. Uses
+     * the shortCode_start index.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { c: ?0, b: { $gte: ?1 } } }",
+            "{ $unwind: '$e' }",
+            "{ $group: { _id: '$e.g', clicks: { $sum: { $ifNull: ['$e.s', 1] } } } }",
+            "{ $project: { _id: 0, location: '$_id', clicks: 1 } }" })
+    List<LocationCodeClicks> countClicksByLocation(String shortCode, long since);
+
+    record LocationCodeClicks(String location, long clicks) {
+    }
+}
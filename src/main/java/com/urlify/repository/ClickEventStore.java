@@ -0,0 +1,512 @@
+package com.urlify.repository;
+
+import com.urlify.analytics.GeoLocation;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import com.urlify.util.ClickBucketCodec;
+import com.urlify.util.ClickDictionary;
+import com.urlify.util.ClickTimeSeries;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Raw click events in the storage format set by analytics.storage.format.
+ *
+ * document (default) keeps one Analytics document per click. bucketed
+ * writes ClickBucket documents instead, with user agents and referers
+ * interned in dictionaries cached in process. timeseries writes Analytics
+ * documents to the click_events time-series collection (ClickTimeSeries).
+ * In the other formats, reads also cover analytics documents that
+ * ClickEventMigration has not moved yet, and every format returns the same
+ * Analytics values, so callers do not depend on the format.
+ */
+@Component
+public class ClickEventStore {
+
+    private static final String TIMESTAMP_INDEX = "timestamp";
+    // TTL indexes cannot be made plain again; this is the largest expiry MongoDB accepts
+    private static final long NEVER_EXPIRE_SECONDS = Integer.MAX_VALUE;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ClickBucketRepository clickBucketRepository;
+
+    @Value("${analytics.storage.format:document}")
+    private String format;
+
+    @Value("${analytics.storage.bucket-max-events:200}")
+    private int bucketMaxEvents;
+
+    @Value("${analytics.storage.dictionary-cache-size:10000}")
+    private int dictionaryCacheSize;
+
+    @Value("${analytics.storage.timeseries.granularity:seconds}")
+    private String granularity;
+
+    public enum Format {
+        DOCUMENT, BUCKETED, TIMESERIES
+    }
+
+    private Format storageFormat;
+    private ClickDictionary userAgents;
+    private ClickDictionary referers;
+    private volatile boolean timeSeriesReady;
+
+    @PostConstruct
+    public void init() {
+        storageFormat = switch (format) {
+            case "document" -> Format.DOCUMENT;
+            case "bucketed" -> Format.BUCKETED;
+            case "timeseries" -> Format.TIMESERIES;
+            default -> throw new IllegalStateException("Unknown analytics.storage.format: " + format);
+        };
+        userAgents = new ClickDictionary(ClickDictionary.USER_AGENTS, dictionaryCacheSize);
+        referers = new ClickDictionary(ClickDictionary.REFERERS, dictionaryCacheSize);
+    }
+
+    public Format format() {
+        return storageFormat;
+    }
+
+    public void save(Analytics event) {
+        switch (storageFormat) {
+            case DOCUMENT -> analyticsRepository.save(event);
+            case BUCKETED -> saveAll(List.of(event));
+            case TIMESERIES -> {
+                ensureTimeSeries();
+                mongoTemplate.insert(event, ClickTimeSeries.COLLECTION);
+            }
+        }
+    }
+
+    /**
+     * Write a batch of events. A retried batch of events with ids overwrites
+     * its earlier copy in the document and bucketed formats. A time-series
+     * collection does not enforce unique ids, so the events whose ids it
+     * already holds are left out instead (see ClickTimeSeries.storedIds);
+     * two writers racing on the same batch can still both insert it.
+     */
+    public void saveAll(List<Analytics> events) {
+        if (storageFormat == Format.DOCUMENT) {
+            analyticsRepository.saveAll(events);
+            return;
+        }
+        if (storageFormat == Format.TIMESERIES) {
+            ensureTimeSeries();
+            Query stored = ClickTimeSeries.storedIds(events);
+            List<Analytics> unstored = stored == null ? events : ClickTimeSeries.unstored(events,
+                    mongoTemplate.find(stored, Analytics.class, ClickTimeSeries.COLLECTION).stream()
+                            .map(Analytics::getId)
+                            .collect(Collectors.toSet()));
+            if (!unstored.isEmpty()) {
+                mongoTemplate.insert(unstored, ClickTimeSeries.COLLECTION);
+            }
+            return;
+        }
+        ClickBucketCodec.Writes writes = ClickBucketCodec.writes(events, bucketMaxEvents);
+        // Entries before the buckets that refer to them
+        writeEntries(userAgents, writes.userAgents());
+        writeEntries(referers, writes.referers());
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickBucket.class)
+                .upsert(writes.buckets())
+                .execute();
+    }
+
+    private void writeEntries(ClickDictionary dictionary, Map<Long, String> entries) {
+        Map<Long, String> unwritten = dictionary.unwritten(entries);
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, dictionary.collection())
+                    .upsert(ClickDictionary.upserts(unwritten))
+                    .execute();
+        } catch (RuntimeException e) {
+            dictionary.forget(unwritten.keySet());
+            throw e;
+        }
+    }
+
+    /**
+     * Create the time-series collection before the first insert, which would
+     * otherwise create a plain one
+     */
+    private void ensureTimeSeries() {
+        if (timeSeriesReady) {
+            return;
+        }
+        synchronized (this) {
+            if (timeSeriesReady) {
+                return;
+            }
+            if (!mongoTemplate.collectionExists(ClickTimeSeries.COLLECTION)) {
+                try {
+                    mongoTemplate.createCollection(ClickTimeSeries.COLLECTION, ClickTimeSeries.options(granularity));
+                } catch (DataAccessException e) {
+                    // Another node created it first
+                    if (!mongoTemplate.collectionExists(ClickTimeSeries.COLLECTION)) {
+                        throw e;
+                    }
+                }
+            }
+            mongoTemplate.indexOps(ClickTimeSeries.COLLECTION).ensureIndex(ClickTimeSeries.index());
+            timeSeriesReady = true;
+        }
+    }
+
+    /**
+     * A short code's newest events, newest first
+     */
+    public List<Analytics> recent(String shortCode, int limit) {
+        Query query = Query.query(Criteria.where("shortCode").is(shortCode))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+                .limit(limit);
+        List<Analytics> events = new ArrayList<>(mongoTemplate.find(query, Analytics.class));
+        switch (storageFormat) {
+            case DOCUMENT -> {
+                return events;
+            }
+            case BUCKETED -> events.addAll(recentFromBuckets(shortCode, limit));
+            case TIMESERIES -> events.addAll(mongoTemplate.find(query, Analytics.class, ClickTimeSeries.COLLECTION));
+        }
+        events.sort(Comparator.comparing(Analytics::getTimestamp).reversed());
+        return events.size() > limit ? events.subList(0, limit) : events;
+    }
+
+    private List<Analytics> recentFromBuckets(String shortCode, int limit) {
+        Query query = Query.query(Criteria.where("shortCode").is(shortCode))
+                .with(Sort.by(Sort.Direction.DESC, "start"))
+                .cursorBatchSize(8);
+        List<ClickBucket> buckets = new ArrayList<>();
+        int events = 0;
+        try (Stream<ClickBucket> stream = mongoTemplate.stream(query, ClickBucket.class)) {
+            for (var it = stream.iterator(); it.hasNext(); ) {
+                ClickBucket bucket = it.next();
+                // Buckets of the same hour can interleave; read the whole hour before stopping
+                if (events >= limit && bucket.getStart() < buckets.get(buckets.size() - 1).getStart()) {
+                    break;
+                }
+                buckets.add(bucket);
+                events += bucket.getEvents().size();
+            }
+        }
+        return decode(buckets);
+    }
+
+    /**
+     * Events of buckets, with their dictionary ids resolved
+     */
+    private List<Analytics> decode(List<ClickBucket> buckets) {
+        Set<Long> userAgentIds = new HashSet<>();
+        Set<Long> refererIds = new HashSet<>();
+        for (ClickBucket bucket : buckets) {
+            for (ClickBucket.Event event : bucket.getEvents()) {
+                if (event.getUserAgent() != null) {
+                    userAgentIds.add(event.getUserAgent());
+                }
+                if (event.getReferer() != null) {
+                    refererIds.add(event.getReferer());
+                }
+            }
+        }
+        Map<Long, String> userAgentValues = resolve(userAgents, userAgentIds);
+        Map<Long, String> refererValues = resolve(referers, refererIds);
+
+        List<Analytics> decoded = new ArrayList<>();
+        for (ClickBucket bucket : buckets) {
+            for (ClickBucket.Event event : bucket.getEvents()) {
+                decoded.add(ClickBucketCodec.decode(bucket, event, userAgentValues, refererValues));
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Dictionary values of ids, from the cache or else one $in query
+     */
+    private Map<Long, String> resolve(ClickDictionary dictionary, Set<Long> ids) {
+        List<Long> missing = new ArrayList<>();
+        Map<Long, String> values = dictionary.cached(ids, missing);
+        if (!missing.isEmpty()) {
+            Map<Long, String> loaded = new HashMap<>();
+            for (Document entry : mongoTemplate.find(Query.query(Criteria.where("_id").in(missing)),
+                    Document.class, dictionary.collection())) {
+                loaded.put(entry.getLong("_id"), entry.getString("v"));
+            }
+            dictionary.putAll(loaded);
+            values.putAll(loaded);
+        }
+        return values;
+    }
+
+    /**
+     * Weighted clicks per device, browser and OS id combination of events
+     * since the given time; groups may repeat across formats, so callers sum
+     * them
+     */
+    public List<AnalyticsRepository.ClientClicks> countClicksByClient(String shortCode, LocalDateTime since) {
+        List<AnalyticsRepository.ClientClicks> groups = analyticsRepository.countClicksByClient(shortCode, since);
+        if (storageFormat == Format.DOCUMENT) {
+            return groups;
+        }
+        List<AnalyticsRepository.ClientClicks> all = new ArrayList<>(groups);
+        all.addAll(storageFormat == Format.BUCKETED
+                ? clickBucketRepository.countClicksByClient(shortCode, bucketsSince(since))
+                : aggregateTimeSeries(shortCode, since, AnalyticsRepository.CLIENT_GROUP,
+                        AnalyticsRepository.CLIENT_PROJECT, AnalyticsRepository.ClientClicks.class));
+        return all;
+    }
+
+    /**
+     * Weighted clicks per country and region of events since the given time;
+     * groups may repeat across formats, so callers sum them
+     */
+    public List<AnalyticsRepository.LocationClicks> countClicksByLocation(String shortCode, LocalDateTime since) {
+        List<AnalyticsRepository.LocationClicks> groups = analyticsRepository.countClicksByLocation(shortCode, since);
+        if (storageFormat == Format.DOCUMENT) {
+            return groups;
+        }
+        List<AnalyticsRepository.LocationClicks> all = new ArrayList<>(groups);
+        if (storageFormat == Format.TIMESERIES) {
+            all.addAll(aggregateTimeSeries(shortCode, since, AnalyticsRepository.LOCATION_GROUP,
+                    AnalyticsRepository.LOCATION_PROJECT, AnalyticsRepository.LocationClicks.class));
+            return all;
+        }
+        for (ClickBucketRepository.LocationCodeClicks group
+                : clickBucketRepository.countClicksByLocation(shortCode, bucketsSince(since))) {
+            GeoLocation location = ClickBucketCodec.location(group.location());
+            all.add(new AnalyticsRepository.LocationClicks(location != null ? location.country() : null,
+                    location != null ? location.region() : null, group.clicks()));
+        }
+        return all;
+    }
+
+    /**
+     * The AnalyticsRepository rollup stages over the time-series collection
+     */
+    private <T> List<T> aggregateTimeSeries(String shortCode, LocalDateTime since, String group, String project,
+            Class<T> type) {
+        Aggregation rollup = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("shortCode").is(shortCode).and("timestamp").gte(since)),
+                Aggregation.stage(group),
+                Aggregation.stage(project));
+        return mongoTemplate.aggregate(rollup, ClickTimeSeries.COLLECTION, type).getMappedResults();
+    }
+
+    /**
+     * Start of the bucket holding events at since; the bucket rollups count
+     * whole buckets, and callers pass day starts, which are bucket starts
+     */
+    private static long bucketsSince(LocalDateTime since) {
+        return ClickBucketCodec.bucketStart(ClickBucketCodec.epochMillis(since));
+    }
+
+    /**
+     * Events in [from, to) of one short code, or of all if shortCode is null,
+     * ordered by short code and then time. Close the stream to release its
+     * cursors.
+     */
+    public Stream<Analytics> events(String shortCode, LocalDateTime from, LocalDateTime to) {
+        Criteria range = Criteria.where("timestamp").gte(from).lt(to);
+        Query query = Query.query(shortCode != null ? range.and("shortCode").is(shortCode) : range)
+                .with(Sort.by("shortCode", "timestamp"))
+                .allowDiskUse(true);
+        Stream<Analytics> legacy = mongoTemplate.stream(query, Analytics.class);
+        return switch (storageFormat) {
+            case DOCUMENT -> legacy;
+            case BUCKETED -> merge(legacy, eventsFromBuckets(shortCode, from, to));
+            case TIMESERIES -> merge(legacy, mongoTemplate.stream(query, Analytics.class, ClickTimeSeries.COLLECTION));
+        };
+    }
+
+    private Stream<Analytics> eventsFromBuckets(String shortCode, LocalDateTime from, LocalDateTime to) {
+        long fromMillis = ClickBucketCodec.epochMillis(from);
+        long toMillis = ClickBucketCodec.epochMillis(to);
+        Criteria range = Criteria.where("start").gte(ClickBucketCodec.bucketStart(fromMillis)).lt(toMillis);
+        Query query = Query.query(shortCode != null ? range.and("shortCode").is(shortCode) : range)
+                .with(Sort.by("shortCode", "start"))
+                .allowDiskUse(true);
+        Stream<ClickBucket> buckets = mongoTemplate.stream(query, ClickBucket.class);
+        Iterator<ClickBucket> cursor = buckets.iterator();
+        // Buckets of the same link and hour can interleave, so each such group is decoded and sorted together
+        Iterator<List<Analytics>> hours = new Iterator<>() {
+            private ClickBucket next;
+
+            @Override
+            public boolean hasNext() {
+                return next != null || cursor.hasNext();
+            }
+
+            @Override
+            public List<Analytics> next() {
+                List<ClickBucket> group = new ArrayList<>();
+                group.add(next != null ? next : cursor.next());
+                next = null;
+                while (cursor.hasNext()) {
+                    ClickBucket bucket = cursor.next();
+                    if (!bucket.getShortCode().equals(group.get(0).getShortCode())
+                            || bucket.getStart() != group.get(0).getStart()) {
+                        next = bucket;
+                        break;
+                    }
+                    group.add(bucket);
+                }
+                List<Analytics> events = new ArrayList<>(decode(group));
+                events.removeIf(event -> event.getTimestamp().isBefore(from) || !event.getTimestamp().isBefore(to));
+                events.sort(Comparator.comparing(Analytics::getTimestamp));
+                return events;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(hours, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(buckets::close);
+    }
+
+    /**
+     * Merge two streams that are each in short code and time order
+     */
+    private static Stream<Analytics> merge(Stream<Analytics> first, Stream<Analytics> second) {
+        Comparator<Analytics> order = Comparator.comparing(Analytics::getShortCode)
+                .thenComparing(Analytics::getTimestamp);
+        Iterator<Analytics> left = first.iterator();
+        Iterator<Analytics> right = second.iterator();
+        Iterator<Analytics> merged = new Iterator<>() {
+            private Analytics nextLeft;
+            private Analytics nextRight;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null || left.hasNext() || right.hasNext();
+            }
+
+            @Override
+            public Analytics next() {
+                if (nextLeft == null && left.hasNext()) {
+                    nextLeft = left.next();
+                }
+                if (nextRight == null && right.hasNext()) {
+                    nextRight = right.next();
+                }
+                if (nextLeft == null && nextRight == null) {
+                    throw new NoSuchElementException();
+                }
+                Analytics next;
+                if (nextRight == null || (nextLeft != null && order.compare(nextLeft, nextRight) <= 0)) {
+                    next = nextLeft;
+                    nextLeft = null;
+                } else {
+                    next = nextRight;
+                    nextRight = null;
+                }
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(first::close)
+                .onClose(second::close);
+    }
+
+    /**
+     * Time of the oldest stored event, or null if there are none
+     */
+    public LocalDateTime oldestTimestamp() {
+        Query oldest = new Query().with(Sort.by("timestamp")).limit(1);
+        oldest.fields().include("timestamp");
+        List<LocalDateTime> candidates = new ArrayList<>();
+        Analytics legacy = mongoTemplate.findOne(oldest, Analytics.class);
+        if (legacy != null) {
+            candidates.add(legacy.getTimestamp());
+        }
+        if (storageFormat == Format.BUCKETED) {
+            Query oldestBucket = new Query().with(Sort.by("start")).limit(1);
+            oldestBucket.fields().include("start");
+            ClickBucket bucket = mongoTemplate.findOne(oldestBucket, ClickBucket.class);
+            if (bucket != null) {
+                candidates.add(LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.getStart()), ZoneId.systemDefault()));
+            }
+        } else if (storageFormat == Format.TIMESERIES) {
+            Analytics event = mongoTemplate.findOne(oldest, Analytics.class, ClickTimeSeries.COLLECTION);
+            if (event != null) {
+                candidates.add(event.getTimestamp());
+            }
+        }
+        return candidates.stream().min(Comparator.naturalOrder()).orElse(null);
+    }
+
+    /**
+     * Let MongoDB delete raw events older than maxAge, or keep them all if
+     * maxAge is null: a TTL on the analytics timestamp index (created here,
+     * and rebuilt once if it predates expiry), the time-series collection's
+     * own expiry, and for buckets, whose start is not a date, a range delete
+     * on every call.
+     */
+    public void expireRawEvents(Duration maxAge) {
+        long seconds = maxAge != null ? maxAge.toSeconds() : NEVER_EXPIRE_SECONDS;
+        IndexOperations indexOps = mongoTemplate.indexOps(Analytics.class);
+        Index timestampIndex = new Index("timestamp", Sort.Direction.ASC).named(TIMESTAMP_INDEX)
+                .expire(seconds, TimeUnit.SECONDS);
+        IndexInfo current = indexOps.getIndexInfo().stream()
+                .filter(index -> index.getName().equals(TIMESTAMP_INDEX))
+                .findFirst()
+                .orElse(null);
+        if (current == null) {
+            indexOps.ensureIndex(timestampIndex);
+        } else if (current.getExpireAfter().isEmpty()) {
+            // A plain index cannot be given a TTL on every server version
+            if (maxAge != null) {
+                indexOps.dropIndex(TIMESTAMP_INDEX);
+                indexOps.ensureIndex(timestampIndex);
+            }
+        } else if (current.getExpireAfter().get().toSeconds() != seconds) {
+            mongoTemplate.executeCommand(new Document("collMod", mongoTemplate.getCollectionName(Analytics.class))
+                    .append("index", new Document("name", TIMESTAMP_INDEX).append("expireAfterSeconds", seconds)));
+        }
+
+        if (storageFormat == Format.TIMESERIES && mongoTemplate.collectionExists(ClickTimeSeries.COLLECTION)) {
+            mongoTemplate.executeCommand(ClickTimeSeries.expiry(maxAge));
+        } else if (storageFormat == Format.BUCKETED && maxAge != null) {
+            long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+            // Whole buckets only: one that started before the cutoff can still hold younger events
+            mongoTemplate.remove(Query.query(Criteria.where("start").lt(cutoff - ClickBucket.SPAN_MILLIS)),
+                    ClickBucket.class);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.urlify.repository;
+
+import com.urlify.entity.ClickRollup;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Breakdowns summed over a link's daily rollups
+ */
+@Repository
+public interface ClickRollupRepository extends MongoRepository<ClickRollup, String> {
+
+    /**
+     * Clicks of a short code on days before the given one per device,
+     * browser and OS id combination. Uses the shortCode_day index.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { shortCode: ?0, day: { $lt: ?1 } } }",
+            "{ $unwind: '$clients' }",
+            "{ $group: { _id: { device: '$clients.device', browser: '$clients.browser', os: '$clients.os' }, clicks: { $sum: '$clients.clicks' } } }",
+            AnalyticsRepository.CLIENT_PROJECT })
+    List<AnalyticsRepository.ClientClicks> countClicksByClient(String shortCode, LocalDate before);
+
+    /**
+     * Clicks of a short code on days before the given one per country and
+     * region. Uses the shortCode_day index.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { shortCode: ?0, day: { $lt: ?1 } } }",
+            "{ $unwind: '$locations' }",
+            "{ $group: { _id: { country: '$locations.country', region: '$locations.region' }, clicks: { $sum: '$locations.clicks' } } }",
+            AnalyticsRepository.LOCATION_PROJECT })
+    List<AnalyticsRepository.LocationClicks> countClicksByLocation(String shortCode, LocalDate before);
+}
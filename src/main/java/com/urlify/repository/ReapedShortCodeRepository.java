@@ -0,0 +1,9 @@
+package com.urlify.repository;
+
+import com.urlify.entity.ReapedShortCode;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReapedShortCodeRepository extends MongoRepository<ReapedShortCode, String> {
+}
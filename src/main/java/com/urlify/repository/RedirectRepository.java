@@ -0,0 +1,9 @@
+package com.urlify.repository;
+
+import com.urlify.entity.Redirect;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RedirectRepository extends MongoRepository<Redirect, String> {
+}
@@ -0,0 +1,13 @@
+package com.urlify.repository;
+
+import com.urlify.entity.UrlDictionary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UrlDictionaryRepository extends MongoRepository<UrlDictionary, Integer> {
+
+    Optional<UrlDictionary> findTopByOrderByVersionDesc();
+}
@@ -3,6 +3,7 @@ package com.urlify.repository;
 import com.urlify.entity.Url;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -10,20 +11,33 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UrlRepository extends MongoRepository<Url, String> {
+public interface UrlRepository extends MongoRepository<Url, String>, UrlRepositoryCustom {
 
     Optional<Url> findByShortCode(String shortCode);
 
+    /**
+     * Only the fields a redirect needs, for links missing from the redirects
+     * read model
+     */
+    @Query(value = "{ 'shortCode': ?0 }", fields = "{ 'shortCode': 1, 'originalUrl': 1, 'expiresAt': 1 }")
+    Optional<Url> findRedirectFieldsByShortCode(String shortCode);
+
     boolean existsByShortCode(String shortCode);
 
     List<Url> findByUserId(String userId);
 
     Page<Url> findByUserId(String userId, Pageable pageable);
 
-    @Query("{ 'expiresAt': { $ne: null, $lt: ?0 } }")
-    List<Url> findExpiredUrls(LocalDateTime now);
+    /**
+     * Ids and short codes of links that expired before the given time,
+     * through a cursor. Uses the expiresAt index.
+     */
+    @Meta(cursorBatchSize = 1000)
+    @Query(value = "{ 'expiresAt': { $ne: null, $lt: ?0 } }", fields = "{ 'shortCode': 1 }")
+    Stream<Url> streamExpiredUrls(LocalDateTime before);
 
     void deleteByShortCode(String shortCode);
 }
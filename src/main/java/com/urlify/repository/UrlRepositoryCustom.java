@@ -0,0 +1,39 @@
+package com.urlify.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom URL operations that need MongoTemplate rather than derived queries
+ */
+public interface UrlRepositoryCustom {
+
+    /**
+     * Atomically add to a URL's click counter without reading the document
+     */
+    void incrementClicks(String shortCode, long delta);
+
+    /**
+     * Apply several click counter increments in one unordered bulk write
+     */
+    void incrementClicks(Map<String, Long> deltas);
+
+    /**
+     * Add replayed spool clicks to the click counters, each click at most
+     * once. positions holds each URL's clicks as positions in the spool,
+     * ascending; see SpooledClickCounters.
+     */
+    void incrementSpooledClicks(String spoolId, Map<String, List<Long>> positions);
+
+    /**
+     * Forget a fully replayed spool's positions on the given URLs
+     */
+    void clearSpooledPositions(String spoolId, Collection<String> shortCodes);
+
+    /**
+     * Add to the bot and duplicate click counters of several URLs in one
+     * unordered bulk write
+     */
+    void incrementFilteredClicks(Map<String, Long> bots, Map<String, Long> duplicates);
+}
@@ -0,0 +1,84 @@
+package com.urlify.repository;
+
+import com.urlify.entity.Url;
+import com.urlify.util.SpooledClickCounters;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UrlRepositoryImpl implements UrlRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void incrementClicks(String shortCode, long delta) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("shortCode").is(shortCode)),
+                new Update().inc("clicks", delta),
+                Url.class);
+    }
+
+    @Override
+    public void incrementClicks(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Url.class);
+        deltas.forEach((shortCode, delta) -> bulk.updateOne(
+                Query.query(Criteria.where("shortCode").is(shortCode)),
+                new Update().inc("clicks", delta)));
+        bulk.execute();
+    }
+
+    @Override
+    public void incrementSpooledClicks(String spoolId, Map<String, List<Long>> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        Map<String, Long> replayedUpTo = SpooledClickCounters.replayedUpTo(spoolId, mongoTemplate.find(
+                SpooledClickCounters.positionsQuery(spoolId, positions.keySet()), Document.class,
+                mongoTemplate.getCollectionName(Url.class)));
+        List<Pair<Query, Update>> increments = SpooledClickCounters.increments(spoolId, positions, replayedUpTo);
+        if (!increments.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Url.class);
+            increments.forEach(increment -> bulk.updateOne(increment.getFirst(), increment.getSecond()));
+            bulk.execute();
+        }
+    }
+
+    @Override
+    public void clearSpooledPositions(String spoolId, Collection<String> shortCodes) {
+        Update clear = SpooledClickCounters.clearUpdate(spoolId);
+        for (Query query : SpooledClickCounters.clearQueries(spoolId, shortCodes)) {
+            mongoTemplate.updateMulti(query, clear, Url.class);
+        }
+    }
+
+    @Override
+    public void incrementFilteredClicks(Map<String, Long> bots, Map<String, Long> duplicates) {
+        Set<String> shortCodes = new HashSet<>(bots.keySet());
+        shortCodes.addAll(duplicates.keySet());
+        if (shortCodes.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Url.class);
+        shortCodes.forEach(shortCode -> bulk.updateOne(
+                Query.query(Criteria.where("shortCode").is(shortCode)),
+                new Update()
+                        .inc("botClicks", bots.getOrDefault(shortCode, 0L))
+                        .inc("duplicateClicks", duplicates.getOrDefault(shortCode, 0L))));
+        bulk.execute();
+    }
+}
@@ -2,6 +2,12 @@ package com.urlify.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,6 +15,7 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT Token Provider for generating and validating JWT tokens
@@ -16,12 +23,26 @@ import java.util.Date;
 @Component
 public class JwtTokenProvider {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer validTokenTimer;
+    private Timer invalidTokenTimer;
+
+    @PostConstruct
+    public void initMetrics() {
+        validTokenTimer = meterRegistry.timer("jwt.validation", "result", "valid");
+        invalidTokenTimer = meterRegistry.timer("jwt.validation", "result", "invalid");
+    }
+
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(jwtSecret.getBytes());
     }
@@ -66,17 +87,21 @@ public class JwtTokenProvider {
      * Validate JWT token
      */
     public boolean validateToken(String token) {
+        long start = System.nanoTime();
+        boolean valid = false;
         try {
             Jwts.parser()
                     .verifyWith(getSigningKey())
                     .build()
                     .parseSignedClaims(token);
-            return true;
+            valid = true;
         } catch (JwtException ex) {
-            System.err.println("Invalid JWT token: " + ex.getMessage());
+            // Debug level: tokens are client input, so any client could flood a higher level
+            log.debug("Invalid JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
-            System.err.println("JWT claims string is empty");
+            log.debug("JWT claims string is empty");
         }
-        return false;
+        (valid ? validTokenTimer : invalidTokenTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return valid;
     }
 }
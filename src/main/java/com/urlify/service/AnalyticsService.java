@@ -1,18 +1,57 @@
 package com.urlify.service;
 
+import com.urlify.analytics.ClickIngestFilter;
+import com.urlify.analytics.ClickSampler;
+import com.urlify.analytics.GeoIpEnricher;
+import com.urlify.analytics.HeavyHitterTracker;
+import com.urlify.analytics.LiveClickStream;
+import com.urlify.analytics.UniqueVisitorCounter;
+import com.urlify.analytics.UserAgentClassifier;
+import com.urlify.analytics.UserAgentInfo;
+import com.urlify.archive.ClickArchive;
 import com.urlify.dto.AnalyticsResponse;
+import com.urlify.dto.UniqueVisitorsResponse;
 import com.urlify.entity.Analytics;
 import com.urlify.entity.Url;
+import com.urlify.exception.ArchiveUnavailableException;
+import com.urlify.exception.ConcurrencyLimitExceededException;
 import com.urlify.exception.ResourceNotFoundException;
 import com.urlify.repository.AnalyticsRepository;
+import com.urlify.repository.ClickEventStore;
+import com.urlify.repository.ClickRollupRepository;
 import com.urlify.repository.UrlRepository;
 import com.urlify.repository.UserRepository;
+import com.urlify.spool.ClickEventSpool;
+import com.urlify.spool.SpooledClick;
+import com.urlify.util.ConcurrencyLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Analytics Service for tracking and retrieving click data
@@ -20,8 +59,19 @@ import java.util.stream.Collectors;
 @Service
 public class AnalyticsService {
 
+    private static final int MAX_EXPORT_DAYS = 366;
+
+    @Autowired
+    private ClickEventStore clickEventStore;
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    private ClickRetention clickRetention;
+
     @Autowired
-    private AnalyticsRepository analyticsRepository;
+    private ClickArchive clickArchive;
 
     @Autowired
     private UrlRepository urlRepository;
@@ -29,29 +79,101 @@ public class AnalyticsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    @Qualifier("analyticsLimiter")
+    private ConcurrencyLimiter analyticsLimiter;
+
+    @Autowired
+    private ClickEventSpool clickSpool;
+
+    @Autowired
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Autowired
+    private HeavyHitterTracker heavyHitters;
+
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+
+    @Autowired
+    private GeoIpEnricher geoIpEnricher;
+
+    @Autowired
+    private ClickIngestFilter clickFilter;
+
+    @Autowired
+    private ClickSampler clickSampler;
+
+    @Autowired
+    private LiveClickStream liveClickStream;
+
+    @Value("${analytics.live.max-links-per-stream:1000}")
+    private int maxLinksPerLiveStream;
+
     /**
      * Track a click event asynchronously.
      * Called after redirect response is already sent to minimize latency.
      * Accepts pre-extracted request data since HttpServletRequest is not available
      * after the request completes.
+     * Runs on the bounded clickTrackingExecutor, which sheds clicks under overload.
+     * Bot and duplicate clicks are only counted (see ClickIngestFilter); every
+     * click that passes feeds the heavy-hitter sketches. On links clicked
+     * faster than the sampling threshold only a sample of events is stored
+     * (see ClickSampler); the rest are just counted. Clicks of links with a
+     * live stream open are also passed to LiveClickStream, sampled or not.
+     * Clicks that cannot be written to MongoDB go to the local click spool.
      */
-    @Async
+    @Async("clickTrackingExecutor")
     public void trackClick(String shortCode, String ipAddress, String userAgent, String referer) {
-        Url url = urlRepository.findByShortCode(shortCode)
-                .orElseThrow(() -> new ResourceNotFoundException("URL not found"));
-
-        // Increment click count
-        url.incrementClicks();
-        urlRepository.save(url);
+        long clickedAt = System.currentTimeMillis();
+        UserAgentInfo client = userAgentClassifier.parse(userAgent);
+        if (!clickFilter.accept(shortCode, ipAddress, userAgent, client)) {
+            return;
+        }
+        heavyHitters.record(shortCode, referer, userAgent);
+        double sampleRate = clickSampler.sample(shortCode);
+        boolean watched = liveClickStream.isWatched(shortCode);
+        if (sampleRate == 0 && !watched) {
+            return;
+        }
 
         // Create analytics record
         Analytics analytics = new Analytics();
         analytics.setShortCode(shortCode);
         analytics.setIpAddress(ipAddress);
-        analytics.setUserAgent(userAgent);
+        userAgentClassifier.classify(analytics, userAgent, client);
+        geoIpEnricher.locate(analytics, ipAddress);
         analytics.setReferer(referer);
+        analytics.setSampleRate(sampleRate);
+        if (watched) {
+            liveClickStream.record(analytics, clickedAt);
+        }
+        if (sampleRate == 0) {
+            return;
+        }
+
+        // While a spool backlog is being replayed, keep appending to it so clicks
+        // stay in order and a recovering MongoDB is not hit from two sides
+        if (clickSpool.hasPending() && clickSpool.append(
+                new SpooledClick(shortCode, clickedAt, ipAddress, userAgent, referer, sampleRate, false))) {
+            return;
+        }
+
+        boolean eventStored = false;
+        try {
+            analyticsLimiter.run(() -> clickEventStore.save(analytics));
+            eventStored = true;
 
-        analyticsRepository.save(analytics);
+            // Increment click count atomically (no read-modify-write of the Url document)
+            analyticsLimiter.run(() -> urlRepository.incrementClicks(shortCode, 1));
+        } catch (DataAccessException | ConcurrencyLimitExceededException e) {
+            // MongoDB unreachable or saturated — spool the click for replay
+            SpooledClick click = new SpooledClick(shortCode, clickedAt, ipAddress, userAgent, referer, sampleRate,
+                    eventStored);
+            if (!clickSpool.append(click)) {
+                throw e;
+            }
+        }
     }
 
     /**
@@ -60,26 +182,25 @@ public class AnalyticsService {
     public List<AnalyticsResponse> getAllAnalytics(String userEmail) {
         String userId = getUserIdByEmail(userEmail);
         List<Url> userUrls = urlRepository.findByUserId(userId);
+        Map<String, Long> uniqueVisitors = uniqueVisitorCounter.counts(
+                userUrls.stream().map(Url::getShortCode).toList());
 
         return userUrls.stream()
                 .map(url -> {
-                    List<Analytics> analyticsRecords = analyticsRepository
-                            .findByShortCodeOrderByTimestampDesc(url.getShortCode());
+                    // Last 10 clicks for overview
+                    List<Analytics> analyticsRecords = clickEventStore.recent(url.getShortCode(), 10);
 
                     List<AnalyticsResponse.ClickDetail> clickDetails = analyticsRecords.stream()
-                            .limit(10) // Limit to last 10 clicks for overview
-                            .map(a -> AnalyticsResponse.ClickDetail.builder()
-                                    .timestamp(a.getTimestamp())
-                                    .ipAddress(a.getIpAddress())
-                                    .userAgent(a.getUserAgent())
-                                    .referer(a.getReferer())
-                                    .build())
+                            .map(AnalyticsResponse.ClickDetail::of)
                             .collect(Collectors.toList());
 
                     return AnalyticsResponse.builder()
                             .shortCode(url.getShortCode())
                             .originalUrl(url.getOriginalUrl())
                             .totalClicks(url.getClicks())
+                            .botClicks(url.getBotClicks())
+                            .duplicateClicks(url.getDuplicateClicks())
+                            .uniqueVisitors(uniqueVisitors.get(url.getShortCode()))
                             .createdAt(url.getCreatedAt())
                             .expiresAt(url.getExpiresAt())
                             .recentClicks(clickDetails)
@@ -93,38 +214,270 @@ public class AnalyticsService {
      * Get analytics for a short code
      */
     public AnalyticsResponse getAnalytics(String shortCode, String userEmail) {
-        Url url = urlRepository.findByShortCode(shortCode)
-                .orElseThrow(() -> new ResourceNotFoundException("URL not found"));
-
-        // Check if user owns this URL
-        if (!url.getUserId().equals(getUserIdByEmail(userEmail))) {
-            throw new IllegalArgumentException("You don't have permission to view analytics for this URL");
-        }
+        Url url = getOwnedUrl(shortCode, userEmail);
 
-        // Get analytics records
-        List<Analytics> analyticsRecords = analyticsRepository.findByShortCodeOrderByTimestampDesc(shortCode);
+        // Get the last 100 analytics records
+        List<Analytics> analyticsRecords = clickEventStore.recent(shortCode, 100);
 
         // Map to response
         List<AnalyticsResponse.ClickDetail> clickDetails = analyticsRecords.stream()
-                .limit(100) // Limit to last 100 clicks
-                .map(a -> AnalyticsResponse.ClickDetail.builder()
-                        .timestamp(a.getTimestamp())
-                        .ipAddress(a.getIpAddress())
-                        .userAgent(a.getUserAgent())
-                        .referer(a.getReferer())
-                        .build())
+                .map(AnalyticsResponse.ClickDetail::of)
                 .collect(Collectors.toList());
 
+        LocalDate today = today();
         return AnalyticsResponse.builder()
                 .shortCode(url.getShortCode())
                 .originalUrl(url.getOriginalUrl())
                 .totalClicks(url.getClicks())
+                .botClicks(url.getBotClicks())
+                .duplicateClicks(url.getDuplicateClicks())
+                .uniqueVisitors(uniqueVisitorCounter.count(shortCode))
+                .uniqueVisitorsLast7Days(uniqueVisitorCounter.countBetween(List.of(shortCode), today.minusDays(6), today))
+                .uniqueVisitorsLast30Days(uniqueVisitorCounter.countBetween(List.of(shortCode), today.minusDays(29), today))
                 .createdAt(url.getCreatedAt())
                 .expiresAt(url.getExpiresAt())
+                .topReferers(heavyHitters.topReferers(shortCode, 10))
+                .topUserAgents(heavyHitters.topUserAgents(shortCode, 10))
+                .sampleRate(analyticsRecords.isEmpty() ? null : clickDetails.get(0).getSampleRate())
+                .clients(getClientBreakdown(shortCode))
+                .locations(getLocationBreakdown(shortCode))
                 .recentClicks(clickDetails)
                 .build();
     }
 
+    /**
+     * Clicks per device class, browser and OS, from the ids parsed at ingest.
+     * Clicks stored before parsing was added count as UNKNOWN. Sampled events
+     * count 1 / sampleRate times, here and in the location breakdown. Days
+     * already rolled up (see ClickRetention) are read from their rollups.
+     */
+    private AnalyticsResponse.ClientBreakdown getClientBreakdown(String shortCode) {
+        Map<String, Long> devices = new HashMap<>();
+        Map<String, Long> browsers = new HashMap<>();
+        Map<String, Long> operatingSystems = new HashMap<>();
+        LocalDateTime since = clickRetention.rawEventsSince();
+        List<AnalyticsRepository.ClientClicks> groups = new ArrayList<>(
+                clickEventStore.countClicksByClient(shortCode, since));
+        groups.addAll(clickRollupRepository.countClicksByClient(shortCode, since.toLocalDate()));
+        for (AnalyticsRepository.ClientClicks group : groups) {
+            devices.merge(UserAgentInfo.Device.fromId(group.device()).name(), group.clicks(), Long::sum);
+            browsers.merge(UserAgentInfo.Browser.fromId(group.browser()).name(), group.clicks(), Long::sum);
+            operatingSystems.merge(UserAgentInfo.Os.fromId(group.os()).name(), group.clicks(), Long::sum);
+        }
+        return AnalyticsResponse.ClientBreakdown.builder()
+                .devices(byCountDescending(devices))
+                .browsers(byCountDescending(browsers))
+                .operatingSystems(byCountDescending(operatingSystems))
+                .build();
+    }
+
+    /**
+     * Clicks per country and region, from the GeoIP lookup at ingest. Clicks
+     * with no known location count as UNKNOWN; clicks located to a country
+     * only are left out of regions.
+     */
+    private AnalyticsResponse.LocationBreakdown getLocationBreakdown(String shortCode) {
+        Map<String, Long> countries = new HashMap<>();
+        Map<String, Long> regions = new HashMap<>();
+        LocalDateTime since = clickRetention.rawEventsSince();
+        List<AnalyticsRepository.LocationClicks> groups = new ArrayList<>(
+                clickEventStore.countClicksByLocation(shortCode, since));
+        groups.addAll(clickRollupRepository.countClicksByLocation(shortCode, since.toLocalDate()));
+        for (AnalyticsRepository.LocationClicks group : groups) {
+            countries.merge(group.country() != null ? group.country() : "UNKNOWN", group.clicks(), Long::sum);
+            if (group.region() != null) {
+                regions.merge(group.region(), group.clicks(), Long::sum);
+            }
+        }
+        return AnalyticsResponse.LocationBreakdown.builder()
+                .countries(byCountDescending(countries))
+                .regions(byCountDescending(regions))
+                .build();
+    }
+
+    private static Map<String, Long> byCountDescending(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Approximate unique visitors of a short code per day and over the range
+     * [from, to], in UTC days. Defaults to the last 30 days.
+     */
+    public UniqueVisitorsResponse getUniqueVisitors(String shortCode, LocalDate from, LocalDate to,
+            String userEmail) {
+        getOwnedUrl(shortCode, userEmail);
+        LocalDate end = to != null ? to : today();
+        LocalDate start = checkRange(from != null ? from : end.minusDays(29), end);
+
+        Map<LocalDate, Long> daily = uniqueVisitorCounter.dailyCounts(shortCode, start, end);
+        return UniqueVisitorsResponse.builder()
+                .shortCode(shortCode)
+                .from(start)
+                .to(end)
+                .uniqueVisitors(uniqueVisitorCounter.countBetween(List.of(shortCode), start, end))
+                .standardError(UniqueVisitorCounter.STANDARD_ERROR)
+                .daily(daily == null ? null : daily.entrySet().stream()
+                        .map(e -> new UniqueVisitorsResponse.DailyCount(e.getKey(), e.getValue()))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * Approximate unique visitors across all of a user's links over [from, to];
+     * someone who opened several of the links counts once.
+     */
+    public UniqueVisitorsResponse getUniqueVisitorsAcrossLinks(LocalDate from, LocalDate to, String userEmail) {
+        String userId = getUserIdByEmail(userEmail);
+        LocalDate end = to != null ? to : today();
+        LocalDate start = checkRange(from != null ? from : end.minusDays(29), end);
+        List<String> shortCodes = urlRepository.findByUserId(userId).stream().map(Url::getShortCode).toList();
+
+        return UniqueVisitorsResponse.builder()
+                .from(start)
+                .to(end)
+                .uniqueVisitors(uniqueVisitorCounter.countBetween(shortCodes, start, end))
+                .standardError(UniqueVisitorCounter.STANDARD_ERROR)
+                .build();
+    }
+
+    /**
+     * Links a live click stream follows: shortCode, which must be one of the
+     * user's, or if it is null the user's most recently created links
+     */
+    public List<String> liveShortCodes(String shortCode, String userEmail) {
+        if (shortCode != null) {
+            getOwnedUrl(shortCode, userEmail);
+            return List.of(shortCode);
+        }
+        String userId = getUserIdByEmail(userEmail);
+        return urlRepository.findByUserId(userId, PageRequest.of(0, maxLinksPerLiveStream,
+                        Sort.by(Sort.Direction.DESC, "createdAt")))
+                .map(Url::getShortCode)
+                .toList();
+    }
+
+    /**
+     * A short code's click events on the days [from, to] (server time zone)
+     * as CSV, oldest first; defaults to the last 30 days. Access and the
+     * range are checked here, and the returned export streams the events
+     * when written: archived days from their archive file, other days from
+     * MongoDB. A range with a day whose raw events may have expired and
+     * whose archive this node lacks is refused rather than exported
+     * incomplete. Sampled events are rows with a sample rate below 1.
+     */
+    public ClickExport exportClicks(String shortCode, LocalDate from, LocalDate to, String userEmail) {
+        getOwnedUrl(shortCode, userEmail);
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_EXPORT_DAYS) {
+            throw new IllegalArgumentException("Exports cover at most " + MAX_EXPORT_DAYS + " days");
+        }
+        // Archives are local to the node that compacted the day, unless the directory is shared
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            if (clickRetention.rawEventsExpiring(day) && !clickArchive.has(day)) {
+                throw new ArchiveUnavailableException("Click events of " + day
+                        + " are only in the click archive, which is not on this node");
+            }
+        }
+
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("timestamp,ip_address,user_agent,referer,device,browser,os,country,region,sample_rate\n");
+            Consumer<Analytics> row = event -> {
+                try {
+                    writeCsvRow(writer, AnalyticsResponse.ClickDetail.of(event));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            try {
+                for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                    if (clickArchive.has(day)) {
+                        clickArchive.read(day, shortCode, row);
+                    } else {
+                        try (Stream<Analytics> events = clickEventStore.events(shortCode, day.atStartOfDay(),
+                                day.plusDays(1).atStartOfDay())) {
+                            events.forEach(row);
+                        }
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+    }
+
+    /**
+     * Writes a click export to a response body
+     */
+    @FunctionalInterface
+    public interface ClickExport {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static void writeCsvRow(Writer writer, AnalyticsResponse.ClickDetail click) throws IOException {
+        Object[] fields = { click.getTimestamp(), click.getIpAddress(), click.getUserAgent(), click.getReferer(),
+                click.getDevice(), click.getBrowser(), click.getOs(), click.getCountry(), click.getRegion(),
+                click.getSampleRate() };
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (fields[i] != null) {
+                writer.write(csvField(fields[i].toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Quote a field if needed. Values starting with =, +, -, @, tab or CR
+     * get a ' prefix, so a spreadsheet shows them as text instead of
+     * evaluating a formula from a client-supplied header.
+     */
+    static String csvField(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private LocalDate checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        LocalDate retainedSince = uniqueVisitorCounter.retainedSince(today());
+        // Daily sketches past retention are gone; clamp instead of reporting zeros
+        return from.isBefore(retainedSince) ? retainedSince : from;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * Find a URL and check the user owns it
+     */
+    private Url getOwnedUrl(String shortCode, String userEmail) {
+        Url url = urlRepository.findByShortCode(shortCode)
+                .orElseThrow(() -> new ResourceNotFoundException("URL not found"));
+
+        // Check if user owns this URL
+        if (!url.getUserId().equals(getUserIdByEmail(userEmail))) {
+            throw new IllegalArgumentException("You don't have permission to view analytics for this URL");
+        }
+        return url;
+    }
+
     /**
      * Helper method to get user ID by email
      */
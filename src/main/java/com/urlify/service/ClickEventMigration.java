@@ -0,0 +1,99 @@
+package com.urlify.service;
+
+import com.urlify.entity.Analytics;
+import com.urlify.repository.ClickEventStore;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves click events from the analytics collection into the configured
+ * storage format, once, after analytics.storage.format is switched to
+ * bucketed or timeseries.
+ *
+ * Runs in the background after startup until the collection is empty, which
+ * is recorded in the migrations collection (per target format). Batches are
+ * taken in shortCode index order, so each holds long runs of one link and
+ * packs into few buckets. A batch is written through ClickEventStore and
+ * then deleted. If that is interrupted in between, the next run writes the
+ * batch again, which buckets absorb (they take the id of their first event)
+ * and a time-series insert skips by id. Until it is deleted, reads count
+ * the batch's events twice. Nodes that start together can each migrate the
+ * same batch at once, and a time-series collection may then keep both
+ * copies.
+ */
+@Component
+public class ClickEventMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickEventMigration.class);
+
+    private static final String MIGRATIONS = "migrations";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ClickEventStore clickEventStore;
+
+    @Value("${analytics.storage.migrate:true}")
+    private boolean enabled;
+
+    @Value("${analytics.storage.migration-batch-size:1000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInBackground() {
+        if (enabled && clickEventStore.format() != ClickEventStore.Format.DOCUMENT) {
+            Thread.ofVirtual().name("click-event-migration").start(() -> {
+                try {
+                    migrate();
+                } catch (DataAccessException e) {
+                    log.warn("Click event migration failed, will resume on next startup: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Move every analytics document into the configured format. Returns the
+     * number of events moved, or 0 if the migration already ran.
+     */
+    public long migrate() {
+        String migrationId = clickEventStore.format() == ClickEventStore.Format.BUCKETED
+                ? "click-buckets" : "click-events-timeseries";
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(migrationId)), MIGRATIONS)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long moved = 0;
+        // Deleting each batch moves the next one to the front
+        Query next = new Query().with(Sort.by("shortCode")).limit(batchSize);
+        List<Analytics> batch;
+        while (!(batch = mongoTemplate.find(next, Analytics.class)).isEmpty()) {
+            clickEventStore.saveAll(batch);
+            List<String> ids = batch.stream().map(Analytics::getId).toList();
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Analytics.class);
+            moved += batch.size();
+        }
+
+        mongoTemplate.save(new Document("_id", migrationId)
+                .append("completedAt", LocalDateTime.now())
+                .append("moved", moved), MIGRATIONS);
+        log.info("Click event migration to {} moved {} events in {} ms", clickEventStore.format(), moved,
+                (System.nanoTime() - start) / 1_000_000);
+        return moved;
+    }
+}
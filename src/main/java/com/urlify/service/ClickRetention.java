@@ -0,0 +1,307 @@
+package com.urlify.service;
+
+import com.urlify.archive.ClickArchive;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickRollup;
+import com.urlify.repository.ClickEventStore;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Tiered retention of click events.
+ *
+ * Raw events are kept for analytics.retention.raw-event-days. Every day is
+ * compacted once it is over (and an hour has passed, for late spool
+ * replays), in one pass over its events in short code order: per-link
+ * ClickRollups keep the client and location breakdowns, and with
+ * analytics.archive.enabled the events are written to the day's archive
+ * file for exports. The last rolled-up day is recorded in the migrations
+ * collection; breakdowns read rollups up to it and raw events after it.
+ *
+ * Runs in the background shortly after startup and then every interval-ms,
+ * on one node at a time: a run holds a lease in the migrations collection,
+ * renewed after every day it compacts. Expiry is applied only after every
+ * finished day is rolled up, so turning retention on for an existing
+ * history compacts it first, and it keeps a day more than the window, so a
+ * day is still raw when it is compacted. Retention is off by default, and
+ * then a run does nothing: raw events are kept, nothing is compacted and
+ * indexes are left alone. Turning retention off does not lift an expiry
+ * already set; raw-event-days=0 with retention on does. Clicks replayed from
+ * the spool after their day was compacted are left out of its rollups and
+ * archive.
+ */
+@Component
+public class ClickRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickRetention.class);
+
+    private static final String MIGRATIONS = "migrations";
+    private static final String PROGRESS_ID = "click-rollups";
+    private static final String LOCK_ID = "click-retention-lock";
+    private static final Duration SETTLE_TIME = Duration.ofHours(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ClickEventStore clickEventStore;
+
+    @Autowired
+    private ClickArchive clickArchive;
+
+    @Value("${analytics.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analytics.retention.raw-event-days:90}")
+    private int rawEventDays;
+
+    @Value("${analytics.retention.rollup-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${analytics.retention.lock-lease-ms:3600000}")
+    private long lockLeaseMs;
+
+    private final String lockOwner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile LocalDate rolledUpThrough;
+    private volatile boolean progressLoaded;
+
+    @Scheduled(fixedDelayString = "${analytics.retention.interval-ms:3600000}",
+            initialDelayString = "${analytics.retention.initial-delay-ms:60000}")
+    public void runInBackground() {
+        // A first run can take hours; keep it off the shared scheduler thread
+        if (running.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("click-retention").start(() -> {
+                try {
+                    run();
+                } catch (DataAccessException | IOException e) {
+                    log.warn("Click retention run failed, will retry: {}", e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Compact every finished day not compacted yet, then apply the raw event
+     * expiry. Returns false if another node holds the lock.
+     */
+    public boolean run() throws IOException {
+        if (!enabled) {
+            return true;
+        }
+        if (!lock()) {
+            log.debug("Click retention skipped, another node holds the lock");
+            return false;
+        }
+        try {
+            compactAndExpire();
+        } finally {
+            unlock();
+        }
+        return true;
+    }
+
+    private void compactAndExpire() throws IOException {
+        LocalDate through = loadProgress();
+        LocalDate lastDay = LocalDateTime.now().minus(SETTLE_TIME).toLocalDate().minusDays(1);
+        LocalDateTime oldest = clickEventStore.oldestTimestamp();
+        if (oldest != null) {
+            LocalDate day = oldest.toLocalDate();
+            if (through != null && !clickArchive.isEnabled() && !day.isAfter(through)) {
+                day = through.plusDays(1);
+            }
+            for (; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                boolean rollUp = through == null || day.isAfter(through);
+                boolean archive = clickArchive.isEnabled() && !clickArchive.has(day);
+                if (rollUp || archive) {
+                    compact(day, rollUp, archive);
+                }
+                if (rollUp) {
+                    mongoTemplate.save(new Document("_id", PROGRESS_ID).append("through", day.toString())
+                            .append("updatedAt", LocalDateTime.now()), MIGRATIONS);
+                    through = day;
+                    rolledUpThrough = day;
+                }
+                if ((rollUp || archive) && !lock()) {
+                    log.warn("Click retention lost its lock after compacting {}, stopping", day);
+                    return;
+                }
+            }
+        }
+        clickEventStore.expireRawEvents(rawEventDays > 0 ? Duration.ofDays(rawEventDays + 1L) : null);
+    }
+
+    private void compact(LocalDate day, boolean rollUp, boolean archive) throws IOException {
+        long start = System.nanoTime();
+        DayRollups rollups = new DayRollups(day);
+        long archived = 0;
+        try (Stream<Analytics> events = clickEventStore.events(null, day.atStartOfDay(),
+                day.plusDays(1).atStartOfDay())) {
+            Stream<Analytics> pass = rollUp ? events.peek(rollups::add) : events;
+            if (archive) {
+                archived = clickArchive.write(day, pass);
+            } else {
+                pass.forEach(event -> { });
+            }
+        }
+        if (rollUp) {
+            rollups.finish();
+        }
+        log.info("Compacted click events of {}: {} link rollups, {} events archived in {} ms", day,
+                rollups.written, archived, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Take or renew the lease; an expired lease is taken over, a live one held
+     * by another node fails the upsert on its _id
+     */
+    private boolean lock() {
+        LocalDateTime now = LocalDateTime.now();
+        Query free = Query.query(Criteria.where("_id").is(LOCK_ID).orOperator(
+                Criteria.where("leasedUntil").lt(now), Criteria.where("owner").is(lockOwner)));
+        try {
+            mongoTemplate.upsert(free, new Update().set("owner", lockOwner)
+                    .set("leasedUntil", now.plus(Duration.ofMillis(lockLeaseMs))), MIGRATIONS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void unlock() {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(LOCK_ID).and("owner").is(lockOwner)), MIGRATIONS);
+    }
+
+    /**
+     * Whether some of a day's raw events may already have expired, so only
+     * its archive has all of them
+     */
+    public boolean rawEventsExpiring(LocalDate day) {
+        return enabled && rawEventDays > 0
+                && day.atStartOfDay().plusDays(rawEventDays + 1L).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * Breakdowns read raw events from this time on, and rollups before it
+     */
+    public LocalDateTime rawEventsSince() {
+        if (!progressLoaded) {
+            loadProgress();
+        }
+        LocalDate through = rolledUpThrough;
+        return through != null ? through.plusDays(1).atStartOfDay() : LocalDate.EPOCH.atStartOfDay();
+    }
+
+    private LocalDate loadProgress() {
+        Document progress = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(PROGRESS_ID)),
+                Document.class, MIGRATIONS);
+        LocalDate through = progress != null ? LocalDate.parse(progress.getString("through")) : null;
+        rolledUpThrough = through;
+        progressLoaded = true;
+        return through;
+    }
+
+    /**
+     * Per-link rollups of one day, built from its events in short code order
+     * and written in batches
+     */
+    private final class DayRollups {
+
+        private record ClientKey(Integer device, Integer browser, Integer os) {
+        }
+
+        private record LocationKey(String country, String region) {
+        }
+
+        private final LocalDate day;
+        private final List<ClickRollup> pending = new ArrayList<>();
+        private final Map<ClientKey, Long> clients = new HashMap<>();
+        private final Map<LocationKey, Long> locations = new HashMap<>();
+        private String shortCode;
+        private long clicks;
+        private long written;
+
+        DayRollups(LocalDate day) {
+            this.day = day;
+        }
+
+        void add(Analytics event) {
+            if (!event.getShortCode().equals(shortCode)) {
+                close();
+                shortCode = event.getShortCode();
+            }
+            long weight = event.getSampleRate() != null ? Math.round(1 / event.getSampleRate()) : 1;
+            clicks += weight;
+            clients.merge(new ClientKey(event.getDevice(), event.getBrowser(), event.getOs()), weight, Long::sum);
+            locations.merge(new LocationKey(event.getCountry(), event.getRegion()), weight, Long::sum);
+        }
+
+        void finish() {
+            close();
+            write();
+        }
+
+        private void close() {
+            if (shortCode == null) {
+                return;
+            }
+            pending.add(new ClickRollup(ClickRollup.id(shortCode, day), shortCode, day, clicks,
+                    clients.entrySet().stream()
+                            .map(e -> new ClickRollup.Client(e.getKey().device(), e.getKey().browser(),
+                                    e.getKey().os(), e.getValue()))
+                            .toList(),
+                    locations.entrySet().stream()
+                            .map(e -> new ClickRollup.Location(e.getKey().country(), e.getKey().region(),
+                                    e.getValue()))
+                            .toList()));
+            shortCode = null;
+            clicks = 0;
+            clients.clear();
+            locations.clear();
+            if (pending.size() >= batchSize) {
+                write();
+            }
+        }
+
+        private void write() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class);
+            for (ClickRollup rollup : pending) {
+                bulk.replaceOne(Query.query(Criteria.where("_id").is(rollup.getId())), rollup,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            bulk.execute();
+            written += pending.size();
+            pending.clear();
+        }
+    }
+}
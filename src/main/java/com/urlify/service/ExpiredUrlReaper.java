@@ -0,0 +1,117 @@
+package com.urlify.service;
+
+import com.urlify.cache.UrlCache;
+import com.urlify.entity.ReapedShortCode;
+import com.urlify.entity.Url;
+import com.urlify.repository.RedirectRepository;
+import com.urlify.repository.UrlRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Deletes links that expired more than grace-days ago, with their redirects
+ * and cache entries.
+ *
+ * Expired links are read through one cursor on the expiresAt index and
+ * deleted in batches, redirect first like UrlService.deleteUrl. Their
+ * analytics stay behind, so each code is tombstoned (ReapedShortCode)
+ * before its link is deleted and is never reissued. The default
+ * grace matches the redirects TTL, so an expired link is answered as
+ * expired for a week and then disappears everywhere at about the same time.
+ * Off by default (app.expired-urls.reap), since deleting links cannot be
+ * undone. Every node runs it; deletes are idempotent.
+ */
+@Component
+public class ExpiredUrlReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredUrlReaper.class);
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private RedirectRepository redirectRepository;
+
+    @Autowired
+    private UrlCache urlCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.expired-urls.reap:false}")
+    private boolean enabled;
+
+    @Value("${app.expired-urls.grace-days:7}")
+    private int graceDays;
+
+    @Value("${app.expired-urls.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.expired-urls.interval-ms:3600000}",
+            initialDelayString = "${app.expired-urls.interval-ms:3600000}")
+    public void reapExpired() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long reaped = reap(LocalDateTime.now().minusDays(graceDays));
+            if (reaped > 0) {
+                log.info("Reaped {} expired links in {} ms", reaped, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Expired link reaping failed, retrying next interval: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete links that expired before the given time. Returns how many.
+     */
+    public long reap(LocalDateTime expiredBefore) {
+        long reaped = 0;
+        List<Url> batch = new ArrayList<>(batchSize);
+        try (Stream<Url> expired = urlRepository.streamExpiredUrls(expiredBefore)) {
+            for (Iterator<Url> it = expired.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == batchSize) {
+                    reaped += delete(batch);
+                }
+            }
+        }
+        return reaped + delete(batch);
+    }
+
+    private int delete(List<Url> batch) {
+        int deleted = batch.size();
+        if (deleted > 0) {
+            List<String> shortCodes = batch.stream().map(Url::getShortCode).toList();
+            BulkOperations tombstones = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                    ReapedShortCode.class);
+            LocalDateTime now = LocalDateTime.now();
+            shortCodes.forEach(shortCode -> tombstones.upsert(Query.query(Criteria.where("_id").is(shortCode)),
+                    new Update().setOnInsert("reapedAt", now)));
+            tombstones.execute();
+            redirectRepository.deleteAllById(shortCodes);
+            urlRepository.deleteAllById(batch.stream().map(Url::getId).toList());
+            shortCodes.forEach(urlCache::evict);
+            batch.clear();
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,165 @@
+package com.urlify.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.urlify.entity.Redirect;
+import com.urlify.entity.Url;
+import com.urlify.repository.RedirectRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Copies links that predate the redirects read model into it, once.
+ *
+ * Runs in the background after startup until one pass completes, which is
+ * recorded in the migrations collection. Links written later by nodes that
+ * do not maintain the read model are queued by RedirectService when a miss
+ * finds them in urls, and copied in batches every copy interval, off the
+ * request thread. Upserts only insert missing redirects, so entries
+ * written by UrlService are never overwritten. A link deleted while its
+ * batch was being copied is removed again afterwards.
+ */
+@Component
+public class RedirectBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(RedirectBackfill.class);
+
+    private static final String MIGRATIONS = "migrations";
+    private static final String MIGRATION_ID = "redirects-backfill";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RedirectRepository redirectRepository;
+
+    @Value("${redirect.read-model.backfill:true}")
+    private boolean enabled;
+
+    @Value("${redirect.read-model.backfill-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${redirect.read-model.max-pending-copies:10000}")
+    private int maxPendingCopies;
+
+    // Links found through the urls fallback, by short code
+    private final Map<String, Url> pending = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        if (enabled) {
+            Thread.ofVirtual().name("redirect-backfill").start(() -> {
+                try {
+                    backfill();
+                } catch (DataAccessException e) {
+                    log.warn("Redirect backfill failed, will retry on next startup: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Copy every link missing from the read model. Returns the number of
+     * redirects created, or 0 if the backfill already ran.
+     */
+    public long backfill() {
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(MIGRATION_ID)), MIGRATIONS)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long created = 0;
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include("shortCode", "originalUrl", "expiresAt");
+        try (Stream<Url> urls = mongoTemplate.stream(query, Url.class)) {
+            List<Url> batch = new ArrayList<>(batchSize);
+            for (var it = urls.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == batchSize || !it.hasNext()) {
+                    created += copy(batch);
+                    batch.clear();
+                }
+            }
+        }
+
+        mongoTemplate.save(new Document("_id", MIGRATION_ID)
+                .append("completedAt", LocalDateTime.now())
+                .append("created", created), MIGRATIONS);
+        log.info("Redirect backfill created {} redirects in {} ms", created, (System.nanoTime() - start) / 1_000_000);
+        return created;
+    }
+
+    /**
+     * Queue a link found in urls for the next copyPending. Ignored when the
+     * queue is full; the link's next miss queues it again.
+     */
+    public void enqueue(Url url) {
+        if (pending.size() < maxPendingCopies) {
+            pending.putIfAbsent(url.getShortCode(), url);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${redirect.read-model.copy-interval-ms:1000}")
+    public void copyPending() {
+        while (!pending.isEmpty()) {
+            List<Url> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (Iterator<Url> it = pending.values().iterator(); it.hasNext() && batch.size() < batchSize; ) {
+                batch.add(it.next());
+                it.remove();
+            }
+            try {
+                copy(batch);
+            } catch (DataAccessException e) {
+                log.warn("Could not copy {} links into the redirect read model: {}", batch.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Insert the redirects of links that have none, then remove those whose
+     * link was deleted in the meantime. Returns the number inserted.
+     */
+    int copy(List<Url> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Redirect.class);
+        List<String> shortCodes = new ArrayList<>(batch.size());
+        for (Url url : batch) {
+            shortCodes.add(url.getShortCode());
+            bulk.upsert(Query.query(Criteria.where("_id").is(url.getShortCode())),
+                    new Update().setOnInsert("originalUrl", url.getOriginalUrl())
+                            .setOnInsert("expiresAt", url.getExpiresAt()));
+        }
+        BulkWriteResult result = bulk.execute();
+
+        // UrlService removes the redirect before the Url; one copied in between would outlive its link
+        Query live = Query.query(Criteria.where("shortCode").in(shortCodes));
+        live.fields().include("shortCode");
+        Set<String> gone = new HashSet<>(shortCodes);
+        mongoTemplate.find(live, Url.class).forEach(url -> gone.remove(url.getShortCode()));
+        if (!gone.isEmpty()) {
+            redirectRepository.deleteAllById(gone);
+        }
+        return result.getUpserts().size();
+    }
+}
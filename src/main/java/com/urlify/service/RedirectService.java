@@ -1,79 +1,170 @@
 package com.urlify.service;
 
+import com.urlify.analytics.UniqueVisitorCounter;
+import com.urlify.analytics.UserAgentClassifier;
+import com.urlify.analytics.UserAgentInfo;
+import com.urlify.cache.UrlCache;
+import com.urlify.entity.Redirect;
 import com.urlify.entity.Url;
 import com.urlify.exception.ResourceNotFoundException;
+import com.urlify.repository.RedirectRepository;
 import com.urlify.repository.UrlRepository;
+import com.urlify.util.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Redirect Service with cache-first strategy
+ * Redirect Service with cache-first strategy.
+ *
+ * Cache misses read the redirects read model by primary key. Links created
+ * before it existed (or by nodes that do not write it yet) are found in the
+ * urls collection while redirect.read-model.fallback-to-urls is on, and
+ * queued for RedirectBackfill to copy into the read model in the background,
+ * so later misses are point reads.
  */
 @Service
 public class RedirectService {
 
+    @Autowired
+    private RedirectRepository redirectRepository;
+
     @Autowired
     private UrlRepository urlRepository;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedirectBackfill redirectBackfill;
+
+    @Autowired
+    private UrlCache urlCache;
 
     @Autowired
     private AnalyticsService analyticsService;
 
-    private static final String CACHE_PREFIX = "url:";
-    private static final long CACHE_TTL = 1; // 1 hour
+    @Autowired
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+
+    @Autowired
+    @Qualifier("mongoLimiter")
+    private ConcurrencyLimiter mongoLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${redirect.read-model.fallback-to-urls:true}")
+    private boolean fallbackToUrls;
+
+    // One timer per outcome, registered up front so the hot path only records
+    private Timer cacheHitTimer;
+    private Timer mongoHitTimer;
+    private Timer notFoundTimer;
+    private Timer expiredTimer;
+    private Counter urlsFallbackHits;
+
+    @PostConstruct
+    public void initMetrics() {
+        cacheHitTimer = redirectTimer("cache");
+        mongoHitTimer = redirectTimer("mongo");
+        notFoundTimer = redirectTimer("not_found");
+        expiredTimer = redirectTimer("expired");
+        urlsFallbackHits = Counter.builder("redirect.read_model.fallback")
+                .description("Cache misses resolved from urls because the redirect read model had no entry")
+                .register(meterRegistry);
+    }
 
     /**
      * Get original URL from short code with cache-first strategy
      */
     public String getOriginalUrl(String shortCode, HttpServletRequest request) {
+        long start = System.nanoTime();
+
         // Extract request data now (before async handoff — request won't be available
         // later)
         String ipAddress = getClientIp(request);
         String userAgent = request.getHeader("User-Agent");
         String referer = request.getHeader("Referer");
 
-        // Try cache first (O(1))
-        String cacheKey = CACHE_PREFIX + shortCode;
-        String originalUrl = null;
-
-        try {
-            originalUrl = (String) redisTemplate.opsForValue().get(cacheKey);
-        } catch (Exception e) {
-            System.err.println("Redis error (falling back to DB): " + e.getMessage());
-        }
+        // Try cache first (O(1)); skips Redis while its circuit breaker is open
+        String originalUrl = urlCache.get(shortCode);
 
         if (originalUrl != null) {
             // Cache hit - track analytics asynchronously and return immediately
+            recordVisitor(shortCode, ipAddress, userAgent);
             analyticsService.trackClick(shortCode, ipAddress, userAgent, referer);
+            cacheHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             return originalUrl;
         }
 
-        // Cache miss - query database (O(log n) with index)
-        Url url = urlRepository.findByShortCode(shortCode)
-                .orElseThrow(() -> new ResourceNotFoundException("Short URL not found"));
+        // Cache miss - primary-key read of the redirect read model
+        Optional<Redirect> found = mongoLimiter.call(() -> findRedirect(shortCode));
+        if (found.isEmpty()) {
+            notFoundTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new ResourceNotFoundException("Short URL not found");
+        }
+        Redirect redirect = found.get();
 
         // Check if expired
-        if (url.isExpired()) {
+        if (redirect.isExpired()) {
+            expiredTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             throw new ResourceNotFoundException("Short URL has expired");
         }
 
         // Warm cache for future requests
-        try {
-            redisTemplate.opsForValue().set(cacheKey, url.getOriginalUrl(), CACHE_TTL, TimeUnit.HOURS);
-        } catch (Exception e) {
-            System.err.println("Redis error (cache not updated): " + e.getMessage());
-        }
+        urlCache.put(shortCode, redirect.getOriginalUrl());
 
         // Track analytics asynchronously
+        recordVisitor(shortCode, ipAddress, userAgent);
         analyticsService.trackClick(shortCode, ipAddress, userAgent, referer);
+        mongoHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return redirect.getOriginalUrl();
+    }
+
+    /**
+     * Count the visitor unless its user agent is a bot; crawlers and link
+     * preview fetchers would otherwise inflate unique visitors
+     */
+    private void recordVisitor(String shortCode, String ipAddress, String userAgent) {
+        if (userAgentClassifier.parse(userAgent).device() != UserAgentInfo.Device.BOT) {
+            uniqueVisitorCounter.record(shortCode, ipAddress);
+        }
+    }
+
+    private Optional<Redirect> findRedirect(String shortCode) {
+        Optional<Redirect> redirect = redirectRepository.findById(shortCode);
+        if (redirect.isPresent() || !fallbackToUrls) {
+            return redirect;
+        }
+        Optional<Url> url = urlRepository.findRedirectFieldsByShortCode(shortCode);
+        if (url.isPresent()) {
+            urlsFallbackHits.increment();
+            // Copied in the background, insert-only and undone if the link was deleted meanwhile (see RedirectBackfill)
+            redirectBackfill.enqueue(url.get());
+        }
+        return url.map(Redirect::from);
+    }
 
-        return url.getOriginalUrl();
+    private Timer redirectTimer(String tier) {
+        return Timer.builder("redirect.latency")
+                .description("Short code resolution time by lookup outcome")
+                .tag("tier", tier)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(2))
+                .register(meterRegistry);
     }
 
     /**
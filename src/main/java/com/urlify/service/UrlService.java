@@ -1,16 +1,23 @@
 package com.urlify.service;
 
+import com.urlify.cache.UrlCache;
 import com.urlify.dto.ShortenUrlRequest;
 import com.urlify.dto.UrlResponse;
+import com.urlify.entity.Redirect;
 import com.urlify.entity.Url;
 import com.urlify.entity.User;
 import com.urlify.exception.ResourceNotFoundException;
+import com.urlify.repository.ReapedShortCodeRepository;
+import com.urlify.repository.RedirectRepository;
 import com.urlify.repository.UrlRepository;
 import com.urlify.repository.UserRepository;
 import com.urlify.util.Base62Encoder;
 import com.urlify.util.UrlValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,7 +25,11 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * URL Service for creating and managing short URLs
+ * URL Service for creating and managing short URLs.
+ *
+ * Keeps the redirects read model in step with the urls collection: a link
+ * is added to it once its Url is saved, and removed from it before its Url
+ * is deleted, so a redirect never outlives its link.
  */
 @Service
 public class UrlService {
@@ -26,15 +37,27 @@ public class UrlService {
     @Autowired
     private UrlRepository urlRepository;
 
+    @Autowired
+    private RedirectRepository redirectRepository;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReapedShortCodeRepository reapedShortCodeRepository;
+
     @Autowired
     private Base62Encoder base62Encoder;
 
     @Autowired
     private UrlValidator urlValidator;
 
+    @Autowired
+    private UrlCache urlCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
@@ -60,7 +83,7 @@ public class UrlService {
         // Handle custom alias or generate short code
         if (request.getCustomAlias() != null && !request.getCustomAlias().trim().isEmpty()) {
             String customAlias = request.getCustomAlias().trim();
-            if (urlRepository.existsByShortCode(customAlias)) {
+            if (isTaken(customAlias)) {
                 throw new IllegalArgumentException("Custom alias already in use");
             }
             url.setShortCode(customAlias);
@@ -74,8 +97,15 @@ public class UrlService {
             url.setExpiresAt(LocalDateTime.now().plusHours(request.getExpiryHours()));
         }
 
-        // Save URL
+        // Save URL; the unique shortCode index on urls decides who owns a code,
+        // so the redirect is only written once that succeeded
         Url savedUrl = urlRepository.save(url);
+        try {
+            redirectRepository.save(Redirect.from(savedUrl));
+        } catch (DataAccessException e) {
+            urlRepository.delete(savedUrl);
+            throw e;
+        }
 
         return mapToResponse(savedUrl);
     }
@@ -120,13 +150,24 @@ public class UrlService {
             throw new IllegalArgumentException("You don't have permission to delete this URL");
         }
 
+        redirectRepository.deleteById(shortCode);
         urlRepository.delete(url);
+        urlCache.evict(shortCode);
+    }
+
+    /**
+     * A code is taken while a link has it, and for good once the reaper has
+     * deleted its link (see ReapedShortCode)
+     */
+    private boolean isTaken(String shortCode) {
+        return urlRepository.existsByShortCode(shortCode) || reapedShortCodeRepository.existsById(shortCode);
     }
 
     /**
      * Generate unique short code using Base62
      */
     private String generateUniqueShortCode() {
+        Timer.Sample sample = Timer.start(meterRegistry);
         String shortCode;
         int attempts = 0;
         do {
@@ -144,10 +185,13 @@ public class UrlService {
 
             attempts++;
             if (attempts > 10) {
+                sample.stop(meterRegistry.timer("shortcode.allocation", "outcome", "exhausted"));
                 throw new RuntimeException("Failed to generate unique short code");
             }
-        } while (urlRepository.existsByShortCode(shortCode));
+        } while (isTaken(shortCode));
 
+        sample.stop(meterRegistry.timer("shortcode.allocation", "outcome", "allocated"));
+        meterRegistry.summary("shortcode.allocation.attempts").record(attempts);
         return shortCode;
     }
 
@@ -0,0 +1,505 @@
+package com.urlify.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local spool for click events that could not be written to MongoDB.
+ *
+ * Events are appended to memory-mapped segment files holding fixed-size
+ * records. Each record carries a CRC32 so a torn write at the tail is
+ * detected on restart. The segment header stores how many records have been
+ * acknowledged (replayed into MongoDB), and a segment is deleted once all of
+ * its records are acknowledged and a newer segment has taken over. A
+ * segment that cannot be opened at startup (a damaged header) is renamed
+ * with a .quarantined suffix and left for inspection, so it does not keep
+ * the node from starting.
+ *
+ * Fsync policies (analytics.spool.fsync):
+ * - ALWAYS: force every record to disk before append returns
+ * - INTERVAL: force dirty segments every fsync-interval-ms
+ * - NONE: leave flushing to the OS page cache
+ */
+@Component
+public class ClickEventSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickEventSpool.class);
+
+    public enum FsyncPolicy {
+        ALWAYS,
+        INTERVAL,
+        NONE
+    }
+
+    static final int RECORD_SIZE = 1536;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x55524C43; // "URLC"
+    private static final int VERSION = 1;
+    private static final int ACK_OFFSET = 16;
+    private static final String ID_FILE = "spool.id";
+    private static final String QUARANTINE_SUFFIX = ".quarantined";
+
+    private static final int MAX_SHORT_CODE_BYTES = 64;
+    private static final int MAX_IP_BYTES = 48;
+    private static final int MAX_USER_AGENT_BYTES = 512;
+    // crc + flags + timestamp + four length prefixes
+    private static final int FIXED_BYTES = 4 + 1 + 8 + 4 * 2;
+    private static final int MAX_REFERER_BYTES = RECORD_SIZE - FIXED_BYTES
+            - MAX_SHORT_CODE_BYTES - MAX_IP_BYTES - MAX_USER_AGENT_BYTES;
+
+    private static final byte FLAG_EVENT_STORED = 1;
+    // Bits 1-6 of the flags: k of the event's 1/2^k sampling rate, 0 in records written before sampling
+    private static final int SAMPLE_SHIFT_BIT = 1;
+    private static final int SAMPLE_SHIFT_MASK = 0x3F;
+
+    @Value("${analytics.spool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.spool.directory:data/click-spool}")
+    private String directory;
+
+    @Value("${analytics.spool.segment-records:16384}")
+    private int segmentRecords;
+
+    @Value("${analytics.spool.fsync:INTERVAL}")
+    private FsyncPolicy fsyncPolicy;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private Path spoolDir;
+    private String id;
+    private long pending;
+    private boolean dirty;
+
+    private Counter appended;
+    private Counter acknowledged;
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        appended = Counter.builder("analytics.spool.appended")
+                .description("Click events written to the local spool")
+                .register(meterRegistry);
+        acknowledged = Counter.builder("analytics.spool.acknowledged")
+                .description("Spooled click events replayed into MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("analytics.spool.pending", this, ClickEventSpool::pending)
+                .description("Spooled click events awaiting replay")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+
+        spoolDir = Paths.get(directory);
+        Files.createDirectories(spoolDir);
+        id = readOrCreateId(spoolDir.resolve(ID_FILE));
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(spoolDir)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment;
+            try {
+                segment = Segment.open(file, segmentNumber(file));
+            } catch (IOException | RuntimeException e) {
+                quarantine(file, e);
+                continue;
+            }
+            segment.recover(this);
+            segments.addLast(segment);
+            pending += segment.writeIndex - segment.ackIndex;
+        }
+        if (pending > 0) {
+            log.info("Recovered {} spooled click events from {}", pending, spoolDir.toAbsolutePath());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * Random id of this spool directory, which tells apart the spools of
+     * different nodes in replayed event ids and click counter positions
+     */
+    public String id() {
+        return id;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized boolean hasPending() {
+        return pending > 0;
+    }
+
+    public synchronized long pending() {
+        return pending;
+    }
+
+    /**
+     * Append a click to the spool
+     *
+     * @return false if the spool is disabled or could not be written
+     */
+    public synchronized boolean append(SpooledClick click) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            Segment segment = segments.peekLast();
+            if (segment == null || segment.writeIndex >= segment.capacity) {
+                segment = createSegment(segment == null ? 1 : segment.number + 1);
+            }
+
+            encode(click);
+            int position = segment.recordPosition(segment.writeIndex);
+            segment.buffer.put(position, scratch.array(), 0, RECORD_SIZE);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                segment.buffer.force(position, RECORD_SIZE);
+            } else {
+                dirty = true;
+            }
+            segment.writeIndex++;
+            pending++;
+            appended.increment();
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Could not spool click event for {}", click.shortCode(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Read up to maxRecords unacknowledged clicks from the oldest segment
+     */
+    public synchronized Batch readBatch(int maxRecords) {
+        Segment segment = oldestWithPending();
+        if (segment == null) {
+            return null;
+        }
+        int from = segment.ackIndex;
+        int to = Math.min(segment.writeIndex, from + maxRecords);
+        List<SpooledClick> clicks = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            segment.buffer.get(segment.recordPosition(i), scratch.array(), 0, RECORD_SIZE);
+            clicks.add(decode());
+        }
+        return new Batch(segment.number, from, to, clicks);
+    }
+
+    /**
+     * Mark a batch as durably stored in MongoDB
+     */
+    public synchronized void acknowledge(Batch batch) {
+        for (Segment segment : segments) {
+            if (segment.number != batch.segment()) {
+                continue;
+            }
+            if (batch.to() > segment.ackIndex) {
+                pending -= batch.to() - Math.max(batch.from(), segment.ackIndex);
+                acknowledged.increment(batch.to() - Math.max(batch.from(), segment.ackIndex));
+                segment.ackIndex = batch.to();
+                segment.buffer.putInt(ACK_OFFSET, segment.ackIndex);
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    segment.buffer.force(0, HEADER_SIZE);
+                } else {
+                    dirty = true;
+                }
+            }
+            break;
+        }
+        deleteAcknowledgedSegments();
+    }
+
+    /**
+     * Force every segment's acknowledged position to disk, whatever the
+     * fsync policy, so acknowledged batches cannot be replayed again
+     */
+    public synchronized void syncAcknowledgements() {
+        for (Segment segment : segments) {
+            segment.buffer.force(0, HEADER_SIZE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.spool.fsync-interval-ms:200}")
+    public synchronized void flush() {
+        if (!dirty || fsyncPolicy != FsyncPolicy.INTERVAL) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        dirty = false;
+    }
+
+    private Segment oldestWithPending() {
+        deleteAcknowledgedSegments();
+        for (Segment segment : segments) {
+            if (segment.ackIndex < segment.writeIndex) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop fully acknowledged segments that are no longer being written to
+     * (every segment but the last)
+     */
+    private void deleteAcknowledgedSegments() {
+        while (segments.size() > 1) {
+            Segment oldest = segments.peekFirst();
+            if (oldest.ackIndex < oldest.writeIndex) {
+                return;
+            }
+            segments.removeFirst();
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                log.warn("Could not delete acknowledged spool segment {}", oldest.path, e);
+            }
+        }
+    }
+
+    /**
+     * Move an unreadable segment out of the way; its clicks are not replayed
+     */
+    private void quarantine(Path file, Exception cause) {
+        Path target = file.resolveSibling(file.getFileName() + QUARANTINE_SUFFIX);
+        log.error("Skipping unreadable click spool segment {}, moving it to {}", file, target.getFileName(), cause);
+        try {
+            Files.move(file, target);
+        } catch (IOException e) {
+            log.error("Could not quarantine click spool segment {}", file, e);
+        }
+    }
+
+    private Segment createSegment(long number) throws IOException {
+        Path file = spoolDir.resolve(String.format("clicks-%020d.seg", number));
+        Segment segment = Segment.create(file, number, segmentRecords);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void encode(SpooledClick click) {
+        scratch.clear();
+        scratch.position(4);
+        int sampleShift = -Math.getExponent(click.sampleRate());
+        scratch.put((byte) ((click.eventStored() ? FLAG_EVENT_STORED : 0) | sampleShift << SAMPLE_SHIFT_BIT));
+        scratch.putLong(click.timestampMillis());
+        putString(click.shortCode(), MAX_SHORT_CODE_BYTES);
+        putString(click.ipAddress(), MAX_IP_BYTES);
+        putString(click.userAgent(), MAX_USER_AGENT_BYTES);
+        putString(click.referer(), MAX_REFERER_BYTES);
+        while (scratch.hasRemaining()) {
+            scratch.put((byte) 0);
+        }
+        scratch.putInt(0, checksum());
+    }
+
+    private SpooledClick decode() {
+        scratch.clear();
+        scratch.position(4);
+        byte flags = scratch.get();
+        long timestamp = scratch.getLong();
+        String shortCode = getString();
+        String ipAddress = getString();
+        String userAgent = getString();
+        String referer = getString();
+        double sampleRate = Math.scalb(1.0, -(flags >>> SAMPLE_SHIFT_BIT & SAMPLE_SHIFT_MASK));
+        return new SpooledClick(shortCode, timestamp, ipAddress, userAgent, referer, sampleRate,
+                (flags & FLAG_EVENT_STORED) != 0);
+    }
+
+    /**
+     * A record is valid when its stored CRC matches; zero-filled (never written)
+     * or torn records fail the check.
+     */
+    private boolean isValidRecord() {
+        return scratch.getInt(0) == checksum();
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(scratch.array(), 4, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+
+    private void putString(String value, int maxBytes) {
+        if (value == null) {
+            scratch.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, maxBytes);
+        // Never cut a multi-byte UTF-8 sequence in half
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        scratch.putShort((short) length);
+        scratch.put(bytes, 0, length);
+    }
+
+    private String getString() {
+        short length = scratch.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(scratch.array(), scratch.position(), length, StandardCharsets.UTF_8);
+        scratch.position(scratch.position() + length);
+        return value;
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("clicks-".length(), name.length() - ".seg".length()));
+    }
+
+    private static String readOrCreateId(Path file) throws IOException {
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.US_ASCII).trim();
+        }
+        String created = UUID.randomUUID().toString().replace("-", "");
+        Files.writeString(file, created, StandardCharsets.US_ASCII);
+        return created;
+    }
+
+    /**
+     * A contiguous range of spooled clicks read for replay
+     */
+    public record Batch(long segment, int from, int to, List<SpooledClick> clicks) {
+
+        /**
+         * Position of the batch's i-th click in the spool; positions only
+         * grow, since segment numbers do
+         */
+        public long position(int i) {
+            return segment << 32 | (from + i);
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long number;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writeIndex;
+        private int ackIndex;
+
+        private Segment(Path path, long number, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        static Segment create(Path path, long number, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, capacity);
+            buffer.putInt(ACK_OFFSET, 0);
+            buffer.force(0, HEADER_SIZE);
+            return new Segment(path, number, channel, buffer, capacity);
+        }
+
+        static Segment open(Path path, long number) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long size = channel.size();
+                if (size < HEADER_SIZE) {
+                    throw new IOException("Truncated click spool segment header: " + path);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+                    throw new IOException("Not a click spool segment: " + path);
+                }
+                int capacity = buffer.getInt(12);
+                int ackIndex = buffer.getInt(ACK_OFFSET);
+                if (capacity <= 0 || HEADER_SIZE + (long) capacity * RECORD_SIZE > size
+                        || ackIndex < 0 || ackIndex > capacity) {
+                    throw new IOException("Corrupt click spool segment header: " + path);
+                }
+                Segment segment = new Segment(path, number, channel, buffer, capacity);
+                segment.ackIndex = ackIndex;
+                return segment;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Find the write position by scanning for the first invalid record
+         */
+        void recover(ClickEventSpool spool) {
+            writeIndex = ackIndex;
+            while (writeIndex < capacity) {
+                buffer.get(recordPosition(writeIndex), spool.scratch.array(), 0, RECORD_SIZE);
+                if (!spool.isValidRecord()) {
+                    break;
+                }
+                writeIndex++;
+            }
+        }
+
+        int recordPosition(int index) {
+            return HEADER_SIZE + index * RECORD_SIZE;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close spool segment {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.urlify.spool;
+
+import com.urlify.analytics.GeoIpEnricher;
+import com.urlify.analytics.UserAgentClassifier;
+import com.urlify.entity.Analytics;
+import com.urlify.repository.ClickEventStore;
+import com.urlify.repository.UrlRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the click spool into MongoDB in batches once it is reachable again.
+ *
+ * Each batch is written as one insert of analytics events plus one bulk
+ * click counter update, and only acknowledged in the spool after both
+ * succeed, so a crash or a lost acknowledgement replays it. Spooled events
+ * get a deterministic id (spool id, segment and record index), which keeps
+ * a replayed batch from storing its events twice: documents are
+ * overwritten, buckets take their first event's id, and a time-series
+ * insert leaves out the ids already stored (see ClickEventStore.saveAll).
+ * Each URL records how far into this spool its click counter has been
+ * advanced, in the same update as the increment (see SpooledClickCounters);
+ * those positions are removed again once the spool is fully replayed.
+ */
+@Component
+public class ClickSpoolReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickSpoolReplayer.class);
+
+    @Autowired
+    private ClickEventSpool clickSpool;
+
+    @Autowired
+    private ClickEventStore clickEventStore;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+
+    @Autowired
+    private GeoIpEnricher geoIpEnricher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.spool.replay-batch-size:500}")
+    private int batchSize;
+
+    // URLs holding a replayed position of this spool, cleared once it is fully replayed
+    private final Set<String> replayedShortCodes = new HashSet<>();
+
+    @Scheduled(fixedDelayString = "${analytics.spool.replay-interval-ms:5000}")
+    public void replay() {
+        if (!clickSpool.isEnabled() || !clickSpool.hasPending() && replayedShortCodes.isEmpty()) {
+            return;
+        }
+
+        long replayed = 0;
+        try {
+            ClickEventSpool.Batch batch;
+            while ((batch = clickSpool.readBatch(batchSize)) != null) {
+                write(batch);
+                clickSpool.acknowledge(batch);
+                batch.clicks().forEach(click -> replayedShortCodes.add(click.shortCode()));
+                recordLag(batch);
+                replayed += batch.clicks().size();
+            }
+            if (!replayedShortCodes.isEmpty()) {
+                // Acknowledgements first: without its position a URL would count a replayed batch again
+                clickSpool.syncAcknowledgements();
+                urlRepository.clearSpooledPositions(clickSpool.id(), List.copyOf(replayedShortCodes));
+                replayedShortCodes.clear();
+            }
+        } catch (DataAccessException e) {
+            log.warn("MongoDB still unavailable, {} click events remain spooled: {}",
+                    clickSpool.pending(), e.getMessage());
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} spooled click events into MongoDB", replayed);
+        }
+    }
+
+    /**
+     * Record how long each replayed click waited between the redirect and MongoDB
+     */
+    private void recordLag(ClickEventSpool.Batch batch) {
+        Timer lag = meterRegistry.timer("analytics.spool.replay.lag");
+        long now = System.currentTimeMillis();
+        for (SpooledClick click : batch.clicks()) {
+            lag.record(now - click.timestampMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void write(ClickEventSpool.Batch batch) {
+        List<Analytics> events = new ArrayList<>();
+        Map<String, List<Long>> clicks = new HashMap<>();
+
+        for (int i = 0; i < batch.clicks().size(); i++) {
+            SpooledClick click = batch.clicks().get(i);
+            clicks.computeIfAbsent(click.shortCode(), code -> new ArrayList<>()).add(batch.position(i));
+            if (click.eventStored()) {
+                continue;
+            }
+            Analytics analytics = new Analytics();
+            analytics.setId("spool-" + clickSpool.id() + "-" + batch.segment() + "-" + (batch.from() + i));
+            analytics.setShortCode(click.shortCode());
+            analytics.setTimestamp(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(click.timestampMillis()), ZoneId.systemDefault()));
+            analytics.setIpAddress(click.ipAddress());
+            userAgentClassifier.classify(analytics, click.userAgent());
+            geoIpEnricher.locate(analytics, click.ipAddress());
+            analytics.setReferer(click.referer());
+            analytics.setSampleRate(click.sampleRate());
+            events.add(analytics);
+        }
+
+        if (!events.isEmpty()) {
+            clickEventStore.saveAll(events);
+        }
+        urlRepository.incrementSpooledClicks(clickSpool.id(), clicks);
+    }
+}
@@ -0,0 +1,17 @@
+package com.urlify.spool;
+
+/**
+ * A click event held in the local spool until MongoDB accepts it.
+ * eventStored is set when the analytics document was already written and
+ * only the click counter increment is outstanding. sampleRate is the
+ * event's sampling rate (see AdaptiveSampler), a power of two up to 1.
+ */
+public record SpooledClick(
+        String shortCode,
+        long timestampMillis,
+        String ipAddress,
+        String userAgent,
+        String referer,
+        double sampleRate,
+        boolean eventStored) {
+}
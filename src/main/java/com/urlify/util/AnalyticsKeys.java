@@ -0,0 +1,105 @@
+package com.urlify.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Redis key layout for click analytics sketches, shared by servlet and
+ * reactive nodes.
+ *
+ * Unique visitors are HyperLogLogs per short code: one per UTC day,
+ * uvd:<yyyyMMdd>:{<code>}, and one over the link's lifetime, uv:{<code>}.
+ * The date comes first so custom aliases containing ':' cannot collide. The
+ * code is a Redis Cluster hash tag, so all of a link's sketches share a slot
+ * and can be used together in one script or PFCOUNT. Sketches of different
+ * links are merged through short-lived uvm: keys (see mergeUniqueVisitors).
+ *
+ * Heavy hitters are sorted sets fed by every node's top-k sketches: clicks
+ * per link per UTC minute, hh:links:<yyyyMMddHHmm>, and the top referers
+ * and user agents of each link, hhr:<code> and hhu:<code>.
+ *
+ * Live clicks are pub/sub channels, not keys: each watched link's clicks
+ * are published on live:<code>, and nodes announce the links they have
+ * live streams for on live-watch.
+ */
+public final class AnalyticsKeys {
+
+    public static final String UNIQUE_VISITORS_PREFIX = "uv:";
+    public static final String DAILY_UNIQUE_VISITORS_PREFIX = "uvd:";
+    public static final String MERGE_UNIQUE_VISITORS_PREFIX = "uvm:";
+    public static final String HOT_LINKS_PREFIX = "hh:links:";
+    public static final String TOP_REFERERS_PREFIX = "hhr:";
+    public static final String TOP_USER_AGENTS_PREFIX = "hhu:";
+    public static final String LIVE_CLICKS_PREFIX = "live:";
+    public static final String LIVE_WATCH_CHANNEL = "live-watch";
+    public static final String UNIQUE_VISITOR_ADD_SCRIPT = "scripts/unique-visitor-add.lua";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter MINUTE = DateTimeFormatter.ofPattern("yyyyMMddHHmm").withZone(ZoneOffset.UTC);
+
+    private AnalyticsKeys() {
+    }
+
+    /**
+     * All-time unique-visitor sketch of a short code
+     */
+    public static String uniqueVisitors(String shortCode) {
+        return UNIQUE_VISITORS_PREFIX + hashTag(shortCode);
+    }
+
+    /**
+     * Unique-visitor sketch of a short code for one UTC day
+     */
+    public static String dailyUniqueVisitors(String shortCode, LocalDate day) {
+        return DAILY_UNIQUE_VISITORS_PREFIX + DAY.format(day) + ":" + hashTag(shortCode);
+    }
+
+    /**
+     * Temporary sketch of one merge, in the slot of the short code's sketches
+     */
+    public static String linkMergeUniqueVisitors(String mergeId, String shortCode) {
+        return MERGE_UNIQUE_VISITORS_PREFIX + mergeId + ":" + hashTag(shortCode);
+    }
+
+    /**
+     * Temporary sketches of one merge that must share a slot, numbered from 0
+     */
+    public static String mergeUniqueVisitors(String mergeId, int index) {
+        return MERGE_UNIQUE_VISITORS_PREFIX + hashTag(mergeId) + ":" + index;
+    }
+
+    /**
+     * Clicks per short code during one UTC minute
+     */
+    public static String hotLinks(long epochMillis) {
+        return HOT_LINKS_PREFIX + MINUTE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    public static String topReferers(String shortCode) {
+        return TOP_REFERERS_PREFIX + shortCode;
+    }
+
+    public static String topUserAgents(String shortCode) {
+        return TOP_USER_AGENTS_PREFIX + shortCode;
+    }
+
+    /**
+     * Channel the live clicks of a short code are published on
+     */
+    public static String liveClicks(String shortCode) {
+        return LIVE_CLICKS_PREFIX + shortCode;
+    }
+
+    private static String hashTag(String value) {
+        return "{" + value + "}";
+    }
+
+    /**
+     * UTC day a click belongs to
+     */
+    public static LocalDate day(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,55 @@
+package com.urlify.util;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Redis cache key layout shared by every redirect implementation, so servlet
+ * and reactive redirect nodes can run side by side against one Redis.
+ *
+ * Two layouts are supported (cache.redis.layout, must match on every node):
+ * - string: one key per short code, url:<code>, with its own TTL
+ * - hash: short codes sharded into small hashes, urlh:<bucket>, so each
+ * bucket stays in the compact listpack encoding and the per-key overhead is
+ * shared by all codes in the bucket. Entries expire with their bucket, whose
+ * TTL is set when it is created (BUCKET_PUT_SCRIPT).
+ */
+public final class CacheKeys {
+
+    public static final String URL_PREFIX = "url:";
+    public static final Duration URL_TTL = Duration.ofHours(1);
+    public static final String BUCKET_PREFIX = "urlh:";
+    public static final String BUCKET_PUT_SCRIPT = "scripts/url-bucket-put.lua";
+
+    /** Set once the cache has been pre-warmed; its absence means Redis lost its data */
+    public static final String WARM_MARKER = "cache:warm:done";
+    /** Held by the node currently pre-warming the cache */
+    public static final String WARM_LOCK = "cache:warm:lock";
+
+    private CacheKeys() {
+    }
+
+    /**
+     * Cache key holding the original URL for a short code
+     */
+    public static String url(String shortCode) {
+        return URL_PREFIX + shortCode;
+    }
+
+    /**
+     * Hash bucket holding a short code in the hash layout. String.hashCode is
+     * specified, so every node and both redirect modes agree on the bucket.
+     */
+    public static String bucket(String shortCode, int bucketCount) {
+        return BUCKET_PREFIX + Integer.toString(Math.floorMod(shortCode.hashCode(), bucketCount), 36);
+    }
+
+    /**
+     * Lifetime of a new bucket. Up to 10% jitter keeps buckets created
+     * together (for example by cache warming) from expiring together.
+     */
+    public static long bucketTtlSeconds() {
+        long ttl = URL_TTL.toSeconds();
+        return ttl - ThreadLocalRandom.current().nextLong(ttl / 10 + 1);
+    }
+}
@@ -0,0 +1,243 @@
+package com.urlify.util;
+
+import com.urlify.analytics.GeoLocation;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts click events between Analytics and the compact ClickBucket form.
+ * Shared by the servlet and reactive stacks, which run the writes it builds
+ * through their own MongoTemplate.
+ */
+public final class ClickBucketCodec {
+
+    /**
+     * Bucket upserts for a batch of events, and the dictionary entries they
+     * refer to, which must be written first
+     */
+    public record Writes(List<Pair<Query, Update>> buckets, Map<Long, String> userAgents,
+            Map<Long, String> referers) {
+    }
+
+    private record Key(String shortCode, long start) {
+    }
+
+    private ClickBucketCodec() {
+    }
+
+    /**
+     * Group events into per-link hourly buckets of at most maxEvents.
+     *
+     * Events without an id are appended to the link's open bucket for the
+     * hour, or start a new one when it is full. Events with ids (replayed
+     * from the spool, or migrated) are written as new buckets that take the
+     * id of their first event with $setOnInsert, so writing the same batch
+     * again changes nothing.
+     */
+    public static Writes writes(List<Analytics> events, int maxEvents) {
+        Map<Key, List<Analytics>> groups = new LinkedHashMap<>();
+        for (Analytics event : events) {
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(LocalDateTime.now());
+            }
+            long start = bucketStart(epochMillis(event.getTimestamp()));
+            groups.computeIfAbsent(new Key(event.getShortCode(), start), key -> new ArrayList<>()).add(event);
+        }
+
+        Map<Long, String> userAgents = new HashMap<>();
+        Map<Long, String> referers = new HashMap<>();
+        List<Pair<Query, Update>> buckets = new ArrayList<>();
+        groups.forEach((key, group) -> {
+            for (int from = 0; from < group.size(); from += maxEvents) {
+                List<Analytics> chunk = group.subList(from, Math.min(group.size(), from + maxEvents));
+                List<ClickBucket.Event> encoded = new ArrayList<>(chunk.size());
+                for (Analytics event : chunk) {
+                    encoded.add(encode(event, key.start(), userAgents, referers));
+                }
+                String id = chunk.get(0).getId();
+                if (id != null) {
+                    buckets.add(Pair.of(Query.query(Criteria.where("_id").is(id)), new Update()
+                            .setOnInsert("shortCode", key.shortCode())
+                            .setOnInsert("start", key.start())
+                            .setOnInsert("count", encoded.size())
+                            .setOnInsert("events", encoded)));
+                } else {
+                    // Equality fields are copied into an upserted bucket
+                    buckets.add(Pair.of(Query.query(Criteria.where("shortCode").is(key.shortCode())
+                                    .and("start").is(key.start())
+                                    .and("count").lte(maxEvents - encoded.size())),
+                            new Update().push("events").each(encoded.toArray()).inc("count", encoded.size())));
+                }
+            }
+        });
+        return new Writes(buckets, userAgents, referers);
+    }
+
+    private static ClickBucket.Event encode(Analytics analytics, long start, Map<Long, String> userAgents,
+            Map<Long, String> referers) {
+        ClickBucket.Event event = new ClickBucket.Event();
+        event.setOffset((int) (epochMillis(analytics.getTimestamp()) - start));
+        event.setIp(encodeIp(analytics.getIpAddress()));
+        if (event.getIp() == null) {
+            event.setRawIp(analytics.getIpAddress());
+        }
+        if (analytics.getUserAgent() != null) {
+            event.setUserAgent(dictionaryId(analytics.getUserAgent()));
+            userAgents.put(event.getUserAgent(), analytics.getUserAgent());
+        }
+        if (analytics.getReferer() != null) {
+            event.setReferer(dictionaryId(analytics.getReferer()));
+            referers.put(event.getReferer(), analytics.getReferer());
+        }
+        event.setDevice(analytics.getDevice());
+        event.setBrowser(analytics.getBrowser());
+        event.setOs(analytics.getOs());
+        event.setLocation(analytics.getRegion() != null ? analytics.getRegion() : analytics.getCountry());
+        Double sampleRate = analytics.getSampleRate();
+        if (sampleRate != null && sampleRate < 1) {
+            event.setWeight((int) Math.round(1 / sampleRate));
+        }
+        return event;
+    }
+
+    /**
+     * Expand a stored event, resolving dictionary ids through the given
+     * values; ids missing from them decode as null
+     */
+    public static Analytics decode(ClickBucket bucket, ClickBucket.Event event, Map<Long, String> userAgents,
+            Map<Long, String> referers) {
+        Analytics analytics = new Analytics();
+        analytics.setShortCode(bucket.getShortCode());
+        analytics.setTimestamp(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(bucket.getStart() + event.getOffset()), ZoneId.systemDefault()));
+        analytics.setIpAddress(event.getIp() != null ? decodeIp(event.getIp()) : event.getRawIp());
+        analytics.setUserAgent(event.getUserAgent() != null ? userAgents.get(event.getUserAgent()) : null);
+        analytics.setReferer(event.getReferer() != null ? referers.get(event.getReferer()) : null);
+        analytics.setDevice(event.getDevice());
+        analytics.setBrowser(event.getBrowser());
+        analytics.setOs(event.getOs());
+        analytics.setLocation(location(event.getLocation()));
+        analytics.setSampleRate(event.getWeight() != null ? 1.0 / event.getWeight() : 1.0);
+        return analytics;
+    }
+
+    /**
+     * Country and region of a stored location code, or null
+     */
+    public static GeoLocation location(String code) {
+        if (code == null) {
+            return null;
+        }
+        // Regions are "CC-SUB", so the country is always the first two characters
+        return new GeoLocation(code.substring(0, 2), code.length() > 2 ? code : null);
+    }
+
+    public static long bucketStart(long epochMillis) {
+        return epochMillis - Math.floorMod(epochMillis, ClickBucket.SPAN_MILLIS);
+    }
+
+    public static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Dictionary id of a user agent or referer: 64-bit FNV-1a of its
+     * characters with a final avalanche, so collisions are negligible at
+     * any realistic dictionary size
+     */
+    public static long dictionaryId(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Binary form of an IPv4 or IPv6 literal, or null if the address is not
+     * one or would not read back as the same string
+     */
+    static byte[] encodeIp(String ipAddress) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return null;
+        }
+        byte[] address = ipAddress.indexOf(':') >= 0 ? parseIpv6(ipAddress) : parseIpv4(ipAddress);
+        return address != null && ipAddress.equals(decodeIp(address)) ? address : null;
+    }
+
+    private static byte[] parseIpv4(String ipAddress) {
+        byte[] address = new byte[4];
+        int octet = -1;
+        int index = 0;
+        for (int i = 0; i <= ipAddress.length(); i++) {
+            char c = i < ipAddress.length() ? ipAddress.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return null;
+                }
+            } else if (c == '.' && octet >= 0 && index < 4) {
+                address[index++] = (byte) octet;
+                octet = -1;
+            } else {
+                return null;
+            }
+        }
+        return index == 4 ? address : null;
+    }
+
+    /**
+     * Only the uncompressed eight-group form, which is what decodeIp (and
+     * the servlet container) produce; other spellings are kept as strings
+     */
+    private static byte[] parseIpv6(String ipAddress) {
+        byte[] address = new byte[16];
+        int group = 0;
+        int digits = 0;
+        int value = 0;
+        for (int i = 0; i <= ipAddress.length(); i++) {
+            char c = i < ipAddress.length() ? ipAddress.charAt(i) : ':';
+            int digit = Character.digit(c, 16);
+            if (digit >= 0 && digits < 4) {
+                value = value << 4 | digit;
+                digits++;
+            } else if (c == ':' && digits > 0 && group < 8) {
+                address[group * 2] = (byte) (value >>> 8);
+                address[group * 2 + 1] = (byte) value;
+                group++;
+                digits = 0;
+                value = 0;
+            } else {
+                return null;
+            }
+        }
+        return group == 8 ? address : null;
+    }
+
+    static String decodeIp(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.urlify.util;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cache of one string dictionary (user agents or referers) used
+ * by compact click storage. Entries live in a small collection of
+ * { _id: id, v: value } documents.
+ *
+ * An id is a 64-bit hash of the value (ClickBucketCodec.dictionaryId), so
+ * writers on any node agree on it without a lookup or a counter; entries
+ * are upserted with $setOnInsert the first time a node sees a value, and
+ * the bounded LRU remembers which ones it already wrote. Reads fill the same
+ * cache from the collection on a miss. Thread-safe.
+ */
+public class ClickDictionary {
+
+    public static final String USER_AGENTS = "user_agents";
+    public static final String REFERERS = "referers";
+
+    private final String collection;
+    private final Map<Long, String> cache;
+
+    public ClickDictionary(String collection, int cacheSize) {
+        this.collection = collection;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public String collection() {
+        return collection;
+    }
+
+    /**
+     * Entries not written by this node yet; they are cached as written, so
+     * call forget() if writing them fails
+     */
+    public synchronized Map<Long, String> unwritten(Map<Long, String> entries) {
+        Map<Long, String> unwritten = new HashMap<>();
+        entries.forEach((id, value) -> {
+            if (cache.putIfAbsent(id, value) == null) {
+                unwritten.put(id, value);
+            }
+        });
+        return unwritten;
+    }
+
+    public synchronized void forget(Collection<Long> ids) {
+        cache.keySet().removeAll(ids);
+    }
+
+    /**
+     * Cached values of ids; ids not cached are added to missing
+     */
+    public synchronized Map<Long, String> cached(Collection<Long> ids, List<Long> missing) {
+        Map<Long, String> values = new HashMap<>();
+        for (Long id : ids) {
+            String value = cache.get(id);
+            if (value != null) {
+                values.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+        return values;
+    }
+
+    public synchronized void putAll(Map<Long, String> values) {
+        cache.putAll(values);
+    }
+
+    /**
+     * Insert-if-absent writes for entries
+     */
+    public static List<Pair<Query, Update>> upserts(Map<Long, String> entries) {
+        List<Pair<Query, Update>> upserts = new ArrayList<>(entries.size());
+        entries.forEach((id, value) -> upserts.add(Pair.of(
+                Query.query(Criteria.where("_id").is(id)), new Update().setOnInsert("v", value))));
+        return upserts;
+    }
+}
@@ -0,0 +1,91 @@
+package com.urlify.util;
+
+import com.urlify.entity.Analytics;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The click_events time-series collection (analytics.storage.format=timeseries).
+ *
+ * Documents have the Analytics shape, with timestamp as the time field and
+ * shortCode as the meta field, so MongoDB packs each link's clicks into
+ * compressed internal buckets and can expire them by time (set by
+ * ClickRetention through ClickEventStore). The collection
+ * must be created with these options before the first insert, which would
+ * otherwise create a plain collection; the servlet and reactive stacks each
+ * do that on their first write.
+ */
+public final class ClickTimeSeries {
+
+    public static final String COLLECTION = "click_events";
+
+    private ClickTimeSeries() {
+    }
+
+    /**
+     * @param granularity seconds, minutes or hours: the typical gap between
+     *                    one link's clicks
+     */
+    public static CollectionOptions options(String granularity) {
+        return CollectionOptions.empty().timeSeries(CollectionOptions.TimeSeriesOptions.timeSeries("timestamp")
+                .metaField("shortCode")
+                .granularity(Granularity.valueOf(granularity.toUpperCase(Locale.ROOT))));
+    }
+
+    /**
+     * collMod command setting the expiry (null for none); CollectionOptions
+     * cannot carry it
+     */
+    public static Document expiry(Duration maxAge) {
+        return new Document("collMod", COLLECTION).append("expireAfterSeconds",
+                maxAge != null ? maxAge.toSeconds() : "off");
+    }
+
+    /**
+     * Ids of a batch's events that may already be stored, or null when none
+     * has an id. Events with ids come from spool replays and the analytics
+     * migration, which may write a batch again after an interrupted attempt;
+     * the collection has no unique _id index to reject the copies. The query
+     * is bounded by the batch's links and time range, which index() serves.
+     */
+    public static Query storedIds(List<Analytics> events) {
+        List<Analytics> withIds = events.stream().filter(event -> event.getId() != null).toList();
+        if (withIds.isEmpty()) {
+            return null;
+        }
+        List<LocalDateTime> timestamps = withIds.stream().map(Analytics::getTimestamp).toList();
+        Query query = Query.query(Criteria.where("shortCode").in(withIds.stream().map(Analytics::getShortCode).toList())
+                .and("timestamp").gte(Collections.min(timestamps)).lte(Collections.max(timestamps))
+                .and("_id").in(withIds.stream().map(Analytics::getId).toList()));
+        query.fields().include("_id");
+        return query;
+    }
+
+    /**
+     * The events of a batch whose ids were not found by storedIds
+     */
+    public static List<Analytics> unstored(List<Analytics> events, Set<String> storedIds) {
+        return storedIds.isEmpty() ? events
+                : events.stream().filter(event -> event.getId() == null || !storedIds.contains(event.getId())).toList();
+    }
+
+    /**
+     * Serves a link's newest clicks first and the per-link rollups
+     */
+    public static Index index() {
+        return new Index().on("shortCode", Sort.Direction.ASC).on("timestamp", Sort.Direction.DESC)
+                .named("shortCode_timestamp");
+    }
+}
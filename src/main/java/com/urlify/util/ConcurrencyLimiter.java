@@ -0,0 +1,82 @@
+package com.urlify.util;
+
+import com.urlify.exception.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Semaphore-based bulkhead that bounds the number of in-flight calls to a
+ * backing store. With virtual threads, request concurrency is no longer capped
+ * by the size of a worker pool, so Mongo and Redis access is bounded here
+ * instead. Callers that cannot get a permit within the acquire timeout fail
+ * fast with {@link ConcurrencyLimitExceededException}.
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final int maxInFlight;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+
+    public ConcurrencyLimiter(String name, int maxInFlight, long acquireTimeoutMs) {
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Run a call while holding a permit
+     *
+     * @param call The call to the backing store
+     * @return The call's result
+     */
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Run a call without a result while holding a permit
+     */
+    public void run(Runnable call) {
+        acquire();
+        try {
+            call.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException(name + " call interrupted while waiting for a permit");
+        }
+        if (!acquired) {
+            throw new ConcurrencyLimitExceededException(
+                    "Too many concurrent " + name + " calls (limit " + maxInFlight + ")");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
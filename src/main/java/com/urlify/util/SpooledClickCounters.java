@@ -0,0 +1,101 @@
+package com.urlify.util;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Click counter updates for replayed spool batches, shared by the servlet
+ * and reactive replayers.
+ *
+ * Each URL keeps, per spool, the position after the last spooled click its
+ * counter includes (spoolReplayed.<spool id>). It is advanced in the same
+ * single-document update as the counter and guarded by its previous value,
+ * so a batch that is replayed again after a crash or a lost acknowledgement
+ * only adds the clicks past it. Only the spool's own node replays it, so
+ * the positions read before the update cannot move in between.
+ *
+ * Once the spool is fully replayed and its acknowledgements are on disk, no
+ * batch can be replayed again, so the replayer removes the spool's
+ * positions from the URLs it touched (clearQueries); the field would
+ * otherwise gain an entry for every spool directory ever used.
+ */
+public final class SpooledClickCounters {
+
+    private static final String FIELD = "spoolReplayed";
+    // Short codes per clearing query
+    private static final int CLEAR_CHUNK = 1_000;
+
+    private SpooledClickCounters() {
+    }
+
+    /**
+     * The URLs' replayed positions of a spool, for replayedUpTo
+     */
+    public static Query positionsQuery(String spoolId, Collection<String> shortCodes) {
+        Query query = Query.query(Criteria.where("shortCode").in(shortCodes));
+        query.fields().include("shortCode").include(FIELD + "." + spoolId);
+        return query;
+    }
+
+    /**
+     * Queries for the URLs among shortCodes that hold a replayed position of
+     * the spool, in chunks; apply clearUpdate to each with updateMulti
+     */
+    public static List<Query> clearQueries(String spoolId, Collection<String> shortCodes) {
+        List<String> codes = new ArrayList<>(shortCodes);
+        List<Query> queries = new ArrayList<>();
+        for (int from = 0; from < codes.size(); from += CLEAR_CHUNK) {
+            queries.add(Query.query(Criteria.where("shortCode")
+                    .in(codes.subList(from, Math.min(codes.size(), from + CLEAR_CHUNK)))
+                    .and(FIELD + "." + spoolId).exists(true)));
+        }
+        return queries;
+    }
+
+    public static Update clearUpdate(String spoolId) {
+        return new Update().unset(FIELD + "." + spoolId);
+    }
+
+    public static Map<String, Long> replayedUpTo(String spoolId, Iterable<Document> urls) {
+        Map<String, Long> replayedUpTo = new HashMap<>();
+        for (Document url : urls) {
+            Document replayed = url.get(FIELD, Document.class);
+            if (replayed != null && replayed.get(spoolId) instanceof Number upTo) {
+                replayedUpTo.put(url.getString("shortCode"), upTo.longValue());
+            }
+        }
+        return replayedUpTo;
+    }
+
+    /**
+     * One counter update per URL with clicks past its replayed position
+     *
+     * @param positions each URL's clicks as positions in the spool, ascending
+     */
+    public static List<Pair<Query, Update>> increments(String spoolId, Map<String, List<Long>> positions,
+            Map<String, Long> replayedUpTo) {
+        String field = FIELD + "." + spoolId;
+        List<Pair<Query, Update>> increments = new ArrayList<>();
+        positions.forEach((shortCode, clicks) -> {
+            Long upTo = replayedUpTo.get(shortCode);
+            long delta = upTo == null ? clicks.size() : clicks.stream().filter(p -> p >= upTo).count();
+            if (delta == 0) {
+                return;
+            }
+            Criteria unchanged = upTo == null ? Criteria.where(field).exists(false) : Criteria.where(field).is(upTo);
+            increments.add(Pair.of(
+                    Query.query(Criteria.where("shortCode").is(shortCode).andOperator(unchanged)),
+                    new Update().inc("clicks", delta).set(field, clicks.get(clicks.size() - 1) + 1)));
+        });
+        return increments;
+    }
+}
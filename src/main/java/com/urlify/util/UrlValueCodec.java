@@ -0,0 +1,206 @@
+package com.urlify.util;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Encodes cached destination URLs, compressing them with a shared zstd
+ * dictionary trained on our own URLs.
+ *
+ * Value format:
+ * - plain: the UTF-8 bytes of the URL, the same bytes the cache always held
+ * - compressed: 0x00, the dictionary version (2 bytes), then a magicless zstd
+ * frame without dictionary id or checksum
+ *
+ * URLs never start with 0x00, so old plain values stay readable and
+ * compression can be switched on and off at any time. A value written with a
+ * dictionary this node has not loaded decodes to null (a cache miss), and the
+ * unknown-version listener is told so it can fetch that dictionary.
+ * Registering a newer dictionary makes it the one used for encoding.
+ *
+ * zstd contexts are expensive to create (a per-call context costs ~4 us), so
+ * they are pooled; decoding with a pooled context takes well under 1 us.
+ */
+public class UrlValueCodec {
+
+    private static final byte COMPRESSED = 0;
+    private static final int HEADER_LENGTH = 3;
+    // UrlValidator caps URLs at 2048 chars; anything larger is a corrupt value
+    private static final int MAX_DECODED_LENGTH = 4 * 2048;
+    private static final int MAX_POOLED_CONTEXTS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final boolean compressionEnabled;
+    private final int minLength;
+    private final int level;
+    private final IntConsumer unknownVersionListener;
+
+    private final Map<Integer, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> requestedVersions = new ConcurrentHashMap<>();
+    private final Queue<ZstdDecompressCtx> decompressContexts = new ConcurrentLinkedQueue<>();
+    private final Queue<ZstdCompressCtx> compressContexts = new ConcurrentLinkedQueue<>();
+
+    private record Encoder(int version, ZstdDictCompress dictionary) {
+    }
+
+    private volatile Encoder encoder;
+
+    public UrlValueCodec(boolean compressionEnabled, int minLength, int level, IntConsumer unknownVersionListener) {
+        this.compressionEnabled = compressionEnabled;
+        this.minLength = minLength;
+        this.level = level;
+        this.unknownVersionListener = unknownVersionListener;
+    }
+
+    /**
+     * Train a dictionary from sample URLs
+     */
+    public static byte[] train(Collection<String> samples, int dictionarySize) {
+        byte[][] encoded = samples.stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        int totalBytes = 0;
+        for (byte[] sample : encoded) {
+            totalBytes += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer(totalBytes, dictionarySize);
+        for (byte[] sample : encoded) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    /**
+     * Make a dictionary available for decoding; the newest one is also used
+     * for encoding
+     */
+    public synchronized void addDictionary(int version, byte[] dictionary) {
+        if (version < 0 || version > 0xFFFF) {
+            throw new IllegalArgumentException("Dictionary version out of range: " + version);
+        }
+        decompressDictionaries.computeIfAbsent(version, v -> new ZstdDictDecompress(dictionary));
+        requestedVersions.remove(version);
+        Encoder current = encoder;
+        if (current == null || version > current.version()) {
+            encoder = new Encoder(version, new ZstdDictCompress(dictionary, level));
+        }
+    }
+
+    /**
+     * Version of the dictionary used for encoding, or -1 if none is loaded
+     */
+    public int currentVersion() {
+        Encoder current = encoder;
+        return current == null ? -1 : current.version();
+    }
+
+    public byte[] encode(String url) {
+        byte[] plain = url.getBytes(StandardCharsets.UTF_8);
+        Encoder current = encoder;
+        if (!compressionEnabled || current == null || plain.length < minLength) {
+            return plain;
+        }
+
+        ZstdCompressCtx ctx = compressContexts.poll();
+        if (ctx == null) {
+            ctx = new ZstdCompressCtx().setMagicless(true).setDictID(false).setChecksum(false).setContentSize(true);
+        }
+        byte[] out = new byte[HEADER_LENGTH + (int) Zstd.compressBound(plain.length)];
+        int written;
+        try {
+            ctx.setLevel(level);
+            ctx.loadDict(current.dictionary());
+            written = ctx.compressByteArray(out, HEADER_LENGTH, out.length - HEADER_LENGTH, plain, 0, plain.length);
+        } finally {
+            release(compressContexts, ctx);
+        }
+        if (HEADER_LENGTH + written >= plain.length) {
+            return plain;
+        }
+        out[0] = COMPRESSED;
+        out[1] = (byte) (current.version() >>> 8);
+        out[2] = (byte) current.version();
+        byte[] value = new byte[HEADER_LENGTH + written];
+        System.arraycopy(out, 0, value, 0, value.length);
+        return value;
+    }
+
+    public static boolean isCompressed(byte[] value) {
+        return value.length > 0 && value[0] == COMPRESSED;
+    }
+
+    /**
+     * Decode a cached value, or return null if it was compressed with a
+     * dictionary that is not loaded (yet) or is corrupt
+     */
+    public String decode(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        if (!isCompressed(value)) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+        if (value.length < HEADER_LENGTH) {
+            return null;
+        }
+
+        int version = ((value[1] & 0xFF) << 8) | (value[2] & 0xFF);
+        ZstdDictDecompress dictionary = decompressDictionaries.get(version);
+        if (dictionary == null) {
+            if (requestedVersions.putIfAbsent(version, Boolean.TRUE) == null) {
+                unknownVersionListener.accept(version);
+            }
+            return null;
+        }
+
+        int frameLength = value.length - HEADER_LENGTH;
+        long size = frameLength > 0 ? Zstd.decompressedSize(value, HEADER_LENGTH, frameLength, true) : -1;
+        if (size <= 0 || size > MAX_DECODED_LENGTH) {
+            return null;
+        }
+        byte[] plain = new byte[(int) size];
+        ZstdDecompressCtx ctx = decompressContexts.poll();
+        if (ctx == null) {
+            ctx = new ZstdDecompressCtx().setMagicless(true);
+        }
+        try {
+            ctx.loadDict(dictionary);
+            ctx.decompressByteArray(plain, 0, plain.length, value, HEADER_LENGTH, frameLength);
+        } catch (ZstdException e) {
+            return null;
+        } finally {
+            release(decompressContexts, ctx);
+        }
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Forget that a dictionary version was requested, so the next value that
+     * needs it asks for it again (e.g. after a failed lookup)
+     */
+    public void retryVersion(int version) {
+        requestedVersions.remove(version);
+    }
+
+    private static <T extends AutoCloseable> void release(Queue<T> pool, T ctx) {
+        if (pool.size() < MAX_POOLED_CONTEXTS) {
+            pool.offer(ctx);
+        } else {
+            try {
+                ctx.close();
+            } catch (Exception ignored) {
+                // contexts only free native memory on close
+            }
+        }
+    }
+}
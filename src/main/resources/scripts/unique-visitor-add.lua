@@ -0,0 +1,13 @@
+-- Add visitors to a link's unique-visitor HyperLogLogs.
+-- KEYS[1] = daily sketch, KEYS[2] = all-time sketch,
+-- ARGV[1] = daily sketch TTL in seconds, ARGV[2] = all-time sketch TTL in seconds,
+-- ARGV[3..] = visitor ids.
+-- The daily TTL is set once, when the day's sketch is created; the all-time
+-- sketch lives until the link has been idle for its TTL.
+redis.call('PFADD', KEYS[1], unpack(ARGV, 3))
+if redis.call('TTL', KEYS[1]) < 0 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+redis.call('PFADD', KEYS[2], unpack(ARGV, 3))
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+return 0
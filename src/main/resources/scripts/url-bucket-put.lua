@@ -0,0 +1,9 @@
+-- Store short codes in a hash bucket (cache.redis.layout=hash).
+-- KEYS[1] = bucket key, ARGV[1] = bucket TTL in seconds,
+-- ARGV[2..] = short code / original URL pairs.
+-- The TTL is only set when the bucket is created, so no entry outlives it.
+redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+if redis.call('TTL', KEYS[1]) < 0 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return 0
@@ -0,0 +1,96 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AdaptiveSamplerTest {
+
+    private static final long SECOND = 1_700_000_000_000L;
+
+    @Test
+    void storesEveryClickUpToThreshold() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(sampler.sample("abc", SECOND + i)).isEqualTo(1.0);
+        }
+        assertThat(sampler.skipped()).isZero();
+        assertThat(sampler.drain()).isEmpty();
+    }
+
+    @Test
+    void usesLargestPowerOfTwoRateAtOrBelowThresholdShare() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        // Last second: 35 clicks, so this second starts at 1/4 (10 / 35 rounded down to a power of two)
+        for (int i = 0; i < 35; i++) {
+            sampler.sample("abc", SECOND + i);
+        }
+
+        double rate = 0;
+        for (int i = 0; i < 100 && rate == 0; i++) {
+            rate = sampler.sample("abc", SECOND + 1_000 + i);
+        }
+        assertThat(rate).isEqualTo(0.25);
+    }
+
+    @Test
+    void keepsTotalsUnbiased() {
+        AdaptiveSampler sampler = new AdaptiveSampler(100);
+        int clicks = 0;
+        double weighted = 0;
+        long stored = 0;
+        for (int second = 0; second < 20; second++) {
+            for (int i = 0; i < 5_000; i++) {
+                double rate = sampler.sample("viral", SECOND + second * 1_000L + i % 1_000);
+                clicks++;
+                if (rate > 0) {
+                    stored++;
+                    weighted += 1 / rate;
+                    // Weights stay whole numbers
+                    assertThat(1 / rate).isEqualTo(Math.rint(1 / rate));
+                }
+            }
+        }
+
+        assertThat(weighted).isCloseTo(clicks, within(clicks * 0.15));
+        assertThat(stored).isLessThan(20 * 100 * 2);
+        assertThat(sampler.skipped()).isEqualTo(clicks - stored);
+    }
+
+    @Test
+    void drainsAndRestoresSkippedCounts() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1);
+        for (int i = 0; i < 1_000; i++) {
+            sampler.sample("abc", SECOND + i % 1_000);
+        }
+        long skipped = sampler.skipped();
+
+        Map<String, Long> drained = sampler.drain();
+        assertThat(drained).containsEntry("abc", skipped);
+        assertThat(sampler.drain()).isEmpty();
+
+        sampler.restore(drained);
+        sampler.restore(Map.of("abc", 1L));
+        assertThat(sampler.drain()).containsEntry("abc", skipped + 1);
+    }
+
+    @Test
+    void ratesLinksIndependently() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        for (int i = 0; i < 500; i++) {
+            sampler.sample("viral", SECOND + i);
+        }
+
+        assertThat(sampler.sample("quiet", SECOND + 500)).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsNonPositiveThreshold() {
+        assertThatThrownBy(() -> new AdaptiveSampler(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
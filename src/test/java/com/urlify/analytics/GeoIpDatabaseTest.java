@@ -0,0 +1,149 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeoIpDatabaseTest {
+
+    private static final GeoLocation CALIFORNIA = new GeoLocation("US", "US-CA");
+    private static final GeoLocation ENGLAND = new GeoLocation("GB", "GB-ENG");
+    private static final GeoLocation GERMANY = new GeoLocation("DE", null);
+
+    private static final List<GeoIpDatabase.Range> ROWS = List.of(
+            new GeoIpDatabase.Range(0x01000000L, 0x010000FFL, CALIFORNIA),  // 1.0.0.0 - 1.0.0.255
+            new GeoIpDatabase.Range(0x01000100L, 0x010001FFL, ENGLAND),     // 1.0.1.0 - 1.0.1.255
+            new GeoIpDatabase.Range(0x05000000L, 0x05FFFFFFL, CALIFORNIA),  // 5.0.0.0 - 5.255.255.255
+            new GeoIpDatabase.Range(0xFF000000L, 0xFFFFFFFFL, GERMANY));    // 255.0.0.0 - 255.255.255.255
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesDottedQuads() {
+        assertThat(GeoIpDatabase.parseIpv4("0.0.0.0")).isZero();
+        assertThat(GeoIpDatabase.parseIpv4("1.2.3.4")).isEqualTo(0x01020304L);
+        assertThat(GeoIpDatabase.parseIpv4("255.255.255.255")).isEqualTo(0xFFFFFFFFL);
+        assertThat(GeoIpDatabase.parseIpv4("010.001.000.009")).isEqualTo(0x0A010009L);
+    }
+
+    @Test
+    void parsesIpv4MappedIpv6() {
+        assertThat(GeoIpDatabase.parseIpv4("::ffff:1.2.3.4")).isEqualTo(0x01020304L);
+        assertThat(GeoIpDatabase.parseIpv4("::FFFF:1.2.3.4")).isEqualTo(0x01020304L);
+    }
+
+    @Test
+    void rejectsAnythingElse() {
+        for (String address : Arrays.asList(null, "", "1.2.3", "1.2.3.4.5", "1.2.3.", ".1.2.3", "1..2.3",
+                "256.0.0.0", "1.2.3.256", "1.2.3.1000", "-1.2.3.4", " 1.2.3.4", "1.2.3.4 ", "a.b.c.d",
+                "::1", "2001:db8::1", "::ffff:", "::ffff:1.2.3", "::ffff:0102:0304")) {
+            assertThat(GeoIpDatabase.parseIpv4(address)).as(address).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void looksUpRangeBoundaries() throws IOException {
+        GeoIpDatabase database = open(ROWS);
+
+        assertThat(database.ranges()).isEqualTo(4);
+        assertThat(database.lookup("0.255.255.255")).isNull();
+        assertThat(database.lookup("1.0.0.0")).isEqualTo(CALIFORNIA);
+        assertThat(database.lookup("1.0.0.255")).isEqualTo(CALIFORNIA);
+        assertThat(database.lookup("1.0.1.0")).isEqualTo(ENGLAND);
+        assertThat(database.lookup("1.0.1.255")).isEqualTo(ENGLAND);
+        assertThat(database.lookup("1.0.2.0")).isNull();
+        assertThat(database.lookup("4.255.255.255")).isNull();
+        assertThat(database.lookup("5.0.0.0")).isEqualTo(CALIFORNIA);
+        assertThat(database.lookup("::ffff:5.128.0.1")).isEqualTo(CALIFORNIA);
+        assertThat(database.lookup("6.0.0.0")).isNull();
+        assertThat(database.lookup("254.255.255.255")).isNull();
+        // Addresses above 127.255.255.255 are negative as signed ints
+        assertThat(database.lookup("255.0.0.0")).isEqualTo(GERMANY);
+        assertThat(database.lookup("255.255.255.255")).isEqualTo(GERMANY);
+        assertThat(database.lookup("not an address")).isNull();
+    }
+
+    @Test
+    void looksUpEmptyTable() throws IOException {
+        GeoIpDatabase database = open(List.of());
+
+        assertThat(database.ranges()).isZero();
+        assertThat(database.lookup("1.2.3.4")).isNull();
+    }
+
+    @Test
+    void rejectsUnsortedOrInvalidRows() {
+        List<GeoIpDatabase.Range> overlapping = List.of(
+                new GeoIpDatabase.Range(0, 10, GERMANY),
+                new GeoIpDatabase.Range(10, 20, GERMANY));
+        List<GeoIpDatabase.Range> badRegion = List.of(
+                new GeoIpDatabase.Range(0, 10, new GeoLocation("US", "GB-ENG")));
+
+        assertThatThrownBy(() -> GeoIpDatabase.write(overlapping, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GeoIpDatabase.write(badRegion, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsCorruptFiles() throws IOException {
+        byte[] valid = bytes(ROWS);
+
+        assertRejected(new byte[0], "Not a GeoIP database");
+        assertRejected(Arrays.copyOf(valid, 12), "Not a GeoIP database");
+        assertRejected(Arrays.copyOf(valid, valid.length - 1), "Truncated");
+        assertRejected(Arrays.copyOf(valid, valid.length + 12), "Truncated");
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] = 'X';
+        assertRejected(badMagic, "Not a GeoIP database");
+
+        byte[] badVersion = valid.clone();
+        ByteBuffer.wrap(badVersion).putInt(4, 2);
+        assertRejected(badVersion, "Unsupported GeoIP database version");
+
+        byte[] negativeCount = valid.clone();
+        ByteBuffer.wrap(negativeCount).putInt(12, -1);
+        assertRejected(negativeCount, "Truncated");
+
+        // Ranges start after the 16 byte header and 3 locations of 8 bytes
+        int ranges = 16 + 3 * 8;
+        byte[] unsorted = valid.clone();
+        ByteBuffer.wrap(unsorted).putInt(ranges + 12, 0x00000010);
+        assertRejected(unsorted, "Corrupt GeoIP range table at row 1");
+
+        byte[] badLocation = valid.clone();
+        ByteBuffer.wrap(badLocation).putInt(ranges + 3 * 12 + 8, 3);
+        assertRejected(badLocation, "Corrupt GeoIP range table at row 3");
+    }
+
+    private GeoIpDatabase open(List<GeoIpDatabase.Range> rows) throws IOException {
+        Path file = dir.resolve("geoip.db");
+        GeoIpDatabase.write(rows, file);
+        return GeoIpDatabase.open(file);
+    }
+
+    private void assertRejected(byte[] contents, String message) throws IOException {
+        Path file = Files.write(dir.resolve("corrupt.db"), contents);
+        assertThatThrownBy(() -> GeoIpDatabase.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(message);
+    }
+
+    private static byte[] bytes(List<GeoIpDatabase.Range> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeoIpDatabase.write(rows, out);
+        return out.toByteArray();
+    }
+}
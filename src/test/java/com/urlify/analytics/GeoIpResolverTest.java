@@ -0,0 +1,81 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoIpResolverTest {
+
+    private static final GeoLocation FRANCE = new GeoLocation("FR", null);
+    private static final GeoLocation JAPAN = new GeoLocation("JP", "JP-13");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void waitsForMissingFile() throws IOException {
+        Path file = dir.resolve("geoip.db");
+        GeoIpResolver resolver = new GeoIpResolver(file);
+
+        assertThat(resolver.reloadIfChanged()).isFalse();
+        assertThat(resolver.locate("10.0.0.1")).isNull();
+        assertThat(resolver.misses()).isEqualTo(1);
+
+        GeoIpDatabase.write(List.of(new GeoIpDatabase.Range(0x0A000000L, 0x0AFFFFFFL, FRANCE)), file);
+
+        assertThat(resolver.reloadIfChanged()).isTrue();
+        assertThat(resolver.locate("10.0.0.1")).isEqualTo(FRANCE);
+        assertThat(resolver.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void swapsInReplacedFile() throws IOException {
+        Path file = dir.resolve("geoip.db");
+        GeoIpDatabase.write(List.of(new GeoIpDatabase.Range(0x0A000000L, 0x0AFFFFFFL, FRANCE)), file);
+        GeoIpResolver resolver = new GeoIpResolver(file);
+        assertThat(resolver.reloadIfChanged()).isTrue();
+        assertThat(resolver.reloadIfChanged()).isFalse();
+
+        GeoIpDatabase.write(List.of(
+                new GeoIpDatabase.Range(0x0A000000L, 0x0A0000FFL, JAPAN),
+                new GeoIpDatabase.Range(0x0B000000L, 0x0BFFFFFFL, FRANCE)), file);
+
+        assertThat(resolver.reloadIfChanged()).isTrue();
+        assertThat(resolver.ranges()).isEqualTo(2);
+        assertThat(resolver.locate("10.0.0.1")).isEqualTo(JAPAN);
+        assertThat(resolver.locate("10.0.1.0")).isNull();
+        assertThat(resolver.locate("11.0.0.1")).isEqualTo(FRANCE);
+        assertThat(resolver.reloads()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsPreviousTableWhenReplacementIsCorrupt() throws IOException {
+        Path file = dir.resolve("geoip.db");
+        GeoIpDatabase.write(List.of(new GeoIpDatabase.Range(0x0A000000L, 0x0AFFFFFFL, FRANCE)), file);
+        GeoIpResolver resolver = new GeoIpResolver(file);
+        resolver.reloadIfChanged();
+
+        Path corrupt = Files.write(dir.resolve("corrupt.tmp"), new byte[]{'U', 'G', 'E', 'O', 0, 0, 0, 1});
+        Files.move(corrupt, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertThat(resolver.reloadIfChanged()).isFalse();
+        assertThat(resolver.failedReloads()).isEqualTo(1);
+        assertThat(resolver.locate("10.0.0.1")).isEqualTo(FRANCE);
+
+        // Not retried until the file changes again
+        assertThat(resolver.reloadIfChanged()).isFalse();
+        assertThat(resolver.failedReloads()).isEqualTo(1);
+
+        GeoIpDatabase.write(List.of(new GeoIpDatabase.Range(0x0A000000L, 0x0AFFFFFFL, JAPAN)), file);
+
+        assertThat(resolver.reloadIfChanged()).isTrue();
+        assertThat(resolver.locate("10.0.0.1")).isEqualTo(JAPAN);
+    }
+}
@@ -0,0 +1,95 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterSketchTest {
+
+    @Test
+    void countsExactlyWhileSketchIsSparse() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1_024, 4, 3, 10);
+        add(sketch, "links", "a", 5);
+        add(sketch, "links", "b", 3);
+        add(sketch, "links", "c", 1);
+
+        assertThat(sketch.drain().get("links")).containsExactly(
+                new HeavyHitterSketch.Entry("a", 5),
+                new HeavyHitterSketch.Entry("b", 3),
+                new HeavyHitterSketch.Entry("c", 1));
+    }
+
+    @Test
+    void replacesSmallestCandidateWhenOvertaken() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1_024, 4, 2, 10);
+        add(sketch, "links", "a", 5);
+        add(sketch, "links", "b", 2);
+        // Not counted as a candidate until its estimate passes b's
+        add(sketch, "links", "c", 2);
+        assertThat(sketch.drain().get("links")).extracting(HeavyHitterSketch.Entry::item).containsExactly("a", "b");
+
+        add(sketch, "links", "a", 5);
+        add(sketch, "links", "b", 2);
+        add(sketch, "links", "c", 3);
+        assertThat(sketch.drain().get("links")).containsExactly(
+                new HeavyHitterSketch.Entry("a", 5),
+                new HeavyHitterSketch.Entry("c", 3));
+    }
+
+    @Test
+    void keepsGroupsApart() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1_024, 4, 2, 10);
+        add(sketch, "referers:abc", "https://news.example.com/", 4);
+        add(sketch, "referers:xyz", "https://news.example.com/", 1);
+
+        Map<String, List<HeavyHitterSketch.Entry>> drained = sketch.drain();
+
+        assertThat(drained.get("referers:abc")).containsExactly(new HeavyHitterSketch.Entry("https://news.example.com/", 4));
+        assertThat(drained.get("referers:xyz")).containsExactly(new HeavyHitterSketch.Entry("https://news.example.com/", 1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUpdatedGroup() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1_024, 4, 2, 2);
+        add(sketch, "one", "a", 1);
+        add(sketch, "two", "a", 1);
+        add(sketch, "one", "b", 1);
+        add(sketch, "three", "a", 1);
+
+        assertThat(sketch.drain()).containsOnlyKeys("one", "three");
+    }
+
+    @Test
+    void startsNewEpochAfterDrain() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1_024, 4, 2, 10);
+        add(sketch, "links", "a", 5);
+        sketch.drain();
+
+        add(sketch, "links", "a", 1);
+
+        assertThat(sketch.drain().get("links")).containsExactly(new HeavyHitterSketch.Entry("a", 1));
+    }
+
+    @Test
+    void neverUnderestimatesUnderCollisions() {
+        // 16 counters per row for 200 items: estimates collide but only upwards
+        HeavyHitterSketch sketch = new HeavyHitterSketch(16, 2, 200, 10);
+        for (int i = 0; i < 200; i++) {
+            add(sketch, "links", "item" + i, i % 7 + 1);
+        }
+
+        for (HeavyHitterSketch.Entry entry : sketch.drain().get("links")) {
+            int actual = Integer.parseInt(entry.item().substring(4)) % 7 + 1;
+            assertThat(entry.count()).isGreaterThanOrEqualTo(actual);
+        }
+    }
+
+    private static void add(HeavyHitterSketch sketch, String group, String item, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.add(group, item);
+        }
+    }
+}
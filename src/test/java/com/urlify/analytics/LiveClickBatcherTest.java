@@ -0,0 +1,68 @@
+package com.urlify.analytics;
+
+import com.urlify.dto.LiveClicks;
+import com.urlify.entity.Analytics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveClickBatcherTest {
+
+    @Test
+    void watchesLinksUntilAnnouncementExpires() {
+        LiveClickBatcher batcher = new LiveClickBatcher(1_000, 10);
+        batcher.watch(List.of("abc"), 10_000);
+
+        assertThat(batcher.isWatched("abc", 10_999)).isTrue();
+        assertThat(batcher.isWatched("abc", 11_000)).isFalse();
+        assertThat(batcher.isWatched("other", 10_000)).isFalse();
+
+        // A later announcement extends it, an earlier one does not shorten it
+        batcher.watch(List.of("abc"), 10_500);
+        batcher.watch(List.of("abc"), 10_100);
+        assertThat(batcher.isWatched("abc", 11_499)).isTrue();
+
+        batcher.drain(11_500);
+        assertThat(batcher.isWatched("abc", 11_000)).isFalse();
+    }
+
+    @Test
+    void keepsFirstEventsAndCountsTheRest() {
+        LiveClickBatcher batcher = new LiveClickBatcher(1_000, 2);
+        for (int i = 0; i < 5; i++) {
+            batcher.record(event("abc", "192.0.2." + i), 10_000 + i);
+        }
+        batcher.record(event("xyz", "192.0.2.9"), 10_000);
+
+        Map<String, LiveClicks> drained = batcher.drain(10_010);
+
+        assertThat(drained).containsOnlyKeys("abc", "xyz");
+        LiveClicks abc = drained.get("abc");
+        assertThat(abc.getClicks()).isEqualTo(5);
+        assertThat(abc.getEvents()).extracting(detail -> detail.getIpAddress())
+                .containsExactly("192.0.2.0", "192.0.2.1");
+        assertThat(abc.getEvents().get(0).getSampleRate()).isNull();
+        assertThat(drained.get("xyz").getClicks()).isEqualTo(1);
+    }
+
+    @Test
+    void startsFreshBatchAfterDrain() {
+        LiveClickBatcher batcher = new LiveClickBatcher(1_000, 2);
+        batcher.record(event("abc", "192.0.2.1"), 10_000);
+        batcher.drain(10_000);
+
+        assertThat(batcher.drain(10_000)).isEmpty();
+        batcher.record(event("abc", "192.0.2.2"), 10_001);
+        assertThat(batcher.drain(10_001).get("abc").getClicks()).isEqualTo(1);
+    }
+
+    private static Analytics event(String shortCode, String ipAddress) {
+        Analytics event = new Analytics();
+        event.setShortCode(shortCode);
+        event.setIpAddress(ipAddress);
+        return event;
+    }
+}
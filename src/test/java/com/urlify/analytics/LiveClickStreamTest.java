@@ -0,0 +1,167 @@
+package com.urlify.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlify.entity.Analytics;
+import com.urlify.exception.ConcurrencyLimitExceededException;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class LiveClickStreamTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private final RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+
+    private LiveClickStream stream;
+    private MockMvc mockMvc;
+
+    @RestController
+    class LiveController {
+
+        @GetMapping("/live/{shortCodes}")
+        SseEmitter live(@PathVariable String shortCodes) {
+            return stream.subscribe(List.of(shortCodes.split(",")));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        stream = new LiveClickStream();
+        ReflectionTestUtils.setField(stream, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(stream, "listenerContainer", listenerContainer);
+        ReflectionTestUtils.setField(stream, "redisLimiter", new ConcurrencyLimiter("redis", 4, 100));
+        ReflectionTestUtils.setField(stream, "circuitBreaker", CircuitBreaker.ofDefaults("redis"));
+        ReflectionTestUtils.setField(stream, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(stream, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(stream, "enabled", true);
+        ReflectionTestUtils.setField(stream, "maxEventsPerFlush", 20);
+        ReflectionTestUtils.setField(stream, "announceIntervalMs", 10_000L);
+        ReflectionTestUtils.setField(stream, "maxStreams", 3);
+        ReflectionTestUtils.setField(stream, "queueCapacity", 4);
+        ReflectionTestUtils.setField(stream, "timeoutMs", 60_000L);
+        stream.init();
+        mockMvc = MockMvcBuilders.standaloneSetup(new LiveController()).build();
+    }
+
+    @Test
+    void subscribesToLinkChannelWhileItHasStreams() throws Exception {
+        MvcResult first = open("abc");
+        MvcResult second = open("abc,xyz");
+
+        verify(listenerContainer, times(1)).addMessageListener(any(MessageListener.class), channel("live:abc"));
+        verify(listenerContainer, times(1)).addMessageListener(any(MessageListener.class), channel("live:xyz"));
+        assertThat(streams()).isEqualTo(2);
+        assertThat(stream.isWatched("abc")).isTrue();
+
+        first.getRequest().getAsyncContext().complete();
+        verify(listenerContainer, never()).removeMessageListener(any(MessageListener.class), any(Topic.class));
+
+        second.getRequest().getAsyncContext().complete();
+        verify(listenerContainer).removeMessageListener(any(MessageListener.class), channel("live:abc"));
+        verify(listenerContainer).removeMessageListener(any(MessageListener.class), channel("live:xyz"));
+        assertThat(streams()).isZero();
+    }
+
+    @Test
+    void deliversToLocalStreamsWhileRedisIsDown() throws Exception {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("refused"));
+        MvcResult result = open("abc");
+
+        Analytics event = new Analytics();
+        event.setShortCode("abc");
+        event.setIpAddress("192.0.2.1");
+        stream.record(event, System.currentTimeMillis());
+        stream.flush();
+
+        String body = awaitContent(result, "192.0.2.1");
+        assertThat(body).contains("\"shortCode\":\"abc\"", "\"clicks\":1", "192.0.2.1");
+        result.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    void watchesLinksAnnouncedByOtherNodes() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), channel("live-watch"));
+        assertThat(stream.isWatched("abc")).isFalse();
+
+        listener.getValue().onMessage(new DefaultMessage("live-watch".getBytes(StandardCharsets.UTF_8),
+                "abc\nxyz".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(stream.isWatched("abc")).isTrue();
+        assertThat(stream.isWatched("xyz")).isTrue();
+        assertThat(stream.isWatched("other")).isFalse();
+    }
+
+    @Test
+    void rejectsStreamsOverLimit() {
+        for (int i = 0; i < 3; i++) {
+            stream.subscribe(List.of("abc"));
+        }
+
+        assertThatThrownBy(() -> stream.subscribe(List.of("abc")))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(streams()).isEqualTo(3);
+    }
+
+    private MvcResult open(String shortCodes) throws Exception {
+        return mockMvc.perform(get("/live/" + shortCodes)).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private double streams() {
+        return meterRegistry.get("analytics.live.streams").gauge().value();
+    }
+
+    private static Topic channel(String name) {
+        return argThat(topic -> topic instanceof ChannelTopic && topic.getTopic().equals(name));
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            body = result.getResponse().getContentAsString();
+        }
+        assertThat(body).contains(expected);
+        return body;
+    }
+}
@@ -0,0 +1,89 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeWindowedBloomFilterTest {
+
+    private static final long WINDOW = 60_000;
+
+    @Test
+    void sizesFilterForExpectedLoad() {
+        TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(WINDOW, 10_000, 0.01);
+
+        // About 95,851 bits are optimal, rounded up to a power of two
+        assertThat(filter.bits()).isEqualTo(1 << 17);
+        assertThat(filter.hashes()).isEqualTo(7);
+        assertThat(new TimeWindowedBloomFilter(WINDOW, 1, 0.5).bits()).isEqualTo(64);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> new TimeWindowedBloomFilter(0, 100, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TimeWindowedBloomFilter(WINDOW, 0, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TimeWindowedBloomFilter(WINDOW, 100, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reportsItemsSeenInCurrentOrPreviousWindow() {
+        TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(WINDOW, 1_000, 0.001);
+        long hash = 0x9E3779B97F4A7C15L;
+
+        assertThat(filter.checkAndPut(hash, 1_000)).isFalse();
+        assertThat(filter.checkAndPut(hash, 2_000)).isTrue();
+        // Next window: still seen, through the previous filter
+        assertThat(filter.checkAndPut(hash, WINDOW + 1_000)).isTrue();
+        // Seeing it again there put it in that window's filter too
+        assertThat(filter.checkAndPut(hash, 2 * WINDOW + 1_000)).isTrue();
+    }
+
+    @Test
+    void forgetsItemsAfterTwoWindows() {
+        TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(WINDOW, 1_000, 0.001);
+        long hash = 0x9E3779B97F4A7C15L;
+
+        assertThat(filter.checkAndPut(hash, 1_000)).isFalse();
+        filter.checkAndPut(0x632BE59BD9B4E019L, WINDOW + 1_000);
+        assertThat(filter.checkAndPut(hash, 2 * WINDOW + 1_000)).isFalse();
+    }
+
+    @Test
+    void forgetsItemsAfterQuietGap() {
+        TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(WINDOW, 1_000, 0.001);
+        long hash = 0x9E3779B97F4A7C15L;
+
+        assertThat(filter.checkAndPut(hash, 1_000)).isFalse();
+        // Nothing at all in the window in between
+        assertThat(filter.checkAndPut(hash, 2 * WINDOW + 1_000)).isFalse();
+    }
+
+    @Test
+    void keepsFalsePositiveRateAtExpectedLoad() {
+        TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(WINDOW, 10_000, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+
+        int seen = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.checkAndPut(random.nextLong(), 1_000)) {
+                seen++;
+            }
+        }
+        assertThat(seen).isLessThan(100);
+
+        // Probes are added too, so keep them few next to the expected load
+        int falsePositives = 0;
+        for (int i = 0; i < 2_000; i++) {
+            if (filter.checkAndPut(random.nextLong(), 2_000)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(20);
+    }
+}
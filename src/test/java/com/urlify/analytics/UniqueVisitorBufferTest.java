@@ -0,0 +1,52 @@
+package com.urlify.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueVisitorBufferTest {
+
+    private static final long DAY_ONE = LocalDate.of(2024, 3, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    private static final long DAY_TWO = DAY_ONE + 24 * 3600 * 1000;
+
+    @Test
+    void groupsVisitorsByLinkAndUtcDay() {
+        UniqueVisitorBuffer buffer = new UniqueVisitorBuffer(100);
+        buffer.add("abc", "192.0.2.1", DAY_ONE);
+        buffer.add("abc", "192.0.2.1", DAY_ONE + 1_000);
+        buffer.add("abc", "192.0.2.2", DAY_ONE - 1);
+        buffer.add("abc", "192.0.2.1", DAY_TWO);
+        buffer.add("xyz", "192.0.2.1", DAY_ONE);
+
+        assertThat(buffer.pending()).isEqualTo(4);
+        Map<UniqueVisitorBuffer.DayKey, Set<String>> drained = buffer.drain();
+
+        assertThat(drained).containsOnly(
+                Map.entry(new UniqueVisitorBuffer.DayKey("abc", LocalDate.of(2024, 2, 29)), Set.of("192.0.2.2")),
+                Map.entry(new UniqueVisitorBuffer.DayKey("abc", LocalDate.of(2024, 3, 1)), Set.of("192.0.2.1")),
+                Map.entry(new UniqueVisitorBuffer.DayKey("abc", LocalDate.of(2024, 3, 2)), Set.of("192.0.2.1")),
+                Map.entry(new UniqueVisitorBuffer.DayKey("xyz", LocalDate.of(2024, 3, 1)), Set.of("192.0.2.1")));
+        assertThat(buffer.pending()).isZero();
+        assertThat(buffer.drain()).isEmpty();
+    }
+
+    @Test
+    void rejectsVisitorsOnceMaxPendingIsReached() {
+        UniqueVisitorBuffer buffer = new UniqueVisitorBuffer(2);
+
+        assertThat(buffer.add("abc", "192.0.2.1", DAY_ONE)).isTrue();
+        assertThat(buffer.add("abc", "192.0.2.2", DAY_ONE)).isTrue();
+        assertThat(buffer.add("abc", "192.0.2.3", DAY_ONE)).isFalse();
+        assertThat(buffer.pending()).isEqualTo(2);
+
+        // Draining makes room again
+        assertThat(buffer.drain().values().iterator().next()).hasSize(2);
+        assertThat(buffer.add("abc", "192.0.2.3", DAY_ONE)).isTrue();
+        assertThat(buffer.pending()).isEqualTo(1);
+    }
+}
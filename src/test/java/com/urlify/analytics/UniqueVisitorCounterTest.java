@@ -0,0 +1,206 @@
+package com.urlify.analytics;
+
+import com.urlify.util.AnalyticsKeys;
+import com.urlify.util.ConcurrencyLimiter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.Invocation;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHyperLogLogCommands;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.HyperLogLogOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class UniqueVisitorCounterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+    private final RedisHyperLogLogCommands hyperLogLogs = mock(RedisHyperLogLogCommands.class);
+    private final RedisStringCommands strings = mock(RedisStringCommands.class);
+    private final RedisKeyCommands keys = mock(RedisKeyCommands.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RedisScript<Long> script =
+            RedisScript.of(new ClassPathResource(AnalyticsKeys.UNIQUE_VISITOR_ADD_SCRIPT), Long.class);
+    private UniqueVisitorCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        when(connection.hyperLogLogCommands()).thenReturn(hyperLogLogs);
+        when(connection.stringCommands()).thenReturn(strings);
+        when(connection.keyCommands()).thenReturn(keys);
+
+        counter = new UniqueVisitorCounter();
+        ReflectionTestUtils.setField(counter, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(counter, "uniqueVisitorAddScript", script);
+        ReflectionTestUtils.setField(counter, "redisLimiter", new ConcurrencyLimiter("redis", 4, 100));
+        ReflectionTestUtils.setField(counter, "circuitBreaker", CircuitBreaker.ofDefaults("redis"));
+        ReflectionTestUtils.setField(counter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(counter, "enabled", true);
+        ReflectionTestUtils.setField(counter, "maxPending", 100);
+        ReflectionTestUtils.setField(counter, "dailyRetentionDays", 90);
+        ReflectionTestUtils.setField(counter, "totalIdleDays", 400);
+        ReflectionTestUtils.setField(counter, "maxMergeKeys", 1_000);
+        counter.init();
+    }
+
+    @Test
+    void keepsLinkSketchesInOneSlot() {
+        assertThat(hashTag(AnalyticsKeys.uniqueVisitors("a:b"))).isEqualTo("a:b");
+        assertThat(hashTag(AnalyticsKeys.dailyUniqueVisitors("a:b", DAY))).isEqualTo("a:b");
+        assertThat(hashTag(AnalyticsKeys.linkMergeUniqueVisitors("m1", "a:b"))).isEqualTo("a:b");
+        assertThat(hashTag(AnalyticsKeys.mergeUniqueVisitors("m1", 0)))
+                .isEqualTo(hashTag(AnalyticsKeys.mergeUniqueVisitors("m1", 7)))
+                .isEqualTo("m1");
+    }
+
+    @Test
+    void flushesBySha() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of(0L);
+        });
+        counter.record("abc", "10.0.0.1");
+
+        counter.flush();
+
+        List<Invocation> calls = List.copyOf(mockingDetails(scripting).getInvocations());
+        assertThat(calls).extracting(call -> call.getMethod().getName()).containsExactly("evalSha");
+        assertThat(string(calls.get(0).getArgument(0))).isEqualTo(script.getSha1());
+        assertThat(string(calls.get(0).getArgument(3))).isEqualTo(AnalyticsKeys.dailyUniqueVisitors("abc", today()));
+        assertThat(string(calls.get(0).getArgument(4))).isEqualTo(AnalyticsKeys.uniqueVisitors("abc"));
+        assertThat(meterRegistry.get("analytics.unique_visitors.flushed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void resendsWithScriptBodyWhenNotCached() {
+        RedisPipelineException noScript = new RedisPipelineException("Pipeline contained one or more invalid commands",
+                List.of(new RedisSystemException("Error in execution",
+                        new IllegalStateException("NOSCRIPT No matching script. Please use EVAL."))));
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    throw noScript;
+                })
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    return List.of(0L);
+                });
+        counter.record("abc", "10.0.0.1");
+
+        counter.flush();
+
+        List<Invocation> calls = List.copyOf(mockingDetails(scripting).getInvocations());
+        assertThat(calls).extracting(call -> call.getMethod().getName()).containsExactly("evalSha", "eval");
+        assertThat(string(calls.get(1).getArgument(0))).isEqualTo(script.getScriptAsString());
+        assertThat(meterRegistry.get("analytics.unique_visitors.flushed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsFlushOnOtherFailures() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("refused"));
+        counter.record("abc", "10.0.0.1");
+
+        counter.flush();
+
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        assertThat(meterRegistry.get("analytics.unique_visitors.dropped").tag("reason", "flush_failed")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsOneLinkWithOnePfcount() {
+        HyperLogLogOperations<String, Object> operations = mock(HyperLogLogOperations.class);
+        when(redisTemplate.opsForHyperLogLog()).thenReturn(operations);
+        when(operations.size(any(String[].class))).thenReturn(12L);
+
+        assertThat(counter.countBetween(List.of("abc"), DAY, DAY.plusDays(1))).isEqualTo(12L);
+        verify(operations).size(AnalyticsKeys.dailyUniqueVisitors("abc", DAY),
+                AnalyticsKeys.dailyUniqueVisitors("abc", DAY.plusDays(1)));
+    }
+
+    @Test
+    void mergesLinksWithoutCrossSlotCommands() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    return List.of(true, true);
+                })
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    return List.of(true, true, 42L, 2L);
+                });
+        when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    return Arrays.asList(new byte[]{1}, new byte[]{2}, 1L, 1L);
+                });
+
+        assertThat(counter.countBetween(List.of("abc", "xyz"), DAY, DAY.plusDays(2))).isEqualTo(42L);
+
+        // Every multi-key command stays within one hash tag
+        for (Invocation call : mockingDetails(hyperLogLogs).getInvocations()) {
+            Set<String> tags = Arrays.stream(call.getArguments())
+                    .map(argument -> hashTag(string((byte[]) argument)))
+                    .collect(Collectors.toSet());
+            assertThat(tags).as(call.toString()).hasSize(1);
+        }
+        assertThat(mockingDetails(hyperLogLogs).getInvocations())
+                .extracting(call -> call.getMethod().getName())
+                .containsExactly("pfMerge", "pfMerge", "pfCount");
+    }
+
+    @Test
+    void countsNoLinksAsZero() {
+        assertThat(counter.countBetween(List.of(), DAY, DAY)).isZero();
+    }
+
+    private static LocalDate today() {
+        return AnalyticsKeys.day(System.currentTimeMillis());
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The part of a key Redis Cluster hashes
+     */
+    private static String hashTag(String key) {
+        int open = key.indexOf('{');
+        int close = key.indexOf('}', open + 1);
+        return open < 0 || close <= open + 1 ? key : key.substring(open + 1, close);
+    }
+}
@@ -0,0 +1,119 @@
+package com.urlify.analytics;
+
+import com.urlify.analytics.UserAgentInfo.Browser;
+import com.urlify.analytics.UserAgentInfo.Device;
+import com.urlify.analytics.UserAgentInfo.Os;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserAgentParserTest {
+
+    private static final String CHROME_WINDOWS = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final String EDGE_WINDOWS = CHROME_WINDOWS + " Edg/120.0.2210.91";
+    private static final String SAFARI_IPHONE = "Mozilla/5.0 (iPhone; CPU iPhone OS 17_2 like Mac OS X) "
+            + "AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.2 Mobile/15E148 Safari/604.1";
+    private static final String IOS_WEB_VIEW = "Mozilla/5.0 (iPhone; CPU iPhone OS 17_2 like Mac OS X) "
+            + "AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E148";
+    private static final String INSTAGRAM_IPHONE = IOS_WEB_VIEW + " Instagram 312.0.0.0";
+    private static final String CHROME_ANDROID_PHONE = "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0.0.0 Mobile Safari/537.36";
+    private static final String CHROME_ANDROID_TABLET = "Mozilla/5.0 (Linux; Android 13; SM-X710) "
+            + "AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final String SAMSUNG_PHONE = "Mozilla/5.0 (Linux; Android 14; SM-S918B) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) SamsungBrowser/23.0 Chrome/115.0.0.0 Mobile Safari/537.36";
+    private static final String FIREFOX_LINUX = "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0";
+    private static final String OPERA_MAC = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36 OPR/106.0.0.0";
+    private static final String SAFARI_MAC = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 "
+            + "(KHTML, like Gecko) Version/17.2 Safari/605.1.15";
+    private static final String IPAD = "Mozilla/5.0 (iPad; CPU OS 17_2 like Mac OS X) AppleWebKit/605.1.15 "
+            + "(KHTML, like Gecko) Version/17.2 Mobile/15E148 Safari/604.1";
+    private static final String CHROMEBOOK = "Mozilla/5.0 (X11; CrOS x86_64 14541.0.0) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final String IE11 = "Mozilla/5.0 (Windows NT 10.0; WOW64; Trident/7.0; rv:11.0) like Gecko";
+    private static final String GOOGLEBOT = "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)";
+
+    @Test
+    void classifiesBrowsersMostSpecificFirst() {
+        assertThat(UserAgentParser.classify(CHROME_WINDOWS))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.CHROME, Os.WINDOWS));
+        assertThat(UserAgentParser.classify(EDGE_WINDOWS))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.EDGE, Os.WINDOWS));
+        assertThat(UserAgentParser.classify(OPERA_MAC))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.OPERA, Os.MACOS));
+        assertThat(UserAgentParser.classify(SAFARI_MAC))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.SAFARI, Os.MACOS));
+        assertThat(UserAgentParser.classify(FIREFOX_LINUX))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.FIREFOX, Os.LINUX));
+        assertThat(UserAgentParser.classify(CHROMEBOOK))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.CHROME, Os.CHROME_OS));
+        assertThat(UserAgentParser.classify(IE11))
+                .isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.INTERNET_EXPLORER, Os.WINDOWS));
+    }
+
+    @Test
+    void classifiesMobileAndTabletDevices() {
+        assertThat(UserAgentParser.classify(SAFARI_IPHONE))
+                .isEqualTo(new UserAgentInfo(Device.MOBILE, Browser.SAFARI, Os.IOS));
+        assertThat(UserAgentParser.classify(IOS_WEB_VIEW))
+                .isEqualTo(new UserAgentInfo(Device.MOBILE, Browser.SAFARI, Os.IOS));
+        assertThat(UserAgentParser.classify(INSTAGRAM_IPHONE))
+                .isEqualTo(new UserAgentInfo(Device.MOBILE, Browser.IN_APP, Os.IOS));
+        assertThat(UserAgentParser.classify(CHROME_ANDROID_PHONE))
+                .isEqualTo(new UserAgentInfo(Device.MOBILE, Browser.CHROME, Os.ANDROID));
+        assertThat(UserAgentParser.classify(SAMSUNG_PHONE))
+                .isEqualTo(new UserAgentInfo(Device.MOBILE, Browser.SAMSUNG_INTERNET, Os.ANDROID));
+        assertThat(UserAgentParser.classify(CHROME_ANDROID_TABLET))
+                .isEqualTo(new UserAgentInfo(Device.TABLET, Browser.CHROME, Os.ANDROID));
+        assertThat(UserAgentParser.classify(IPAD))
+                .isEqualTo(new UserAgentInfo(Device.TABLET, Browser.SAFARI, Os.IOS));
+    }
+
+    @Test
+    void classifiesBotsAndTools() {
+        assertThat(UserAgentParser.classify(GOOGLEBOT).device()).isEqualTo(Device.BOT);
+        assertThat(UserAgentParser.classify("facebookexternalhit/1.1").device()).isEqualTo(Device.BOT);
+        assertThat(UserAgentParser.classify("curl/8.4.0")).isEqualTo(new UserAgentInfo(Device.BOT, Browser.OTHER, Os.OTHER));
+        assertThat(UserAgentParser.classify("python-requests/2.31.0").device()).isEqualTo(Device.BOT);
+    }
+
+    @Test
+    void returnsUnknownForMissingHeader() {
+        UserAgentParser parser = new UserAgentParser(10);
+
+        assertThat(parser.parse(null)).isSameAs(UserAgentInfo.UNKNOWN);
+        assertThat(parser.parse("  ")).isSameAs(UserAgentInfo.UNKNOWN);
+        assertThat(parser.parse("SomethingElse/1.0"))
+                .isEqualTo(new UserAgentInfo(Device.UNKNOWN, Browser.OTHER, Os.OTHER));
+    }
+
+    @Test
+    void cachesResultsInBoundedLru() {
+        UserAgentParser parser = new UserAgentParser(2);
+
+        UserAgentInfo first = parser.parse(CHROME_WINDOWS);
+        assertThat(parser.parse(CHROME_WINDOWS)).isSameAs(first);
+        parser.parse(SAFARI_IPHONE);
+        parser.parse(CHROME_WINDOWS);
+        // Evicts SAFARI_IPHONE, the least recently used
+        parser.parse(FIREFOX_LINUX);
+        parser.parse(SAFARI_IPHONE);
+
+        assertThat(parser.hits()).isEqualTo(2);
+        assertThat(parser.misses()).isEqualTo(4);
+    }
+
+    @Test
+    void truncatesLongHeadersBeforeCaching() {
+        UserAgentParser parser = new UserAgentParser(10);
+        String padded = CHROME_WINDOWS + " " + "x".repeat(UserAgentParser.MAX_LENGTH);
+
+        UserAgentInfo info = parser.parse(padded);
+        parser.parse(padded + "different tail");
+
+        assertThat(info).isEqualTo(new UserAgentInfo(Device.DESKTOP, Browser.CHROME, Os.WINDOWS));
+        assertThat(parser.hits()).isEqualTo(1);
+    }
+}
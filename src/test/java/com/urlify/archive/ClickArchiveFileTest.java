@@ -0,0 +1,120 @@
+package com.urlify.archive;
+
+import com.urlify.entity.Analytics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickArchiveFileTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 250_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEvents() throws IOException {
+        Analytics full = event("abc", START, 0);
+        full.setUserAgent("Mozilla/5.0");
+        full.setReferer("https://example.com/");
+        full.setDevice(0);
+        full.setBrowser(3);
+        full.setOs(2);
+        full.setCountry("US");
+        full.setRegion("US-CA");
+        full.setSampleRate(0.25);
+        Analytics empty = event("abc", START.minusSeconds(5), 1);
+        empty.setIpAddress(null);
+        Analytics other = event("abd", START, 2);
+        other.setUserAgent("Mozilla/5.0");
+        other.setSampleRate(1.0);
+
+        Path file = write(List.of(full, empty, other));
+
+        assertThat(readAll(file, null)).containsExactly(full, empty, other);
+    }
+
+    @Test
+    void readsOneLinkAcrossBlocks() throws IOException {
+        List<Analytics> events = new ArrayList<>();
+        // "b" spans the end of the first block and the start of the second
+        for (int i = 0; i < ClickArchiveFile.BLOCK_ROWS - 10; i++) {
+            events.add(event("a", START.plusSeconds(i), i));
+        }
+        for (int i = 0; i < 20; i++) {
+            events.add(event("b", START.plusSeconds(i), i));
+        }
+        for (int i = 0; i < ClickArchiveFile.BLOCK_ROWS + 5; i++) {
+            events.add(event("c", START.plusSeconds(i), i));
+        }
+        Path file = write(events);
+
+        assertThat(readAll(file, "b")).containsExactlyElementsOf(events.subList(ClickArchiveFile.BLOCK_ROWS - 10,
+                ClickArchiveFile.BLOCK_ROWS + 10));
+        assertThat(ClickArchiveFile.read(file, "c", event -> { })).isEqualTo(ClickArchiveFile.BLOCK_ROWS + 5);
+        assertThat(ClickArchiveFile.read(file, "0", event -> { })).isZero();
+        assertThat(ClickArchiveFile.read(file, "bb", event -> { })).isZero();
+        assertThat(ClickArchiveFile.read(file, "d", event -> { })).isZero();
+        assertThat(ClickArchiveFile.read(file, null, event -> { })).isEqualTo(events.size());
+    }
+
+    @Test
+    void readsEmptyArchive() throws IOException {
+        Path file = write(List.of());
+
+        assertThat(readAll(file, null)).isEmpty();
+    }
+
+    @Test
+    void rejectsEventsOutOfOrder() throws IOException {
+        try (ClickArchiveFile.Writer writer = ClickArchiveFile.writer(dir.resolve("clicks.arc"))) {
+            writer.append(event("b", START, 0));
+            assertThatThrownBy(() -> writer.append(event("a", START, 1)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(writer.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = Files.write(dir.resolve("other.arc"), new byte[]{'U', 'R', 'L', 'C', 0, 0, 0, 1});
+
+        assertThatThrownBy(() -> ClickArchiveFile.read(file, null, event -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a click archive");
+    }
+
+    private Path write(List<Analytics> events) throws IOException {
+        Path file = dir.resolve("clicks.arc");
+        try (ClickArchiveFile.Writer writer = ClickArchiveFile.writer(file)) {
+            for (Analytics event : events) {
+                writer.append(event);
+            }
+            assertThat(writer.count()).isEqualTo(events.size());
+        }
+        return file;
+    }
+
+    private static List<Analytics> readAll(Path file, String shortCode) throws IOException {
+        List<Analytics> events = new ArrayList<>();
+        assertThat(ClickArchiveFile.read(file, shortCode, events::add)).isEqualTo(events.size());
+        return events;
+    }
+
+    private static Analytics event(String shortCode, LocalDateTime timestamp, int i) {
+        Analytics event = new Analytics();
+        event.setShortCode(shortCode);
+        event.setTimestamp(timestamp);
+        event.setIpAddress("10.0." + (i >> 8 & 0xFF) + "." + (i & 0xFF));
+        return event;
+    }
+}
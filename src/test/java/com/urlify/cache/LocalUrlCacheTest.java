@@ -0,0 +1,49 @@
+package com.urlify.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalUrlCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        LocalUrlCache cache = new LocalUrlCache(2, 60_000);
+        cache.put("a", value("https://a.example.com"));
+        cache.put("b", value("https://b.example.com"));
+        cache.get("a");
+        cache.put("c", value("https://c.example.com"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(value("https://a.example.com"));
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(value("https://c.example.com"));
+    }
+
+    @Test
+    void expiresEntries() throws InterruptedException {
+        LocalUrlCache cache = new LocalUrlCache(10, 20);
+        cache.put("a", value("https://a.example.com"));
+        assertThat(cache.get("a")).isNotNull();
+
+        Thread.sleep(50);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void evictsOnRequest() {
+        LocalUrlCache cache = new LocalUrlCache(10, 60_000);
+        cache.put("a", value("https://a.example.com"));
+        cache.evict("a");
+
+        assertThat(cache.get("a")).isNull();
+    }
+
+    private static byte[] value(String url) {
+        return url.getBytes(StandardCharsets.UTF_8);
+    }
+}
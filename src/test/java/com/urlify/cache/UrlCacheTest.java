@@ -0,0 +1,127 @@
+package com.urlify.cache;
+
+import com.urlify.util.ConcurrencyLimiter;
+import com.urlify.util.UrlValueCodec;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UrlCacheTest {
+
+    private static final String URL = "https://example.com/some/long/path";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, byte[]> urlCacheTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, byte[]> values = mock(ValueOperations.class);
+
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.of("redis", CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(2)
+            .minimumNumberOfCalls(2)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .build());
+
+    private UrlCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(urlCacheTemplate.opsForValue()).thenReturn(values);
+        UrlDictionaryManager dictionaryManager = mock(UrlDictionaryManager.class);
+        when(dictionaryManager.getCodec()).thenReturn(new UrlValueCodec(false, 40, 3, version -> { }));
+
+        cache = new UrlCache();
+        ReflectionTestUtils.setField(cache, "redisTemplate", mock(RedisTemplate.class));
+        ReflectionTestUtils.setField(cache, "urlCacheTemplate", urlCacheTemplate);
+        ReflectionTestUtils.setField(cache, "dictionaryManager", dictionaryManager);
+        ReflectionTestUtils.setField(cache, "redisLimiter", new ConcurrencyLimiter("redis", 4, 100));
+        ReflectionTestUtils.setField(cache, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "layout", "string");
+        ReflectionTestUtils.setField(cache, "hashBuckets", 64);
+        ReflectionTestUtils.setField(cache, "localMaxEntries", 100);
+        ReflectionTestUtils.setField(cache, "localTtlSeconds", 60L);
+        cache.init();
+    }
+
+    @Test
+    void readsThroughRedis() {
+        when(values.get("url:abc")).thenReturn(URL.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(cache.get("abc")).isEqualTo(URL);
+    }
+
+    @Test
+    void treatsRedisMissAsAuthoritative() {
+        cache.put("abc", URL);
+        when(values.get("url:abc")).thenReturn(null);
+
+        assertThat(cache.get("abc")).isNull();
+    }
+
+    @Test
+    void fallsBackToLocalCacheWhenRedisFails() {
+        doThrow(new RedisConnectionFailureException("refused")).when(values).set(anyString(), any(), any(Duration.class));
+        when(values.get(anyString())).thenThrow(new RedisConnectionFailureException("refused"));
+
+        cache.put("abc", URL);
+
+        assertThat(cache.get("abc")).isEqualTo(URL);
+        assertThat(cache.get("other")).isNull();
+        assertThat(fallbacks("put", "error")).isEqualTo(1);
+        assertThat(fallbacks("get", "error")).isEqualTo(1);
+    }
+
+    @Test
+    void skipsRedisWhileCircuitIsOpen() {
+        when(values.get(anyString())).thenThrow(new RedisConnectionFailureException("refused"));
+        cache.get("a");
+        cache.get("b");
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        cache.put("abc", URL);
+
+        assertThat(cache.get("abc")).isEqualTo(URL);
+        verify(values, times(2)).get(anyString());
+        verify(values, times(0)).set(anyString(), any(), any(Duration.class));
+        assertThat(fallbacks("get", "circuit_open")).isEqualTo(1);
+        assertThat(fallbacks("put", "circuit_open")).isEqualTo(1);
+    }
+
+    @Test
+    void evictsBothTiers() {
+        cache.put("abc", URL);
+        when(values.get("url:abc")).thenThrow(new RedisConnectionFailureException("refused"));
+
+        cache.evict("abc");
+
+        verify(urlCacheTemplate).delete("url:abc");
+        assertThat(cache.get("abc")).isNull();
+    }
+
+    private double fallbacks(String operation, String reason) {
+        return meterRegistry.counter("cache.redis.fallback", "operation", operation, "reason", reason).count();
+    }
+}
@@ -0,0 +1,48 @@
+package com.urlify.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withUserConfiguration(AsyncConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues("spring.task.execution.pool.core-size=4",
+                    "spring.task.execution.pool.max-size=6",
+                    "spring.task.execution.pool.queue-capacity=8",
+                    "spring.task.execution.simple.concurrency-limit=16");
+
+    @Test
+    void declaresBoundedApplicationTaskExecutor() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(ClickTrackingExecutor.class);
+            ThreadPoolTaskExecutor executor = context.getBean("applicationTaskExecutor", ThreadPoolTaskExecutor.class);
+            assertThat(executor).isNotInstanceOf(ClickTrackingExecutor.class);
+            assertThat(executor.getCorePoolSize()).isEqualTo(4);
+            assertThat(executor.getMaxPoolSize()).isEqualTo(6);
+            assertThat(executor.getQueueCapacity()).isEqualTo(8);
+            assertThat(context.getBean("taskExecutor")).isSameAs(executor);
+        });
+    }
+
+    @Test
+    void usesVirtualThreadsWhenEnabled() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            SimpleAsyncTaskExecutor executor = context.getBean("applicationTaskExecutor", SimpleAsyncTaskExecutor.class);
+            assertThat(executor.getConcurrencyLimit()).isEqualTo(16);
+            // The click tracking pool keeps its platform threads
+            ClickTrackingExecutor clicks = context.getBean(ClickTrackingExecutor.class);
+            assertThat(clicks.getThreadNamePrefix()).isEqualTo("click-tracking-");
+        });
+    }
+}
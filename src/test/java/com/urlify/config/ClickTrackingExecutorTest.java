@@ -0,0 +1,111 @@
+package com.urlify.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickTrackingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ClickTrackingExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void dropsNewestWhenQueueIsFull() throws InterruptedException {
+        executor = start(ClickTrackingExecutor.OverloadPolicy.DROP_NEWEST, 2, 0.5, 1);
+        AtomicInteger ran = new AtomicInteger();
+        blockWorker();
+
+        for (int i = 0; i < 5; i++) {
+            executor.execute(ran::incrementAndGet);
+        }
+        assertThat(gauge("analytics.click.queue.depth")).isEqualTo(2);
+        assertThat(dropped("queue_full")).isEqualTo(3);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(ran.get()).isEqualTo(2);
+    }
+
+    @Test
+    void runsOnCallerWhenQueueIsFull() throws InterruptedException {
+        executor = start(ClickTrackingExecutor.OverloadPolicy.CALLER_RUNS, 1, 0.5, 1);
+        blockWorker();
+        executor.execute(() -> { });
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        assertThat(meterRegistry.counter("analytics.click.caller.runs").count()).isEqualTo(1);
+        assertThat(dropped("queue_full")).isZero();
+    }
+
+    @Test
+    void samplesAboveThreshold() throws InterruptedException {
+        executor = start(ClickTrackingExecutor.OverloadPolicy.SAMPLE, 10, 0.5, 5);
+        blockWorker();
+
+        // Up to the threshold of 5 queued clicks everything is admitted
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> { });
+        }
+        // Above it one in five
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> { });
+        }
+
+        assertThat(gauge("analytics.click.queue.depth")).isEqualTo(7);
+        assertThat(dropped("sampled")).isEqualTo(8);
+        assertThat(dropped("queue_full")).isZero();
+    }
+
+    private ClickTrackingExecutor start(ClickTrackingExecutor.OverloadPolicy policy, int queueCapacity,
+            double samplingThreshold, int sampleRate) {
+        ClickTrackingExecutor started = new ClickTrackingExecutor(policy, queueCapacity, samplingThreshold,
+                sampleRate, meterRegistry);
+        started.setCorePoolSize(1);
+        started.setMaxPoolSize(1);
+        started.setWaitForTasksToCompleteOnShutdown(true);
+        started.setAwaitTerminationSeconds(5);
+        started.initialize();
+        return started;
+    }
+
+    /**
+     * Occupy the only worker until the test releases it
+     */
+    private void blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.counter("analytics.click.dropped", "reason", reason).count();
+    }
+}
@@ -0,0 +1,105 @@
+package com.urlify.config;
+
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<LettuceConnectionFactory> connectionFactory = mock(ObjectProvider.class);
+
+    @Test
+    void limitsEachKeyLocally() {
+        RateLimitConfig config = config("local");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(config.tryConsumePublic("203.0.113.1")).isTrue();
+        }
+        assertThat(config.tryConsumePublic("203.0.113.1")).isFalse();
+        assertThat(config.tryConsumePublic("203.0.113.2")).isTrue();
+        assertThat(config.tryConsumeAuthenticated("a@example.com")).isTrue();
+
+        assertThat(meterRegistry.counter("ratelimit.rejected", "tier", "public").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("ratelimit.rejected", "tier", "authenticated").count()).isZero();
+        verify(connectionFactory, times(0)).getObject();
+    }
+
+    @Test
+    void fallsBackToLocalBucketsWhileRedisIsDown() {
+        when(connectionFactory.getObject()).thenThrow(new RedisConnectionFailureException("refused"));
+        RateLimitConfig config = config("redis");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(config.tryConsumePublic("203.0.113.1")).isTrue();
+        }
+        assertThat(config.tryConsumePublic("203.0.113.1")).isFalse();
+
+        // Redis is not tried again until the cool-down expires
+        verify(connectionFactory, times(1)).getObject();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsBoundedNumberOfBucketProxies() {
+        RemoteBucketBuilder<String> builder = mock(RemoteBucketBuilder.class);
+        ProxyManager<String> proxyManager = mock(ProxyManager.class);
+        BucketProxy bucket = mock(BucketProxy.class);
+        when(proxyManager.builder()).thenReturn(builder);
+        when(builder.withOptimization(any())).thenReturn(builder);
+        when(builder.build(any(String.class), any(Supplier.class))).thenReturn(bucket);
+        when(bucket.tryConsume(anyLong())).thenReturn(true);
+        RateLimitConfig config = config("redis");
+        ReflectionTestUtils.setField(config, "proxyManager", proxyManager);
+
+        config.tryConsumePublic("203.0.113.1");
+        config.tryConsumePublic("203.0.113.1");
+        config.tryConsumePublic("203.0.113.2");
+        // Evicts 203.0.113.1, the least recently used
+        config.tryConsumePublic("203.0.113.3");
+        config.tryConsumePublic("203.0.113.1");
+
+        verify(builder, times(2)).build(eq("rate:public:203.0.113.1"), any(Supplier.class));
+        verify(builder, times(1)).build(eq("rate:public:203.0.113.2"), any(Supplier.class));
+        verify(bucket, times(5)).tryConsume(1);
+    }
+
+    private RateLimitConfig config(String mode) {
+        RateLimitConfig config = new RateLimitConfig();
+        ReflectionTestUtils.setField(config, "publicCapacity", 3L);
+        ReflectionTestUtils.setField(config, "publicRefillTokens", 3L);
+        ReflectionTestUtils.setField(config, "publicRefillDuration", 60L);
+        ReflectionTestUtils.setField(config, "authenticatedCapacity", 10L);
+        ReflectionTestUtils.setField(config, "authenticatedRefillTokens", 10L);
+        ReflectionTestUtils.setField(config, "authenticatedRefillDuration", 60L);
+        ReflectionTestUtils.setField(config, "mode", mode);
+        ReflectionTestUtils.setField(config, "optimization", "delaying");
+        ReflectionTestUtils.setField(config, "batchTokens", 5L);
+        ReflectionTestUtils.setField(config, "batchTimeoutMs", 500L);
+        ReflectionTestUtils.setField(config, "fallbackCooldownMs", 60_000L);
+        ReflectionTestUtils.setField(config, "maxCachedBuckets", 2);
+        ReflectionTestUtils.setField(config, "connectionFactoryProvider", connectionFactory);
+        ReflectionTestUtils.setField(config, "meterRegistry", meterRegistry);
+        config.init();
+        return config;
+    }
+}
@@ -0,0 +1,79 @@
+package com.urlify.service;
+
+import com.urlify.archive.ClickArchive;
+import com.urlify.entity.Url;
+import com.urlify.entity.User;
+import com.urlify.exception.ArchiveUnavailableException;
+import com.urlify.repository.UrlRepository;
+import com.urlify.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalyticsServiceTest {
+
+    private static final LocalDate OLD_DAY = LocalDate.of(2024, 1, 10);
+
+    private final ClickRetention clickRetention = mock(ClickRetention.class);
+    private final ClickArchive clickArchive = mock(ClickArchive.class);
+    private final AnalyticsService service = new AnalyticsService();
+
+    @BeforeEach
+    void setUp() {
+        UrlRepository urlRepository = mock(UrlRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        Url url = new Url();
+        url.setShortCode("abc");
+        url.setUserId("u1");
+        User user = new User();
+        user.setId("u1");
+        when(urlRepository.findByShortCode("abc")).thenReturn(Optional.of(url));
+        when(userRepository.findByEmail("owner@example.com")).thenReturn(Optional.of(user));
+
+        ReflectionTestUtils.setField(service, "urlRepository", urlRepository);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "clickRetention", clickRetention);
+        ReflectionTestUtils.setField(service, "clickArchive", clickArchive);
+    }
+
+    @Test
+    void neutralizesFormulasInCsvFields() {
+        assertThat(AnalyticsService.csvField("=HYPERLINK(\"http://evil.example\")"))
+                .isEqualTo("\"'=HYPERLINK(\"\"http://evil.example\"\")\"");
+        assertThat(AnalyticsService.csvField("+1")).isEqualTo("'+1");
+        assertThat(AnalyticsService.csvField("-2+3")).isEqualTo("'-2+3");
+        assertThat(AnalyticsService.csvField("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(AnalyticsService.csvField("\tcmd")).isEqualTo("'\tcmd");
+        assertThat(AnalyticsService.csvField("Mozilla/5.0 (X11; Linux x86_64)")).isEqualTo("Mozilla/5.0 (X11; Linux x86_64)");
+        assertThat(AnalyticsService.csvField("a,b")).isEqualTo("\"a,b\"");
+        assertThat(AnalyticsService.csvField("")).isEmpty();
+    }
+
+    @Test
+    void refusesExportOfExpiredDayWithoutLocalArchive() {
+        when(clickRetention.rawEventsExpiring(any())).thenAnswer(invocation -> OLD_DAY.equals(invocation.getArgument(0)));
+        when(clickArchive.has(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> service.exportClicks("abc", OLD_DAY.minusDays(1), OLD_DAY.plusDays(1),
+                "owner@example.com"))
+                .isInstanceOf(ArchiveUnavailableException.class)
+                .hasMessageContaining(OLD_DAY.toString());
+    }
+
+    @Test
+    void exportsExpiredDayFromLocalArchive() {
+        when(clickRetention.rawEventsExpiring(any())).thenReturn(true);
+        when(clickArchive.has(any())).thenReturn(true);
+
+        assertThat(service.exportClicks("abc", OLD_DAY, OLD_DAY, "owner@example.com")).isNotNull();
+    }
+}
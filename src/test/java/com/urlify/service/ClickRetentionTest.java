@@ -0,0 +1,50 @@
+package com.urlify.service;
+
+import com.urlify.archive.ClickArchive;
+import com.urlify.repository.ClickEventStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ClickRetentionTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ClickEventStore clickEventStore = mock(ClickEventStore.class);
+    private final ClickArchive clickArchive = mock(ClickArchive.class);
+
+    @Test
+    void doesNothingWhileDisabled() throws Exception {
+        ClickRetention retention = retention(false, 90);
+
+        assertThat(retention.run()).isTrue();
+
+        verifyNoInteractions(mongoTemplate, clickEventStore, clickArchive);
+    }
+
+    @Test
+    void reportsDaysPastRawEventWindow() {
+        LocalDate today = LocalDate.now();
+        ClickRetention retention = retention(true, 90);
+
+        assertThat(retention.rawEventsExpiring(today.minusDays(92))).isTrue();
+        assertThat(retention.rawEventsExpiring(today.minusDays(90))).isFalse();
+        assertThat(retention(true, 0).rawEventsExpiring(today.minusDays(1_000))).isFalse();
+        assertThat(retention(false, 90).rawEventsExpiring(today.minusDays(1_000))).isFalse();
+    }
+
+    private ClickRetention retention(boolean enabled, int rawEventDays) {
+        ClickRetention retention = new ClickRetention();
+        ReflectionTestUtils.setField(retention, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(retention, "clickEventStore", clickEventStore);
+        ReflectionTestUtils.setField(retention, "clickArchive", clickArchive);
+        ReflectionTestUtils.setField(retention, "enabled", enabled);
+        ReflectionTestUtils.setField(retention, "rawEventDays", rawEventDays);
+        return retention;
+    }
+}
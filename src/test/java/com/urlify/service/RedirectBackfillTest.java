@@ -0,0 +1,98 @@
+package com.urlify.service;
+
+import com.urlify.entity.Url;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("unchecked")
+class RedirectBackfillTest {
+
+    private RedirectBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = spy(new RedirectBackfill());
+        ReflectionTestUtils.setField(backfill, "batchSize", 2);
+        ReflectionTestUtils.setField(backfill, "maxPendingCopies", 3);
+    }
+
+    @Test
+    void copiesQueuedLinksInBatches() {
+        doReturn(0).when(backfill).copy(anyList());
+        backfill.enqueue(url("a"));
+        backfill.enqueue(url("b"));
+        backfill.enqueue(url("a"));
+        backfill.enqueue(url("c"));
+
+        backfill.copyPending();
+
+        ArgumentCaptor<List<Url>> batches = ArgumentCaptor.forClass(List.class);
+        verify(backfill, times(2)).copy(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(batches.getAllValues()).flatExtracting(batch -> batch.stream().map(Url::getShortCode).toList())
+                .containsExactlyInAnyOrder("a", "b", "c");
+
+        backfill.copyPending();
+        verify(backfill, times(2)).copy(anyList());
+    }
+
+    @Test
+    void skipsLinksWhileQueueIsFull() {
+        doReturn(0).when(backfill).copy(anyList());
+        for (String shortCode : List.of("a", "b", "c", "d")) {
+            backfill.enqueue(url(shortCode));
+        }
+
+        backfill.copyPending();
+
+        ArgumentCaptor<List<Url>> batches = ArgumentCaptor.forClass(List.class);
+        verify(backfill, times(2)).copy(batches.capture());
+        assertThat(batches.getAllValues()).flatExtracting(batch -> batch.stream().map(Url::getShortCode).toList())
+                .hasSize(3)
+                .doesNotContain("d");
+    }
+
+    @Test
+    void keepsRemainingLinksQueuedWhenCopyFails() {
+        doThrow(new DataAccessResourceFailureException("down")).doReturn(0).when(backfill).copy(anyList());
+        backfill.enqueue(url("a"));
+        backfill.enqueue(url("b"));
+        backfill.enqueue(url("c"));
+
+        backfill.copyPending();
+        verify(backfill, times(1)).copy(anyList());
+
+        backfill.copyPending();
+        verify(backfill, times(2)).copy(anyList());
+        backfill.copyPending();
+        verify(backfill, times(2)).copy(anyList());
+    }
+
+    @Test
+    void doesNothingWithoutQueuedLinks() {
+        backfill.copyPending();
+
+        verify(backfill, never()).copy(anyList());
+    }
+
+    private static Url url(String shortCode) {
+        Url url = new Url();
+        url.setShortCode(shortCode);
+        url.setOriginalUrl("https://example.com/" + shortCode);
+        return url;
+    }
+}
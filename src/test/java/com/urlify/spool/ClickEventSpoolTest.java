@@ -0,0 +1,191 @@
+package com.urlify.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickEventSpoolTest {
+
+    // Segment files start with a 64 byte header
+    private static final int HEADER_SIZE = 64;
+
+    @TempDir
+    Path dir;
+
+    private final List<ClickEventSpool> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeSpools() {
+        opened.forEach(ClickEventSpool::close);
+    }
+
+    @Test
+    void roundTripsClicks() throws IOException {
+        ClickEventSpool spool = open(16);
+        SpooledClick full = new SpooledClick("abc123", 1_700_000_000_123L, "203.0.113.7",
+                "Mozilla/5.0 (X11; Linux x86_64)", "https://example.com/page?q=1", 0.125, true);
+        SpooledClick empty = new SpooledClick("x", 0, null, null, null, 1.0, false);
+
+        assertThat(spool.append(full)).isTrue();
+        assertThat(spool.append(empty)).isTrue();
+        assertThat(spool.pending()).isEqualTo(2);
+
+        ClickEventSpool.Batch batch = spool.readBatch(10);
+        assertThat(batch.clicks()).containsExactly(full, empty);
+        assertThat(batch.from()).isZero();
+        assertThat(batch.to()).isEqualTo(2);
+    }
+
+    @Test
+    void truncatesLongFieldsOnCharacterBoundaries() throws IOException {
+        ClickEventSpool spool = open(16);
+        // Three UTF-8 bytes each; 512 bytes of user agent hold 170 of them
+        String userAgent = "€".repeat(400);
+        spool.append(new SpooledClick("abc", 1, "198.51.100.1", userAgent, "https://example.com/", 1.0, false));
+
+        SpooledClick read = spool.readBatch(1).clicks().get(0);
+        assertThat(read.userAgent()).isEqualTo("€".repeat(170));
+        assertThat(read.referer()).isEqualTo("https://example.com/");
+    }
+
+    @Test
+    void readsInBatchesAndKeepsAcknowledgedPositionAcrossRestart() throws IOException {
+        ClickEventSpool spool = open(16);
+        for (int i = 0; i < 5; i++) {
+            spool.append(click(i));
+        }
+
+        ClickEventSpool.Batch first = spool.readBatch(3);
+        assertThat(first.clicks()).containsExactly(click(0), click(1), click(2));
+        spool.acknowledge(first);
+        assertThat(spool.pending()).isEqualTo(2);
+        // Acknowledging the same batch again changes nothing
+        spool.acknowledge(first);
+        assertThat(spool.pending()).isEqualTo(2);
+        String id = spool.id();
+        spool.close();
+
+        ClickEventSpool reopened = open(16);
+        assertThat(reopened.id()).isEqualTo(id);
+        assertThat(reopened.pending()).isEqualTo(2);
+        ClickEventSpool.Batch rest = reopened.readBatch(10);
+        assertThat(rest.clicks()).containsExactly(click(3), click(4));
+        assertThat(rest.position(0)).isGreaterThan(first.position(2));
+        reopened.acknowledge(rest);
+        assertThat(reopened.hasPending()).isFalse();
+        assertThat(reopened.readBatch(10)).isNull();
+    }
+
+    @Test
+    void recoversUpToTornRecord() throws IOException {
+        ClickEventSpool spool = open(16);
+        for (int i = 0; i < 4; i++) {
+            spool.append(click(i));
+        }
+        spool.close();
+
+        // Flip a byte in the third record, as a write cut short by a crash would leave it
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE + 2L * ClickEventSpool.RECORD_SIZE + 40;
+            ByteBuffer oneByte = ByteBuffer.allocate(1);
+            channel.read(oneByte, position);
+            oneByte.put(0, (byte) (oneByte.get(0) ^ 0xFF)).rewind();
+            channel.write(oneByte, position);
+        }
+
+        ClickEventSpool reopened = open(16);
+        assertThat(reopened.pending()).isEqualTo(2);
+        // New clicks overwrite the torn record
+        reopened.append(click(9));
+        assertThat(reopened.readBatch(10).clicks()).containsExactly(click(0), click(1), click(9));
+    }
+
+    @Test
+    void rollsOverAndDeletesAcknowledgedSegments() throws IOException {
+        ClickEventSpool spool = open(2);
+        for (int i = 0; i < 5; i++) {
+            spool.append(click(i));
+        }
+        assertThat(segments()).hasSize(3);
+
+        ClickEventSpool.Batch batch = spool.readBatch(10);
+        // A batch never spans segments
+        assertThat(batch.clicks()).containsExactly(click(0), click(1));
+        spool.acknowledge(batch);
+        assertThat(segments()).hasSize(2);
+
+        while ((batch = spool.readBatch(10)) != null) {
+            spool.acknowledge(batch);
+        }
+        assertThat(spool.pending()).isZero();
+        // The segment being written to is kept
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void quarantinesUnreadableSegmentsAndStarts() throws IOException {
+        ClickEventSpool spool = open(16);
+        spool.append(click(0));
+        spool.close();
+        Path truncated = dir.resolve(String.format("clicks-%020d.seg", 7));
+        Files.write(truncated, new byte[10]);
+        Path foreign = dir.resolve(String.format("clicks-%020d.seg", 8));
+        Files.write(foreign, new byte[HEADER_SIZE + ClickEventSpool.RECORD_SIZE]);
+
+        ClickEventSpool reopened = open(16);
+
+        assertThat(reopened.pending()).isEqualTo(1);
+        assertThat(segments()).hasSize(1);
+        assertThat(dir.resolve(truncated.getFileName() + ".quarantined")).exists();
+        assertThat(dir.resolve(foreign.getFileName() + ".quarantined")).exists();
+        assertThat(reopened.readBatch(10).clicks()).containsExactly(click(0));
+    }
+
+    @Test
+    void disabledSpoolRejectsClicks() throws IOException {
+        ClickEventSpool spool = new ClickEventSpool();
+        ReflectionTestUtils.setField(spool, "enabled", false);
+        ReflectionTestUtils.setField(spool, "meterRegistry", new SimpleMeterRegistry());
+        spool.open();
+
+        assertThat(spool.append(click(0))).isFalse();
+        assertThat(spool.hasPending()).isFalse();
+    }
+
+    private ClickEventSpool open(int segmentRecords) throws IOException {
+        ClickEventSpool spool = new ClickEventSpool();
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", dir.toString());
+        ReflectionTestUtils.setField(spool, "segmentRecords", segmentRecords);
+        ReflectionTestUtils.setField(spool, "fsyncPolicy", ClickEventSpool.FsyncPolicy.ALWAYS);
+        ReflectionTestUtils.setField(spool, "meterRegistry", new SimpleMeterRegistry());
+        spool.open();
+        opened.add(spool);
+        return spool;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static SpooledClick click(int i) {
+        return new SpooledClick("code" + i, 1_700_000_000_000L + i, "192.0.2." + i, "agent " + i, null, 1.0, false);
+    }
+}
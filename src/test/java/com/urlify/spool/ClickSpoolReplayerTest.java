@@ -0,0 +1,122 @@
+package com.urlify.spool;
+
+import com.urlify.analytics.GeoIpEnricher;
+import com.urlify.analytics.UserAgentClassifier;
+import com.urlify.repository.ClickEventStore;
+import com.urlify.repository.UrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+class ClickSpoolReplayerTest {
+
+    // Position of the first record of segment 1
+    private static final long FIRST_SEGMENT = 1L << 32;
+
+    @TempDir
+    Path dir;
+
+    private final ClickEventStore clickEventStore = mock(ClickEventStore.class);
+    private final UrlRepository urlRepository = mock(UrlRepository.class);
+    private final ClickEventSpool spool = new ClickEventSpool();
+    private final ClickSpoolReplayer replayer = new ClickSpoolReplayer();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", dir.toString());
+        ReflectionTestUtils.setField(spool, "segmentRecords", 16);
+        ReflectionTestUtils.setField(spool, "fsyncPolicy", ClickEventSpool.FsyncPolicy.NONE);
+        ReflectionTestUtils.setField(spool, "meterRegistry", new SimpleMeterRegistry());
+        spool.open();
+
+        ReflectionTestUtils.setField(replayer, "clickSpool", spool);
+        ReflectionTestUtils.setField(replayer, "clickEventStore", clickEventStore);
+        ReflectionTestUtils.setField(replayer, "urlRepository", urlRepository);
+        ReflectionTestUtils.setField(replayer, "userAgentClassifier", mock(UserAgentClassifier.class));
+        ReflectionTestUtils.setField(replayer, "geoIpEnricher", mock(GeoIpEnricher.class));
+        ReflectionTestUtils.setField(replayer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(replayer, "batchSize", 2);
+    }
+
+    @AfterEach
+    void closeSpool() {
+        spool.close();
+    }
+
+    @Test
+    void clearsReplayedPositionsOnceSpoolIsDrained() {
+        spool.append(click("abc", false));
+        spool.append(click("abc", true));
+        spool.append(click("xyz", false));
+
+        replayer.replay();
+
+        assertThat(spool.hasPending()).isFalse();
+        var order = inOrder(urlRepository);
+        order.verify(urlRepository).incrementSpooledClicks(spool.id(), Map.of("abc", List.of(FIRST_SEGMENT, FIRST_SEGMENT + 1)));
+        order.verify(urlRepository).incrementSpooledClicks(spool.id(), Map.of("xyz", List.of(FIRST_SEGMENT + 2)));
+        order.verify(urlRepository).clearSpooledPositions(eq(spool.id()), shortCodes("abc", "xyz"));
+    }
+
+    @Test
+    void keepsPositionsWhileBatchesRemainSpooled() {
+        spool.append(click("abc", false));
+        spool.append(click("abc", false));
+        spool.append(click("xyz", false));
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(urlRepository).incrementSpooledClicks(anyString(), anyMap());
+
+        replayer.replay();
+
+        assertThat(spool.pending()).isEqualTo(3);
+        verify(urlRepository, never()).clearSpooledPositions(anyString(), any());
+    }
+
+    @Test
+    void retriesClearingAfterFailure() {
+        spool.append(click("abc", false));
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(urlRepository).clearSpooledPositions(anyString(), any());
+
+        replayer.replay();
+        assertThat(spool.hasPending()).isFalse();
+        reset(urlRepository);
+
+        replayer.replay();
+        verify(urlRepository).clearSpooledPositions(eq(spool.id()), shortCodes("abc"));
+        verify(urlRepository, never()).incrementSpooledClicks(anyString(), anyMap());
+    }
+
+    private static Collection<String> shortCodes(String... expected) {
+        return argThat(shortCodes -> Set.copyOf(shortCodes).equals(Set.of(expected)));
+    }
+
+    private static SpooledClick click(String shortCode, boolean eventStored) {
+        return new SpooledClick(shortCode, 1_700_000_000_000L, "192.0.2.1", "agent", null, 1.0, eventStored);
+    }
+}
@@ -0,0 +1,141 @@
+package com.urlify.util;
+
+import com.urlify.analytics.GeoLocation;
+import com.urlify.entity.Analytics;
+import com.urlify.entity.ClickBucket;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickBucketCodecTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Test
+    void storesIpLiteralsAsBytes() {
+        assertThat(ClickBucketCodec.encodeIp("192.0.2.1")).containsExactly(192, 0, 2, 1);
+        assertThat(ClickBucketCodec.encodeIp("2001:db8:0:0:0:0:0:1")).hasSize(16);
+        assertThat(ClickBucketCodec.decodeIp(ClickBucketCodec.encodeIp("2001:db8:0:0:0:0:0:1")))
+                .isEqualTo("2001:db8:0:0:0:0:0:1");
+    }
+
+    @Test
+    void keepsOtherAddressSpellingsAsStrings() {
+        assertThat(ClickBucketCodec.encodeIp(null)).isNull();
+        assertThat(ClickBucketCodec.encodeIp("")).isNull();
+        assertThat(ClickBucketCodec.encodeIp("unknown")).isNull();
+        assertThat(ClickBucketCodec.encodeIp("256.0.0.1")).isNull();
+        assertThat(ClickBucketCodec.encodeIp("1.2.3")).isNull();
+        // Would read back without the leading zero
+        assertThat(ClickBucketCodec.encodeIp("192.0.2.01")).isNull();
+        // Compressed IPv6 reads back in the eight-group form
+        assertThat(ClickBucketCodec.encodeIp("2001:db8::1")).isNull();
+    }
+
+    @Test
+    void roundTripsEventsThroughDictionaries() {
+        Analytics click = event("abc", HOUR.plusMinutes(5), "192.0.2.1");
+        click.setId("spool-1");
+        click.setUserAgent("curl/8.4.0");
+        click.setReferer("https://news.example.com/");
+        click.setDevice(4);
+        click.setBrowser(1);
+        click.setOs(1);
+        click.setLocation(new GeoLocation("US", "US-CA"));
+        click.setSampleRate(0.25);
+        Analytics proxied = event("abc", HOUR.plusMinutes(6), "unknown");
+        proxied.setId("spool-2");
+
+        ClickBucketCodec.Writes writes = ClickBucketCodec.writes(List.of(click, proxied), 10);
+
+        assertThat(writes.buckets()).hasSize(1);
+        assertThat(writes.userAgents()).containsValue("curl/8.4.0");
+        assertThat(writes.referers()).containsValue("https://news.example.com/");
+        Pair<Query, Update> write = writes.buckets().get(0);
+        assertThat(write.getFirst().getQueryObject()).containsEntry("_id", "spool-1");
+        Document inserted = write.getSecond().getUpdateObject().get("$setOnInsert", Document.class);
+        assertThat(inserted.get("start")).isEqualTo(ClickBucketCodec.epochMillis(HOUR));
+        assertThat(inserted.get("count")).isEqualTo(2);
+
+        ClickBucket bucket = new ClickBucket("spool-1", "abc", ClickBucketCodec.epochMillis(HOUR), 2,
+                events(inserted));
+        Analytics decoded = ClickBucketCodec.decode(bucket, bucket.getEvents().get(0), writes.userAgents(),
+                writes.referers());
+        assertThat(decoded.getShortCode()).isEqualTo("abc");
+        assertThat(decoded.getTimestamp()).isEqualTo(click.getTimestamp());
+        assertThat(decoded.getIpAddress()).isEqualTo("192.0.2.1");
+        assertThat(decoded.getUserAgent()).isEqualTo("curl/8.4.0");
+        assertThat(decoded.getReferer()).isEqualTo("https://news.example.com/");
+        assertThat(decoded.getDevice()).isEqualTo(4);
+        assertThat(decoded.getCountry()).isEqualTo("US");
+        assertThat(decoded.getRegion()).isEqualTo("US-CA");
+        assertThat(decoded.getSampleRate()).isEqualTo(0.25);
+
+        Analytics second = ClickBucketCodec.decode(bucket, bucket.getEvents().get(1), writes.userAgents(),
+                writes.referers());
+        assertThat(second.getIpAddress()).isEqualTo("unknown");
+        assertThat(second.getUserAgent()).isNull();
+        assertThat(second.getSampleRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void appendsNewEventsToOpenBucketsInChunks() {
+        List<Analytics> events = List.of(
+                event("abc", HOUR.plusMinutes(1), "192.0.2.1"),
+                event("abc", HOUR.plusMinutes(2), "192.0.2.2"),
+                event("abc", HOUR.plusMinutes(3), "192.0.2.3"),
+                event("abc", HOUR.plusHours(1), "192.0.2.4"),
+                event("xyz", HOUR.plusMinutes(1), "192.0.2.5"));
+
+        List<Pair<Query, Update>> buckets = ClickBucketCodec.writes(events, 2).buckets();
+
+        // abc 10:00 in chunks of two, abc 11:00, xyz 10:00
+        assertThat(buckets).hasSize(4);
+        Document query = buckets.get(0).getFirst().getQueryObject();
+        assertThat(query).containsEntry("shortCode", "abc")
+                .containsEntry("start", ClickBucketCodec.epochMillis(HOUR));
+        assertThat(query.get("count", Document.class)).containsEntry("$lte", 0);
+        assertThat(buckets.get(0).getSecond().getUpdateObject().get("$inc", Document.class))
+                .containsEntry("count", 2);
+        assertThat(buckets.get(1).getFirst().getQueryObject().get("count", Document.class))
+                .containsEntry("$lte", 1);
+    }
+
+    @Test
+    void splitsLocationCodes() {
+        assertThat(ClickBucketCodec.location(null)).isNull();
+        assertThat(ClickBucketCodec.location("DE")).isEqualTo(new GeoLocation("DE", null));
+        assertThat(ClickBucketCodec.location("GB-ENG")).isEqualTo(new GeoLocation("GB", "GB-ENG"));
+    }
+
+    @Test
+    void alignsBucketsToTheHour() {
+        long start = ClickBucketCodec.epochMillis(HOUR);
+
+        assertThat(ClickBucketCodec.bucketStart(start + ClickBucket.SPAN_MILLIS - 1)).isEqualTo(start);
+        assertThat(ClickBucketCodec.bucketStart(start + ClickBucket.SPAN_MILLIS))
+                .isEqualTo(start + ClickBucket.SPAN_MILLIS);
+        assertThat(ClickBucketCodec.dictionaryId("curl/8.4.0")).isEqualTo(ClickBucketCodec.dictionaryId("curl/8.4.0"))
+                .isNotEqualTo(ClickBucketCodec.dictionaryId("curl/8.4.1"));
+    }
+
+    private static Analytics event(String shortCode, LocalDateTime timestamp, String ipAddress) {
+        Analytics analytics = new Analytics();
+        analytics.setShortCode(shortCode);
+        analytics.setTimestamp(timestamp);
+        analytics.setIpAddress(ipAddress);
+        return analytics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ClickBucket.Event> events(Document inserted) {
+        return (List<ClickBucket.Event>) inserted.get("events");
+    }
+}
@@ -0,0 +1,62 @@
+package com.urlify.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickDictionaryTest {
+
+    @Test
+    void returnsOnlyEntriesNotWrittenYet() {
+        ClickDictionary dictionary = new ClickDictionary(ClickDictionary.USER_AGENTS, 10);
+
+        assertThat(dictionary.unwritten(Map.of(1L, "a", 2L, "b"))).containsOnlyKeys(1L, 2L);
+        assertThat(dictionary.unwritten(Map.of(1L, "a", 3L, "c"))).containsOnlyKeys(3L);
+
+        // A failed write is retried with the next batch
+        dictionary.forget(List.of(3L));
+        assertThat(dictionary.unwritten(Map.of(3L, "c"))).containsOnlyKeys(3L);
+    }
+
+    @Test
+    void reportsIdsMissingFromCache() {
+        ClickDictionary dictionary = new ClickDictionary(ClickDictionary.REFERERS, 10);
+        dictionary.putAll(Map.of(1L, "a"));
+        List<Long> missing = new ArrayList<>();
+
+        assertThat(dictionary.cached(List.of(1L, 2L), missing)).containsExactly(Map.entry(1L, "a"));
+        assertThat(missing).containsExactly(2L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        ClickDictionary dictionary = new ClickDictionary(ClickDictionary.USER_AGENTS, 2);
+        dictionary.putAll(Map.of(1L, "a"));
+        dictionary.putAll(Map.of(2L, "b"));
+        dictionary.cached(List.of(1L), new ArrayList<>());
+        dictionary.putAll(Map.of(3L, "c"));
+        List<Long> missing = new ArrayList<>();
+
+        dictionary.cached(List.of(1L, 2L, 3L), missing);
+
+        assertThat(missing).containsExactly(2L);
+    }
+
+    @Test
+    void upsertsInsertIfAbsent() {
+        List<Pair<Query, Update>> upserts = ClickDictionary.upserts(Map.of(42L, "curl/8.4.0"));
+
+        assertThat(upserts).hasSize(1);
+        assertThat(upserts.get(0).getFirst().getQueryObject()).containsEntry("_id", 42L);
+        assertThat(upserts.get(0).getSecond().getUpdateObject().get("$setOnInsert", Document.class))
+                .containsEntry("v", "curl/8.4.0");
+    }
+}
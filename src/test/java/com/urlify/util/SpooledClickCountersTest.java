@@ -0,0 +1,70 @@
+package com.urlify.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpooledClickCountersTest {
+
+    @Test
+    void readsReplayedPositionsOfOneSpool() {
+        List<Document> urls = List.of(
+                new Document("shortCode", "abc").append("spoolReplayed", new Document("s1", 12L).append("s2", 3L)),
+                new Document("shortCode", "xyz").append("spoolReplayed", new Document("s2", 5L)),
+                new Document("shortCode", "new"));
+
+        assertThat(SpooledClickCounters.replayedUpTo("s1", urls)).containsExactly(Map.entry("abc", 12L));
+    }
+
+    @Test
+    void countsOnlyClicksPastReplayedPosition() {
+        Map<String, List<Long>> positions = Map.of(
+                "abc", List.of(10L, 11L, 12L, 13L),
+                "xyz", List.of(4L));
+
+        List<Pair<Query, Update>> increments = SpooledClickCounters.increments("s1", positions,
+                Map.of("abc", 12L, "xyz", 5L));
+
+        // xyz was already counted up to position 5
+        assertThat(increments).hasSize(1);
+        Document query = increments.get(0).getFirst().getQueryObject();
+        assertThat(query).containsEntry("shortCode", "abc");
+        assertThat(query.toJson()).contains("\"spoolReplayed.s1\": 12");
+        Document update = increments.get(0).getSecond().getUpdateObject();
+        assertThat(update.get("$inc", Document.class)).containsEntry("clicks", 2L);
+        assertThat(update.get("$set", Document.class)).containsEntry("spoolReplayed.s1", 14L);
+    }
+
+    @Test
+    void guardsFirstReplayOnAbsentPosition() {
+        List<Pair<Query, Update>> increments = SpooledClickCounters.increments("s1",
+                Map.of("abc", List.of(3L, 4L)), Map.of());
+
+        assertThat(increments.get(0).getFirst().getQueryObject().toJson())
+                .contains("\"spoolReplayed.s1\": {\"$exists\": false}");
+        assertThat(increments.get(0).getSecond().getUpdateObject().get("$inc", Document.class))
+                .containsEntry("clicks", 2L);
+    }
+
+    @Test
+    void clearsPositionsInChunks() {
+        List<String> shortCodes = IntStream.range(0, 2_500).mapToObj(i -> "code" + i).toList();
+
+        List<Query> queries = SpooledClickCounters.clearQueries("s1", shortCodes);
+
+        assertThat(queries).hasSize(3);
+        assertThat(queries.get(2).getQueryObject().get("shortCode", Document.class).getList("$in", String.class))
+                .hasSize(500);
+        assertThat(queries.get(0).getQueryObject().toJson()).contains("\"spoolReplayed.s1\": {\"$exists\": true}");
+        assertThat(SpooledClickCounters.clearUpdate("s1").getUpdateObject().get("$unset", Document.class))
+                .containsKey("spoolReplayed.s1");
+    }
+}
@@ -0,0 +1,109 @@
+package com.urlify.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlValueCodecTest {
+
+    private static final String URL = "https://shop.example.com/products/item-4242?utm_source=newsletter&utm_medium=email";
+
+    private static final byte[] DICTIONARY = UrlValueCodec.train(IntStream.range(0, 2_000)
+            .mapToObj(i -> "https://shop.example.com/products/item-" + i + "?utm_source=newsletter&utm_medium="
+                    + (i % 3 == 0 ? "email" : "social") + "&utm_campaign=spring-" + i % 17)
+            .toList(), 4_096);
+
+    @Test
+    void leavesValuesPlainWithoutDictionary() {
+        UrlValueCodec codec = new UrlValueCodec(true, 10, 3, version -> { });
+
+        byte[] value = codec.encode(URL);
+
+        assertThat(value).isEqualTo(URL.getBytes(StandardCharsets.UTF_8));
+        assertThat(UrlValueCodec.isCompressed(value)).isFalse();
+        assertThat(codec.decode(value)).isEqualTo(URL);
+        assertThat(codec.currentVersion()).isEqualTo(-1);
+    }
+
+    @Test
+    void compressesWithHeaderAndRoundTrips() {
+        UrlValueCodec codec = new UrlValueCodec(true, 10, 3, version -> { });
+        codec.addDictionary(258, DICTIONARY);
+
+        byte[] value = codec.encode(URL);
+
+        assertThat(UrlValueCodec.isCompressed(value)).isTrue();
+        assertThat(value.length).isLessThan(URL.length());
+        // 0x00 marker, then the big-endian dictionary version
+        assertThat(value[1]).isEqualTo((byte) 1);
+        assertThat(value[2]).isEqualTo((byte) 2);
+        assertThat(codec.decode(value)).isEqualTo(URL);
+    }
+
+    @Test
+    void leavesShortOrDisabledValuesPlain() {
+        UrlValueCodec disabled = new UrlValueCodec(false, 10, 3, version -> { });
+        disabled.addDictionary(1, DICTIONARY);
+        UrlValueCodec enabled = new UrlValueCodec(true, 200, 3, version -> { });
+        enabled.addDictionary(1, DICTIONARY);
+
+        assertThat(UrlValueCodec.isCompressed(disabled.encode(URL))).isFalse();
+        assertThat(UrlValueCodec.isCompressed(enabled.encode(URL))).isFalse();
+        // A disabled codec still reads compressed values
+        UrlValueCodec writer = new UrlValueCodec(true, 10, 3, version -> { });
+        writer.addDictionary(1, DICTIONARY);
+        assertThat(disabled.decode(writer.encode(URL))).isEqualTo(URL);
+    }
+
+    @Test
+    void encodesWithNewestDictionary() {
+        UrlValueCodec codec = new UrlValueCodec(true, 10, 3, version -> { });
+        codec.addDictionary(2, DICTIONARY);
+        codec.addDictionary(1, DICTIONARY);
+
+        assertThat(codec.currentVersion()).isEqualTo(2);
+        assertThat(codec.encode(URL)[2]).isEqualTo((byte) 2);
+        assertThatThrownBy(() -> codec.addDictionary(0x10000, DICTIONARY))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void requestsUnknownDictionaryOnce() {
+        UrlValueCodec writer = new UrlValueCodec(true, 10, 3, version -> { });
+        writer.addDictionary(7, DICTIONARY);
+        byte[] value = writer.encode(URL);
+        List<Integer> requested = new ArrayList<>();
+        UrlValueCodec reader = new UrlValueCodec(true, 10, 3, requested::add);
+
+        assertThat(reader.decode(value)).isNull();
+        assertThat(reader.decode(value)).isNull();
+        assertThat(requested).containsExactly(7);
+
+        reader.retryVersion(7);
+        assertThat(reader.decode(value)).isNull();
+        assertThat(requested).containsExactly(7, 7);
+
+        reader.addDictionary(7, DICTIONARY);
+        assertThat(reader.decode(value)).isEqualTo(URL);
+    }
+
+    @Test
+    void decodesCorruptValuesAsMiss() {
+        UrlValueCodec codec = new UrlValueCodec(true, 10, 3, version -> { });
+        codec.addDictionary(1, DICTIONARY);
+        byte[] value = codec.encode(URL);
+
+        assertThat(codec.decode(null)).isNull();
+        assertThat(codec.decode(new byte[]{0})).isNull();
+        assertThat(codec.decode(new byte[]{0, 0, 1})).isNull();
+        byte[] truncated = new byte[value.length - 4];
+        System.arraycopy(value, 0, truncated, 0, truncated.length);
+        assertThat(codec.decode(truncated)).isNull();
+    }
+}